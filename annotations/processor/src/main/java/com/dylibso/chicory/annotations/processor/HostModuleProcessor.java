@@ -46,6 +46,9 @@ import javax.lang.model.type.TypeMirror;
 
 public final class HostModuleProcessor extends AbstractModuleProcessor {
 
+    // keep in sync with TypedFunctionHandle.MAX_ARITY
+    private static final int MAX_TYPED_ARITY = 9;
+
     @Override
     public Set<String> getSupportedAnnotationTypes() {
         return Set.of(HostModule.class.getName());
@@ -83,6 +86,7 @@ public final class HostModuleProcessor extends AbstractModuleProcessor {
         }
         cu.addImport("com.dylibso.chicory.runtime.HostFunction");
         cu.addImport("com.dylibso.chicory.runtime.Instance");
+        cu.addImport("com.dylibso.chicory.runtime.TypedFunctionHandle");
         cu.addImport("com.dylibso.chicory.wasm.types.Value");
         cu.addImport("com.dylibso.chicory.wasm.types.FunctionType");
         cu.addImport("com.dylibso.chicory.wasm.types.ValType");
@@ -141,11 +145,15 @@ public final class HostModuleProcessor extends AbstractModuleProcessor {
             name = camelCaseToSnakeCase(executable.getSimpleName().toString());
         }
 
+        // functions with few parameters get a typed handle, with no arrays for the arguments
+        var arity = wasmParamCount(executable);
+        var typed = arity <= MAX_TYPED_ARITY;
+
         // compute parameter types and argument conversions
         NodeList<Expression> paramTypes = new NodeList<>();
         NodeList<Expression> arguments = new NodeList<>();
         for (VariableElement parameter : executable.getParameters()) {
-            var argExpr = argExpr(paramTypes.size());
+            var argExpr = argExpr(paramTypes.size(), typed);
             switch (parameter.asType().toString()) {
                 case "int":
                     paramTypes.add(valueType("I32"));
@@ -171,7 +179,7 @@ public final class HostModuleProcessor extends AbstractModuleProcessor {
                     break;
                 case "java.lang.String":
                     if (annotatedWith(parameter, Buffer.class)) {
-                        var lenExpr = argExpr(paramTypes.size() + 1);
+                        var lenExpr = argExpr(paramTypes.size() + 1, typed);
                         paramTypes.add(valueType("I32"));
                         paramTypes.add(valueType("I32"));
                         arguments.add(
@@ -249,7 +257,15 @@ public final class HostModuleProcessor extends AbstractModuleProcessor {
         // convert return value
         BlockStmt handleBody = new BlockStmt();
         if (returnType.isEmpty()) {
-            handleBody.addStatement(invocation).addStatement(new ReturnStmt(new NullLiteralExpr()));
+            handleBody.addStatement(invocation);
+            if (!typed) {
+                handleBody.addStatement(new ReturnStmt(new NullLiteralExpr()));
+            }
+        } else if (typed) {
+            var result = new VariableDeclarator(parseType(returnName), "result", invocation);
+            handleBody
+                    .addStatement(new ExpressionStmt(new VariableDeclarationExpr(result)))
+                    .addStatement(new ReturnStmt(returnExpr));
         } else {
             var result = new VariableDeclarator(parseType(returnName), "result", invocation);
             var wrapped =
@@ -263,12 +279,22 @@ public final class HostModuleProcessor extends AbstractModuleProcessor {
         }
 
         // lambda for host function
-        var handle =
+        var lambda =
                 new LambdaExpr()
                         .addParameter("Instance", "instance")
-                        .addParameter(new Parameter(parseType("long"), "args").setVarArgs(true))
                         .setEnclosingParameters(true)
                         .setBody(handleBody);
+        Expression handle = lambda;
+        if (typed) {
+            for (int i = 0; i < arity; i++) {
+                lambda.addParameter("long", "arg" + i);
+            }
+            var handleType =
+                    "TypedFunctionHandle.Arity" + arity + (returnType.isEmpty() ? "Void" : "");
+            handle = new CastExpr(parseType(handleType), lambda);
+        } else {
+            lambda.addParameter(new Parameter(parseType("long"), "args").setVarArgs(true));
+        }
 
         // create host function
         var function =
@@ -299,7 +325,27 @@ public final class HostModuleProcessor extends AbstractModuleProcessor {
                 .anyMatch(annotationName::equals);
     }
 
-    private static Expression argExpr(int n) {
+    private static int wasmParamCount(ExecutableElement executable) {
+        int count = 0;
+        for (VariableElement parameter : executable.getParameters()) {
+            switch (parameter.asType().toString()) {
+                case "com.dylibso.chicory.runtime.Instance":
+                case "com.dylibso.chicory.runtime.Memory":
+                    break;
+                case "java.lang.String":
+                    count += annotatedWith(parameter, Buffer.class) ? 2 : 1;
+                    break;
+                default:
+                    count++;
+            }
+        }
+        return count;
+    }
+
+    private static Expression argExpr(int n, boolean typed) {
+        if (typed) {
+            return new NameExpr("arg" + n);
+        }
         return new ArrayAccessExpr(new NameExpr("args"), new IntegerLiteralExpr(String.valueOf(n)));
     }
 
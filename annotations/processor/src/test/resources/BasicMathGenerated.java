@@ -2,6 +2,7 @@ package chicory.testing;
 
 import com.dylibso.chicory.runtime.HostFunction;
 import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.runtime.TypedFunctionHandle;
 import com.dylibso.chicory.wasm.types.Value;
 import com.dylibso.chicory.wasm.types.FunctionType;
 import com.dylibso.chicory.wasm.types.ValType;
@@ -28,19 +29,19 @@ public final class BasicMath_ModuleFactory {
                                 List.of(ValType.I32,
                                         ValType.I32),
                                 List.of(ValType.I64)),
-                        (Instance instance, long... args) -> {
-                            long result = functions.add((int) args[0],
-                                    (int) args[1]);
-                            return new long[] { result };
+                        (TypedFunctionHandle.Arity2) (Instance instance, long arg0, long arg1) -> {
+                            long result = functions.add((int) arg0,
+                                    (int) arg1);
+                            return result;
                         }), //
                 new HostFunction(moduleName,
                         "square",
                         FunctionType.of(
                                 List.of(ValType.F32),
                                 List.of(ValType.F64)),
-                        (Instance instance, long... args) -> {
-                            double result = functions.pow2(Value.longToFloat(args[0]));
-                            return new long[] { Value.doubleToLong(result) };
+                        (TypedFunctionHandle.Arity1) (Instance instance, long arg0) -> {
+                            double result = functions.pow2(Value.longToFloat(arg0));
+                            return Value.doubleToLong(result);
                         }), //
                 new HostFunction(moduleName,
                         "floor_div",
@@ -48,10 +49,10 @@ public final class BasicMath_ModuleFactory {
                                 List.of(ValType.I32,
                                         ValType.I32),
                                 List.of(ValType.I32)),
-                        (Instance instance, long... args) -> {
-                            int result = functions.floorDiv((int) args[0],
-                                    (int) args[1]);
-                            return new long[] { (long) result };
+                        (TypedFunctionHandle.Arity2) (Instance instance, long arg0, long arg1) -> {
+                            int result = functions.floorDiv((int) arg0,
+                                    (int) arg1);
+                            return (long) result;
                         }) };
     }
 }
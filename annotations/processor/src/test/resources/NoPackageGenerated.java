@@ -1,5 +1,6 @@
 import com.dylibso.chicory.runtime.HostFunction;
 import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.runtime.TypedFunctionHandle;
 import com.dylibso.chicory.wasm.types.Value;
 import com.dylibso.chicory.wasm.types.FunctionType;
 import com.dylibso.chicory.wasm.types.ValType;
@@ -25,18 +26,16 @@ public final class NoPackage_ModuleFactory {
                                 List.of(ValType.I32,
                                         ValType.I32),
                                 List.of()),
-                        (Instance instance, long... args) -> {
+                        (TypedFunctionHandle.Arity2Void) (Instance instance, long arg0, long arg1) -> {
                             functions.print(instance.memory(),
-                                    (int) args[0],
-                                    (int) args[1]);
-                            return null;
+                                    (int) arg0,
+                                    (int) arg1);
                         }), //
                 new HostFunction(moduleName,
                         "exit",
                         FunctionType.of(List.of(), List.of()),
-                        (Instance instance, long... args) -> {
+                        (TypedFunctionHandle.Arity0Void) (Instance instance) -> {
                             functions.exit();
-                            return null;
                         }) };
     }
 }
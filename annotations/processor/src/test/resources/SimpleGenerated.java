@@ -2,6 +2,7 @@ package chicory.testing;
 
 import com.dylibso.chicory.runtime.HostFunction;
 import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.runtime.TypedFunctionHandle;
 import com.dylibso.chicory.wasm.types.Value;
 import com.dylibso.chicory.wasm.types.FunctionType;
 import com.dylibso.chicory.wasm.types.ValType;
@@ -27,19 +28,17 @@ public final class Simple_ModuleFactory {
                                 List.of(ValType.I32,
                                         ValType.I32),
                                 List.of()),
-                        (Instance instance, long... args) -> {
-                            functions.print(instance.memory().readString((int) args[0],
-                                    (int) args[1]));
-                            return null;
+                        (TypedFunctionHandle.Arity2Void) (Instance instance, long arg0, long arg1) -> {
+                            functions.print(instance.memory().readString((int) arg0,
+                                    (int) arg1));
                         }), //
                 new HostFunction(moduleName,
                         "printx",
                         FunctionType.of(
                                 List.of(ValType.I32),
                                 List.of()),
-                        (Instance instance, long... args) -> {
-                            functions.printx(instance.memory().readCString((int) args[0]));
-                            return null;
+                        (TypedFunctionHandle.Arity1Void) (Instance instance, long arg0) -> {
+                            functions.printx(instance.memory().readCString((int) arg0));
                         }), //
                 new HostFunction(moduleName,
                         "random_get",
@@ -47,18 +46,16 @@ public final class Simple_ModuleFactory {
                                 List.of(ValType.I32,
                                         ValType.I32),
                                 List.of()),
-                        (Instance instance, long... args) -> {
+                        (TypedFunctionHandle.Arity2Void) (Instance instance, long arg0, long arg1) -> {
                             functions.randomGet(instance.memory(),
-                                    (int) args[0],
-                                    (int) args[1]);
-                            return null;
+                                    (int) arg0,
+                                    (int) arg1);
                         }), //
                 new HostFunction(moduleName,
                         "exit",
                         FunctionType.of(List.of(), List.of()),
-                        (Instance instance, long... args) -> {
+                        (TypedFunctionHandle.Arity0Void) (Instance instance) -> {
                             functions.exit();
-                            return null;
                         }) };
     }
 }
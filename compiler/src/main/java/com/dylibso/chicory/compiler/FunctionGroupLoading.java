@@ -0,0 +1,26 @@
+package com.dylibso.chicory.compiler;
+
+/**
+ * Enum representing when the classes holding the compiled functions are generated and loaded.
+ */
+public enum FunctionGroupLoading {
+
+    /**
+     * All the functions are compiled and loaded with the machine, before the first call.
+     */
+    EAGER,
+
+    /**
+     * A group of functions is compiled and loaded the first time one of its functions is called,
+     * the machine starts faster and only the called groups use metaspace.
+     * The groups holding functions large enough to exceed the JVM method size limits are still
+     * compiled with the machine, so that they can fall back to the interpreter.
+     */
+    LAZY,
+
+    /**
+     * Like {@link #LAZY}, and the groups not called yet are compiled in the background, so they're
+     * only left to load once called.
+     */
+    BACKGROUND
+}
@@ -14,6 +14,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
@@ -86,6 +87,8 @@ public final class MachineFactoryCompiler {
         private final WasmModule module;
         private final com.dylibso.chicory.compiler.internal.Compiler.Builder compilerBuilder;
         private Cache cache;
+        private FunctionGroupLoading functionGroupLoading = FunctionGroupLoading.EAGER;
+        private boolean fuelMetering;
 
         private Builder(WasmModule module) {
             this.module = module;
@@ -112,6 +115,30 @@ public final class MachineFactoryCompiler {
             return this;
         }
 
+        public Builder withForkJoinPool(ForkJoinPool forkJoinPool) {
+            compilerBuilder.withForkJoinPool(forkJoinPool);
+            return this;
+        }
+
+        /**
+         * When the functions are compiled and loaded, {@link FunctionGroupLoading#EAGER} by
+         * default. The functions are always compiled eagerly when a cache is configured.
+         */
+        public Builder withFunctionGroupLoading(FunctionGroupLoading functionGroupLoading) {
+            this.functionGroupLoading = functionGroupLoading;
+            return this;
+        }
+
+        /**
+         * Whether the compiled code consumes the fuel of the instances built with
+         * {@link Instance.Builder#withFuel(long)}, disabled by default.
+         */
+        public Builder withFuelMetering(boolean fuelMetering) {
+            compilerBuilder.withFuelMetering(fuelMetering);
+            this.fuelMetering = fuelMetering;
+            return this;
+        }
+
         public Builder withCache(Cache cache) {
             this.cache = cache;
             return this;
@@ -122,8 +149,10 @@ public final class MachineFactoryCompiler {
 
                 // Can we load the byte codes from the cache?
                 var useCache = cache != null && module.digest() != null;
+                // the metered code is cached apart, as if hashed with another algorithm
+                var cacheKey = fuelMetering ? "fuel-" + module.digest() : module.digest();
                 if (useCache) {
-                    byte[] cachedData = cache.get(module.digest());
+                    byte[] cachedData = cache.get(cacheKey);
                     if (cachedData != null) {
                         var collector = loadClassLoadingCollector(cachedData);
                         return new MachineFactory(module, collector.machineFactory());
@@ -134,13 +163,17 @@ public final class MachineFactoryCompiler {
                 var result =
                         compilerBuilder
                                 .withClassCollectorFactory(ClassLoadingCollector::new)
+                                .withFunctionGroupLoading(
+                                        useCache
+                                                ? FunctionGroupLoading.EAGER
+                                                : functionGroupLoading)
                                 .build()
                                 .compile();
                 var collector = (ClassLoadingCollector) result.collector();
 
                 if (useCache) {
                     // store results in the cache to speed the next time.
-                    cache.putIfAbsent(module.digest(), storeClassLoadingCollector(collector));
+                    cache.putIfAbsent(cacheKey, storeClassLoadingCollector(collector));
                 }
 
                 return new MachineFactory(module, collector.machineFactory());
@@ -0,0 +1,353 @@
+package com.dylibso.chicory.compiler;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import com.dylibso.chicory.compiler.internal.ClassLoadingCollector;
+import com.dylibso.chicory.compiler.internal.Compiler;
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.runtime.InterpreterMachine;
+import com.dylibso.chicory.runtime.Machine;
+import com.dylibso.chicory.runtime.StackFrame;
+import com.dylibso.chicory.runtime.WasmException;
+import com.dylibso.chicory.runtime.internal.FunctionProfiler;
+import com.dylibso.chicory.wasm.ChicoryException;
+import com.dylibso.chicory.wasm.WasmModule;
+import com.dylibso.chicory.wasm.types.ExternalType;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import org.objectweb.asm.MethodTooLargeException;
+
+/**
+ * Machine factory starting every instance in the interpreter and compiling the hot functions
+ * to byte code in the background, so that the instances start right away and still reach the
+ * throughput of the compiled machines.
+ * <p>
+ * A function is hot once its calls and the iterations of its loops reach the threshold.
+ * The hot functions of all the instances created by the factory are then compiled together,
+ * the others are left to the interpreter, where they're still profiled, and compiled by a
+ * later round when they become hot too. Each round only generates the classes of the function
+ * groups actually called, and the rounds are spaced by the compilation delay, so that the
+ * functions getting hot one after the other are compiled together. The instances switch to the latest compiled machine
+ * on their next call, including the calls made by the functions still being interpreted.
+ * A hot function the compiler can't fit in a JVM method is left to the interpreter.
+ * <pre>
+ * var module = Parser.parse(is);
+ * var instance = Instance.builder(module)
+ *         .withMachineFactory(TieredMachineFactory.builder(module).build())
+ *         .build();
+ * </pre>
+ */
+public final class TieredMachineFactory implements Function<Instance, Machine> {
+
+    private final WasmModule module;
+    private final int threshold;
+    private final Executor executor;
+    private final boolean fuelMetering;
+    private final long compilationDelay;
+    private final int functionImports;
+
+    // profile of the defined functions, updated without synchronization:
+    // lost updates only delay the compilation
+    private final int[] scores;
+    private final boolean[] hot;
+    private final boolean[] uncompilable; // guarded by this
+    private int hotCount; // guarded by this
+
+    private final AtomicBoolean compiling = new AtomicBoolean();
+    private volatile long nextCompilation = System.nanoTime(); // earliest start of a round
+    private volatile Tier tier;
+
+    private static final class Tier {
+        final Function<Instance, Machine> factory;
+        final int hotCount;
+
+        Tier(Function<Instance, Machine> factory, int hotCount) {
+            this.factory = factory;
+            this.hotCount = hotCount;
+        }
+    }
+
+    private TieredMachineFactory(
+            WasmModule module,
+            int threshold,
+            Executor executor,
+            boolean fuelMetering,
+            Duration compilationDelay) {
+        this.module = module;
+        this.threshold = threshold;
+        this.executor = executor;
+        this.fuelMetering = fuelMetering;
+        this.compilationDelay = compilationDelay.toNanos();
+        this.functionImports = module.importSection().count(ExternalType.FUNCTION);
+        this.scores = new int[module.functionSection().functionCount()];
+        this.hot = new boolean[scores.length];
+        this.uncompilable = new boolean[scores.length];
+    }
+
+    public static Builder builder(WasmModule module) {
+        return new Builder(module);
+    }
+
+    @Override
+    public Machine apply(Instance instance) {
+        if (instance.module() != module) {
+            throw new IllegalArgumentException("Instance module does not match factory module");
+        }
+        return new TieredMachine(instance);
+    }
+
+    /**
+     * Returns the number of functions compiled to byte code so far.
+     */
+    public int compiledFunctions() {
+        var current = tier;
+        return current == null ? 0 : current.hotCount;
+    }
+
+    private void record(int funcId, int backEdges) {
+        var idx = funcId - functionImports;
+        if (hot[idx]) {
+            return;
+        }
+        var score = scores[idx] + 1 + backEdges;
+        scores[idx] = score;
+        if (score >= threshold) {
+            synchronized (this) {
+                if (hot[idx]) {
+                    return;
+                }
+                hot[idx] = true;
+                hotCount++;
+            }
+            scheduleCompilation();
+        }
+    }
+
+    private void scheduleCompilation() {
+        if (!compiling.compareAndSet(false, true)) {
+            return;
+        }
+        var wait = nextCompilation - System.nanoTime();
+        if (wait > 0) {
+            // batch the functions getting hot meanwhile in the next round
+            CompletableFuture.delayedExecutor(wait, NANOSECONDS, executor).execute(this::compile);
+        } else {
+            executor.execute(this::compile);
+        }
+    }
+
+    private void compile() {
+        var interpreted = new HashSet<Integer>();
+        int count;
+        int compiled;
+        synchronized (this) {
+            count = hotCount;
+            compiled = count;
+            for (int i = 0; i < hot.length; i++) {
+                if (!hot[i]) {
+                    interpreted.add(functionImports + i);
+                } else if (uncompilable[i]) {
+                    interpreted.add(functionImports + i);
+                    compiled--;
+                }
+            }
+        }
+        var retry = false;
+        try {
+            var result =
+                    Compiler.builder(module)
+                            .withClassCollectorFactory(ClassLoadingCollector::new)
+                            .withInterpretedFunctions(interpreted)
+                            .withInterpreterFallback(
+                                    interpreted.isEmpty()
+                                            ? InterpreterFallback.SILENT
+                                            : InterpreterFallback.FAIL)
+                            .withFuelMetering(fuelMetering)
+                            // only the called groups are generated, not the whole module
+                            .withFunctionGroupLoading(FunctionGroupLoading.LAZY)
+                            .build()
+                            .compile();
+            var collector = (ClassLoadingCollector) result.collector();
+            tier = new Tier(collector.machineFactory(), compiled);
+        } catch (ChicoryException e) {
+            // a hot function too large for a JVM method is left to the interpreter,
+            // otherwise the current tier is kept until more functions get hot
+            var funcId = tooLargeFunction(e);
+            if (funcId >= 0) {
+                synchronized (this) {
+                    uncompilable[funcId - functionImports] = true;
+                }
+                retry = true;
+            }
+        } finally {
+            nextCompilation = System.nanoTime() + compilationDelay;
+            compiling.set(false);
+        }
+        synchronized (this) {
+            if (!retry && hotCount == count) {
+                return;
+            }
+        }
+        scheduleCompilation();
+    }
+
+    // the function the compiler failed to fit in a method (func_N or the outlined func_N_K)
+    private static int tooLargeFunction(ChicoryException e) {
+        if (e.getCause() instanceof MethodTooLargeException) {
+            var methodName = ((MethodTooLargeException) e.getCause()).getMethodName();
+            if (methodName.startsWith("func_")) {
+                return Integer.parseInt(methodName.split("_", -1)[1]);
+            }
+        }
+        return -1;
+    }
+
+    private final class TieredMachine implements Machine, FunctionProfiler {
+        private final Instance instance;
+        private final InterpreterMachine interpreter;
+        private Tier current;
+        private Machine compiled;
+
+        TieredMachine(Instance instance) {
+            this.instance = instance;
+            this.interpreter =
+                    new InterpreterMachine(instance) {
+                        @Override
+                        protected void onReturn(int funcId, int backEdges) {
+                            record(funcId, backEdges);
+                        }
+
+                        @Override
+                        protected void CALL(Operands operands) {
+                            var funcId = (int) operands.get(0);
+                            if (tier == null || instance.function(funcId) == null) {
+                                super.CALL(operands);
+                            } else {
+                                // a compiled tier is ready, e.g. while a long running
+                                // function is interpreted: switch to it for the callee
+                                callCompiled(funcId);
+                            }
+                        }
+
+                        @Override
+                        protected boolean useCurrentInstanceInterpreter(
+                                Instance instance, Instance refInstance, int funcId) {
+                            // otherwise called through Machine::call, on the compiled tier
+                            return refInstance.equals(instance) && tier == null;
+                        }
+
+                        private void callCompiled(int funcId) {
+                            var stack = stack();
+                            var type = instance.type(instance.functionType(funcId));
+                            var args = extractArgsForParams(stack, type.params());
+                            try {
+                                var results = TieredMachine.this.call(funcId, args);
+                                if (results != null) {
+                                    for (var result : results) {
+                                        stack.push(result);
+                                    }
+                                }
+                            } catch (WasmException e) {
+                                var stackFrame = new StackFrame(instance, funcId, args);
+                                THROW_REF(
+                                        instance,
+                                        instance.registerException(e),
+                                        stack,
+                                        stackFrame,
+                                        callStack);
+                            }
+                        }
+                    };
+        }
+
+        @Override
+        public long[] call(int funcId, long[] args) {
+            var latest = tier;
+            if (latest == null) {
+                return interpreter.call(funcId, args);
+            }
+            if (latest != current) {
+                compiled = latest.factory.apply(instance);
+                current = latest;
+            }
+            return compiled.call(funcId, args);
+        }
+
+        @Override
+        public int[] stackTrace() {
+            var stackTrace = compiled == null ? new int[0] : compiled.stackTrace();
+            return stackTrace.length > 0 ? stackTrace : interpreter.stackTrace();
+        }
+
+        @Override
+        public void onReturn(int funcId, int backEdges) {
+            record(funcId, backEdges);
+        }
+    }
+
+    public static final class Builder {
+        private final WasmModule module;
+        private int threshold = 10_000;
+        private Executor executor = ForkJoinPool.commonPool();
+        private boolean fuelMetering;
+        private Duration compilationDelay = Duration.ofMillis(100);
+
+        private Builder(WasmModule module) {
+            this.module = requireNonNull(module);
+        }
+
+        /**
+         * The number of calls and loop iterations after which a function is compiled,
+         * 10000 by default.
+         */
+        public Builder withThreshold(int threshold) {
+            if (threshold < 1) {
+                throw new IllegalArgumentException("threshold must be positive: " + threshold);
+            }
+            this.threshold = threshold;
+            return this;
+        }
+
+        /**
+         * The executor running the compilations, the common fork-join pool by default.
+         */
+        public Builder withExecutor(Executor executor) {
+            this.executor = requireNonNull(executor);
+            return this;
+        }
+
+        /**
+         * Whether the compiled functions consume the fuel of the instances built with
+         * {@link Instance.Builder#withFuel(long)}, as they did in the interpreter, disabled by
+         * default.
+         */
+        public Builder withFuelMetering(boolean fuelMetering) {
+            this.fuelMetering = fuelMetering;
+            return this;
+        }
+
+        /**
+         * The minimum time between the end of a compilation round and the start of the next,
+         * 100 milliseconds by default.
+         */
+        public Builder withCompilationDelay(Duration compilationDelay) {
+            if (compilationDelay.isNegative()) {
+                throw new IllegalArgumentException(
+                        "compilation delay must not be negative: " + compilationDelay);
+            }
+            this.compilationDelay = compilationDelay;
+            return this;
+        }
+
+        public TieredMachineFactory build() {
+            return new TieredMachineFactory(
+                    module, threshold, executor, fuelMetering, compilationDelay);
+        }
+    }
+}
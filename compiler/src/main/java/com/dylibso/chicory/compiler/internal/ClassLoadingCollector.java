@@ -35,6 +35,14 @@ public class ClassLoadingCollector implements ClassCollector {
         this.classLoader = new WasmClassLoader();
     }
 
+    /**
+     * The classes that aren't put in the collector are generated by the given function
+     * when they're first loaded, they're not part of the {@link #classBytes()}.
+     */
+    ClassLoadingCollector(Function<String, byte[]> classGenerator) {
+        this.classLoader = new WasmClassLoader(classGenerator);
+    }
+
     @Override
     public String mainClassName() {
         return mainClass;
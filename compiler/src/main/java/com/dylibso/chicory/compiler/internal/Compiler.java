@@ -9,10 +9,14 @@ import static com.dylibso.chicory.compiler.internal.CompilerUtil.classNameForCal
 import static com.dylibso.chicory.compiler.internal.CompilerUtil.classNameForDispatch;
 import static com.dylibso.chicory.compiler.internal.CompilerUtil.defaultValue;
 import static com.dylibso.chicory.compiler.internal.CompilerUtil.emitInvokeFunction;
+import static com.dylibso.chicory.compiler.internal.CompilerUtil.emitInvokeInterface;
 import static com.dylibso.chicory.compiler.internal.CompilerUtil.emitInvokeStatic;
 import static com.dylibso.chicory.compiler.internal.CompilerUtil.emitInvokeVirtual;
 import static com.dylibso.chicory.compiler.internal.CompilerUtil.emitJvmToLong;
+import static com.dylibso.chicory.compiler.internal.CompilerUtil.emitLoad;
 import static com.dylibso.chicory.compiler.internal.CompilerUtil.emitLongToJvm;
+import static com.dylibso.chicory.compiler.internal.CompilerUtil.emitStore;
+import static com.dylibso.chicory.compiler.internal.CompilerUtil.flattenV128;
 import static com.dylibso.chicory.compiler.internal.CompilerUtil.hasTooManyParameters;
 import static com.dylibso.chicory.compiler.internal.CompilerUtil.internalClassName;
 import static com.dylibso.chicory.compiler.internal.CompilerUtil.jvmReturnType;
@@ -29,6 +33,8 @@ import static com.dylibso.chicory.compiler.internal.ShadedRefs.CALL_HOST_FUNCTIO
 import static com.dylibso.chicory.compiler.internal.ShadedRefs.CALL_INDIRECT;
 import static com.dylibso.chicory.compiler.internal.ShadedRefs.CALL_INDIRECT_ON_INTERPRETER;
 import static com.dylibso.chicory.compiler.internal.ShadedRefs.CHECK_INTERRUPTION;
+import static com.dylibso.chicory.compiler.internal.ShadedRefs.FUNCTION_HANDLE;
+import static com.dylibso.chicory.compiler.internal.ShadedRefs.HOST_FUNCTION_HANDLE;
 import static com.dylibso.chicory.compiler.internal.ShadedRefs.INSTANCE_MEMORY;
 import static com.dylibso.chicory.compiler.internal.ShadedRefs.INSTANCE_TABLE;
 import static com.dylibso.chicory.compiler.internal.ShadedRefs.TABLE_INSTANCE;
@@ -36,6 +42,7 @@ import static com.dylibso.chicory.compiler.internal.ShadedRefs.TABLE_REQUIRED_RE
 import static com.dylibso.chicory.compiler.internal.ShadedRefs.THROW_CALL_STACK_EXHAUSTED;
 import static com.dylibso.chicory.compiler.internal.ShadedRefs.THROW_INDIRECT_CALL_TYPE_MISMATCH;
 import static com.dylibso.chicory.compiler.internal.ShadedRefs.THROW_UNKNOWN_FUNCTION;
+import static com.dylibso.chicory.compiler.internal.ShadedRefs.THROW_WITH_BACKTRACE;
 import static com.dylibso.chicory.compiler.internal.Shader.createShadedClass;
 import static com.dylibso.chicory.compiler.internal.Shader.shadedClassRemapper;
 import static java.lang.Math.max;
@@ -43,6 +50,7 @@ import static java.lang.Math.min;
 import static java.lang.invoke.MethodType.methodType;
 import static java.util.Objects.requireNonNull;
 import static java.util.Objects.requireNonNullElse;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 import static org.objectweb.asm.Type.INT_TYPE;
 import static org.objectweb.asm.Type.LONG_TYPE;
@@ -53,12 +61,17 @@ import static org.objectweb.asm.Type.getMethodDescriptor;
 import static org.objectweb.asm.Type.getType;
 import static org.objectweb.asm.commons.InstructionAdapter.OBJECT_TYPE;
 
+import com.dylibso.chicory.compiler.FunctionGroupLoading;
 import com.dylibso.chicory.compiler.InterpreterFallback;
 import com.dylibso.chicory.runtime.Instance;
 import com.dylibso.chicory.runtime.Machine;
 import com.dylibso.chicory.runtime.Memory;
+import com.dylibso.chicory.runtime.TrapException;
+import com.dylibso.chicory.runtime.TypedFunctionHandle;
 import com.dylibso.chicory.runtime.WasmException;
+import com.dylibso.chicory.runtime.internal.CompiledStackTrace;
 import com.dylibso.chicory.runtime.internal.CompilerInterpreterMachine;
+import com.dylibso.chicory.runtime.internal.JfrEvents;
 import com.dylibso.chicory.wasm.ChicoryException;
 import com.dylibso.chicory.wasm.WasmModule;
 import com.dylibso.chicory.wasm.types.ExternalType;
@@ -66,13 +79,22 @@ import com.dylibso.chicory.wasm.types.FunctionBody;
 import com.dylibso.chicory.wasm.types.FunctionType;
 import com.dylibso.chicory.wasm.types.OpCode;
 import com.dylibso.chicory.wasm.types.ValType;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.function.Consumer;
 import java.util.function.IntFunction;
 import java.util.function.Supplier;
@@ -100,6 +122,9 @@ public final class Compiler {
     private static final MethodType MACHINE_CALL_METHOD_TYPE =
             methodType(long[].class, Instance.class, Memory.class, int.class, long[].class);
 
+    private static final MethodType OUTLINED_METHOD_TYPE =
+            methodType(int.class, long[].class, Memory.class, Instance.class);
+
     // C2 JIT's HugeMethodLimit (default 8KB) — methods exceeding this get degraded optimization.
     // Dispatch chunks are sized to stay under this limit for full C2 compilation.
     private static final int HUGE_METHOD_LIMIT =
@@ -115,6 +140,9 @@ public final class Compiler {
     // So lets start there and halve it until we find a size that works.
     // This should give us the biggest class size possible.
     private static final int DEFAULT_MAX_FUNCTIONS_PER_CLASS = 1024 * 12;
+    // Estimated lower bound of the bytes per compiler instruction, larger functions get regions
+    // outlined to separate methods to stay under the limit.
+    private static final int DEFAULT_MAX_METHOD_INSTRUCTIONS = HUGE_METHOD_LIMIT / 4;
 
     private final String className;
     private final WasmModule module;
@@ -123,9 +151,17 @@ public final class Compiler {
     private final InterpreterFallback interpreterFallback;
     private final List<FunctionType> functionTypes;
     private final Supplier<ClassCollector> classCollectorFactory;
+    private final ForkJoinPool forkJoinPool;
+    private final FunctionGroupLoading functionGroupLoading;
+    private LazyFunctionGroups lazyFunctionGroups;
+    // set once the machine class is emitted, the functions can't be interpreted anymore
+    private volatile boolean compiled;
     private ClassCollector collector;
     private int maxFunctionsPerClass;
-    private final HashSet<Integer> interpretedFunctions;
+    private final int maxMethodInstructions;
+    // updated by the function group tasks
+    private final Set<Integer> interpretedFunctions = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> outlinedFunctions = ConcurrentHashMap.newKeySet();
     private final Set<Integer> callRefTypeIds;
     private final boolean[] tailCallFunctions;
     private final boolean[] tailCallTypes;
@@ -137,18 +173,23 @@ public final class Compiler {
             WasmModule module,
             String className,
             int maxFunctionsPerClass,
+            int maxMethodInstructions,
             InterpreterFallback interpreterFallback,
             Set<Integer> interpretedFunctions,
-            Supplier<ClassCollector> classCollectorFactory) {
+            Supplier<ClassCollector> classCollectorFactory,
+            ForkJoinPool forkJoinPool,
+            FunctionGroupLoading functionGroupLoading,
+            boolean fuelMetering) {
         this.className = requireNonNull(className, "className");
         this.module = requireNonNull(module, "module");
-        this.analyzer = new WasmAnalyzer(module);
+        this.analyzer = new WasmAnalyzer(module, fuelMetering);
         this.functionImports = module.importSection().count(ExternalType.FUNCTION);
         this.classCollectorFactory = classCollectorFactory;
-        this.collector = classCollectorFactory.get();
+        this.forkJoinPool = forkJoinPool;
+        this.functionGroupLoading = functionGroupLoading;
+        this.collector = newCollector();
 
         if (interpretedFunctions == null || interpretedFunctions.isEmpty()) {
-            this.interpretedFunctions = new HashSet<>();
             this.interpreterFallback =
                     requireNonNullElse(interpreterFallback, InterpreterFallback.WARN);
         } else if (interpreterFallback != null && interpreterFallback != InterpreterFallback.FAIL) {
@@ -158,7 +199,7 @@ public final class Compiler {
                     "InterpreterFallback must be set to FAIL if a fixed set of interpreted"
                             + " functions is provided");
         } else {
-            this.interpretedFunctions = new HashSet<>(interpretedFunctions);
+            this.interpretedFunctions.addAll(interpretedFunctions);
             this.interpreterFallback = InterpreterFallback.FAIL;
         }
 
@@ -168,6 +209,7 @@ public final class Compiler {
         this.tailCallTypes = analyzer.tailCallTypes();
         this.moduleHasTailCalls = analyzer.hasTailCalls();
         this.maxFunctionsPerClass = maxFunctionsPerClass;
+        this.maxMethodInstructions = maxMethodInstructions;
     }
 
     private Set<Integer> collectCallRefTypeIds() {
@@ -192,9 +234,13 @@ public final class Compiler {
         private final WasmModule module;
         private String className;
         private int maxFunctionsPerClass;
+        private int maxMethodInstructions;
         private InterpreterFallback interpreterFallback;
         private Set<Integer> interpretedFunctions;
         private Supplier<ClassCollector> classCollectorFactory;
+        private ForkJoinPool forkJoinPool;
+        private FunctionGroupLoading functionGroupLoading = FunctionGroupLoading.EAGER;
+        private boolean fuelMetering;
 
         private Builder(WasmModule module) {
             this.module = module;
@@ -210,6 +256,18 @@ public final class Compiler {
             return this;
         }
 
+        /**
+         * The number of instructions above which a function has regions of its body compiled to
+         * separate methods, so that it stays under the JIT and JVM method size limits, a quarter
+         * of {@code chicory.hugeMethodLimit} by default.
+         * A function too large for a JVM method is split as well before falling back to the
+         * interpreter.
+         */
+        public Builder withMaxMethodInstructions(int maxMethodInstructions) {
+            this.maxMethodInstructions = maxMethodInstructions;
+            return this;
+        }
+
         public Builder withInterpreterFallback(InterpreterFallback interpreterFallback) {
             this.interpreterFallback = interpreterFallback;
             return this;
@@ -225,6 +283,37 @@ public final class Compiler {
             return this;
         }
 
+        /**
+         * The pool generating the function group classes in parallel, the common pool by default.
+         */
+        public Builder withForkJoinPool(ForkJoinPool forkJoinPool) {
+            this.forkJoinPool = forkJoinPool;
+            return this;
+        }
+
+        /**
+         * When the function group classes are generated, {@link FunctionGroupLoading#EAGER} by
+         * default.
+         * When lazy, the result is a {@link ClassLoadingCollector} generating the function
+         * groups on demand, which are then left out of its {@link ClassCollector#classBytes()},
+         * and a function too large for a JVM method fails instead of falling back to the
+         * interpreter, unless it's listed in {@link #withInterpretedFunctions(Set)}.
+         */
+        public Builder withFunctionGroupLoading(FunctionGroupLoading functionGroupLoading) {
+            this.functionGroupLoading = requireNonNull(functionGroupLoading);
+            return this;
+        }
+
+        /**
+         * Whether the compiled code consumes the fuel of the instances built with
+         * {@link com.dylibso.chicory.runtime.Instance.Builder#withFuel(long)}, exactly as the
+         * interpreter does, disabled by default.
+         */
+        public Builder withFuelMetering(boolean fuelMetering) {
+            this.fuelMetering = fuelMetering;
+            return this;
+        }
+
         public Compiler build() {
             var className = this.className;
             if (className == null) {
@@ -236,6 +325,11 @@ public final class Compiler {
                 maxFunctionsPerClass = DEFAULT_MAX_FUNCTIONS_PER_CLASS;
             }
 
+            int maxMethodInstructions = this.maxMethodInstructions;
+            if (maxMethodInstructions <= 0) {
+                maxMethodInstructions = DEFAULT_MAX_METHOD_INSTRUCTIONS;
+            }
+
             if (this.classCollectorFactory == null) {
                 this.classCollectorFactory = ClassLoadingCollector::new;
             }
@@ -244,13 +338,18 @@ public final class Compiler {
                     module,
                     className,
                     maxFunctionsPerClass,
+                    maxMethodInstructions,
                     interpreterFallback,
                     interpretedFunctions,
-                    classCollectorFactory);
+                    classCollectorFactory,
+                    requireNonNullElse(forkJoinPool, ForkJoinPool.commonPool()),
+                    functionGroupLoading,
+                    fuelMetering);
         }
     }
 
     public CompilerResult compile() {
+        var event = JfrEvents.beginCompile();
         while (true) {
             try {
                 compileExtraClasses();
@@ -263,12 +362,29 @@ public final class Compiler {
                 }
                 // retry with call_indirect methods split into bridge classes
                 useBridgeClasses = true;
-                collector = classCollectorFactory.get();
+                collector = newCollector();
             }
         }
+        compiled = true;
+        if (functionGroupLoading == FunctionGroupLoading.BACKGROUND) {
+            lazyFunctionGroups.compileInBackground();
+        }
+        JfrEvents.endCompile(event, module, className, collector.classBytes());
         return new CompilerResult(collector, Set.copyOf(interpretedFunctions));
     }
 
+    // the number of lazy function groups generated so far
+    int generatedFunctionGroups() {
+        return lazyFunctionGroups == null ? 0 : lazyFunctionGroups.generated();
+    }
+
+    private ClassCollector newCollector() {
+        if (functionGroupLoading == FunctionGroupLoading.EAGER) {
+            return classCollectorFactory.get();
+        }
+        return new ClassLoadingCollector(name -> lazyFunctionGroups.classBytes(name));
+    }
+
     private void compileExtraClasses() {
         createShadedClass(className, collector);
 
@@ -283,79 +399,250 @@ public final class Compiler {
         // Emit the "${className}FuncGroup_${chunk}" classes:
         // We group the wasm functions into chunks to avoid MethodTooLargeException or
         // ClassTooLargeException.
-        // The chunk size is dynamically adjusted based on the size of the class to be loaded and
-        // the maximum size
-        // that can be loaded without causing an exception.
         //
         // Example: wasm file has 1024 * 15 functions.  Then the first 12k functions will be located
         // in "${className}FuncGroup_0" and the last 3k functions will be located in
         // "${className}FuncGroup_1".
-        // That is if no  MethodTooLargeException or ClassTooLargeException occur when generating
-        // those two classes.
-        // This can happen if for example a function requires alot of class constants etc.   Then
-        // default
-        // chunk size of 12k will be halved to 6k and the first 6k functions will be located in
-        // "${className}FuncGroup_0", "${className}FuncGroup_1", and  "${className}FuncGroup_2" with
-        // each class holding up to 6k of the functions.
+        // The groups are generated in parallel and collected in order.
+        // When a group class is too large, the bodies of its last functions are moved to
+        // "${className}FuncGroup_${chunk}_${funcId}" overflow classes, and the group class keeps
+        // trampolines to them, so only that group is generated again.
+        // Only if even the trampolines don't fit, the chunk size is halved for all the groups.
         //
-        var originalMaxFunctionsPerClass = maxFunctionsPerClass;
+        if (functionGroupLoading == FunctionGroupLoading.EAGER) {
+            compileFunctionGroups(totalFunctions);
+        } else {
+            lazyFunctionGroups = new LazyFunctionGroups(totalFunctions);
+        }
+
+        if (!functionTypes.isEmpty()) {
+            compileMachineCallClass();
+        }
+    }
+
+    private void compileFunctionGroups(int totalFunctions) {
         while (true) {
+            int chunkSize = maxFunctionsPerClass;
+            int chunks = (totalFunctions / chunkSize) + (totalFunctions % chunkSize == 0 ? 0 : 1);
+            var tasks = new ArrayList<ForkJoinTask<ClassCollector>>(chunks);
+            for (int i = 0; i < chunks; i++) {
+                var start = i * chunkSize;
+                var end = min(start + chunkSize, totalFunctions);
+                tasks.add(forkJoinPool.submit(() -> compileFunctionGroup(start, end)));
+            }
+
+            var collectors = new ArrayList<ClassCollector>(chunks);
             try {
-                maxFunctionsPerClass =
-                        loadChunkedClass(
-                                totalFunctions,
-                                maxFunctionsPerClass,
-                                (collector, start, end, chunkSize) -> {
-                                    maxFunctionsPerClass = chunkSize;
-                                    String className = classNameForFuncGroup(this.className, start);
-                                    compileExtraClass(
-                                            collector,
-                                            className,
-                                            emitFunctionGroup(
-                                                    start, end, internalClassName(this.className)));
-                                });
-                break;
-            } catch (MethodTooLargeException e) {
-                String methodName = e.getMethodName();
-                if (methodName.startsWith("func_")) {
-                    // Add the method to interpreted function list... and try again.
-                    var funcId = Integer.parseInt(methodName.substring("func_".length()));
-
-                    String functionDescription = "WASM function index: " + funcId;
-                    if (module.nameSection() != null) {
-                        String name = module.nameSection().nameOfFunction(funcId);
-                        if (name != null) {
-                            functionDescription += String.format(" (name: %s)", name);
-                        }
-                    }
+                for (var task : tasks) {
+                    collectors.add(join(task));
+                }
+            } catch (ClassTooLargeException e) {
+                tasks.forEach(task -> task.cancel(false));
+                maxFunctionsPerClass = chunkSize >> 1;
+                if (maxFunctionsPerClass == 0) {
+                    throw e;
+                }
+                continue;
+            } catch (RuntimeException | Error e) {
+                tasks.forEach(task -> task.cancel(false));
+                throw e;
+            }
 
-                    switch (interpreterFallback) {
-                        case SILENT:
-                            break;
-                        case WARN:
-                            System.err.println(
-                                    "Warning: using interpreted mode for " + functionDescription);
-                            break;
-                        case FAIL:
-                            throw new ChicoryException(
-                                    "WASM function size exceeds the Java method size limits and"
-                                        + " cannot be compiled to Java bytecode. It can only be run"
-                                        + " in the interpreter. Either reduce the size of the"
-                                        + " function or enable the interpreter fallback mode: "
-                                            + functionDescription,
-                                    e);
-                    }
+            // Store the results in order, so the output doesn't depend on the scheduling.
+            for (var groupCollector : collectors) {
+                this.collector.putAll(groupCollector);
+            }
+            return;
+        }
+    }
 
-                    interpretedFunctions.add(funcId);
-                    maxFunctionsPerClass = originalMaxFunctionsPerClass;
-                } else {
+    private ClassCollector compileFunctionGroup(int start, int end) {
+        var groupClassName = classNameForFuncGroup(className, start);
+        while (true) {
+            // the lazy groups are verified when loaded
+            ClassCollector collector =
+                    functionGroupLoading == FunctionGroupLoading.EAGER
+                            ? classCollectorFactory.get()
+                            : new ByteClassCollector();
+            try {
+                compileFunctionGroupClass(collector, groupClassName, groupClassName, start, end);
+                return collector;
+            } catch (MethodTooLargeException e) {
+                if (!outlineFunction(e)) {
+                    interpretFunction(e);
+                }
+            }
+        }
+    }
+
+    // Emits the functions [start, end) in the class, moving the bodies of the last ones to an
+    // overflow class until it's small enough.
+    private void compileFunctionGroupClass(
+            ClassCollector collector, String groupClassName, String name, int start, int end) {
+        var internalClassName = internalClassName(this.className);
+        boolean isGroupClass = name.equals(groupClassName);
+        int split = end;
+        while (true) {
+            var overflowClassName = internalClassName(groupClassName + "_" + split);
+            try {
+                compileExtraClass(
+                        collector,
+                        name,
+                        emitFunctionGroup(
+                                start,
+                                split,
+                                end,
+                                isGroupClass,
+                                internalClassName,
+                                internalClassName(name),
+                                overflowClassName));
+                break;
+            } catch (ClassTooLargeException e) {
+                if (split == start) {
                     throw e;
                 }
+                split = start + ((split - start) >> 1);
             }
         }
+        if (split < end) {
+            compileFunctionGroupClass(
+                    collector, groupClassName, groupClassName + "_" + split, split, end);
+        }
+    }
 
-        if (!functionTypes.isEmpty()) {
-            compileMachineCallClass();
+    // Marks the function to be split across methods, returns false if it already is.
+    private boolean outlineFunction(MethodTooLargeException e) {
+        String methodName = e.getMethodName();
+        if (!methodName.startsWith("func_")) {
+            throw e;
+        }
+        return outlinedFunctions.add(Integer.parseInt(methodName.split("_", -1)[1]));
+    }
+
+    private void interpretFunction(MethodTooLargeException e) {
+        String methodName = e.getMethodName();
+        if (!methodName.startsWith("func_")) {
+            throw e;
+        }
+        // Add the method to interpreted function list... and try again.
+        // (func_N or the outlined func_N_K)
+        var funcId = Integer.parseInt(methodName.split("_", -1)[1]);
+
+        String functionDescription = "WASM function index: " + funcId;
+        if (module.nameSection() != null) {
+            String name = module.nameSection().nameOfFunction(funcId);
+            if (name != null) {
+                functionDescription += String.format(" (name: %s)", name);
+            }
+        }
+
+        if (compiled && interpreterFallback != InterpreterFallback.FAIL) {
+            // the machine class is already loaded without it
+            throw new ChicoryException(
+                    "WASM function size exceeds the Java method size limits and cannot be"
+                            + " compiled lazily to Java bytecode. Either compile the functions"
+                            + " eagerly or list it in the interpreted functions: "
+                            + functionDescription,
+                    e);
+        }
+
+        switch (interpreterFallback) {
+            case SILENT:
+                break;
+            case WARN:
+                System.err.println("Warning: using interpreted mode for " + functionDescription);
+                break;
+            case FAIL:
+                throw new ChicoryException(
+                        "WASM function size exceeds the Java method size limits and"
+                                + " cannot be compiled to Java bytecode. It can only be run"
+                                + " in the interpreter. Either reduce the size of the"
+                                + " function or enable the interpreter fallback mode: "
+                                + functionDescription,
+                        e);
+        }
+
+        interpretedFunctions.add(funcId);
+    }
+
+    // Generates the function group classes when the class loader first looks them up.
+    private final class LazyFunctionGroups {
+        private final String prefix = className + "FuncGroup_";
+        private final List<FutureTask<ClassCollector>> groups = new ArrayList<>();
+
+        LazyFunctionGroups(int totalFunctions) {
+            int chunkSize = maxFunctionsPerClass;
+            for (int start = 0; start < totalFunctions; start += chunkSize) {
+                var groupStart = start;
+                var groupEnd = min(start + chunkSize, totalFunctions);
+                var group = new FutureTask<>(() -> compileFunctionGroup(groupStart, groupEnd));
+                groups.add(group);
+                // only the large functions can exceed the method size limits, their groups
+                // are generated now, so that they can still be left to the interpreter
+                if (hasLargeFunction(groupStart, groupEnd)) {
+                    group.run();
+                    join(group);
+                }
+            }
+        }
+
+        int generated() {
+            return (int) groups.stream().filter(FutureTask::isDone).count();
+        }
+
+        private boolean hasLargeFunction(int start, int end) {
+            for (int funcId = max(start, functionImports); funcId < end; funcId++) {
+                var body = module.codeSection().getFunctionBody(funcId - functionImports);
+                // a wasm instruction takes at most a few compiler instructions
+                if (body.instructions().size() > maxMethodInstructions / 4) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void compileInBackground() {
+            // a group compiled meanwhile by a call is not compiled again
+            groups.forEach(forkJoinPool::execute);
+        }
+
+        byte[] classBytes(String name) {
+            if (!name.startsWith(prefix)) {
+                return null;
+            }
+            // FuncGroup_${chunk} or its FuncGroup_${chunk}_${funcId} overflow classes
+            var suffix = name.substring(prefix.length());
+            var separator = suffix.indexOf('_');
+            int index;
+            try {
+                index = Integer.parseInt(separator < 0 ? suffix : suffix.substring(0, separator));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (index < 0 || index >= groups.size()) {
+                return null;
+            }
+            var group = groups.get(index);
+            group.run();
+            return join(group).classBytes().get(name);
+        }
+    }
+
+    private static <T> T join(Future<T> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ChicoryException("Interrupted while compiling", e);
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new ChicoryException(cause);
         }
     }
 
@@ -450,7 +737,14 @@ public final class Compiler {
         return prefix + "FuncGroup_" + (funcId / maxFunctionsPerClass);
     }
 
-    private Consumer<ClassVisitor> emitFunctionGroup(int start, int end, String internalClassName) {
+    private Consumer<ClassVisitor> emitFunctionGroup(
+            int start,
+            int split,
+            int end,
+            boolean withCallBridges,
+            String internalClassName,
+            String groupInternalClassName,
+            String overflowClassName) {
         return (classWriter) -> {
             for (int i = start; i < end; i++) {
                 FunctionBody body = null;
@@ -458,8 +752,16 @@ public final class Compiler {
                     int funcId = i;
                     var type = functionTypes.get(funcId);
 
-                    // is it an import function?
-                    if (i < functionImports) {
+                    if (i >= split) {
+                        // the body was moved to the overflow class
+                        emitFunction(
+                                classWriter,
+                                methodNameForFunc(funcId),
+                                methodTypeFor(type),
+                                true,
+                                asm -> compileTrampoline(overflowClassName, funcId, type, asm));
+                    } else if (i < functionImports) {
+                        // is it an import function?
                         emitFunction(
                                 classWriter,
                                 methodNameForFunc(funcId),
@@ -470,6 +772,7 @@ public final class Compiler {
                     } else {
                         body = module.codeSection().getFunctionBody(i - functionImports);
                         var bodyCopy = body;
+                        var outlinedMethods = new ArrayList<Consumer<ClassVisitor>>();
 
                         emitFunction(
                                 classWriter,
@@ -478,8 +781,19 @@ public final class Compiler {
                                 true,
                                 asm ->
                                         compileFunction(
-                                                internalClassName, funcId, type, bodyCopy, asm));
+                                                internalClassName,
+                                                groupInternalClassName,
+                                                funcId,
+                                                type,
+                                                bodyCopy,
+                                                outlinedMethods,
+                                                asm));
+                        for (var outlinedMethod : outlinedMethods) {
+                            outlinedMethod.accept(classWriter);
+                        }
+                    }
 
+                    if (withCallBridges && i >= functionImports) {
                         // call_xxx() bridges for boxed to native
                         emitFunction(
                                 classWriter,
@@ -495,6 +809,19 @@ public final class Compiler {
         };
     }
 
+    private static void compileTrampoline(
+            String internalClassName, int funcId, FunctionType type, InstructionAdapter asm) {
+        var methodType = methodTypeFor(type);
+        int slot = 0;
+        for (var param : methodType.parameterList()) {
+            var paramType = getType(param);
+            asm.load(slot, paramType);
+            slot += paramType.getSize();
+        }
+        emitInvokeFunction(asm, internalClassName, funcId, type);
+        asm.areturn(getType(methodType.returnType()));
+    }
+
     private byte[] compileClass() {
         var internalClassName = internalClassName(className);
 
@@ -543,6 +870,24 @@ public final class Compiler {
                 false,
                 asm -> compileMachineCall(internalClassName, asm));
 
+        // Machine.handle() implementation, the tail calls need the trampoline of call()
+        if (!moduleHasTailCalls) {
+            emitFunction(
+                    classWriter,
+                    "handle",
+                    methodType(MethodHandle.class, int.class, FunctionType.class),
+                    false,
+                    asm -> compileMachineHandle(internalClassName, asm));
+        }
+
+        // Machine.stackTrace() implementation
+        emitFunction(
+                classWriter,
+                "stackTrace",
+                methodType(int[].class),
+                false,
+                asm -> compileMachineStackTrace(internalClassName, asm));
+
         // call_indirect_xxx() bridges for native CALL_INDIRECT
         // When using bridge classes, these methods are on separate classes
         if (!useBridgeClasses) {
@@ -570,6 +915,7 @@ public final class Compiler {
         var returnTypes =
                 functionTypes.stream()
                         .map(FunctionType::returns)
+                        .map(CompilerUtil::flattenV128)
                         .filter(types -> types.size() > 1)
                         .collect(toSet());
         for (var types : returnTypes) {
@@ -601,16 +947,12 @@ public final class Compiler {
      * Check if function funcIdx has a type that matches typeId for call_indirect.
      * Considers type index equality, subtyping, and canonical equivalence.
      */
-    private boolean isFuncTypeMatch(int expectedTypeId, int funcIdx, FunctionType expectedType) {
+    private boolean isFuncTypeMatch(int expectedTypeId, int funcIdx) {
         int funcTypeIdx = analyzer.functionTypeIndex(funcIdx);
         if (expectedTypeId == funcTypeIdx) {
             return true;
         }
-        var ts = module.typeSection();
-        if (ts != null) {
-            return ValType.heapTypeSubtype(funcTypeIdx, expectedTypeId, ts);
-        }
-        return expectedType.equals(functionTypes.get(funcIdx));
+        return module.typeSection().canonicalTypes().isSubtype(funcTypeIdx, expectedTypeId);
     }
 
     private static RuntimeException handleMethodTooLarge(
@@ -676,7 +1018,7 @@ public final class Compiler {
             asm.load(1, OBJECT_TYPE);
 
             // construct int[] with the interpreted function ids
-            var funcIds = new ArrayList<>(interpretedFunctions);
+            var funcIds = interpretedFunctions.stream().sorted().collect(toList());
             asm.iconst(funcIds.size());
             asm.newarray(INT_TYPE);
             for (int i = 0; i < funcIds.size(); i++) {
@@ -700,6 +1042,58 @@ public final class Compiler {
         asm.areturn(VOID_TYPE);
     }
 
+    // implements the body of:
+    // public MethodHandle handle(int funcId, FunctionType type) {
+    //     var handle = functionHandle(instance, funcId, type, MethodHandles.lookup(),
+    // maxFunctionsPerClass);
+    //     return (handle != null) ? handle : Machine.super.handle(funcId, type);
+    // }
+    private void compileMachineHandle(String internalClassName, InstructionAdapter asm) {
+        asm.load(0, OBJECT_TYPE);
+        asm.getfield(internalClassName, "instance", getDescriptor(Instance.class));
+        asm.load(1, INT_TYPE);
+        asm.load(2, OBJECT_TYPE);
+        asm.invokestatic(
+                getInternalName(MethodHandles.class),
+                "lookup",
+                getMethodDescriptor(getType(MethodHandles.Lookup.class)),
+                false);
+        asm.iconst(maxFunctionsPerClass);
+        emitInvokeStatic(asm, FUNCTION_HANDLE);
+
+        Label fallback = new Label();
+        asm.dup();
+        asm.ifnull(fallback);
+        asm.areturn(OBJECT_TYPE);
+
+        asm.mark(fallback);
+        asm.pop();
+        asm.load(0, OBJECT_TYPE);
+        asm.load(1, INT_TYPE);
+        asm.load(2, OBJECT_TYPE);
+        asm.invokespecial(
+                getInternalName(Machine.class),
+                "handle",
+                getMethodDescriptor(
+                        getType(MethodHandle.class), INT_TYPE, getType(FunctionType.class)),
+                true);
+        asm.areturn(OBJECT_TYPE);
+    }
+
+    // implements the body of:
+    // public int[] stackTrace() {
+    //     return CompiledStackTrace.of(CompiledMachine.class);
+    // }
+    private void compileMachineStackTrace(String internalClassName, InstructionAdapter asm) {
+        asm.aconst(Type.getObjectType(internalClassName));
+        asm.invokestatic(
+                getInternalName(CompiledStackTrace.class),
+                "of",
+                getMethodDescriptor(getType(int[].class), getType(Class.class)),
+                false);
+        asm.areturn(OBJECT_TYPE);
+    }
+
     // implements the body of:
     // public long[] call(int var1, long[] var2)
     private void compileMachineCall(String internalClassName, InstructionAdapter asm) {
@@ -1020,8 +1414,9 @@ public final class Compiler {
             asm.load(2, LONG_ARRAY_TYPE);
         } else {
             // unbox the arguments from long[]
-            for (int i = 0; i < type.params().size(); i++) {
-                var param = type.params().get(i);
+            var params = flattenV128(type.params());
+            for (int i = 0; i < params.size(); i++) {
+                var param = params.get(i);
                 asm.load(2, OBJECT_TYPE);
                 asm.iconst(i);
                 asm.aload(LONG_TYPE);
@@ -1065,7 +1460,7 @@ public final class Compiler {
 
         List<Integer> validIds = new ArrayList<>();
         for (int i = 0; i < functionTypes.size(); i++) {
-            if (isFuncTypeMatch(typeId, i, type)) {
+            if (isFuncTypeMatch(typeId, i)) {
                 validIds.add(i);
             }
         }
@@ -1082,7 +1477,8 @@ public final class Compiler {
         int funcId = slots + 5;
         int refInstance = slots + 6;
 
-        emitInvokeStatic(asm, CHECK_INTERRUPTION);
+        asm.load(instance, OBJECT_TYPE);
+        emitInvokeVirtual(asm, CHECK_INTERRUPTION);
 
         Label local = new Label();
         Label other = new Label();
@@ -1137,7 +1533,7 @@ public final class Compiler {
         } else {
             int slot = 0;
             for (ValType param : type.params()) {
-                asm.load(slot, asmType(param));
+                emitLoad(asm, slot, param);
                 slot += slotCount(param);
             }
         }
@@ -1260,7 +1656,7 @@ public final class Compiler {
 
         List<Integer> validIds = new ArrayList<>();
         for (int i = 0; i < functionTypes.size(); i++) {
-            if (isFuncTypeMatch(typeId, i, type) && startFunc <= i && i < endFunc) {
+            if (isFuncTypeMatch(typeId, i) && startFunc <= i && i < endFunc) {
                 validIds.add(i);
             }
         }
@@ -1270,8 +1666,10 @@ public final class Compiler {
         Label[] labels = validIds.stream().map(x -> new Label()).toArray(Label[]::new);
 
         // push the call args on to the stack...
-        for (int i = 0; i < type.params().size(); i++) {
-            asm.load(i, asmType(type.params().get(i)));
+        int slot = 0;
+        for (ValType param : type.params()) {
+            emitLoad(asm, slot, param);
+            slot += slotCount(param);
         }
         asm.load(memory, OBJECT_TYPE);
         asm.load(instance, OBJECT_TYPE);
@@ -1304,6 +1702,41 @@ public final class Compiler {
 
         int slot = type.params().stream().mapToInt(CompilerUtil::slotCount).sum();
 
+        var params = flattenV128(type.params());
+        var returns = flattenV128(type.returns());
+        var typed =
+                (returns.size() <= 1)
+                        ? TypedFunctionHandle.typeOf(params.size(), !returns.isEmpty())
+                        : null;
+        if (typed != null) {
+            // if (handle instanceof TypedFunctionHandle.ArityN) return handle.invoke(instance,
+            // ...);
+            Label boxed = new Label();
+            asm.load(slot + 1, OBJECT_TYPE);
+            asm.iconst(funcId);
+            emitInvokeStatic(asm, HOST_FUNCTION_HANDLE);
+            asm.dup();
+            asm.instanceOf(getType(typed));
+            asm.ifeq(boxed);
+            asm.checkcast(getType(typed));
+            asm.load(slot + 1, OBJECT_TYPE);
+            int argSlot = 0;
+            for (ValType param : params) {
+                asm.load(argSlot, asmType(param));
+                emitJvmToLong(asm, param);
+                argSlot += slotCount(param);
+            }
+            emitInvokeInterface(asm, typedInvokeMethod(typed));
+            if (returns.isEmpty()) {
+                asm.areturn(VOID_TYPE);
+            } else {
+                emitLongToJvm(asm, returns.get(0));
+                asm.areturn(getType(jvmReturnType(type)));
+            }
+            asm.mark(boxed);
+            asm.pop();
+        }
+
         asm.load(slot + 1, OBJECT_TYPE); // instance
         asm.iconst(funcId);
         emitBoxArguments(asm, type.params());
@@ -1313,7 +1746,17 @@ public final class Compiler {
         emitUnboxResult(type, asm);
     }
 
-    private static void emitBoxArguments(InstructionAdapter asm, List<ValType> types) {
+    private static Method typedInvokeMethod(Class<?> typed) {
+        for (Method method : typed.getMethods()) {
+            if (method.getName().equals("invoke")) {
+                return method;
+            }
+        }
+        throw new IllegalArgumentException("Missing invoke method: " + typed);
+    }
+
+    private static void emitBoxArguments(InstructionAdapter asm, List<ValType> valTypes) {
+        var types = flattenV128(valTypes);
         int slot = 0;
         // box the arguments into long[]
         asm.iconst(types.size());
@@ -1348,9 +1791,11 @@ public final class Compiler {
     // public static <TypeR> func_xxx(<TypeN> ArgN..., Memory memory, Instance instance)
     private void compileFunction(
             String internalClassName,
+            String groupInternalClassName,
             int funcId,
             FunctionType type,
             FunctionBody body,
+            List<Consumer<ClassVisitor>> outlinedMethods,
             InstructionAdapter asm) {
 
         if (interpretedFunctions.contains(funcId)) {
@@ -1375,31 +1820,27 @@ public final class Compiler {
         var analysis = analyzer.analyze(funcId);
         List<CompilerInstruction> instructions = analysis.instructions();
 
-        var ctx =
-                new Context(
-                        module,
-                        internalClassName,
-                        maxFunctionsPerClass,
-                        analyzer.globalTypes(),
-                        functionTypes,
-                        funcId,
-                        type,
-                        body,
-                        tailCallFunctions,
-                        tailCallTypes,
-                        useBridgeClasses ? callIndirectClassResolver : typeId -> internalClassName,
-                        analysis.maxTempSlots());
+        var ctx = newContext(internalClassName, funcId, type, body, analysis, false);
+
+        // the traps record their backtrace while the frames of the functions are live
+        Label start = new Label();
+        Label end = new Label();
+        asm.visitTryCatchBlock(start, end, end, getInternalName(TrapException.class));
+        asm.mark(start);
 
         int localsCount = type.params().size();
         if (hasTooManyParameters(type)) {
             // unbox the arguments from long[]
+            int index = 0;
             for (int i = 0; i < type.params().size(); i++) {
                 var param = type.params().get(i);
-                asm.load(0, OBJECT_TYPE);
-                asm.iconst(i);
-                asm.aload(LONG_TYPE);
-                emitLongToJvm(asm, param);
-                asm.store(ctx.localSlotIndex(i), asmType(param));
+                for (var part : flattenV128(List.of(param))) {
+                    asm.load(0, OBJECT_TYPE);
+                    asm.iconst(index++);
+                    asm.aload(LONG_TYPE);
+                    emitLongToJvm(asm, part);
+                }
+                emitStore(asm, ctx.localSlotIndex(i), param);
             }
             // since we just converted the arguments to long[].
             localsCount = 1;
@@ -1409,8 +1850,25 @@ public final class Compiler {
         localsCount += body.localTypes().size();
         for (int i = type.params().size(); i < localsCount; i++) {
             var localType = localType(type, body, i);
-            asm.visitLdcInsn(defaultValue(localType));
-            asm.store(ctx.localSlotIndex(i), asmType(localType));
+            if (localType.equals(ValType.V128)) {
+                asm.lconst(0);
+                asm.lconst(0);
+            } else {
+                asm.visitLdcInsn(defaultValue(localType));
+            }
+            emitStore(asm, ctx.localSlotIndex(i), localType);
+        }
+
+        // the regions compiled to separate methods share the locals through a long[]
+        var regions = outlinedRegions(funcId, analysis);
+        int frameSlot = ctx.trySaveBaseSlot() + analysis.trySaveSlots();
+        int[] frameOffsets = frameOffsets(type, body);
+        if (!regions.isEmpty()) {
+            int frameSize =
+                    frameOffsets[frameOffsets.length - 1] + flattenV128(type.returns()).size();
+            asm.iconst(frameSize);
+            asm.newarray(LONG_TYPE);
+            asm.store(frameSlot, OBJECT_TYPE);
         }
 
         // allocate labels for all label targets
@@ -1425,65 +1883,337 @@ public final class Compiler {
         Set<Long> visitedTargets = new HashSet<>();
 
         // compile the function body
-        for (CompilerInstruction ins : instructions) {
-            switch (ins.opcode()) {
-                case LABEL:
-                    Label label = labels.get(ins.operand(0));
-                    if (label != null) {
-                        asm.mark(label);
-                        visitedTargets.add(ins.operand(0));
-                    }
-                    break;
-                case GOTO:
-                    if (visitedTargets.contains(ins.operand(0))) {
-                        emitInvokeStatic(asm, CHECK_INTERRUPTION);
-                    }
+        int nextRegion = 0;
+        for (int idx = 0; idx < instructions.size(); idx++) {
+            if (nextRegion < regions.size() && regions.get(nextRegion).start() == idx) {
+                var region = regions.get(nextRegion++);
+                var methodName = methodNameForFunc(funcId) + "_" + nextRegion;
+                emitOutlinedCall(
+                        ctx,
+                        groupInternalClassName,
+                        methodName,
+                        region,
+                        frameSlot,
+                        frameOffsets,
+                        labels,
+                        visitedTargets,
+                        asm);
+                outlinedMethods.add(
+                        classWriter ->
+                                emitFunction(
+                                        classWriter,
+                                        methodName,
+                                        OUTLINED_METHOD_TYPE,
+                                        true,
+                                        outlinedAsm ->
+                                                compileOutlinedRegion(
+                                                        internalClassName,
+                                                        funcId,
+                                                        type,
+                                                        body,
+                                                        analysis,
+                                                        region,
+                                                        frameOffsets,
+                                                        outlinedAsm)));
+                idx = region.end() - 1;
+                continue;
+            }
+            compileInstruction(ctx, instructions.get(idx), labels, visitedTargets, asm);
+        }
+
+        // catch TrapException
+        asm.mark(end);
+        asm.load(ctx.instanceSlot(), OBJECT_TYPE);
+        emitInvokeStatic(asm, THROW_WITH_BACKTRACE);
+        asm.athrow();
+    }
+
+    private Context newContext(
+            String internalClassName,
+            int funcId,
+            FunctionType type,
+            FunctionBody body,
+            WasmAnalyzer.AnalysisResult analysis,
+            boolean outlined) {
+        return new Context(
+                module,
+                internalClassName,
+                maxFunctionsPerClass,
+                analyzer.globalTypes(),
+                functionTypes,
+                funcId,
+                type,
+                body,
+                tailCallFunctions,
+                tailCallTypes,
+                useBridgeClasses ? callIndirectClassResolver : typeId -> internalClassName,
+                analysis.maxTempSlots(),
+                outlined);
+    }
+
+    private void compileInstruction(
+            Context ctx,
+            CompilerInstruction ins,
+            Map<Long, Label> labels,
+            Set<Long> visitedTargets,
+            InstructionAdapter asm) {
+        switch (ins.opcode()) {
+            case LABEL:
+                Label label = labels.get(ins.operand(0));
+                if (label != null) {
+                    asm.mark(label);
+                    visitedTargets.add(ins.operand(0));
+                }
+                break;
+            case GOTO:
+                if (visitedTargets.contains(ins.operand(0))) {
+                    asm.load(ctx.instanceSlot(), OBJECT_TYPE);
+                    emitInvokeVirtual(asm, CHECK_INTERRUPTION);
+                }
+                asm.goTo(labels.get(ins.operand(0)));
+                break;
+            case IFEQ:
+                if (visitedTargets.contains(ins.operand(0))) {
+                    throw new ChicoryException("Unexpected backward jump");
+                }
+                asm.ifeq(labels.get(ins.operand(0)));
+                break;
+            case IFNE:
+                if (visitedTargets.contains(ins.operand(0))) {
+                    Label skip = new Label();
+                    asm.ifeq(skip);
+                    asm.load(ctx.instanceSlot(), OBJECT_TYPE);
+                    emitInvokeVirtual(asm, CHECK_INTERRUPTION);
                     asm.goTo(labels.get(ins.operand(0)));
-                    break;
-                case IFEQ:
-                    if (visitedTargets.contains(ins.operand(0))) {
-                        throw new ChicoryException("Unexpected backward jump");
-                    }
-                    asm.ifeq(labels.get(ins.operand(0)));
-                    break;
-                case IFNE:
-                    if (visitedTargets.contains(ins.operand(0))) {
-                        Label skip = new Label();
-                        asm.ifeq(skip);
-                        emitInvokeStatic(asm, CHECK_INTERRUPTION);
-                        asm.goTo(labels.get(ins.operand(0)));
-                        asm.mark(skip);
+                    asm.mark(skip);
 
-                    } else {
-                        asm.ifne(labels.get(ins.operand(0)));
-                    }
-                    break;
-                case SWITCH:
-                    if (ins.operands().anyMatch(visitedTargets::contains)) {
-                        emitInvokeStatic(asm, CHECK_INTERRUPTION);
-                    }
-                    // table switch using the last entry of the table as the default
-                    Label[] table = new Label[ins.operandCount() - 1];
-                    for (int i = 0; i < table.length; i++) {
-                        table[i] = labels.get(ins.operand(i));
-                    }
-                    Label defaultLabel = labels.get(ins.operand(table.length));
-                    asm.tableswitch(0, table.length - 1, defaultLabel, table);
-                    break;
-                case TRY_CATCH_BLOCK:
-                    asm.visitTryCatchBlock(
-                            labels.get(ins.operand(0)),
-                            labels.get(ins.operand(1)),
-                            labels.get(ins.operand(2)),
-                            getInternalName(WasmException.class));
-                    break;
-                default:
-                    var emitter = EMITTERS.get(ins.opcode());
-                    if (emitter == null) {
-                        throw new ChicoryException("Unhandled opcode: " + ins.opcode());
-                    }
-                    emitter.emit(ctx, ins, asm);
+                } else {
+                    asm.ifne(labels.get(ins.operand(0)));
+                }
+                break;
+            case SWITCH:
+                if (ins.operands().anyMatch(visitedTargets::contains)) {
+                    asm.load(ctx.instanceSlot(), OBJECT_TYPE);
+                    emitInvokeVirtual(asm, CHECK_INTERRUPTION);
+                }
+                // table switch using the last entry of the table as the default
+                Label[] table = new Label[ins.operandCount() - 1];
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = labels.get(ins.operand(i));
+                }
+                Label defaultLabel = labels.get(ins.operand(table.length));
+                asm.tableswitch(0, table.length - 1, defaultLabel, table);
+                break;
+            case TRY_CATCH_BLOCK:
+                asm.visitTryCatchBlock(
+                        labels.get(ins.operand(0)),
+                        labels.get(ins.operand(1)),
+                        labels.get(ins.operand(2)),
+                        getInternalName(WasmException.class));
+                break;
+            default:
+                var emitter = EMITTERS.get(ins.opcode());
+                if (emitter == null) {
+                    throw new ChicoryException("Unhandled opcode: " + ins.opcode());
+                }
+                emitter.emit(ctx, ins, asm);
+        }
+    }
+
+    private List<FunctionOutliner.Region> outlinedRegions(
+            int funcId, WasmAnalyzer.AnalysisResult analysis) {
+        int size = analysis.instructions().size();
+        int maxSize = maxMethodInstructions;
+        if (size > maxMethodInstructions) {
+            outlinedFunctions.add(funcId);
+        } else if (outlinedFunctions.contains(funcId)) {
+            // too large for a JVM method despite the few instructions
+            maxSize = size / 2;
+        } else {
+            return List.of();
+        }
+        return FunctionOutliner.regions(analysis.instructions(), analysis.emptyStack(), maxSize);
+    }
+
+    // The offsets of the locals in the long[] passed to the outlined methods, followed by the
+    // offset of the function results.
+    private static int[] frameOffsets(FunctionType type, FunctionBody body) {
+        int count = type.params().size() + body.localTypes().size();
+        int[] offsets = new int[count + 1];
+        int offset = 0;
+        for (int i = 0; i < count; i++) {
+            offsets[i] = offset;
+            offset += flattenV128(List.of(localType(type, body, i))).size();
+        }
+        offsets[count] = offset;
+        return offsets;
+    }
+
+    private static void emitSaveLocal(
+            Context ctx, int local, int frameSlot, int frameOffset, InstructionAdapter asm) {
+        int slot = ctx.localSlotIndex(local);
+        int offset = frameOffset;
+        for (var part : flattenV128(List.of(localType(ctx.getType(), ctx.getBody(), local)))) {
+            asm.load(frameSlot, OBJECT_TYPE);
+            asm.iconst(offset++);
+            emitLoad(asm, slot, part);
+            emitJvmToLong(asm, part);
+            asm.astore(LONG_TYPE);
+            slot += slotCount(part);
+        }
+    }
+
+    private static void emitRestoreLocal(
+            Context ctx, int local, int frameSlot, int frameOffset, InstructionAdapter asm) {
+        int slot = ctx.localSlotIndex(local);
+        int offset = frameOffset;
+        for (var part : flattenV128(List.of(localType(ctx.getType(), ctx.getBody(), local)))) {
+            asm.load(frameSlot, OBJECT_TYPE);
+            asm.iconst(offset++);
+            asm.aload(LONG_TYPE);
+            emitLongToJvm(asm, part);
+            emitStore(asm, slot, part);
+            slot += slotCount(part);
+        }
+    }
+
+    // Calls the method compiled from the region and continues from the exit it returns.
+    private static void emitOutlinedCall(
+            Context ctx,
+            String groupInternalClassName,
+            String methodName,
+            FunctionOutliner.Region region,
+            int frameSlot,
+            int[] frameOffsets,
+            Map<Long, Label> labels,
+            Set<Long> visitedTargets,
+            InstructionAdapter asm) {
+        for (int local : region.locals()) {
+            emitSaveLocal(ctx, local, frameSlot, frameOffsets[local], asm);
+        }
+        asm.load(frameSlot, OBJECT_TYPE);
+        asm.load(ctx.memorySlot(), OBJECT_TYPE);
+        asm.load(ctx.instanceSlot(), OBJECT_TYPE);
+        asm.invokestatic(
+                groupInternalClassName,
+                methodName,
+                OUTLINED_METHOD_TYPE.toMethodDescriptorString(),
+                false);
+        for (int local : region.changedLocals()) {
+            emitRestoreLocal(ctx, local, frameSlot, frameOffsets[local], asm);
+        }
+
+        // switch on the exit: -1 returns, 0 continues, k jumps to the k-th exit label
+        long[] exits = region.exits();
+        Label returnLabel = new Label();
+        Label continueLabel = new Label();
+        Label[] table = new Label[exits.length + 2];
+        table[0] = returnLabel;
+        table[1] = continueLabel;
+        for (int i = 0; i < exits.length; i++) {
+            table[i + 2] = new Label();
+        }
+        asm.tableswitch(-1, exits.length, continueLabel, table);
+
+        asm.mark(returnLabel);
+        var returns = flattenV128(ctx.getType().returns());
+        int offset = frameOffsets[frameOffsets.length - 1];
+        for (var part : returns) {
+            asm.load(frameSlot, OBJECT_TYPE);
+            asm.iconst(offset++);
+            asm.aload(LONG_TYPE);
+            emitLongToJvm(asm, part);
+        }
+        Emitters.RETURN(ctx, null, asm);
+
+        for (int i = 0; i < exits.length; i++) {
+            asm.mark(table[i + 2]);
+            if (visitedTargets.contains(exits[i])) {
+                asm.load(ctx.instanceSlot(), OBJECT_TYPE);
+                emitInvokeVirtual(asm, CHECK_INTERRUPTION);
             }
+            asm.goTo(labels.get(exits[i]));
+        }
+
+        asm.mark(continueLabel);
+        if (region.deadEnd()) {
+            Emitters.TRAP(ctx, null, asm);
+        }
+    }
+
+    // implements the body of:
+    // public static int func_xxx_k(long[] frame, Memory memory, Instance instance)
+    private void compileOutlinedRegion(
+            String internalClassName,
+            int funcId,
+            FunctionType type,
+            FunctionBody body,
+            WasmAnalyzer.AnalysisResult analysis,
+            FunctionOutliner.Region region,
+            int[] frameOffsets,
+            InstructionAdapter asm) {
+        var ctx = newContext(internalClassName, funcId, type, body, analysis, true);
+        var instructions = analysis.instructions();
+
+        for (int local : region.locals()) {
+            emitRestoreLocal(ctx, local, 0, frameOffsets[local], asm);
+        }
+
+        // the jumps out of the region go to the exits
+        Map<Long, Label> labels = new HashMap<>();
+        long[] exits = region.exits();
+        for (long exit : exits) {
+            labels.put(exit, new Label());
+        }
+        for (int idx = region.start(); idx < region.end(); idx++) {
+            for (long target : instructions.get(idx).labelTargets()) {
+                labels.computeIfAbsent(target, t -> new Label());
+            }
+        }
+
+        Set<Long> visitedTargets = new HashSet<>();
+        int scratchSlot = ctx.trySaveBaseSlot() + analysis.trySaveSlots();
+        for (int idx = region.start(); idx < region.end(); idx++) {
+            var ins = instructions.get(idx);
+            if (ins.opcode() != CompilerOpCode.RETURN) {
+                compileInstruction(ctx, ins, labels, visitedTargets, asm);
+                continue;
+            }
+            // store the results in the long[]
+            var returns = flattenV128(type.returns());
+            int offset = frameOffsets[frameOffsets.length - 1] + returns.size();
+            for (int i = returns.size() - 1; i >= 0; i--) {
+                var part = returns.get(i);
+                emitStore(asm, scratchSlot, part);
+                asm.load(0, OBJECT_TYPE);
+                asm.iconst(--offset);
+                emitLoad(asm, scratchSlot, part);
+                emitJvmToLong(asm, part);
+                asm.astore(LONG_TYPE);
+            }
+            asm.iconst(-1);
+            asm.areturn(INT_TYPE);
+        }
+
+        if (!region.deadEnd()) {
+            emitOutlinedExit(ctx, region, frameOffsets, 0, asm);
+        }
+        for (int i = 0; i < exits.length; i++) {
+            asm.mark(labels.get(exits[i]));
+            emitOutlinedExit(ctx, region, frameOffsets, i + 1, asm);
+        }
+    }
+
+    private static void emitOutlinedExit(
+            Context ctx,
+            FunctionOutliner.Region region,
+            int[] frameOffsets,
+            int exit,
+            InstructionAdapter asm) {
+        for (int local : region.changedLocals()) {
+            emitSaveLocal(ctx, local, 0, frameOffsets[local], asm);
         }
+        asm.iconst(exit);
+        asm.areturn(INT_TYPE);
     }
 }
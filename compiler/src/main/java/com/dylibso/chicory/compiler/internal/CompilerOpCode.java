@@ -9,6 +9,7 @@ enum CompilerOpCode {
     LABEL,
     DROP_KEEP,
     TRAP,
+    CONSUME_FUEL,
     GOTO,
     IFEQ,
     IFNE,
@@ -316,6 +317,242 @@ enum CompilerOpCode {
     I31_GET_U(OpCode.I31_GET_U),
     ANY_CONVERT_EXTERN(OpCode.ANY_CONVERT_EXTERN),
     EXTERN_CONVERT_ANY(OpCode.EXTERN_CONVERT_ANY),
+    V128_LOAD(OpCode.V128_LOAD),
+    V128_LOAD8x8_S(OpCode.V128_LOAD8x8_S),
+    V128_LOAD8x8_U(OpCode.V128_LOAD8x8_U),
+    V128_LOAD16x4_S(OpCode.V128_LOAD16x4_S),
+    V128_LOAD16x4_U(OpCode.V128_LOAD16x4_U),
+    V128_LOAD32x2_S(OpCode.V128_LOAD32x2_S),
+    V128_LOAD32x2_U(OpCode.V128_LOAD32x2_U),
+    V128_LOAD8_SPLAT(OpCode.V128_LOAD8_SPLAT),
+    V128_LOAD16_SPLAT(OpCode.V128_LOAD16_SPLAT),
+    V128_LOAD32_SPLAT(OpCode.V128_LOAD32_SPLAT),
+    V128_LOAD64_SPLAT(OpCode.V128_LOAD64_SPLAT),
+    V128_STORE(OpCode.V128_STORE),
+    V128_CONST(OpCode.V128_CONST),
+    I8x16_SHUFFLE(OpCode.I8x16_SHUFFLE),
+    I8x16_SWIZZLE(OpCode.I8x16_SWIZZLE),
+    I8x16_SPLAT(OpCode.I8x16_SPLAT),
+    I16x8_SPLAT(OpCode.I16x8_SPLAT),
+    I32x4_SPLAT(OpCode.I32x4_SPLAT),
+    I64x2_SPLAT(OpCode.I64x2_SPLAT),
+    F32x4_SPLAT(OpCode.F32x4_SPLAT),
+    F64x2_SPLAT(OpCode.F64x2_SPLAT),
+    I8x16_EXTRACT_LANE_S(OpCode.I8x16_EXTRACT_LANE_S),
+    I8x16_EXTRACT_LANE_U(OpCode.I8x16_EXTRACT_LANE_U),
+    I8x16_REPLACE_LANE(OpCode.I8x16_REPLACE_LANE),
+    I16x8_EXTRACT_LANE_S(OpCode.I16x8_EXTRACT_LANE_S),
+    I16x8_EXTRACT_LANE_U(OpCode.I16x8_EXTRACT_LANE_U),
+    I16x8_REPLACE_LANE(OpCode.I16x8_REPLACE_LANE),
+    I32x4_EXTRACT_LANE(OpCode.I32x4_EXTRACT_LANE),
+    I32x4_REPLACE_LANE(OpCode.I32x4_REPLACE_LANE),
+    I64x2_EXTRACT_LANE(OpCode.I64x2_EXTRACT_LANE),
+    I64x2_REPLACE_LANE(OpCode.I64x2_REPLACE_LANE),
+    F32x4_EXTRACT_LANE(OpCode.F32x4_EXTRACT_LANE),
+    F32x4_REPLACE_LANE(OpCode.F32x4_REPLACE_LANE),
+    F64x2_EXTRACT_LANE(OpCode.F64x2_EXTRACT_LANE),
+    F64x2_REPLACE_LANE(OpCode.F64x2_REPLACE_LANE),
+    I8x16_EQ(OpCode.I8x16_EQ),
+    I8x16_NE(OpCode.I8x16_NE),
+    I8x16_LT_S(OpCode.I8x16_LT_S),
+    I8x16_LT_U(OpCode.I8x16_LT_U),
+    I8x16_GT_S(OpCode.I8x16_GT_S),
+    I8x16_GT_U(OpCode.I8x16_GT_U),
+    I8x16_LE_S(OpCode.I8x16_LE_S),
+    I8x16_LE_U(OpCode.I8x16_LE_U),
+    I8x16_GE_S(OpCode.I8x16_GE_S),
+    I8x16_GE_U(OpCode.I8x16_GE_U),
+    I16x8_EQ(OpCode.I16x8_EQ),
+    I16x8_NE(OpCode.I16x8_NE),
+    I16x8_LT_S(OpCode.I16x8_LT_S),
+    I16x8_LT_U(OpCode.I16x8_LT_U),
+    I16x8_GT_S(OpCode.I16x8_GT_S),
+    I16x8_GT_U(OpCode.I16x8_GT_U),
+    I16x8_LE_S(OpCode.I16x8_LE_S),
+    I16x8_LE_U(OpCode.I16x8_LE_U),
+    I16x8_GE_S(OpCode.I16x8_GE_S),
+    I16x8_GE_U(OpCode.I16x8_GE_U),
+    I32x4_EQ(OpCode.I32x4_EQ),
+    I32x4_NE(OpCode.I32x4_NE),
+    I32x4_LT_S(OpCode.I32x4_LT_S),
+    I32x4_LT_U(OpCode.I32x4_LT_U),
+    I32x4_GT_S(OpCode.I32x4_GT_S),
+    I32x4_GT_U(OpCode.I32x4_GT_U),
+    I32x4_LE_S(OpCode.I32x4_LE_S),
+    I32x4_LE_U(OpCode.I32x4_LE_U),
+    I32x4_GE_S(OpCode.I32x4_GE_S),
+    I32x4_GE_U(OpCode.I32x4_GE_U),
+    F32x4_EQ(OpCode.F32x4_EQ),
+    F32x4_NE(OpCode.F32x4_NE),
+    F32x4_LT(OpCode.F32x4_LT),
+    F32x4_GT(OpCode.F32x4_GT),
+    F32x4_LE(OpCode.F32x4_LE),
+    F32x4_GE(OpCode.F32x4_GE),
+    F64x2_EQ(OpCode.F64x2_EQ),
+    F64x2_NE(OpCode.F64x2_NE),
+    F64x2_LT(OpCode.F64x2_LT),
+    F64x2_GT(OpCode.F64x2_GT),
+    F64x2_LE(OpCode.F64x2_LE),
+    F64x2_GE(OpCode.F64x2_GE),
+    V128_NOT(OpCode.V128_NOT),
+    V128_AND(OpCode.V128_AND),
+    V128_ANDNOT(OpCode.V128_ANDNOT),
+    V128_OR(OpCode.V128_OR),
+    V128_XOR(OpCode.V128_XOR),
+    V128_BITSELECT(OpCode.V128_BITSELECT),
+    V128_ANY_TRUE(OpCode.V128_ANY_TRUE),
+    V128_LOAD8_LANE(OpCode.V128_LOAD8_LANE),
+    V128_LOAD16_LANE(OpCode.V128_LOAD16_LANE),
+    V128_LOAD32_LANE(OpCode.V128_LOAD32_LANE),
+    V128_LOAD64_LANE(OpCode.V128_LOAD64_LANE),
+    V128_STORE8_LANE(OpCode.V128_STORE8_LANE),
+    V128_STORE16_LANE(OpCode.V128_STORE16_LANE),
+    V128_STORE32_LANE(OpCode.V128_STORE32_LANE),
+    V128_STORE64_LANE(OpCode.V128_STORE64_LANE),
+    V128_LOAD32_ZERO(OpCode.V128_LOAD32_ZERO),
+    V128_LOAD64_ZERO(OpCode.V128_LOAD64_ZERO),
+    F32x4_DEMOTE_LOW_F64x2_ZERO(OpCode.F32x4_DEMOTE_LOW_F64x2_ZERO),
+    F64x2_PROMOTE_LOW_F32x4(OpCode.F64x2_PROMOTE_LOW_F32x4),
+    I8x16_ABS(OpCode.I8x16_ABS),
+    I8x16_NEG(OpCode.I8x16_NEG),
+    I8x16_POPCNT(OpCode.I8x16_POPCNT),
+    I8x16_ALL_TRUE(OpCode.I8x16_ALL_TRUE),
+    I8x16_BITMASK(OpCode.I8x16_BITMASK),
+    I8x16_NARROW_I16x8_S(OpCode.I8x16_NARROW_I16x8_S),
+    I8x16_NARROW_I16x8_U(OpCode.I8x16_NARROW_I16x8_U),
+    F32x4_CEIL(OpCode.F32x4_CEIL),
+    F32x4_FLOOR(OpCode.F32x4_FLOOR),
+    F32x4_TRUNC(OpCode.F32x4_TRUNC),
+    F32x4_NEAREST(OpCode.F32x4_NEAREST),
+    I8x16_SHL(OpCode.I8x16_SHL),
+    I8x16_SHR_S(OpCode.I8x16_SHR_S),
+    I8x16_SHR_U(OpCode.I8x16_SHR_U),
+    I8x16_ADD(OpCode.I8x16_ADD),
+    I8x16_ADD_SAT_S(OpCode.I8x16_ADD_SAT_S),
+    I8x16_ADD_SAT_U(OpCode.I8x16_ADD_SAT_U),
+    I8x16_SUB(OpCode.I8x16_SUB),
+    I8x16_SUB_SAT_S(OpCode.I8x16_SUB_SAT_S),
+    I8x16_SUB_SAT_U(OpCode.I8x16_SUB_SAT_U),
+    F64x2_CEIL(OpCode.F64x2_CEIL),
+    F64x2_FLOOR(OpCode.F64x2_FLOOR),
+    I8x16_MIN_S(OpCode.I8x16_MIN_S),
+    I8x16_MIN_U(OpCode.I8x16_MIN_U),
+    I8x16_MAX_S(OpCode.I8x16_MAX_S),
+    I8x16_MAX_U(OpCode.I8x16_MAX_U),
+    F64x2_TRUNC(OpCode.F64x2_TRUNC),
+    I8x16_AVGR_U(OpCode.I8x16_AVGR_U),
+    I16x8_EXTADD_PAIRWISE_I8x16_S(OpCode.I16x8_EXTADD_PAIRWISE_I8x16_S),
+    I16x8_EXTADD_PAIRWISE_I8x16_U(OpCode.I16x8_EXTADD_PAIRWISE_I8x16_U),
+    I32x4_EXTADD_PAIRWISE_I16x8_S(OpCode.I32x4_EXTADD_PAIRWISE_I16x8_S),
+    I32x4_EXTADD_PAIRWISE_I16x8_U(OpCode.I32x4_EXTADD_PAIRWISE_I16x8_U),
+    I16x8_ABS(OpCode.I16x8_ABS),
+    I16x8_NEG(OpCode.I16x8_NEG),
+    I16x8_Q15MULR_SAT_S(OpCode.I16x8_Q15MULR_SAT_S),
+    I16x8_ALL_TRUE(OpCode.I16x8_ALL_TRUE),
+    I16x8_BITMASK(OpCode.I16x8_BITMASK),
+    I16x8_NARROW_I32x4_S(OpCode.I16x8_NARROW_I32x4_S),
+    I16x8_NARROW_I32x4_U(OpCode.I16x8_NARROW_I32x4_U),
+    I16x8_EXTEND_LOW_I8x16_S(OpCode.I16x8_EXTEND_LOW_I8x16_S),
+    I16x8_EXTEND_HIGH_I8x16_S(OpCode.I16x8_EXTEND_HIGH_I8x16_S),
+    I16x8_EXTEND_LOW_I8x16_U(OpCode.I16x8_EXTEND_LOW_I8x16_U),
+    I16x8_EXTEND_HIGH_I8x16_U(OpCode.I16x8_EXTEND_HIGH_I8x16_U),
+    I16x8_SHL(OpCode.I16x8_SHL),
+    I16x8_SHR_S(OpCode.I16x8_SHR_S),
+    I16x8_SHR_U(OpCode.I16x8_SHR_U),
+    I16x8_ADD(OpCode.I16x8_ADD),
+    I16x8_ADD_SAT_S(OpCode.I16x8_ADD_SAT_S),
+    I16x8_ADD_SAT_U(OpCode.I16x8_ADD_SAT_U),
+    I16x8_SUB(OpCode.I16x8_SUB),
+    I16x8_SUB_SAT_S(OpCode.I16x8_SUB_SAT_S),
+    I16x8_SUB_SAT_U(OpCode.I16x8_SUB_SAT_U),
+    F64x2_NEAREST(OpCode.F64x2_NEAREST),
+    I16x8_MUL(OpCode.I16x8_MUL),
+    I16x8_MIN_S(OpCode.I16x8_MIN_S),
+    I16x8_MIN_U(OpCode.I16x8_MIN_U),
+    I16x8_MAX_S(OpCode.I16x8_MAX_S),
+    I16x8_MAX_U(OpCode.I16x8_MAX_U),
+    I16x8_AVGR_U(OpCode.I16x8_AVGR_U),
+    I16x8_EXTMUL_LOW_I8x16_S(OpCode.I16x8_EXTMUL_LOW_I8x16_S),
+    I16x8_EXTMUL_HIGH_I8x16_S(OpCode.I16x8_EXTMUL_HIGH_I8x16_S),
+    I16x8_EXTMUL_LOW_I8x16_U(OpCode.I16x8_EXTMUL_LOW_I8x16_U),
+    I16x8_EXTMUL_HIGH_I8x16_U(OpCode.I16x8_EXTMUL_HIGH_I8x16_U),
+    I32x4_ABS(OpCode.I32x4_ABS),
+    I32x4_NEG(OpCode.I32x4_NEG),
+    I32x4_ALL_TRUE(OpCode.I32x4_ALL_TRUE),
+    I32x4_BITMASK(OpCode.I32x4_BITMASK),
+    I32x4_EXTEND_LOW_I16x8_S(OpCode.I32x4_EXTEND_LOW_I16x8_S),
+    I32x4_EXTEND_HIGH_I16x8_S(OpCode.I32x4_EXTEND_HIGH_I16x8_S),
+    I32x4_EXTEND_LOW_I16x8_U(OpCode.I32x4_EXTEND_LOW_I16x8_U),
+    I32x4_EXTEND_HIGH_I16x8_U(OpCode.I32x4_EXTEND_HIGH_I16x8_U),
+    I32x4_SHL(OpCode.I32x4_SHL),
+    I32x4_SHR_S(OpCode.I32x4_SHR_S),
+    I32x4_SHR_U(OpCode.I32x4_SHR_U),
+    I32x4_ADD(OpCode.I32x4_ADD),
+    I32x4_SUB(OpCode.I32x4_SUB),
+    I32x4_MUL(OpCode.I32x4_MUL),
+    I32x4_MIN_S(OpCode.I32x4_MIN_S),
+    I32x4_MIN_U(OpCode.I32x4_MIN_U),
+    I32x4_MAX_S(OpCode.I32x4_MAX_S),
+    I32x4_MAX_U(OpCode.I32x4_MAX_U),
+    I32x4_DOT_I16x8_S(OpCode.I32x4_DOT_I16x8_S),
+    I32x4_EXTMUL_LOW_I16x8_S(OpCode.I32x4_EXTMUL_LOW_I16x8_S),
+    I32x4_EXTMUL_HIGH_I16x8_S(OpCode.I32x4_EXTMUL_HIGH_I16x8_S),
+    I32x4_EXTMUL_LOW_I16x8_U(OpCode.I32x4_EXTMUL_LOW_I16x8_U),
+    I32x4_EXTMUL_HIGH_I16x8_U(OpCode.I32x4_EXTMUL_HIGH_I16x8_U),
+    I64x2_ABS(OpCode.I64x2_ABS),
+    I64x2_NEG(OpCode.I64x2_NEG),
+    I64x2_ALL_TRUE(OpCode.I64x2_ALL_TRUE),
+    I64x2_BITMASK(OpCode.I64x2_BITMASK),
+    I64x2_EXTEND_LOW_I32x4_S(OpCode.I64x2_EXTEND_LOW_I32x4_S),
+    I64x2_EXTEND_HIGH_I32x4_S(OpCode.I64x2_EXTEND_HIGH_I32x4_S),
+    I64x2_EXTEND_LOW_I32x4_U(OpCode.I64x2_EXTEND_LOW_I32x4_U),
+    I64x2_EXTEND_HIGH_I32x4_U(OpCode.I64x2_EXTEND_HIGH_I32x4_U),
+    I64x2_SHL(OpCode.I64x2_SHL),
+    I64x2_SHR_S(OpCode.I64x2_SHR_S),
+    I64x2_SHR_U(OpCode.I64x2_SHR_U),
+    I64x2_ADD(OpCode.I64x2_ADD),
+    I64x2_SUB(OpCode.I64x2_SUB),
+    I64x2_MUL(OpCode.I64x2_MUL),
+    I64x2_EQ(OpCode.I64x2_EQ),
+    I64x2_NE(OpCode.I64x2_NE),
+    I64x2_LT_S(OpCode.I64x2_LT_S),
+    I64x2_GT_S(OpCode.I64x2_GT_S),
+    I64x2_LE_S(OpCode.I64x2_LE_S),
+    I64x2_GE_S(OpCode.I64x2_GE_S),
+    I64x2_EXTMUL_LOW_I32x4_S(OpCode.I64x2_EXTMUL_LOW_I32x4_S),
+    I64x2_EXTMUL_HIGH_I32x4_S(OpCode.I64x2_EXTMUL_HIGH_I32x4_S),
+    I64x2_EXTMUL_LOW_I32x4_U(OpCode.I64x2_EXTMUL_LOW_I32x4_U),
+    I64x2_EXTMUL_HIGH_I32x4_U(OpCode.I64x2_EXTMUL_HIGH_I32x4_U),
+    F32x4_ABS(OpCode.F32x4_ABS),
+    F32x4_NEG(OpCode.F32x4_NEG),
+    F32x4_SQRT(OpCode.F32x4_SQRT),
+    F32x4_ADD(OpCode.F32x4_ADD),
+    F32x4_SUB(OpCode.F32x4_SUB),
+    F32x4_MUL(OpCode.F32x4_MUL),
+    F32x4_DIV(OpCode.F32x4_DIV),
+    F32x4_MIN(OpCode.F32x4_MIN),
+    F32x4_MAX(OpCode.F32x4_MAX),
+    F32x4_PMIN(OpCode.F32x4_PMIN),
+    F32x4_PMAX(OpCode.F32x4_PMAX),
+    F64x2_ABS(OpCode.F64x2_ABS),
+    F64x2_NEG(OpCode.F64x2_NEG),
+    F64x2_SQRT(OpCode.F64x2_SQRT),
+    F64x2_ADD(OpCode.F64x2_ADD),
+    F64x2_SUB(OpCode.F64x2_SUB),
+    F64x2_MUL(OpCode.F64x2_MUL),
+    F64x2_DIV(OpCode.F64x2_DIV),
+    F64x2_MIN(OpCode.F64x2_MIN),
+    F64x2_MAX(OpCode.F64x2_MAX),
+    F64x2_PMIN(OpCode.F64x2_PMIN),
+    F64x2_PMAX(OpCode.F64x2_PMAX),
+    I32x4_TRUNC_SAT_F32X4_S(OpCode.I32x4_TRUNC_SAT_F32X4_S),
+    I32x4_TRUNC_SAT_F32X4_U(OpCode.I32x4_TRUNC_SAT_F32X4_U),
+    F32x4_CONVERT_I32x4_S(OpCode.F32x4_CONVERT_I32x4_S),
+    F32x4_CONVERT_I32x4_U(OpCode.F32x4_CONVERT_I32x4_U),
+    I32x4_TRUNC_SAT_F64x2_S_ZERO(OpCode.I32x4_TRUNC_SAT_F64x2_S_ZERO),
+    I32x4_TRUNC_SAT_F64x2_U_ZERO(OpCode.I32x4_TRUNC_SAT_F64x2_U_ZERO),
+    F64x2_CONVERT_LOW_I32x4_S(OpCode.F64x2_CONVERT_LOW_I32x4_S),
+    F64x2_CONVERT_LOW_I32x4_U(OpCode.F64x2_CONVERT_LOW_I32x4_U),
     RETURN_CALL,
     RETURN_CALL_INDIRECT,
     RETURN_CALL_REF,
@@ -348,6 +585,10 @@ enum CompilerOpCode {
         return opcode.orElseThrow(() -> new IllegalStateException("No opcode for " + this));
     }
 
+    public boolean isSimd() {
+        return opcode.map(op -> (op.opcode() >> 8) == 0xFD).orElse(false);
+    }
+
     public static CompilerOpCode of(OpCode opcode) {
         CompilerOpCode value = OPCODES.get(opcode);
         if (value == null) {
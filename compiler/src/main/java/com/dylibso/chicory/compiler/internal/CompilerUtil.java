@@ -19,11 +19,13 @@ import com.dylibso.chicory.wasm.types.Value;
 import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.InstructionAdapter;
 
 final class CompilerUtil {
 
@@ -161,7 +163,33 @@ final class CompilerUtil {
     }
 
     public static Class<?>[] jvmTypes(List<ValType> types) {
-        return types.stream().map(CompilerUtil::jvmType).toArray(Class[]::new);
+        return flattenV128(types).stream().map(CompilerUtil::jvmType).toArray(Class[]::new);
+    }
+
+    /**
+     * A v128 value is held in two longs, the low half first, on the JVM stack as well as in
+     * method parameters and in the {@code long[]} of multiple values.
+     *
+     * @return the types with each v128 replaced by two i64
+     */
+    public static List<ValType> flattenV128(List<ValType> types) {
+        if (!types.contains(ValType.V128)) {
+            return types;
+        }
+        var result = new ArrayList<ValType>(types.size() + 1);
+        for (var type : types) {
+            if (type.equals(ValType.V128)) {
+                result.add(ValType.I64);
+                result.add(ValType.I64);
+            } else {
+                result.add(type);
+            }
+        }
+        return result;
+    }
+
+    public static boolean hasMultipleReturns(FunctionType type) {
+        return flattenV128(type.returns()).size() > 1;
     }
 
     public static Class<?>[] jvmParameterTypes(FunctionType type) {
@@ -169,11 +197,12 @@ final class CompilerUtil {
     }
 
     public static Class<?> jvmReturnType(FunctionType type) {
-        switch (type.returns().size()) {
+        var returns = flattenV128(type.returns());
+        switch (returns.size()) {
             case 0:
                 return void.class;
             case 1:
-                return jvmType(type.returns().get(0));
+                return jvmType(returns.get(0));
             default:
                 return long[].class;
         }
@@ -214,15 +243,40 @@ final class CompilerUtil {
             case ValType.ID.I64:
             case ValType.ID.F64:
                 return 2;
+            case ValType.ID.V128:
+                return 4;
             default:
                 throw new IllegalArgumentException("Unsupported type id: " + valTypeId);
         }
     }
 
     public static void emitPop(MethodVisitor asm, ValType type) {
+        if (type.equals(ValType.V128)) {
+            asm.visitInsn(Opcodes.POP2);
+            asm.visitInsn(Opcodes.POP2);
+            return;
+        }
         asm.visitInsn(slotCount(type) == 1 ? Opcodes.POP : Opcodes.POP2);
     }
 
+    public static void emitLoad(InstructionAdapter asm, int slot, ValType type) {
+        if (type.equals(ValType.V128)) {
+            asm.load(slot, LONG_TYPE);
+            asm.load(slot + 2, LONG_TYPE);
+            return;
+        }
+        asm.load(slot, asmType(type));
+    }
+
+    public static void emitStore(InstructionAdapter asm, int slot, ValType type) {
+        if (type.equals(ValType.V128)) {
+            asm.store(slot + 2, LONG_TYPE);
+            asm.store(slot, LONG_TYPE);
+            return;
+        }
+        asm.store(slot, asmType(type));
+    }
+
     public static void emitInvokeStatic(MethodVisitor asm, Method method) {
         assert Modifier.isStatic(method.getModifiers());
         asm.visitMethodInsn(
@@ -244,6 +298,17 @@ final class CompilerUtil {
                 false);
     }
 
+    public static void emitInvokeInterface(MethodVisitor asm, Method method) {
+        assert !Modifier.isStatic(method.getModifiers());
+        assert method.getDeclaringClass().isInterface();
+        asm.visitMethodInsn(
+                Opcodes.INVOKEINTERFACE,
+                getInternalName(method.getDeclaringClass()),
+                method.getName(),
+                getMethodDescriptor(method),
+                true);
+    }
+
     public static void emitInvokeFunction(
             MethodVisitor asm, String internalClassName, int funcId, FunctionType functionType) {
         asm.visitMethodInsn(
@@ -51,6 +51,40 @@ final class Context {
             boolean[] tailCallTypes,
             IntFunction<String> callIndirectClassResolver,
             int maxTempSlots) {
+        this(
+                module,
+                internalClassName,
+                maxFunctionsPerClass,
+                globalTypes,
+                functionTypes,
+                funcId,
+                type,
+                body,
+                tailCallFunctions,
+                tailCallTypes,
+                callIndirectClassResolver,
+                maxTempSlots,
+                false);
+    }
+
+    /**
+     * @param outlined if the code is compiled in a method outlined from the function,
+     *                 taking a long[] of the locals instead of the function arguments.
+     */
+    public Context(
+            WasmModule module,
+            String internalClassName,
+            int maxFunctionsPerClass,
+            List<ValType> globalTypes,
+            List<FunctionType> functionTypes,
+            int funcId,
+            FunctionType type,
+            FunctionBody body,
+            boolean[] tailCallFunctions,
+            boolean[] tailCallTypes,
+            IntFunction<String> callIndirectClassResolver,
+            int maxTempSlots,
+            boolean outlined) {
         this.module = module;
         this.internalClassName = internalClassName;
         this.maxFunctionsPerClass = maxFunctionsPerClass;
@@ -68,7 +102,7 @@ final class Context {
         int slot = 0;
 
         // WASM arguments
-        if (hasTooManyParameters(type)) {
+        if (outlined || hasTooManyParameters(type)) {
             slot += 1; // long[]
         } else {
             for (ValType param : type.params()) {
@@ -84,7 +118,7 @@ final class Context {
         slot++;
 
         // the long[] gets unboxed
-        if (hasTooManyParameters(type)) {
+        if (outlined || hasTooManyParameters(type)) {
             for (ValType param : type.params()) {
                 slots.add(slot);
                 slot += slotCount(param);
@@ -10,6 +10,7 @@ final class EmitterMap {
                     // ====== Misc ======
                     .intrinsic(CompilerOpCode.DROP_KEEP, Emitters::DROP_KEEP)
                     .intrinsic(CompilerOpCode.TRAP, Emitters::TRAP)
+                    .intrinsic(CompilerOpCode.CONSUME_FUEL, Emitters::CONSUME_FUEL)
                     .intrinsic(CompilerOpCode.RETURN, Emitters::RETURN)
                     .intrinsic(CompilerOpCode.DROP, Emitters::DROP)
                     .intrinsic(CompilerOpCode.ELEM_DROP, Emitters::ELEM_DROP)
@@ -407,6 +408,413 @@ final class EmitterMap {
                     .intrinsic(CompilerOpCode.BR_ON_CAST_CHECK, Emitters::BR_ON_CAST_CHECK)
                     .intrinsic(
                             CompilerOpCode.BR_ON_CAST_FAIL_CHECK, Emitters::BR_ON_CAST_FAIL_CHECK)
+
+                    // ====== SIMD ======
+                    .intrinsic(CompilerOpCode.V128_LOAD, Emitters::V128_LOAD)
+                    .intrinsic(
+                            CompilerOpCode.V128_LOAD8x8_S,
+                            Emitters.v128LoadExtend("i16x8ExtendI8x16S"))
+                    .intrinsic(
+                            CompilerOpCode.V128_LOAD8x8_U,
+                            Emitters.v128LoadExtend("i16x8ExtendI8x16U"))
+                    .intrinsic(
+                            CompilerOpCode.V128_LOAD16x4_S,
+                            Emitters.v128LoadExtend("i32x4ExtendI16x8S"))
+                    .intrinsic(
+                            CompilerOpCode.V128_LOAD16x4_U,
+                            Emitters.v128LoadExtend("i32x4ExtendI16x8U"))
+                    .intrinsic(
+                            CompilerOpCode.V128_LOAD32x2_S,
+                            Emitters.v128LoadExtend("i64x2ExtendI32x4S"))
+                    .intrinsic(
+                            CompilerOpCode.V128_LOAD32x2_U,
+                            Emitters.v128LoadExtend("i64x2ExtendI32x4U"))
+                    .intrinsic(
+                            CompilerOpCode.V128_LOAD8_SPLAT,
+                            Emitters.v128LoadSplat(ShadedRefs.MEMORY_READ_BYTE, "i8x16Splat"))
+                    .intrinsic(
+                            CompilerOpCode.V128_LOAD16_SPLAT,
+                            Emitters.v128LoadSplat(ShadedRefs.MEMORY_READ_SHORT, "i16x8Splat"))
+                    .intrinsic(
+                            CompilerOpCode.V128_LOAD32_SPLAT,
+                            Emitters.v128LoadSplat(ShadedRefs.MEMORY_READ_INT, "i32x4Splat"))
+                    .intrinsic(
+                            CompilerOpCode.V128_LOAD64_SPLAT,
+                            Emitters.v128LoadSplat(ShadedRefs.MEMORY_READ_LONG, "i64x2Splat"))
+                    .intrinsic(CompilerOpCode.V128_STORE, Emitters::V128_STORE)
+                    .intrinsic(CompilerOpCode.V128_CONST, Emitters::V128_CONST)
+                    .intrinsic(CompilerOpCode.I8x16_SHUFFLE, Emitters::I8x16_SHUFFLE)
+                    .intrinsic(CompilerOpCode.I8x16_SWIZZLE, Emitters::I8x16_SWIZZLE)
+                    .intrinsic(CompilerOpCode.I8x16_SPLAT, Emitters.v128Splat("i8x16Splat"))
+                    .intrinsic(CompilerOpCode.I16x8_SPLAT, Emitters.v128Splat("i16x8Splat"))
+                    .intrinsic(CompilerOpCode.I32x4_SPLAT, Emitters.v128Splat("i32x4Splat"))
+                    .intrinsic(CompilerOpCode.I64x2_SPLAT, Emitters.v128Splat("i64x2Splat"))
+                    .intrinsic(CompilerOpCode.F32x4_SPLAT, Emitters.v128Splat("f32x4Splat"))
+                    .intrinsic(CompilerOpCode.F64x2_SPLAT, Emitters.v128Splat("f64x2Splat"))
+                    .intrinsic(
+                            CompilerOpCode.I8x16_EXTRACT_LANE_S,
+                            Emitters.v128ExtractLane("i8x16ExtractLaneS", 16))
+                    .intrinsic(
+                            CompilerOpCode.I8x16_EXTRACT_LANE_U,
+                            Emitters.v128ExtractLane("i8x16ExtractLaneU", 16))
+                    .intrinsic(
+                            CompilerOpCode.I8x16_REPLACE_LANE,
+                            Emitters.v128ReplaceLane("i8x16ReplaceLane", 16))
+                    .intrinsic(
+                            CompilerOpCode.I16x8_EXTRACT_LANE_S,
+                            Emitters.v128ExtractLane("i16x8ExtractLaneS", 8))
+                    .intrinsic(
+                            CompilerOpCode.I16x8_EXTRACT_LANE_U,
+                            Emitters.v128ExtractLane("i16x8ExtractLaneU", 8))
+                    .intrinsic(
+                            CompilerOpCode.I16x8_REPLACE_LANE,
+                            Emitters.v128ReplaceLane("i16x8ReplaceLane", 8))
+                    .intrinsic(
+                            CompilerOpCode.I32x4_EXTRACT_LANE,
+                            Emitters.v128ExtractLane("i32x4ExtractLane", 4))
+                    .intrinsic(
+                            CompilerOpCode.I32x4_REPLACE_LANE,
+                            Emitters.v128ReplaceLane("i32x4ReplaceLane", 4))
+                    .intrinsic(
+                            CompilerOpCode.I64x2_EXTRACT_LANE,
+                            Emitters.v128ExtractLane("i64x2ExtractLane", 2))
+                    .intrinsic(
+                            CompilerOpCode.I64x2_REPLACE_LANE,
+                            Emitters.v128ReplaceLane("i64x2ReplaceLane", 2))
+                    .intrinsic(
+                            CompilerOpCode.F32x4_EXTRACT_LANE,
+                            Emitters.v128ExtractLane("f32x4ExtractLane", 4))
+                    .intrinsic(
+                            CompilerOpCode.F32x4_REPLACE_LANE,
+                            Emitters.v128ReplaceLane("f32x4ReplaceLane", 4))
+                    .intrinsic(
+                            CompilerOpCode.F64x2_EXTRACT_LANE,
+                            Emitters.v128ExtractLane("f64x2ExtractLane", 2))
+                    .intrinsic(
+                            CompilerOpCode.F64x2_REPLACE_LANE,
+                            Emitters.v128ReplaceLane("f64x2ReplaceLane", 2))
+                    .intrinsic(CompilerOpCode.I8x16_EQ, Emitters.v128Lanes("i8x16Eq", 2))
+                    .intrinsic(CompilerOpCode.I8x16_NE, Emitters.v128Lanes("i8x16Ne", 2))
+                    .intrinsic(CompilerOpCode.I8x16_LT_S, Emitters.v128Lanes("i8x16LtS", 2))
+                    .intrinsic(CompilerOpCode.I8x16_LT_U, Emitters.v128Lanes("i8x16LtU", 2))
+                    .intrinsic(CompilerOpCode.I8x16_GT_S, Emitters.v128Lanes("i8x16GtS", 2))
+                    .intrinsic(CompilerOpCode.I8x16_GT_U, Emitters.v128Lanes("i8x16GtU", 2))
+                    .intrinsic(CompilerOpCode.I8x16_LE_S, Emitters.v128Lanes("i8x16LeS", 2))
+                    .intrinsic(CompilerOpCode.I8x16_LE_U, Emitters.v128Lanes("i8x16LeU", 2))
+                    .intrinsic(CompilerOpCode.I8x16_GE_S, Emitters.v128Lanes("i8x16GeS", 2))
+                    .intrinsic(CompilerOpCode.I8x16_GE_U, Emitters.v128Lanes("i8x16GeU", 2))
+                    .intrinsic(CompilerOpCode.I16x8_EQ, Emitters.v128Lanes("i16x8Eq", 2))
+                    .intrinsic(CompilerOpCode.I16x8_NE, Emitters.v128Lanes("i16x8Ne", 2))
+                    .intrinsic(CompilerOpCode.I16x8_LT_S, Emitters.v128Lanes("i16x8LtS", 2))
+                    .intrinsic(CompilerOpCode.I16x8_LT_U, Emitters.v128Lanes("i16x8LtU", 2))
+                    .intrinsic(CompilerOpCode.I16x8_GT_S, Emitters.v128Lanes("i16x8GtS", 2))
+                    .intrinsic(CompilerOpCode.I16x8_GT_U, Emitters.v128Lanes("i16x8GtU", 2))
+                    .intrinsic(CompilerOpCode.I16x8_LE_S, Emitters.v128Lanes("i16x8LeS", 2))
+                    .intrinsic(CompilerOpCode.I16x8_LE_U, Emitters.v128Lanes("i16x8LeU", 2))
+                    .intrinsic(CompilerOpCode.I16x8_GE_S, Emitters.v128Lanes("i16x8GeS", 2))
+                    .intrinsic(CompilerOpCode.I16x8_GE_U, Emitters.v128Lanes("i16x8GeU", 2))
+                    .intrinsic(CompilerOpCode.I32x4_EQ, Emitters.v128Lanes("i32x4Eq", 2))
+                    .intrinsic(CompilerOpCode.I32x4_NE, Emitters.v128Lanes("i32x4Ne", 2))
+                    .intrinsic(CompilerOpCode.I32x4_LT_S, Emitters.v128Lanes("i32x4LtS", 2))
+                    .intrinsic(CompilerOpCode.I32x4_LT_U, Emitters.v128Lanes("i32x4LtU", 2))
+                    .intrinsic(CompilerOpCode.I32x4_GT_S, Emitters.v128Lanes("i32x4GtS", 2))
+                    .intrinsic(CompilerOpCode.I32x4_GT_U, Emitters.v128Lanes("i32x4GtU", 2))
+                    .intrinsic(CompilerOpCode.I32x4_LE_S, Emitters.v128Lanes("i32x4LeS", 2))
+                    .intrinsic(CompilerOpCode.I32x4_LE_U, Emitters.v128Lanes("i32x4LeU", 2))
+                    .intrinsic(CompilerOpCode.I32x4_GE_S, Emitters.v128Lanes("i32x4GeS", 2))
+                    .intrinsic(CompilerOpCode.I32x4_GE_U, Emitters.v128Lanes("i32x4GeU", 2))
+                    .intrinsic(CompilerOpCode.F32x4_EQ, Emitters.v128Lanes("f32x4Eq", 2))
+                    .intrinsic(CompilerOpCode.F32x4_NE, Emitters.v128Lanes("f32x4Ne", 2))
+                    .intrinsic(CompilerOpCode.F32x4_LT, Emitters.v128Lanes("f32x4Lt", 2))
+                    .intrinsic(CompilerOpCode.F32x4_GT, Emitters.v128Lanes("f32x4Gt", 2))
+                    .intrinsic(CompilerOpCode.F32x4_LE, Emitters.v128Lanes("f32x4Le", 2))
+                    .intrinsic(CompilerOpCode.F32x4_GE, Emitters.v128Lanes("f32x4Ge", 2))
+                    .intrinsic(CompilerOpCode.F64x2_EQ, Emitters.v128Lanes("f64x2Eq", 2))
+                    .intrinsic(CompilerOpCode.F64x2_NE, Emitters.v128Lanes("f64x2Ne", 2))
+                    .intrinsic(CompilerOpCode.F64x2_LT, Emitters.v128Lanes("f64x2Lt", 2))
+                    .intrinsic(CompilerOpCode.F64x2_GT, Emitters.v128Lanes("f64x2Gt", 2))
+                    .intrinsic(CompilerOpCode.F64x2_LE, Emitters.v128Lanes("f64x2Le", 2))
+                    .intrinsic(CompilerOpCode.F64x2_GE, Emitters.v128Lanes("f64x2Ge", 2))
+                    .intrinsic(CompilerOpCode.V128_NOT, Emitters.v128Lanes("v128Not", 1))
+                    .intrinsic(CompilerOpCode.V128_AND, Emitters.v128Lanes("v128And", 2))
+                    .intrinsic(CompilerOpCode.V128_ANDNOT, Emitters.v128Lanes("v128AndNot", 2))
+                    .intrinsic(CompilerOpCode.V128_OR, Emitters.v128Lanes("v128Or", 2))
+                    .intrinsic(CompilerOpCode.V128_XOR, Emitters.v128Lanes("v128Xor", 2))
+                    .intrinsic(
+                            CompilerOpCode.V128_BITSELECT, Emitters.v128Lanes("v128Bitselect", 3))
+                    .intrinsic(CompilerOpCode.V128_ANY_TRUE, Emitters.v128Test("v128AnyTrue"))
+                    .intrinsic(
+                            CompilerOpCode.V128_LOAD8_LANE,
+                            Emitters.v128LoadLane(
+                                    ShadedRefs.MEMORY_READ_BYTE, "i8x16ReplaceLane", 16))
+                    .intrinsic(
+                            CompilerOpCode.V128_LOAD16_LANE,
+                            Emitters.v128LoadLane(
+                                    ShadedRefs.MEMORY_READ_SHORT, "i16x8ReplaceLane", 8))
+                    .intrinsic(
+                            CompilerOpCode.V128_LOAD32_LANE,
+                            Emitters.v128LoadLane(
+                                    ShadedRefs.MEMORY_READ_INT, "i32x4ReplaceLane", 4))
+                    .intrinsic(
+                            CompilerOpCode.V128_LOAD64_LANE,
+                            Emitters.v128LoadLane(
+                                    ShadedRefs.MEMORY_READ_LONG, "i64x2ReplaceLane", 2))
+                    .intrinsic(
+                            CompilerOpCode.V128_STORE8_LANE,
+                            Emitters.v128StoreLane(
+                                    ShadedRefs.MEMORY_WRITE_BYTE, "i8x16ExtractLaneU", 16))
+                    .intrinsic(
+                            CompilerOpCode.V128_STORE16_LANE,
+                            Emitters.v128StoreLane(
+                                    ShadedRefs.MEMORY_WRITE_SHORT, "i16x8ExtractLaneU", 8))
+                    .intrinsic(
+                            CompilerOpCode.V128_STORE32_LANE,
+                            Emitters.v128StoreLane(
+                                    ShadedRefs.MEMORY_WRITE_INT, "i32x4ExtractLane", 4))
+                    .intrinsic(
+                            CompilerOpCode.V128_STORE64_LANE,
+                            Emitters.v128StoreLane(
+                                    ShadedRefs.MEMORY_WRITE_LONG, "i64x2ExtractLane", 2))
+                    .intrinsic(CompilerOpCode.V128_LOAD32_ZERO, Emitters::V128_LOAD32_ZERO)
+                    .intrinsic(CompilerOpCode.V128_LOAD64_ZERO, Emitters::V128_LOAD64_ZERO)
+                    .intrinsic(
+                            CompilerOpCode.F32x4_DEMOTE_LOW_F64x2_ZERO,
+                            Emitters.v128Zero("f32x4DemoteF64x2Zero"))
+                    .intrinsic(
+                            CompilerOpCode.F64x2_PROMOTE_LOW_F32x4,
+                            Emitters.v128Widen("f64x2PromoteLowF32x4", 1, false))
+                    .intrinsic(CompilerOpCode.I8x16_ABS, Emitters.v128Lanes("i8x16Abs", 1))
+                    .intrinsic(CompilerOpCode.I8x16_NEG, Emitters.v128Lanes("i8x16Neg", 1))
+                    .intrinsic(CompilerOpCode.I8x16_POPCNT, Emitters.v128Lanes("i8x16Popcnt", 1))
+                    .intrinsic(CompilerOpCode.I8x16_ALL_TRUE, Emitters.v128Test("i8x16AllTrue"))
+                    .intrinsic(CompilerOpCode.I8x16_BITMASK, Emitters.v128Test("i8x16Bitmask"))
+                    .intrinsic(
+                            CompilerOpCode.I8x16_NARROW_I16x8_S,
+                            Emitters.v128Narrow("i8x16NarrowI16x8S"))
+                    .intrinsic(
+                            CompilerOpCode.I8x16_NARROW_I16x8_U,
+                            Emitters.v128Narrow("i8x16NarrowI16x8U"))
+                    .intrinsic(CompilerOpCode.F32x4_CEIL, Emitters.v128Lanes("f32x4Ceil", 1))
+                    .intrinsic(CompilerOpCode.F32x4_FLOOR, Emitters.v128Lanes("f32x4Floor", 1))
+                    .intrinsic(CompilerOpCode.F32x4_TRUNC, Emitters.v128Lanes("f32x4Trunc", 1))
+                    .intrinsic(CompilerOpCode.F32x4_NEAREST, Emitters.v128Lanes("f32x4Nearest", 1))
+                    .intrinsic(CompilerOpCode.I8x16_SHL, Emitters.v128Shift("i8x16Shl"))
+                    .intrinsic(CompilerOpCode.I8x16_SHR_S, Emitters.v128Shift("i8x16ShrS"))
+                    .intrinsic(CompilerOpCode.I8x16_SHR_U, Emitters.v128Shift("i8x16ShrU"))
+                    .intrinsic(CompilerOpCode.I8x16_ADD, Emitters.v128Lanes("i8x16Add", 2))
+                    .intrinsic(
+                            CompilerOpCode.I8x16_ADD_SAT_S, Emitters.v128Lanes("i8x16AddSatS", 2))
+                    .intrinsic(
+                            CompilerOpCode.I8x16_ADD_SAT_U, Emitters.v128Lanes("i8x16AddSatU", 2))
+                    .intrinsic(CompilerOpCode.I8x16_SUB, Emitters.v128Lanes("i8x16Sub", 2))
+                    .intrinsic(
+                            CompilerOpCode.I8x16_SUB_SAT_S, Emitters.v128Lanes("i8x16SubSatS", 2))
+                    .intrinsic(
+                            CompilerOpCode.I8x16_SUB_SAT_U, Emitters.v128Lanes("i8x16SubSatU", 2))
+                    .intrinsic(CompilerOpCode.F64x2_CEIL, Emitters.v128Lanes("f64x2Ceil", 1))
+                    .intrinsic(CompilerOpCode.F64x2_FLOOR, Emitters.v128Lanes("f64x2Floor", 1))
+                    .intrinsic(CompilerOpCode.I8x16_MIN_S, Emitters.v128Lanes("i8x16MinS", 2))
+                    .intrinsic(CompilerOpCode.I8x16_MIN_U, Emitters.v128Lanes("i8x16MinU", 2))
+                    .intrinsic(CompilerOpCode.I8x16_MAX_S, Emitters.v128Lanes("i8x16MaxS", 2))
+                    .intrinsic(CompilerOpCode.I8x16_MAX_U, Emitters.v128Lanes("i8x16MaxU", 2))
+                    .intrinsic(CompilerOpCode.F64x2_TRUNC, Emitters.v128Lanes("f64x2Trunc", 1))
+                    .intrinsic(CompilerOpCode.I8x16_AVGR_U, Emitters.v128Lanes("i8x16AvgrU", 2))
+                    .intrinsic(
+                            CompilerOpCode.I16x8_EXTADD_PAIRWISE_I8x16_S,
+                            Emitters.v128Lanes("i16x8ExtaddPairwiseI8x16S", 1))
+                    .intrinsic(
+                            CompilerOpCode.I16x8_EXTADD_PAIRWISE_I8x16_U,
+                            Emitters.v128Lanes("i16x8ExtaddPairwiseI8x16U", 1))
+                    .intrinsic(
+                            CompilerOpCode.I32x4_EXTADD_PAIRWISE_I16x8_S,
+                            Emitters.v128Lanes("i32x4ExtaddPairwiseI16x8S", 1))
+                    .intrinsic(
+                            CompilerOpCode.I32x4_EXTADD_PAIRWISE_I16x8_U,
+                            Emitters.v128Lanes("i32x4ExtaddPairwiseI16x8U", 1))
+                    .intrinsic(CompilerOpCode.I16x8_ABS, Emitters.v128Lanes("i16x8Abs", 1))
+                    .intrinsic(CompilerOpCode.I16x8_NEG, Emitters.v128Lanes("i16x8Neg", 1))
+                    .intrinsic(
+                            CompilerOpCode.I16x8_Q15MULR_SAT_S,
+                            Emitters.v128Lanes("i16x8Q15mulrSatS", 2))
+                    .intrinsic(CompilerOpCode.I16x8_ALL_TRUE, Emitters.v128Test("i16x8AllTrue"))
+                    .intrinsic(CompilerOpCode.I16x8_BITMASK, Emitters.v128Test("i16x8Bitmask"))
+                    .intrinsic(
+                            CompilerOpCode.I16x8_NARROW_I32x4_S,
+                            Emitters.v128Narrow("i16x8NarrowI32x4S"))
+                    .intrinsic(
+                            CompilerOpCode.I16x8_NARROW_I32x4_U,
+                            Emitters.v128Narrow("i16x8NarrowI32x4U"))
+                    .intrinsic(
+                            CompilerOpCode.I16x8_EXTEND_LOW_I8x16_S,
+                            Emitters.v128Widen("i16x8ExtendI8x16S", 1, false))
+                    .intrinsic(
+                            CompilerOpCode.I16x8_EXTEND_HIGH_I8x16_S,
+                            Emitters.v128Widen("i16x8ExtendI8x16S", 1, true))
+                    .intrinsic(
+                            CompilerOpCode.I16x8_EXTEND_LOW_I8x16_U,
+                            Emitters.v128Widen("i16x8ExtendI8x16U", 1, false))
+                    .intrinsic(
+                            CompilerOpCode.I16x8_EXTEND_HIGH_I8x16_U,
+                            Emitters.v128Widen("i16x8ExtendI8x16U", 1, true))
+                    .intrinsic(CompilerOpCode.I16x8_SHL, Emitters.v128Shift("i16x8Shl"))
+                    .intrinsic(CompilerOpCode.I16x8_SHR_S, Emitters.v128Shift("i16x8ShrS"))
+                    .intrinsic(CompilerOpCode.I16x8_SHR_U, Emitters.v128Shift("i16x8ShrU"))
+                    .intrinsic(CompilerOpCode.I16x8_ADD, Emitters.v128Lanes("i16x8Add", 2))
+                    .intrinsic(
+                            CompilerOpCode.I16x8_ADD_SAT_S, Emitters.v128Lanes("i16x8AddSatS", 2))
+                    .intrinsic(
+                            CompilerOpCode.I16x8_ADD_SAT_U, Emitters.v128Lanes("i16x8AddSatU", 2))
+                    .intrinsic(CompilerOpCode.I16x8_SUB, Emitters.v128Lanes("i16x8Sub", 2))
+                    .intrinsic(
+                            CompilerOpCode.I16x8_SUB_SAT_S, Emitters.v128Lanes("i16x8SubSatS", 2))
+                    .intrinsic(
+                            CompilerOpCode.I16x8_SUB_SAT_U, Emitters.v128Lanes("i16x8SubSatU", 2))
+                    .intrinsic(CompilerOpCode.F64x2_NEAREST, Emitters.v128Lanes("f64x2Nearest", 1))
+                    .intrinsic(CompilerOpCode.I16x8_MUL, Emitters.v128Lanes("i16x8Mul", 2))
+                    .intrinsic(CompilerOpCode.I16x8_MIN_S, Emitters.v128Lanes("i16x8MinS", 2))
+                    .intrinsic(CompilerOpCode.I16x8_MIN_U, Emitters.v128Lanes("i16x8MinU", 2))
+                    .intrinsic(CompilerOpCode.I16x8_MAX_S, Emitters.v128Lanes("i16x8MaxS", 2))
+                    .intrinsic(CompilerOpCode.I16x8_MAX_U, Emitters.v128Lanes("i16x8MaxU", 2))
+                    .intrinsic(CompilerOpCode.I16x8_AVGR_U, Emitters.v128Lanes("i16x8AvgrU", 2))
+                    .intrinsic(
+                            CompilerOpCode.I16x8_EXTMUL_LOW_I8x16_S,
+                            Emitters.v128Widen("i16x8ExtmulI8x16S", 2, false))
+                    .intrinsic(
+                            CompilerOpCode.I16x8_EXTMUL_HIGH_I8x16_S,
+                            Emitters.v128Widen("i16x8ExtmulI8x16S", 2, true))
+                    .intrinsic(
+                            CompilerOpCode.I16x8_EXTMUL_LOW_I8x16_U,
+                            Emitters.v128Widen("i16x8ExtmulI8x16U", 2, false))
+                    .intrinsic(
+                            CompilerOpCode.I16x8_EXTMUL_HIGH_I8x16_U,
+                            Emitters.v128Widen("i16x8ExtmulI8x16U", 2, true))
+                    .intrinsic(CompilerOpCode.I32x4_ABS, Emitters.v128Lanes("i32x4Abs", 1))
+                    .intrinsic(CompilerOpCode.I32x4_NEG, Emitters.v128Lanes("i32x4Neg", 1))
+                    .intrinsic(CompilerOpCode.I32x4_ALL_TRUE, Emitters.v128Test("i32x4AllTrue"))
+                    .intrinsic(CompilerOpCode.I32x4_BITMASK, Emitters.v128Test("i32x4Bitmask"))
+                    .intrinsic(
+                            CompilerOpCode.I32x4_EXTEND_LOW_I16x8_S,
+                            Emitters.v128Widen("i32x4ExtendI16x8S", 1, false))
+                    .intrinsic(
+                            CompilerOpCode.I32x4_EXTEND_HIGH_I16x8_S,
+                            Emitters.v128Widen("i32x4ExtendI16x8S", 1, true))
+                    .intrinsic(
+                            CompilerOpCode.I32x4_EXTEND_LOW_I16x8_U,
+                            Emitters.v128Widen("i32x4ExtendI16x8U", 1, false))
+                    .intrinsic(
+                            CompilerOpCode.I32x4_EXTEND_HIGH_I16x8_U,
+                            Emitters.v128Widen("i32x4ExtendI16x8U", 1, true))
+                    .intrinsic(CompilerOpCode.I32x4_SHL, Emitters.v128Shift("i32x4Shl"))
+                    .intrinsic(CompilerOpCode.I32x4_SHR_S, Emitters.v128Shift("i32x4ShrS"))
+                    .intrinsic(CompilerOpCode.I32x4_SHR_U, Emitters.v128Shift("i32x4ShrU"))
+                    .intrinsic(CompilerOpCode.I32x4_ADD, Emitters.v128Lanes("i32x4Add", 2))
+                    .intrinsic(CompilerOpCode.I32x4_SUB, Emitters.v128Lanes("i32x4Sub", 2))
+                    .intrinsic(CompilerOpCode.I32x4_MUL, Emitters.v128Lanes("i32x4Mul", 2))
+                    .intrinsic(CompilerOpCode.I32x4_MIN_S, Emitters.v128Lanes("i32x4MinS", 2))
+                    .intrinsic(CompilerOpCode.I32x4_MIN_U, Emitters.v128Lanes("i32x4MinU", 2))
+                    .intrinsic(CompilerOpCode.I32x4_MAX_S, Emitters.v128Lanes("i32x4MaxS", 2))
+                    .intrinsic(CompilerOpCode.I32x4_MAX_U, Emitters.v128Lanes("i32x4MaxU", 2))
+                    .intrinsic(
+                            CompilerOpCode.I32x4_DOT_I16x8_S,
+                            Emitters.v128Lanes("i32x4DotI16x8S", 2))
+                    .intrinsic(
+                            CompilerOpCode.I32x4_EXTMUL_LOW_I16x8_S,
+                            Emitters.v128Widen("i32x4ExtmulI16x8S", 2, false))
+                    .intrinsic(
+                            CompilerOpCode.I32x4_EXTMUL_HIGH_I16x8_S,
+                            Emitters.v128Widen("i32x4ExtmulI16x8S", 2, true))
+                    .intrinsic(
+                            CompilerOpCode.I32x4_EXTMUL_LOW_I16x8_U,
+                            Emitters.v128Widen("i32x4ExtmulI16x8U", 2, false))
+                    .intrinsic(
+                            CompilerOpCode.I32x4_EXTMUL_HIGH_I16x8_U,
+                            Emitters.v128Widen("i32x4ExtmulI16x8U", 2, true))
+                    .intrinsic(CompilerOpCode.I64x2_ABS, Emitters.v128Lanes("i64x2Abs", 1))
+                    .intrinsic(CompilerOpCode.I64x2_NEG, Emitters.v128Lanes("i64x2Neg", 1))
+                    .intrinsic(CompilerOpCode.I64x2_ALL_TRUE, Emitters.v128Test("i64x2AllTrue"))
+                    .intrinsic(CompilerOpCode.I64x2_BITMASK, Emitters.v128Test("i64x2Bitmask"))
+                    .intrinsic(
+                            CompilerOpCode.I64x2_EXTEND_LOW_I32x4_S,
+                            Emitters.v128Widen("i64x2ExtendI32x4S", 1, false))
+                    .intrinsic(
+                            CompilerOpCode.I64x2_EXTEND_HIGH_I32x4_S,
+                            Emitters.v128Widen("i64x2ExtendI32x4S", 1, true))
+                    .intrinsic(
+                            CompilerOpCode.I64x2_EXTEND_LOW_I32x4_U,
+                            Emitters.v128Widen("i64x2ExtendI32x4U", 1, false))
+                    .intrinsic(
+                            CompilerOpCode.I64x2_EXTEND_HIGH_I32x4_U,
+                            Emitters.v128Widen("i64x2ExtendI32x4U", 1, true))
+                    .intrinsic(CompilerOpCode.I64x2_SHL, Emitters.v128Shift("i64x2Shl"))
+                    .intrinsic(CompilerOpCode.I64x2_SHR_S, Emitters.v128Shift("i64x2ShrS"))
+                    .intrinsic(CompilerOpCode.I64x2_SHR_U, Emitters.v128Shift("i64x2ShrU"))
+                    .intrinsic(CompilerOpCode.I64x2_ADD, Emitters.v128Lanes("i64x2Add", 2))
+                    .intrinsic(CompilerOpCode.I64x2_SUB, Emitters.v128Lanes("i64x2Sub", 2))
+                    .intrinsic(CompilerOpCode.I64x2_MUL, Emitters.v128Lanes("i64x2Mul", 2))
+                    .intrinsic(CompilerOpCode.I64x2_EQ, Emitters.v128Lanes("i64x2Eq", 2))
+                    .intrinsic(CompilerOpCode.I64x2_NE, Emitters.v128Lanes("i64x2Ne", 2))
+                    .intrinsic(CompilerOpCode.I64x2_LT_S, Emitters.v128Lanes("i64x2LtS", 2))
+                    .intrinsic(CompilerOpCode.I64x2_GT_S, Emitters.v128Lanes("i64x2GtS", 2))
+                    .intrinsic(CompilerOpCode.I64x2_LE_S, Emitters.v128Lanes("i64x2LeS", 2))
+                    .intrinsic(CompilerOpCode.I64x2_GE_S, Emitters.v128Lanes("i64x2GeS", 2))
+                    .intrinsic(
+                            CompilerOpCode.I64x2_EXTMUL_LOW_I32x4_S,
+                            Emitters.v128Widen("i64x2ExtmulI32x4S", 2, false))
+                    .intrinsic(
+                            CompilerOpCode.I64x2_EXTMUL_HIGH_I32x4_S,
+                            Emitters.v128Widen("i64x2ExtmulI32x4S", 2, true))
+                    .intrinsic(
+                            CompilerOpCode.I64x2_EXTMUL_LOW_I32x4_U,
+                            Emitters.v128Widen("i64x2ExtmulI32x4U", 2, false))
+                    .intrinsic(
+                            CompilerOpCode.I64x2_EXTMUL_HIGH_I32x4_U,
+                            Emitters.v128Widen("i64x2ExtmulI32x4U", 2, true))
+                    .intrinsic(CompilerOpCode.F32x4_ABS, Emitters.v128Lanes("f32x4Abs", 1))
+                    .intrinsic(CompilerOpCode.F32x4_NEG, Emitters.v128Lanes("f32x4Neg", 1))
+                    .intrinsic(CompilerOpCode.F32x4_SQRT, Emitters.v128Lanes("f32x4Sqrt", 1))
+                    .intrinsic(CompilerOpCode.F32x4_ADD, Emitters.v128Lanes("f32x4Add", 2))
+                    .intrinsic(CompilerOpCode.F32x4_SUB, Emitters.v128Lanes("f32x4Sub", 2))
+                    .intrinsic(CompilerOpCode.F32x4_MUL, Emitters.v128Lanes("f32x4Mul", 2))
+                    .intrinsic(CompilerOpCode.F32x4_DIV, Emitters.v128Lanes("f32x4Div", 2))
+                    .intrinsic(CompilerOpCode.F32x4_MIN, Emitters.v128Lanes("f32x4Min", 2))
+                    .intrinsic(CompilerOpCode.F32x4_MAX, Emitters.v128Lanes("f32x4Max", 2))
+                    .intrinsic(CompilerOpCode.F32x4_PMIN, Emitters.v128Lanes("f32x4Pmin", 2))
+                    .intrinsic(CompilerOpCode.F32x4_PMAX, Emitters.v128Lanes("f32x4Pmax", 2))
+                    .intrinsic(CompilerOpCode.F64x2_ABS, Emitters.v128Lanes("f64x2Abs", 1))
+                    .intrinsic(CompilerOpCode.F64x2_NEG, Emitters.v128Lanes("f64x2Neg", 1))
+                    .intrinsic(CompilerOpCode.F64x2_SQRT, Emitters.v128Lanes("f64x2Sqrt", 1))
+                    .intrinsic(CompilerOpCode.F64x2_ADD, Emitters.v128Lanes("f64x2Add", 2))
+                    .intrinsic(CompilerOpCode.F64x2_SUB, Emitters.v128Lanes("f64x2Sub", 2))
+                    .intrinsic(CompilerOpCode.F64x2_MUL, Emitters.v128Lanes("f64x2Mul", 2))
+                    .intrinsic(CompilerOpCode.F64x2_DIV, Emitters.v128Lanes("f64x2Div", 2))
+                    .intrinsic(CompilerOpCode.F64x2_MIN, Emitters.v128Lanes("f64x2Min", 2))
+                    .intrinsic(CompilerOpCode.F64x2_MAX, Emitters.v128Lanes("f64x2Max", 2))
+                    .intrinsic(CompilerOpCode.F64x2_PMIN, Emitters.v128Lanes("f64x2Pmin", 2))
+                    .intrinsic(CompilerOpCode.F64x2_PMAX, Emitters.v128Lanes("f64x2Pmax", 2))
+                    .intrinsic(
+                            CompilerOpCode.I32x4_TRUNC_SAT_F32X4_S,
+                            Emitters.v128Lanes("i32x4TruncSatF32x4S", 1))
+                    .intrinsic(
+                            CompilerOpCode.I32x4_TRUNC_SAT_F32X4_U,
+                            Emitters.v128Lanes("i32x4TruncSatF32x4U", 1))
+                    .intrinsic(
+                            CompilerOpCode.F32x4_CONVERT_I32x4_S,
+                            Emitters.v128Lanes("f32x4ConvertI32x4S", 1))
+                    .intrinsic(
+                            CompilerOpCode.F32x4_CONVERT_I32x4_U,
+                            Emitters.v128Lanes("f32x4ConvertI32x4U", 1))
+                    .intrinsic(
+                            CompilerOpCode.I32x4_TRUNC_SAT_F64x2_S_ZERO,
+                            Emitters.v128Zero("i32x4TruncSatF64x2SZero"))
+                    .intrinsic(
+                            CompilerOpCode.I32x4_TRUNC_SAT_F64x2_U_ZERO,
+                            Emitters.v128Zero("i32x4TruncSatF64x2UZero"))
+                    .intrinsic(
+                            CompilerOpCode.F64x2_CONVERT_LOW_I32x4_S,
+                            Emitters.v128Widen("f64x2ConvertLowI32x4S", 1, false))
+                    .intrinsic(
+                            CompilerOpCode.F64x2_CONVERT_LOW_I32x4_U,
+                            Emitters.v128Widen("f64x2ConvertLowI32x4U", 1, false))
                     .build();
 
     private EmitterMap() {}
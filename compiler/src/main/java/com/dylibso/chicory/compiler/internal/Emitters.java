@@ -7,8 +7,12 @@ import static com.dylibso.chicory.compiler.internal.CompilerUtil.emitInvokeFunct
 import static com.dylibso.chicory.compiler.internal.CompilerUtil.emitInvokeStatic;
 import static com.dylibso.chicory.compiler.internal.CompilerUtil.emitInvokeVirtual;
 import static com.dylibso.chicory.compiler.internal.CompilerUtil.emitJvmToLong;
+import static com.dylibso.chicory.compiler.internal.CompilerUtil.emitLoad;
 import static com.dylibso.chicory.compiler.internal.CompilerUtil.emitLongToJvm;
 import static com.dylibso.chicory.compiler.internal.CompilerUtil.emitPop;
+import static com.dylibso.chicory.compiler.internal.CompilerUtil.emitStore;
+import static com.dylibso.chicory.compiler.internal.CompilerUtil.flattenV128;
+import static com.dylibso.chicory.compiler.internal.CompilerUtil.hasMultipleReturns;
 import static com.dylibso.chicory.compiler.internal.CompilerUtil.hasTooManyParameters;
 import static com.dylibso.chicory.compiler.internal.CompilerUtil.jvmReturnType;
 import static com.dylibso.chicory.compiler.internal.CompilerUtil.localType;
@@ -79,6 +83,12 @@ final class Emitters {
         asm.athrow();
     }
 
+    public static void CONSUME_FUEL(Context ctx, CompilerInstruction ins, InstructionAdapter asm) {
+        asm.lconst(ins.operand(0));
+        asm.load(ctx.instanceSlot(), OBJECT_TYPE);
+        emitInvokeStatic(asm, ShadedRefs.CONSUME_FUEL);
+    }
+
     public static ValType valType(long id, Context ctx) {
         return ValType.builder().fromId(id).build().resolve(ctx.typeSection());
     }
@@ -90,7 +100,7 @@ final class Emitters {
         int slot = ctx.tempSlot();
         for (int i = ins.operandCount() - 1; i >= keepStart; i--) {
             var type = valType(ins.operand(i), ctx);
-            asm.store(slot, asmType(type));
+            emitStore(asm, slot, type);
             slot += slotCount(type);
         }
 
@@ -103,16 +113,17 @@ final class Emitters {
         for (int i = keepStart; i < ins.operandCount(); i++) {
             var type = valType(ins.operand(i), ctx);
             slot -= slotCount(type);
-            asm.load(slot, asmType(type));
+            emitLoad(asm, slot, type);
         }
     }
 
     public static void RETURN(Context ctx, CompilerInstruction ins, InstructionAdapter asm) {
-        if (ctx.getType().returns().size() > 1) {
+        if (hasMultipleReturns(ctx.getType())) {
+            var returns = flattenV128(ctx.getType().returns());
             asm.invokestatic(
                     ctx.internalClassName(),
-                    valueMethodName(ctx.getType().returns()),
-                    valueMethodType(ctx.getType().returns()).toMethodDescriptorString(),
+                    valueMethodName(returns),
+                    valueMethodType(returns).toMethodDescriptorString(),
                     false);
         }
         asm.areturn(getType(jvmReturnType(ctx.getType())));
@@ -132,6 +143,19 @@ final class Emitters {
 
     public static void SELECT(Context ctx, CompilerInstruction ins, InstructionAdapter asm) {
         var type = valType(ins.operand(0), ctx);
+        if (type.equals(ValType.V128)) {
+            // keep b in a temp, drop it and keep a, or drop a and reload b
+            int slot = ctx.tempSlot();
+            asm.store(slot + 4, INT_TYPE);
+            emitStore(asm, slot, type);
+            var endLabel = new Label();
+            asm.load(slot + 4, INT_TYPE);
+            asm.ifne(endLabel);
+            emitPop(asm, type);
+            emitLoad(asm, slot, type);
+            asm.mark(endLabel);
+            return;
+        }
         var endLabel = new Label();
         asm.ifne(endLabel);
         if (slotCount(type) == 1) {
@@ -152,17 +176,18 @@ final class Emitters {
         for (int i = types.size() - 1; i >= 0; i--) {
             ValType valType = types.get(i);
             slot -= slotCount(valType);
-            asm.store(slot, asmType(valType));
+            emitStore(asm, slot, valType);
         }
 
         // Create the array
-        asm.iconst(types.size());
+        var values = flattenV128(types);
+        asm.iconst(values.size());
         asm.newarray(LONG_TYPE);
 
         // Load from locals and store in array
         slot = ctx.tempSlot();
-        for (int i = 0; i < types.size(); i++) {
-            ValType valType = types.get(i);
+        for (int i = 0; i < values.size(); i++) {
+            ValType valType = values.get(i);
 
             asm.dup(); // Duplicate the array reference
             asm.iconst(i); // Array index
@@ -177,7 +202,8 @@ final class Emitters {
         int funcId = (int) ins.operand(0);
         FunctionType functionType = ctx.functionTypes().get(funcId);
 
-        emitInvokeStatic(asm, ShadedRefs.CHECK_INTERRUPTION);
+        asm.load(ctx.instanceSlot(), OBJECT_TYPE);
+        emitInvokeVirtual(asm, ShadedRefs.CHECK_INTERRUPTION);
         if (hasTooManyParameters(functionType)) {
             emitBoxValuesOnStack(ctx, asm, functionType.params());
         }
@@ -194,7 +220,7 @@ final class Emitters {
             emitTailCallCheck(ctx, asm, functionType);
         }
 
-        if (functionType.returns().size() > 1) {
+        if (hasMultipleReturns(functionType)) {
             emitUnboxResult(asm, ctx, functionType.returns());
         }
     }
@@ -223,7 +249,7 @@ final class Emitters {
             emitTailCallCheck(ctx, asm, functionType);
         }
 
-        if (functionType.returns().size() > 1) {
+        if (hasMultipleReturns(functionType)) {
             emitUnboxResult(asm, ctx, functionType.returns());
         }
     }
@@ -253,17 +279,22 @@ final class Emitters {
     public static void LOCAL_GET(Context ctx, CompilerInstruction ins, InstructionAdapter asm) {
         var loadIndex = (int) ins.operand(0);
         var localType = localType(ctx.getType(), ctx.getBody(), loadIndex);
-        asm.load(ctx.localSlotIndex(loadIndex), asmType(localType));
+        emitLoad(asm, ctx.localSlotIndex(loadIndex), localType);
     }
 
     public static void LOCAL_SET(Context ctx, CompilerInstruction ins, InstructionAdapter asm) {
         int index = (int) ins.operand(0);
         var localType = localType(ctx.getType(), ctx.getBody(), index);
-        asm.store(ctx.localSlotIndex(index), asmType(localType));
+        emitStore(asm, ctx.localSlotIndex(index), localType);
     }
 
     public static void LOCAL_TEE(Context ctx, CompilerInstruction ins, InstructionAdapter asm) {
-        if (slotCount(valType(ins.operand(1), ctx)) == 1) {
+        var type = valType(ins.operand(1), ctx);
+        if (type.equals(ValType.V128)) {
+            LOCAL_SET(ctx, ins, asm);
+            LOCAL_GET(ctx, ins, asm);
+            return;
+        } else if (slotCount(type) == 1) {
             asm.dup();
         } else {
             asm.dup2();
@@ -282,6 +313,11 @@ final class Emitters {
         if (globalType.isReference()) {
             // Use readGlobalRef to handle i31 tagged-long values from constant initializers
             emitInvokeStatic(asm, ShadedRefs.READ_GLOBAL_REF);
+        } else if (globalType.equals(ValType.V128)) {
+            emitInvokeStatic(asm, ShadedRefs.READ_GLOBAL);
+            asm.iconst(globalIndex);
+            asm.load(ctx.instanceSlot(), OBJECT_TYPE);
+            emitInvokeStatic(asm, ShadedRefs.READ_GLOBAL_HIGH);
         } else {
             emitInvokeStatic(asm, ShadedRefs.READ_GLOBAL);
             emitLongToJvm(asm, globalType);
@@ -291,7 +327,15 @@ final class Emitters {
     public static void GLOBAL_SET(Context ctx, CompilerInstruction ins, InstructionAdapter asm) {
         int globalIndex = (int) ins.operand(0);
 
-        emitJvmToLong(asm, ctx.globalTypes().get(globalIndex));
+        var globalType = ctx.globalTypes().get(globalIndex);
+
+        if (globalType.equals(ValType.V128)) {
+            asm.iconst(globalIndex);
+            asm.load(ctx.instanceSlot(), OBJECT_TYPE);
+            emitInvokeStatic(asm, ShadedRefs.WRITE_GLOBAL_HIGH);
+        } else {
+            emitJvmToLong(asm, globalType);
+        }
         asm.iconst(globalIndex);
         asm.load(ctx.instanceSlot(), OBJECT_TYPE);
         emitInvokeStatic(asm, ShadedRefs.WRITE_GLOBAL);
@@ -997,7 +1041,15 @@ final class Emitters {
 
     private static void emitLoadOrStore(
             Context ctx, CompilerInstruction ins, InstructionAdapter asm, Method method) {
-        long offset = ins.operand(1);
+        emitLoadOrStore(ctx, ins, asm, method, ins.operand(1));
+    }
+
+    private static void emitLoadOrStore(
+            Context ctx,
+            CompilerInstruction ins,
+            InstructionAdapter asm,
+            Method method,
+            long offset) {
 
         if (offset < 0 || offset >= Integer.MAX_VALUE) {
             emitInvokeStatic(asm, ShadedRefs.THROW_OUT_OF_BOUNDS_MEMORY_ACCESS);
@@ -1072,7 +1124,7 @@ final class Emitters {
         FunctionType type = ctx.getType();
         if (type.returns().isEmpty()) {
             asm.areturn(getType(void.class));
-        } else if (type.returns().size() == 1) {
+        } else if (!hasMultipleReturns(type)) {
             Object defaultVal = CompilerUtil.defaultValue(type.returns().get(0));
             if (defaultVal instanceof Integer) {
                 asm.iconst((int) defaultVal);
@@ -1097,7 +1149,7 @@ final class Emitters {
         emitInvokeStatic(asm, ShadedRefs.IS_TAIL_CALL_PENDING);
         asm.ifeq(noPending);
 
-        List<ValType> returns = functionType.returns();
+        List<ValType> returns = flattenV128(functionType.returns());
 
         if (returns.size() == 1) {
             emitPop(asm, returns.get(0));
@@ -1126,7 +1178,9 @@ final class Emitters {
         emitUnboxResult(asm, types, ctx.tempSlot());
     }
 
-    private static void emitUnboxResult(InstructionAdapter asm, List<ValType> types, int tempSlot) {
+    private static void emitUnboxResult(
+            InstructionAdapter asm, List<ValType> valTypes, int tempSlot) {
+        var types = flattenV128(valTypes);
         asm.store(tempSlot, OBJECT_TYPE);
         for (int i = 0; i < types.size(); i++) {
             asm.load(tempSlot, OBJECT_TYPE);
@@ -1217,7 +1271,7 @@ final class Emitters {
         int tempSlot = ctx.tempSlot();
         for (int i = totalCount - 1; i >= belowCount; i--) {
             var type = valType(ins.operand(i + 2), ctx);
-            asm.store(tempSlot, asmType(type));
+            emitStore(asm, tempSlot, type);
             tempSlot += slotCount(type);
         }
 
@@ -1233,20 +1287,20 @@ final class Emitters {
         // Pop in reverse (top-of-below first) and store to pre-computed slots
         for (int i = belowCount - 1; i >= 0; i--) {
             var type = valType(ins.operand(i + 2), ctx);
-            asm.store(belowSlots[i], asmType(type));
+            emitStore(asm, belowSlots[i], type);
         }
 
         // Restore below-try values (bottom to top)
         for (int i = 0; i < belowCount; i++) {
             var type = valType(ins.operand(i + 2), ctx);
-            asm.load(belowSlots[i], asmType(type));
+            emitLoad(asm, belowSlots[i], type);
         }
 
         // Restore above-try values (bottom to top)
         tempSlot = ctx.tempSlot();
         for (int i = belowCount; i < totalCount; i++) {
             var type = valType(ins.operand(i + 2), ctx);
-            asm.load(tempSlot, asmType(type));
+            emitLoad(asm, tempSlot, type);
             tempSlot += slotCount(type);
         }
     }
@@ -1261,7 +1315,7 @@ final class Emitters {
         // Load below-try values (bottom to top)
         for (int i = 1; i < ins.operandCount(); i++) {
             var type = valType(ins.operand(i), ctx);
-            asm.load(saveSlot, asmType(type));
+            emitLoad(asm, saveSlot, type);
             saveSlot += slotCount(type);
         }
     }
@@ -1349,7 +1403,7 @@ final class Emitters {
             emitTailCallCheck(ctx, asm, functionType);
         }
 
-        if (functionType.returns().size() > 1) {
+        if (hasMultipleReturns(functionType)) {
             emitUnboxResult(asm, ctx, functionType.returns());
         }
     }
@@ -1766,4 +1820,261 @@ final class Emitters {
         asm.iconst(0); // matched -> don't branch
         asm.mark(end);
     }
+
+    // ========= SIMD =========
+    //
+    // A v128 value is held in two longs on the JVM stack, the low half below the high half.
+    // The lane-wise operations are implemented by the V128Ops helpers on one half at a time,
+    // after spilling the v128 operands to the temp slots, four slots each.
+
+    static BytecodeEmitter v128Lanes(String helper, int vectors) {
+        var method = ShadedRefs.v128Op(helper);
+        return (ctx, ins, asm) -> {
+            int slot = ctx.tempSlot();
+            emitSpillV128(asm, slot, vectors);
+            for (int half = 0; half < 2; half++) {
+                for (int i = 0; i < vectors; i++) {
+                    asm.load(slot + 4 * i + 2 * half, LONG_TYPE);
+                }
+                emitInvokeStatic(asm, method);
+            }
+        };
+    }
+
+    static BytecodeEmitter v128Shift(String helper) {
+        var method = ShadedRefs.v128Op(helper);
+        return (ctx, ins, asm) -> {
+            int slot = ctx.tempSlot();
+            asm.store(slot + 4, INT_TYPE);
+            emitStore(asm, slot, ValType.V128);
+            for (int half = 0; half < 2; half++) {
+                asm.load(slot + 2 * half, LONG_TYPE);
+                asm.load(slot + 4, INT_TYPE);
+                emitInvokeStatic(asm, method);
+            }
+        };
+    }
+
+    static BytecodeEmitter v128Splat(String helper) {
+        var method = ShadedRefs.v128Op(helper);
+        return (ctx, ins, asm) -> {
+            emitInvokeStatic(asm, method);
+            asm.dup2();
+        };
+    }
+
+    // the helper computes each half of the result from the low or the high half of the operands
+    static BytecodeEmitter v128Widen(String helper, int vectors, boolean high) {
+        var method = ShadedRefs.v128Op(helper);
+        return (ctx, ins, asm) -> {
+            int slot = ctx.tempSlot();
+            emitSpillV128(asm, slot, vectors);
+            for (int part = 0; part < 2; part++) {
+                for (int i = 0; i < vectors; i++) {
+                    asm.load(slot + 4 * i + (high ? 2 : 0), LONG_TYPE);
+                }
+                asm.iconst(part);
+                emitInvokeStatic(asm, method);
+            }
+        };
+    }
+
+    // the helper computes each half of the result from both halves of one operand
+    static BytecodeEmitter v128Narrow(String helper) {
+        var method = ShadedRefs.v128Op(helper);
+        return (ctx, ins, asm) -> {
+            int slot = ctx.tempSlot();
+            emitSpillV128(asm, slot, 2);
+            for (int i = 0; i < 2; i++) {
+                emitLoad(asm, slot + 4 * i, ValType.V128);
+                emitInvokeStatic(asm, method);
+            }
+        };
+    }
+
+    // the helper computes the low half of the result, the high half is zero
+    static BytecodeEmitter v128Zero(String helper) {
+        var method = ShadedRefs.v128Op(helper);
+        return (ctx, ins, asm) -> {
+            emitInvokeStatic(asm, method);
+            asm.lconst(0);
+        };
+    }
+
+    static BytecodeEmitter v128Test(String helper) {
+        var method = ShadedRefs.v128Op(helper);
+        return (ctx, ins, asm) -> emitInvokeStatic(asm, method);
+    }
+
+    static BytecodeEmitter v128ExtractLane(String helper, int lanes) {
+        var method = ShadedRefs.v128Op(helper);
+        return (ctx, ins, asm) -> {
+            int lane = (int) ins.operand(0);
+            if (lane < lanes / 2) {
+                asm.pop2();
+            } else {
+                asm.dup2X2();
+                asm.pop2();
+                asm.pop2();
+            }
+            asm.iconst(lane % (lanes / 2));
+            emitInvokeStatic(asm, method);
+        };
+    }
+
+    static BytecodeEmitter v128ReplaceLane(String helper, int lanes) {
+        var method = ShadedRefs.v128Op(helper);
+        var type = getType(method.getParameterTypes()[1]);
+        return (ctx, ins, asm) -> {
+            int lane = (int) ins.operand(0);
+            int slot = ctx.tempSlot();
+            asm.store(slot + 4, type);
+            emitStore(asm, slot, ValType.V128);
+            asm.load(slot, LONG_TYPE);
+            if (lane < lanes / 2) {
+                asm.load(slot + 4, type);
+                asm.iconst(lane);
+                emitInvokeStatic(asm, method);
+                asm.load(slot + 2, LONG_TYPE);
+            } else {
+                asm.load(slot + 2, LONG_TYPE);
+                asm.load(slot + 4, type);
+                asm.iconst(lane - lanes / 2);
+                emitInvokeStatic(asm, method);
+            }
+        };
+    }
+
+    public static void V128_CONST(Context ctx, CompilerInstruction ins, InstructionAdapter asm) {
+        asm.lconst(ins.operand(0));
+        asm.lconst(ins.operand(1));
+    }
+
+    public static void I8x16_SHUFFLE(Context ctx, CompilerInstruction ins, InstructionAdapter asm) {
+        var method = ShadedRefs.v128Op("i8x16Shuffle");
+        int slot = ctx.tempSlot();
+        emitSpillV128(asm, slot, 2);
+        for (int half = 0; half < 2; half++) {
+            emitLoad(asm, slot, ValType.V128);
+            emitLoad(asm, slot + 4, ValType.V128);
+            asm.lconst(ins.operand(half));
+            emitInvokeStatic(asm, method);
+        }
+    }
+
+    public static void I8x16_SWIZZLE(Context ctx, CompilerInstruction ins, InstructionAdapter asm) {
+        var method = ShadedRefs.v128Op("i8x16Swizzle");
+        int slot = ctx.tempSlot();
+        emitSpillV128(asm, slot, 2);
+        for (int half = 0; half < 2; half++) {
+            emitLoad(asm, slot, ValType.V128);
+            asm.load(slot + 4 + 2 * half, LONG_TYPE);
+            emitInvokeStatic(asm, method);
+        }
+    }
+
+    public static void V128_LOAD(Context ctx, CompilerInstruction ins, InstructionAdapter asm) {
+        int slot = ctx.tempSlot();
+        asm.store(slot, INT_TYPE);
+        asm.load(slot, INT_TYPE);
+        emitLoadOrStore(ctx, ins, asm, ShadedRefs.MEMORY_READ_LONG);
+        asm.load(slot, INT_TYPE);
+        emitLoadOrStore(ctx, ins, asm, ShadedRefs.MEMORY_READ_LONG, ins.operand(1) + 8);
+    }
+
+    public static void V128_STORE(Context ctx, CompilerInstruction ins, InstructionAdapter asm) {
+        int slot = ctx.tempSlot();
+        emitStore(asm, slot + 1, ValType.V128);
+        asm.store(slot, INT_TYPE);
+        // the high half first, so that nothing is written when the store is out of bounds
+        asm.load(slot, INT_TYPE);
+        asm.load(slot + 3, LONG_TYPE);
+        emitLoadOrStore(ctx, ins, asm, ShadedRefs.MEMORY_WRITE_LONG, ins.operand(1) + 8);
+        asm.load(slot, INT_TYPE);
+        asm.load(slot + 1, LONG_TYPE);
+        emitLoadOrStore(ctx, ins, asm, ShadedRefs.MEMORY_WRITE_LONG);
+    }
+
+    public static void V128_LOAD32_ZERO(
+            Context ctx, CompilerInstruction ins, InstructionAdapter asm) {
+        emitLoadOrStore(ctx, ins, asm, ShadedRefs.MEMORY_READ_INT);
+        asm.cast(INT_TYPE, LONG_TYPE);
+        asm.lconst(0xFFFFFFFFL);
+        asm.and(LONG_TYPE);
+        asm.lconst(0);
+    }
+
+    public static void V128_LOAD64_ZERO(
+            Context ctx, CompilerInstruction ins, InstructionAdapter asm) {
+        emitLoadOrStore(ctx, ins, asm, ShadedRefs.MEMORY_READ_LONG);
+        asm.lconst(0);
+    }
+
+    // loads 64 bits and widens their lanes
+    static BytecodeEmitter v128LoadExtend(String helper) {
+        var method = ShadedRefs.v128Op(helper);
+        return (ctx, ins, asm) -> {
+            int slot = ctx.tempSlot();
+            emitLoadOrStore(ctx, ins, asm, ShadedRefs.MEMORY_READ_LONG);
+            asm.store(slot, LONG_TYPE);
+            for (int part = 0; part < 2; part++) {
+                asm.load(slot, LONG_TYPE);
+                asm.iconst(part);
+                emitInvokeStatic(asm, method);
+            }
+        };
+    }
+
+    static BytecodeEmitter v128LoadSplat(Method read, String splat) {
+        var method = ShadedRefs.v128Op(splat);
+        return (ctx, ins, asm) -> {
+            emitLoadOrStore(ctx, ins, asm, read);
+            emitInvokeStatic(asm, method);
+            asm.dup2();
+        };
+    }
+
+    static BytecodeEmitter v128LoadLane(Method read, String replace, int lanes) {
+        var method = ShadedRefs.v128Op(replace);
+        return (ctx, ins, asm) -> {
+            int lane = (int) ins.operand(3);
+            int slot = ctx.tempSlot();
+            emitStore(asm, slot + 1, ValType.V128);
+            asm.store(slot, INT_TYPE);
+            asm.load(slot + 1, LONG_TYPE);
+            if (lane < lanes / 2) {
+                asm.load(slot, INT_TYPE);
+                emitLoadOrStore(ctx, ins, asm, read);
+                asm.iconst(lane);
+                emitInvokeStatic(asm, method);
+                asm.load(slot + 3, LONG_TYPE);
+            } else {
+                asm.load(slot + 3, LONG_TYPE);
+                asm.load(slot, INT_TYPE);
+                emitLoadOrStore(ctx, ins, asm, read);
+                asm.iconst(lane - lanes / 2);
+                emitInvokeStatic(asm, method);
+            }
+        };
+    }
+
+    static BytecodeEmitter v128StoreLane(Method write, String extract, int lanes) {
+        var method = ShadedRefs.v128Op(extract);
+        return (ctx, ins, asm) -> {
+            int lane = (int) ins.operand(3);
+            int slot = ctx.tempSlot();
+            emitStore(asm, slot + 1, ValType.V128);
+            asm.load(slot + (lane < lanes / 2 ? 1 : 3), LONG_TYPE);
+            asm.iconst(lane % (lanes / 2));
+            emitInvokeStatic(asm, method);
+            emitLoadOrStore(ctx, ins, asm, write);
+        };
+    }
+
+    // stores the given number of v128 operands from the top of the stack to consecutive slots
+    private static void emitSpillV128(InstructionAdapter asm, int slot, int vectors) {
+        for (int i = vectors - 1; i >= 0; i--) {
+            emitStore(asm, slot + 4 * i, ValType.V128);
+        }
+    }
 }
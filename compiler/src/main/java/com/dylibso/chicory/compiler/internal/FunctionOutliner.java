@@ -0,0 +1,281 @@
+package com.dylibso.chicory.compiler.internal;
+
+import static java.lang.Math.max;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Splits the instructions of a function too large for a JVM method into regions compiled
+ * to separate methods.
+ * <p>
+ * A region starts and ends with an empty operand stack and is only entered from its start.
+ * The locals it uses are passed in a long[], and the jumps from the region to the rest of
+ * the function, as well as its returns, are exits returned by the outlined method.
+ */
+final class FunctionOutliner {
+
+    // below this size the region isn't worth the locals round trip
+    private static final int MIN_REGION_SIZE = 64;
+
+    static final class Region {
+        private final int start;
+        private final int end;
+        private final long[] exits;
+        private final int[] locals;
+        private final int[] changedLocals;
+        private final boolean deadEnd;
+
+        Region(
+                int start,
+                int end,
+                long[] exits,
+                int[] locals,
+                int[] changedLocals,
+                boolean deadEnd) {
+            this.start = start;
+            this.end = end;
+            this.exits = exits;
+            this.locals = locals;
+            this.changedLocals = changedLocals;
+            this.deadEnd = deadEnd;
+        }
+
+        /**
+         * The index of the first instruction of the region.
+         */
+        int start() {
+            return start;
+        }
+
+        /**
+         * The index of the instruction following the region.
+         */
+        int end() {
+            return end;
+        }
+
+        /**
+         * The labels outside the region it jumps to: exit {@code k} jumps to {@code exits[k - 1]},
+         * exit 0 continues after the region and exit -1 returns from the function.
+         */
+        long[] exits() {
+            return exits;
+        }
+
+        /**
+         * The locals used by the region, in ascending order.
+         */
+        int[] locals() {
+            return locals;
+        }
+
+        /**
+         * The locals set by the region, in ascending order.
+         */
+        int[] changedLocals() {
+            return changedLocals;
+        }
+
+        /**
+         * Whether the region never continues after its last instruction.
+         */
+        boolean deadEnd() {
+            return deadEnd;
+        }
+    }
+
+    private final List<CompilerInstruction> instructions;
+    private final BitSet emptyStack;
+    private final Map<Long, Integer> labels = new HashMap<>();
+    // first and last instruction jumping to each label
+    private final Map<Long, int[]> jumps = new HashMap<>();
+    private final BitSet tryRanges = new BitSet();
+
+    private FunctionOutliner(List<CompilerInstruction> instructions, BitSet emptyStack) {
+        this.instructions = instructions;
+        this.emptyStack = emptyStack;
+
+        for (int i = 0; i < instructions.size(); i++) {
+            var ins = instructions.get(i);
+            if (ins.opcode() == CompilerOpCode.LABEL) {
+                labels.put(ins.operand(0), i);
+            }
+            for (long target : ins.labelTargets()) {
+                var range = jumps.get(target);
+                if (range == null) {
+                    jumps.put(target, new int[] {i, i});
+                } else {
+                    range[1] = i;
+                }
+            }
+        }
+
+        // the locals changed by a try block must be visible to its catch handlers
+        for (var ins : instructions) {
+            if (ins.opcode() == CompilerOpCode.TRY_CATCH_BLOCK) {
+                tryRanges.set(labels.get(ins.operand(0)), labels.get(ins.operand(1)) + 1);
+            }
+        }
+    }
+
+    /**
+     * Selects the regions, each holding at most {@code maxSize} instructions.
+     *
+     * @param emptyStack the positions in the instructions where the operand stack is empty
+     */
+    static List<Region> regions(
+            List<CompilerInstruction> instructions, BitSet emptyStack, int maxSize) {
+        return new FunctionOutliner(instructions, emptyStack).regions(maxSize);
+    }
+
+    private List<Region> regions(int maxSize) {
+        var regions = new ArrayList<Region>();
+        int size = instructions.size();
+        int cursor = 0;
+        for (int a = emptyStack.nextSetBit(0);
+                a >= 0 && a < size;
+                a = emptyStack.nextSetBit(a + 1)) {
+            if (a < cursor) {
+                continue;
+            }
+            int start = a;
+            int needEnd = a;
+            int best = -1;
+            for (int i = a; i < size && i - start < maxSize; i++) {
+                var ins = instructions.get(i);
+                if (!canOutline(ins) || tryRanges.get(i)) {
+                    break;
+                }
+                if (ins.opcode() == CompilerOpCode.LABEL) {
+                    var range = jumps.get(ins.operand(0));
+                    if (range != null) {
+                        if (range[0] < start) {
+                            if (i == start) {
+                                // entered from before, the label stays in the function
+                                start++;
+                                needEnd = start;
+                                continue;
+                            }
+                            break;
+                        }
+                        needEnd = max(needEnd, range[1] + 1);
+                    }
+                }
+                boolean entered = false;
+                for (long target : ins.labelTargets()) {
+                    int label = labels.get(target);
+                    if (label < start && !isEmptyStackAt(label)) {
+                        entered = true;
+                    } else if (label > i && !isEmptyStackAt(label)) {
+                        // values are passed to the label, it must be in the region
+                        needEnd = max(needEnd, label + 1);
+                    }
+                }
+                if (entered) {
+                    break;
+                }
+                int end = i + 1;
+                if (end >= needEnd
+                        && end - start >= MIN_REGION_SIZE
+                        && (emptyStack.get(end) || isUnconditional(ins))) {
+                    best = end;
+                }
+            }
+            if (best > 0) {
+                regions.add(region(start, best));
+                cursor = best;
+            }
+        }
+        return regions;
+    }
+
+    private Region region(int start, int end) {
+        var exits = new LinkedHashSet<Long>();
+        var locals = new TreeSet<Integer>();
+        var changedLocals = new TreeSet<Integer>();
+        for (int i = start; i < end; i++) {
+            var ins = instructions.get(i);
+            switch (ins.opcode()) {
+                case LOCAL_GET:
+                    locals.add((int) ins.operand(0));
+                    break;
+                case LOCAL_SET:
+                case LOCAL_TEE:
+                    locals.add((int) ins.operand(0));
+                    changedLocals.add((int) ins.operand(0));
+                    break;
+                default:
+                    break;
+            }
+            for (long target : ins.labelTargets()) {
+                int label = labels.get(target);
+                if (label < start || label >= end) {
+                    exits.add(target);
+                }
+            }
+        }
+        return new Region(
+                start,
+                end,
+                exits.stream().mapToLong(Long::longValue).toArray(),
+                locals.stream().mapToInt(Integer::intValue).toArray(),
+                changedLocals.stream().mapToInt(Integer::intValue).toArray(),
+                isUnconditional(instructions.get(end - 1)));
+    }
+
+    // the stack is the same at the labels following each other
+    private boolean isEmptyStackAt(int label) {
+        int i = label;
+        while (i > 0 && instructions.get(i - 1).opcode() == CompilerOpCode.LABEL) {
+            i--;
+        }
+        for (; i < instructions.size(); i++) {
+            if (emptyStack.get(i)) {
+                return true;
+            }
+            if (instructions.get(i).opcode() != CompilerOpCode.LABEL) {
+                return false;
+            }
+        }
+        return emptyStack.get(i);
+    }
+
+    private static boolean canOutline(CompilerInstruction ins) {
+        switch (ins.opcode()) {
+            case TRY_CATCH_BLOCK:
+            case TRY_SAVE_STACK:
+            case TRY_RESTORE_STACK:
+            case CATCH_START:
+            case CATCH_END:
+            case CATCH_UNBOX_PARAMS:
+            case CATCH_COMPARE_TAG:
+            case CATCH_REGISTER_EXCEPTION:
+            case RETURN_CALL:
+            case RETURN_CALL_INDIRECT:
+            case RETURN_CALL_REF:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    private static boolean isUnconditional(CompilerInstruction ins) {
+        switch (ins.opcode()) {
+            case GOTO:
+            case SWITCH:
+            case RETURN:
+            case TRAP:
+            case THROW:
+            case THROW_REF:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
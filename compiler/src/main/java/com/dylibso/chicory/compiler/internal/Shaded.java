@@ -3,9 +3,10 @@ package com.dylibso.chicory.compiler.internal;
 import static com.dylibso.chicory.runtime.MemCopyWorkaround.shouldUseMemWorkaround;
 import static com.dylibso.chicory.wasm.types.Value.REF_NULL_VALUE;
 
-import com.dylibso.chicory.runtime.ChicoryInterruptedException;
 import com.dylibso.chicory.runtime.ConstantEvaluators;
+import com.dylibso.chicory.runtime.FunctionHandles;
 import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.runtime.Machine;
 import com.dylibso.chicory.runtime.MemCopyWorkaround;
 import com.dylibso.chicory.runtime.Memory;
 import com.dylibso.chicory.runtime.OpcodeImpl;
@@ -13,13 +14,18 @@ import com.dylibso.chicory.runtime.TableInstance;
 import com.dylibso.chicory.runtime.TrapException;
 import com.dylibso.chicory.runtime.WasmArray;
 import com.dylibso.chicory.runtime.WasmException;
+import com.dylibso.chicory.runtime.WasmFunctionHandle;
 import com.dylibso.chicory.runtime.WasmI31Ref;
 import com.dylibso.chicory.runtime.WasmRuntimeException;
 import com.dylibso.chicory.runtime.WasmStruct;
+import com.dylibso.chicory.runtime.internal.JfrEvents;
 import com.dylibso.chicory.wasm.ChicoryException;
 import com.dylibso.chicory.wasm.InvalidException;
-import com.dylibso.chicory.wasm.types.ValType;
+import com.dylibso.chicory.wasm.types.FunctionType;
 import com.dylibso.chicory.wasm.types.Value;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.Arrays;
 
 /**
@@ -32,8 +38,7 @@ public final class Shaded {
     public static long[] callIndirect(long[] args, int typeId, int funcId, Instance instance) {
         int actualTypeIdx = instance.functionType(funcId);
         if (actualTypeIdx != typeId
-                && !ValType.heapTypeSubtype(
-                        actualTypeIdx, typeId, instance.module().typeSection())) {
+                && !instance.canonicalTypes().isSubtype(actualTypeIdx, typeId)) {
             throw throwIndirectCallTypeMismatch();
         }
         return instance.getMachine().call(funcId, args);
@@ -45,7 +50,73 @@ public final class Shaded {
 
     public static long[] callHostFunction(Instance instance, int funcId, long[] args) {
         var imprt = instance.imports().function(funcId);
-        return imprt.handle().apply(instance, args);
+        var event = JfrEvents.beginHostCall();
+        try {
+            return imprt.handle().apply(instance, args);
+        } finally {
+            JfrEvents.endHostCall(event, instance, funcId);
+        }
+    }
+
+    /**
+     * Returns the handle of the host function for the typed calls, or {@code null} to take
+     * the path of {@link #callHostFunction(Instance, int, long[])} recording the JFR events.
+     */
+    public static WasmFunctionHandle hostFunctionHandle(Instance instance, int funcId) {
+        if (JfrEvents.isHostCallEnabled()) {
+            return null;
+        }
+        return instance.imports().function(funcId).handle();
+    }
+
+    /**
+     * Binds the static method of a compiled function, for {@link Machine#handle(int, FunctionType)}.
+     *
+     * @return the handle, or {@code null} if the function has no method with the typed signature.
+     */
+    public static MethodHandle functionHandle(
+            Instance instance,
+            int funcId,
+            FunctionType type,
+            MethodHandles.Lookup lookup,
+            int maxFunctionsPerClass) {
+        if (funcId < instance.imports().functionCount() || funcId >= instance.functionCount()) {
+            return null;
+        }
+        try {
+            var methodType = FunctionHandles.methodType(type);
+            var funcGroup =
+                    lookup.findClass(
+                            lookup.lookupClass().getName()
+                                    + "FuncGroup_"
+                                    + (funcId / maxFunctionsPerClass));
+            var func =
+                    lookup.findStatic(
+                            funcGroup,
+                            "func_" + funcId,
+                            methodType.appendParameterTypes(Memory.class, Instance.class));
+            func =
+                    MethodHandles.insertArguments(
+                            func, methodType.parameterCount(), instance.memory(), instance);
+
+            // catch (StackOverflowError e) { throw throwCallStackExhausted(e); }
+            var handler =
+                    MethodHandles.filterReturnValue(
+                            MethodHandles.lookup()
+                                    .findStatic(
+                                            Shaded.class,
+                                            "throwCallStackExhausted",
+                                            MethodType.methodType(
+                                                    RuntimeException.class,
+                                                    StackOverflowError.class)),
+                            MethodHandles.throwException(
+                                    methodType.returnType(), RuntimeException.class));
+            handler = MethodHandles.dropArguments(handler, 1, methodType.parameterList());
+            return MethodHandles.catchException(func, StackOverflowError.class, handler);
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            // e.g. functions with too many parameters take a long[]
+            return null;
+        }
     }
 
     public static void setTailCall(int funcId, long[] args, Instance instance) {
@@ -63,8 +134,7 @@ public final class Shaded {
         }
         int actualTypeIdx = instance.functionType(funcId);
         if (actualTypeIdx != typeId
-                && !ValType.heapTypeSubtype(
-                        actualTypeIdx, typeId, instance.module().typeSection())) {
+                && !instance.canonicalTypes().isSubtype(actualTypeIdx, typeId)) {
             throw throwIndirectCallTypeMismatch();
         }
         instance.setTailCall(funcId, args);
@@ -356,6 +426,10 @@ public final class Shaded {
         throw new TrapException("Trapped on unreachable instruction");
     }
 
+    public static RuntimeException throwWithBacktrace(TrapException e, Instance instance) {
+        throw e.recordBacktrace(instance);
+    }
+
     public static RuntimeException throwNullFunctionReference() {
         throw new TrapException("null function reference");
     }
@@ -364,10 +438,8 @@ public final class Shaded {
         throw new InvalidException(String.format("unknown function %d", index));
     }
 
-    public static void checkInterruption() {
-        if (Thread.currentThread().isInterrupted()) {
-            throw new ChicoryInterruptedException("Thread interrupted");
-        }
+    public static void consumeFuel(long cost, Instance instance) {
+        instance.consumeFuel(cost);
     }
 
     public static long readGlobal(int index, Instance instance) {
@@ -378,6 +450,14 @@ public final class Shaded {
         instance.global(index).setValue(value);
     }
 
+    public static long readGlobalHigh(int index, Instance instance) {
+        return instance.global(index).getValueHigh();
+    }
+
+    public static void writeGlobalHigh(long value, int index, Instance instance) {
+        instance.global(index).setValueHigh(value);
+    }
+
     public static int readGlobalRef(int index, Instance instance) {
         long val = instance.global(index).getValue();
         if (Value.isI31(val)) {
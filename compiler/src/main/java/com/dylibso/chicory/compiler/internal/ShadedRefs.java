@@ -3,22 +3,31 @@ package com.dylibso.chicory.compiler.internal;
 import com.dylibso.chicory.runtime.Instance;
 import com.dylibso.chicory.runtime.Memory;
 import com.dylibso.chicory.runtime.TableInstance;
+import com.dylibso.chicory.runtime.TrapException;
 import com.dylibso.chicory.runtime.WasmException;
 import com.dylibso.chicory.runtime.internal.CompilerInterpreterMachine;
+import com.dylibso.chicory.runtime.internal.V128Ops;
 import com.dylibso.chicory.wasm.types.Element;
+import com.dylibso.chicory.wasm.types.FunctionType;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Method;
 
 public final class ShadedRefs {
 
     static final Method CHECK_INTERRUPTION;
+    static final Method CONSUME_FUEL;
     static final Method CALL_INDIRECT;
     static final Method CALL_INDIRECT_ON_INTERPRETER;
     static final Method INSTANCE_MEMORY;
     static final Method INSTANCE_MEMORY_IDX;
     static final Method CALL_HOST_FUNCTION;
+    static final Method HOST_FUNCTION_HANDLE;
+    static final Method FUNCTION_HANDLE;
     static final Method READ_GLOBAL;
     static final Method READ_GLOBAL_REF;
+    static final Method READ_GLOBAL_HIGH;
     static final Method WRITE_GLOBAL;
+    static final Method WRITE_GLOBAL_HIGH;
     static final Method INSTANCE_SET_ELEMENT;
     static final Method INSTANCE_TABLE;
     static final Method MEMORY_COPY;
@@ -63,6 +72,7 @@ public final class ShadedRefs {
     static final Method THROW_INDIRECT_CALL_TYPE_MISMATCH;
     static final Method THROW_OUT_OF_BOUNDS_MEMORY_ACCESS;
     static final Method THROW_TRAP_EXCEPTION;
+    static final Method THROW_WITH_BACKTRACE;
     static final Method THROW_NULL_FUNCTION_REFERENCE;
     static final Method THROW_UNKNOWN_FUNCTION;
     static final Method AOT_INTERPRETER_MACHINE_CALL;
@@ -174,7 +184,8 @@ public final class ShadedRefs {
 
     static {
         try {
-            CHECK_INTERRUPTION = Shaded.class.getMethod("checkInterruption");
+            CHECK_INTERRUPTION = Instance.class.getMethod("checkInterruption");
+            CONSUME_FUEL = Shaded.class.getMethod("consumeFuel", long.class, Instance.class);
             CALL_INDIRECT =
                     Shaded.class.getMethod(
                             "callIndirect", long[].class, int.class, int.class, Instance.class);
@@ -185,10 +196,24 @@ public final class ShadedRefs {
             CALL_HOST_FUNCTION =
                     Shaded.class.getMethod(
                             "callHostFunction", Instance.class, int.class, long[].class);
+            HOST_FUNCTION_HANDLE =
+                    Shaded.class.getMethod("hostFunctionHandle", Instance.class, int.class);
+            FUNCTION_HANDLE =
+                    Shaded.class.getMethod(
+                            "functionHandle",
+                            Instance.class,
+                            int.class,
+                            FunctionType.class,
+                            MethodHandles.Lookup.class,
+                            int.class);
             READ_GLOBAL = Shaded.class.getMethod("readGlobal", int.class, Instance.class);
             READ_GLOBAL_REF = Shaded.class.getMethod("readGlobalRef", int.class, Instance.class);
+            READ_GLOBAL_HIGH = Shaded.class.getMethod("readGlobalHigh", int.class, Instance.class);
             WRITE_GLOBAL =
                     Shaded.class.getMethod("writeGlobal", long.class, int.class, Instance.class);
+            WRITE_GLOBAL_HIGH =
+                    Shaded.class.getMethod(
+                            "writeGlobalHigh", long.class, int.class, Instance.class);
             INSTANCE_SET_ELEMENT = Instance.class.getMethod("setElement", int.class, Element.class);
             INSTANCE_TABLE = Instance.class.getMethod("table", int.class);
             MEMORY_COPY =
@@ -308,6 +333,9 @@ public final class ShadedRefs {
             THROW_OUT_OF_BOUNDS_MEMORY_ACCESS =
                     Shaded.class.getMethod("throwOutOfBoundsMemoryAccess");
             THROW_TRAP_EXCEPTION = Shaded.class.getMethod("throwTrapException");
+            THROW_WITH_BACKTRACE =
+                    Shaded.class.getMethod(
+                            "throwWithBacktrace", TrapException.class, Instance.class);
             THROW_NULL_FUNCTION_REFERENCE = Shaded.class.getMethod("throwNullFunctionReference");
             THROW_UNKNOWN_FUNCTION = Shaded.class.getMethod("throwUnknownFunction", int.class);
 
@@ -868,4 +896,17 @@ public final class ShadedRefs {
     }
 
     private ShadedRefs() {}
+
+    /**
+     * @return the {@link V128Ops} method with the given name, the SIMD helpers are looked up
+     * by name rather than having a constant each.
+     */
+    static Method v128Op(String name) {
+        for (Method method : V128Ops.class.getMethods()) {
+            if (method.getName().equals(name)) {
+                return method;
+            }
+        }
+        throw new IllegalArgumentException("Missing V128Ops method: " + name);
+    }
 }
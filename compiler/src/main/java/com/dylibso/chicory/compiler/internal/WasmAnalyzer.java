@@ -8,6 +8,7 @@ import static java.util.Collections.reverse;
 import static java.util.stream.Collectors.toCollection;
 import static java.util.stream.Collectors.toUnmodifiableList;
 
+import com.dylibso.chicory.runtime.internal.FuelCosts;
 import com.dylibso.chicory.wasm.ChicoryException;
 import com.dylibso.chicory.wasm.WasmModule;
 import com.dylibso.chicory.wasm.types.AnnotatedInstruction;
@@ -25,6 +26,7 @@ import com.dylibso.chicory.wasm.types.Table;
 import com.dylibso.chicory.wasm.types.TableImport;
 import com.dylibso.chicory.wasm.types.ValType;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -41,10 +43,18 @@ final class WasmAnalyzer {
     static final class AnalysisResult {
         private final List<CompilerInstruction> instructions;
         private final int maxTempSlots;
-
-        AnalysisResult(List<CompilerInstruction> instructions, int maxTempSlots) {
+        private final int trySaveSlots;
+        private final BitSet emptyStack;
+
+        AnalysisResult(
+                List<CompilerInstruction> instructions,
+                int maxTempSlots,
+                int trySaveSlots,
+                BitSet emptyStack) {
             this.instructions = instructions;
             this.maxTempSlots = maxTempSlots;
+            this.trySaveSlots = trySaveSlots;
+            this.emptyStack = emptyStack;
         }
 
         List<CompilerInstruction> instructions() {
@@ -54,6 +64,18 @@ final class WasmAnalyzer {
         int maxTempSlots() {
             return maxTempSlots;
         }
+
+        int trySaveSlots() {
+            return trySaveSlots;
+        }
+
+        /**
+         * The positions in the instructions where the operand stack is empty,
+         * i.e. the stack is empty before the instruction at that index.
+         */
+        BitSet emptyStack() {
+            return emptyStack;
+        }
     }
 
     private final WasmModule module;
@@ -63,9 +85,18 @@ final class WasmAnalyzer {
     private final int functionImports;
     private final boolean[] tailCallFunctions;
     private final boolean hasTailCalls;
+    private final boolean fuelMetering;
 
     public WasmAnalyzer(WasmModule module) {
+        this(module, false);
+    }
+
+    /**
+     * @param fuelMetering whether the basic blocks consume their fuel, as in the interpreter
+     */
+    public WasmAnalyzer(WasmModule module, boolean fuelMetering) {
         this.module = module;
+        this.fuelMetering = fuelMetering;
         this.globalTypes = getGlobalTypes(module);
         this.functionTypes = getFunctionTypes(module);
         this.tableTypes = getTableTypes(module);
@@ -88,6 +119,7 @@ final class WasmAnalyzer {
 
     public boolean[] tailCallTypes() {
         var types = module.typeSection().types();
+        var canonicalTypes = module.typeSection().canonicalTypes();
         var result = new boolean[types.length];
         for (int funcId = 0; funcId < tailCallFunctions.length; funcId++) {
             if (!tailCallFunctions[funcId]) {
@@ -98,8 +130,7 @@ final class WasmAnalyzer {
                 if (types[typeId] == null) {
                     continue;
                 }
-                if (funcTypeId == typeId
-                        || ValType.heapTypeSubtype(funcTypeId, typeId, module.typeSection())) {
+                if (canonicalTypes.isSubtype(funcTypeId, typeId)) {
                     result[typeId] = true;
                 }
             }
@@ -246,6 +277,13 @@ final class WasmAnalyzer {
         // implicit block for the function
         stack.enterScope(FUNCTION_SCOPE, FunctionType.of(List.of(), functionType.returns()));
 
+        // positions in the result where the operand stack is empty
+        var emptyStack = new BitSet();
+        emptyStack.set(0);
+
+        // fuel charged at the start of the basic blocks
+        int[] fuelCosts = fuelMetering ? FuelCosts.of(body) : null;
+
         int exitBlockDepth = -1;
         for (int idx = 0; idx < body.instructions().size(); idx++) {
             AnnotatedInstruction ins = body.instructions().get(idx);
@@ -280,6 +318,10 @@ final class WasmAnalyzer {
                 }
             }
 
+            if (fuelCosts != null && fuelCosts[idx] != 0) {
+                result.add(new CompilerInstruction(CompilerOpCode.CONSUME_FUEL, fuelCosts[idx]));
+            }
+
             switch (ins.opcode()) {
                 case NOP:
                     break;
@@ -736,6 +778,10 @@ final class WasmAnalyzer {
                 default:
                     analyzeSimple(result, stack, ins, functionType, body);
             }
+
+            if (exitBlockDepth < 0 && stack.types().isEmpty()) {
+                emptyStack.set(result.size());
+            }
         }
 
         // implicit return at end of function
@@ -750,8 +796,12 @@ final class WasmAnalyzer {
         // (nested) handlers are registered before outer ones in the JVM.
         reverse(tryCatchBlockInstructions);
         result.addAll(0, tryCatchBlockInstructions);
+        var shiftedEmptyStack = new BitSet();
+        emptyStack.stream()
+                .forEach(i -> shiftedEmptyStack.set(i + tryCatchBlockInstructions.size()));
 
-        return new AnalysisResult(result, computeMaxTempSlots(result));
+        return new AnalysisResult(
+                result, computeMaxTempSlots(result), trySaveSlotOffset, shiftedEmptyStack);
     }
 
     private int computeMaxTempSlots(List<CompilerInstruction> instructions) {
@@ -844,7 +894,17 @@ final class WasmAnalyzer {
                         max = Math.max(max, slots);
                         break;
                     }
+                case SELECT:
+                    // a v128 operand and the condition
+                    if (ins.operand(0) == ValType.V128.id()) {
+                        max = Math.max(max, 5);
+                    }
+                    break;
                 default:
+                    if (ins.opcode().isSimd()) {
+                        // up to three v128 operands spilled by the SIMD emitters
+                        max = Math.max(max, 12);
+                    }
                     break;
             }
         }
@@ -1594,6 +1654,321 @@ final class WasmAnalyzer {
                                 .withTypeIdx(ValType.TypeIdxCode.EXTERN.code())
                                 .build());
                 break;
+            case V128_LOAD:
+            case V128_LOAD8x8_S:
+            case V128_LOAD8x8_U:
+            case V128_LOAD16x4_S:
+            case V128_LOAD16x4_U:
+            case V128_LOAD32x2_S:
+            case V128_LOAD32x2_U:
+            case V128_LOAD8_SPLAT:
+            case V128_LOAD16_SPLAT:
+            case V128_LOAD32_SPLAT:
+            case V128_LOAD64_SPLAT:
+            case I8x16_SPLAT:
+            case I16x8_SPLAT:
+            case I32x4_SPLAT:
+            case V128_LOAD32_ZERO:
+            case V128_LOAD64_ZERO:
+                // [I32] -> [V128]
+                stack.pop(ValType.I32);
+                stack.push(ValType.V128);
+                break;
+            case V128_STORE:
+            case V128_STORE8_LANE:
+            case V128_STORE16_LANE:
+            case V128_STORE32_LANE:
+            case V128_STORE64_LANE:
+                // [I32, V128] -> []
+                stack.pop(ValType.V128);
+                stack.pop(ValType.I32);
+                break;
+            case V128_CONST:
+                // [] -> [V128]
+                stack.push(ValType.V128);
+                break;
+            case I8x16_SHUFFLE:
+            case I8x16_SWIZZLE:
+            case I8x16_EQ:
+            case I8x16_NE:
+            case I8x16_LT_S:
+            case I8x16_LT_U:
+            case I8x16_GT_S:
+            case I8x16_GT_U:
+            case I8x16_LE_S:
+            case I8x16_LE_U:
+            case I8x16_GE_S:
+            case I8x16_GE_U:
+            case I16x8_EQ:
+            case I16x8_NE:
+            case I16x8_LT_S:
+            case I16x8_LT_U:
+            case I16x8_GT_S:
+            case I16x8_GT_U:
+            case I16x8_LE_S:
+            case I16x8_LE_U:
+            case I16x8_GE_S:
+            case I16x8_GE_U:
+            case I32x4_EQ:
+            case I32x4_NE:
+            case I32x4_LT_S:
+            case I32x4_LT_U:
+            case I32x4_GT_S:
+            case I32x4_GT_U:
+            case I32x4_LE_S:
+            case I32x4_LE_U:
+            case I32x4_GE_S:
+            case I32x4_GE_U:
+            case F32x4_EQ:
+            case F32x4_NE:
+            case F32x4_LT:
+            case F32x4_GT:
+            case F32x4_LE:
+            case F32x4_GE:
+            case F64x2_EQ:
+            case F64x2_NE:
+            case F64x2_LT:
+            case F64x2_GT:
+            case F64x2_LE:
+            case F64x2_GE:
+            case V128_AND:
+            case V128_ANDNOT:
+            case V128_OR:
+            case V128_XOR:
+            case I8x16_NARROW_I16x8_S:
+            case I8x16_NARROW_I16x8_U:
+            case I8x16_ADD:
+            case I8x16_ADD_SAT_S:
+            case I8x16_ADD_SAT_U:
+            case I8x16_SUB:
+            case I8x16_SUB_SAT_S:
+            case I8x16_SUB_SAT_U:
+            case I8x16_MIN_S:
+            case I8x16_MIN_U:
+            case I8x16_MAX_S:
+            case I8x16_MAX_U:
+            case I8x16_AVGR_U:
+            case I16x8_Q15MULR_SAT_S:
+            case I16x8_NARROW_I32x4_S:
+            case I16x8_NARROW_I32x4_U:
+            case I16x8_ADD:
+            case I16x8_ADD_SAT_S:
+            case I16x8_ADD_SAT_U:
+            case I16x8_SUB:
+            case I16x8_SUB_SAT_S:
+            case I16x8_SUB_SAT_U:
+            case I16x8_MUL:
+            case I16x8_MIN_S:
+            case I16x8_MIN_U:
+            case I16x8_MAX_S:
+            case I16x8_MAX_U:
+            case I16x8_AVGR_U:
+            case I16x8_EXTMUL_LOW_I8x16_S:
+            case I16x8_EXTMUL_HIGH_I8x16_S:
+            case I16x8_EXTMUL_LOW_I8x16_U:
+            case I16x8_EXTMUL_HIGH_I8x16_U:
+            case I32x4_ADD:
+            case I32x4_SUB:
+            case I32x4_MUL:
+            case I32x4_MIN_S:
+            case I32x4_MIN_U:
+            case I32x4_MAX_S:
+            case I32x4_MAX_U:
+            case I32x4_DOT_I16x8_S:
+            case I32x4_EXTMUL_LOW_I16x8_S:
+            case I32x4_EXTMUL_HIGH_I16x8_S:
+            case I32x4_EXTMUL_LOW_I16x8_U:
+            case I32x4_EXTMUL_HIGH_I16x8_U:
+            case I64x2_ADD:
+            case I64x2_SUB:
+            case I64x2_MUL:
+            case I64x2_EQ:
+            case I64x2_NE:
+            case I64x2_LT_S:
+            case I64x2_GT_S:
+            case I64x2_LE_S:
+            case I64x2_GE_S:
+            case I64x2_EXTMUL_LOW_I32x4_S:
+            case I64x2_EXTMUL_HIGH_I32x4_S:
+            case I64x2_EXTMUL_LOW_I32x4_U:
+            case I64x2_EXTMUL_HIGH_I32x4_U:
+            case F32x4_ADD:
+            case F32x4_SUB:
+            case F32x4_MUL:
+            case F32x4_DIV:
+            case F32x4_MIN:
+            case F32x4_MAX:
+            case F32x4_PMIN:
+            case F32x4_PMAX:
+            case F64x2_ADD:
+            case F64x2_SUB:
+            case F64x2_MUL:
+            case F64x2_DIV:
+            case F64x2_MIN:
+            case F64x2_MAX:
+            case F64x2_PMIN:
+            case F64x2_PMAX:
+                // [V128, V128] -> [V128]
+                stack.pop(ValType.V128);
+                stack.pop(ValType.V128);
+                stack.push(ValType.V128);
+                break;
+            case I64x2_SPLAT:
+                // [I64] -> [V128]
+                stack.pop(ValType.I64);
+                stack.push(ValType.V128);
+                break;
+            case F32x4_SPLAT:
+                // [F32] -> [V128]
+                stack.pop(ValType.F32);
+                stack.push(ValType.V128);
+                break;
+            case F64x2_SPLAT:
+                // [F64] -> [V128]
+                stack.pop(ValType.F64);
+                stack.push(ValType.V128);
+                break;
+            case I8x16_EXTRACT_LANE_S:
+            case I8x16_EXTRACT_LANE_U:
+            case I16x8_EXTRACT_LANE_S:
+            case I16x8_EXTRACT_LANE_U:
+            case I32x4_EXTRACT_LANE:
+            case V128_ANY_TRUE:
+            case I8x16_ALL_TRUE:
+            case I8x16_BITMASK:
+            case I16x8_ALL_TRUE:
+            case I16x8_BITMASK:
+            case I32x4_ALL_TRUE:
+            case I32x4_BITMASK:
+            case I64x2_ALL_TRUE:
+            case I64x2_BITMASK:
+                // [V128] -> [I32]
+                stack.pop(ValType.V128);
+                stack.push(ValType.I32);
+                break;
+            case I8x16_REPLACE_LANE:
+            case I16x8_REPLACE_LANE:
+            case I32x4_REPLACE_LANE:
+            case I8x16_SHL:
+            case I8x16_SHR_S:
+            case I8x16_SHR_U:
+            case I16x8_SHL:
+            case I16x8_SHR_S:
+            case I16x8_SHR_U:
+            case I32x4_SHL:
+            case I32x4_SHR_S:
+            case I32x4_SHR_U:
+            case I64x2_SHL:
+            case I64x2_SHR_S:
+            case I64x2_SHR_U:
+                // [V128, I32] -> [V128]
+                stack.pop(ValType.I32);
+                stack.pop(ValType.V128);
+                stack.push(ValType.V128);
+                break;
+            case I64x2_EXTRACT_LANE:
+                // [V128] -> [I64]
+                stack.pop(ValType.V128);
+                stack.push(ValType.I64);
+                break;
+            case I64x2_REPLACE_LANE:
+                // [V128, I64] -> [V128]
+                stack.pop(ValType.I64);
+                stack.pop(ValType.V128);
+                stack.push(ValType.V128);
+                break;
+            case F32x4_EXTRACT_LANE:
+                // [V128] -> [F32]
+                stack.pop(ValType.V128);
+                stack.push(ValType.F32);
+                break;
+            case F32x4_REPLACE_LANE:
+                // [V128, F32] -> [V128]
+                stack.pop(ValType.F32);
+                stack.pop(ValType.V128);
+                stack.push(ValType.V128);
+                break;
+            case F64x2_EXTRACT_LANE:
+                // [V128] -> [F64]
+                stack.pop(ValType.V128);
+                stack.push(ValType.F64);
+                break;
+            case F64x2_REPLACE_LANE:
+                // [V128, F64] -> [V128]
+                stack.pop(ValType.F64);
+                stack.pop(ValType.V128);
+                stack.push(ValType.V128);
+                break;
+            case V128_NOT:
+            case F32x4_DEMOTE_LOW_F64x2_ZERO:
+            case F64x2_PROMOTE_LOW_F32x4:
+            case I8x16_ABS:
+            case I8x16_NEG:
+            case I8x16_POPCNT:
+            case F32x4_CEIL:
+            case F32x4_FLOOR:
+            case F32x4_TRUNC:
+            case F32x4_NEAREST:
+            case F64x2_CEIL:
+            case F64x2_FLOOR:
+            case F64x2_TRUNC:
+            case I16x8_EXTADD_PAIRWISE_I8x16_S:
+            case I16x8_EXTADD_PAIRWISE_I8x16_U:
+            case I32x4_EXTADD_PAIRWISE_I16x8_S:
+            case I32x4_EXTADD_PAIRWISE_I16x8_U:
+            case I16x8_ABS:
+            case I16x8_NEG:
+            case I16x8_EXTEND_LOW_I8x16_S:
+            case I16x8_EXTEND_HIGH_I8x16_S:
+            case I16x8_EXTEND_LOW_I8x16_U:
+            case I16x8_EXTEND_HIGH_I8x16_U:
+            case F64x2_NEAREST:
+            case I32x4_ABS:
+            case I32x4_NEG:
+            case I32x4_EXTEND_LOW_I16x8_S:
+            case I32x4_EXTEND_HIGH_I16x8_S:
+            case I32x4_EXTEND_LOW_I16x8_U:
+            case I32x4_EXTEND_HIGH_I16x8_U:
+            case I64x2_ABS:
+            case I64x2_NEG:
+            case I64x2_EXTEND_LOW_I32x4_S:
+            case I64x2_EXTEND_HIGH_I32x4_S:
+            case I64x2_EXTEND_LOW_I32x4_U:
+            case I64x2_EXTEND_HIGH_I32x4_U:
+            case F32x4_ABS:
+            case F32x4_NEG:
+            case F32x4_SQRT:
+            case F64x2_ABS:
+            case F64x2_NEG:
+            case F64x2_SQRT:
+            case I32x4_TRUNC_SAT_F32X4_S:
+            case I32x4_TRUNC_SAT_F32X4_U:
+            case F32x4_CONVERT_I32x4_S:
+            case F32x4_CONVERT_I32x4_U:
+            case I32x4_TRUNC_SAT_F64x2_S_ZERO:
+            case I32x4_TRUNC_SAT_F64x2_U_ZERO:
+            case F64x2_CONVERT_LOW_I32x4_S:
+            case F64x2_CONVERT_LOW_I32x4_U:
+                // [V128] -> [V128]
+                stack.pop(ValType.V128);
+                stack.push(ValType.V128);
+                break;
+            case V128_BITSELECT:
+                // [V128, V128, V128] -> [V128]
+                stack.pop(ValType.V128);
+                stack.pop(ValType.V128);
+                stack.pop(ValType.V128);
+                stack.push(ValType.V128);
+                break;
+            case V128_LOAD8_LANE:
+            case V128_LOAD16_LANE:
+            case V128_LOAD32_LANE:
+            case V128_LOAD64_LANE:
+                // [I32, V128] -> [V128]
+                stack.pop(ValType.V128);
+                stack.pop(ValType.I32);
+                stack.push(ValType.V128);
+                break;
             default:
                 throw new ChicoryException("Unhandled opcode: " + ins.opcode());
         }
@@ -1,15 +1,40 @@
 package com.dylibso.chicory.compiler.internal;
 
+import java.util.function.Function;
 import org.objectweb.asm.ClassReader;
 
 final class WasmClassLoader extends ClassLoader {
 
+    static {
+        registerAsParallelCapable();
+    }
+
+    private final Function<String, byte[]> classGenerator;
+
     public WasmClassLoader() {
+        this(name -> null);
+    }
+
+    /**
+     * @param classGenerator generates the bytes of the classes not loaded yet, or returns
+     *                       {@code null} if it doesn't know the class.
+     */
+    WasmClassLoader(Function<String, byte[]> classGenerator) {
         super(WasmClassLoader.class.getClassLoader());
+        this.classGenerator = classGenerator;
     }
 
     public Class<?> loadFromBytes(byte[] bytes) {
         var name = new ClassReader(bytes).getClassName().replace('/', '.');
         return defineClass(name, bytes, 0, bytes.length);
     }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        var bytes = classGenerator.apply(name);
+        if (bytes == null) {
+            throw new ClassNotFoundException(name);
+        }
+        return defineClass(name, bytes, 0, bytes.length);
+    }
 }
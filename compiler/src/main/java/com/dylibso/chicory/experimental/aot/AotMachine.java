@@ -33,4 +33,9 @@ public final class AotMachine implements Machine {
     public long[] call(int funcId, long[] args) throws ChicoryException {
         return machine.call(funcId, args);
     }
+
+    @Override
+    public int[] stackTrace() {
+        return machine.stackTrace();
+    }
 }
@@ -0,0 +1,46 @@
+package com.dylibso.chicory.compiler.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.dylibso.chicory.compiler.MachineFactoryCompiler;
+import com.dylibso.chicory.corpus.CorpusResources;
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.runtime.TrapException;
+import com.dylibso.chicory.runtime.WasmBacktrace;
+import com.dylibso.chicory.wasm.Parser;
+import com.dylibso.chicory.wasm.UninstantiableException;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+public class BacktraceTest {
+
+    private static Instance.Builder builder() {
+        return Instance.builder(Parser.parse(CorpusResources.getResource("compiled/trap.wat.wasm")))
+                .withMachineFactory(MachineFactoryCompiler::compile);
+    }
+
+    @Test
+    public void shouldNotRecordTheBacktraceByDefault() {
+        var exception = assertThrows(UninstantiableException.class, builder()::build);
+        var trap = assertInstanceOf(TrapException.class, exception.getCause());
+
+        assertNull(trap.backtrace());
+    }
+
+    @Test
+    public void shouldRecordTheBacktraceOfTraps() {
+        var builder = builder().withBacktraces(true);
+        var exception = assertThrows(UninstantiableException.class, builder::build);
+        var trap = assertInstanceOf(TrapException.class, exception.getCause());
+
+        var names =
+                trap.backtrace().frames().stream()
+                        .map(WasmBacktrace.Frame::name)
+                        .collect(Collectors.toList());
+        assertEquals(List.of("trap", "innerFunc", "start"), names);
+    }
+}
@@ -0,0 +1,56 @@
+package com.dylibso.chicory.compiler.internal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.dylibso.chicory.compiler.MachineFactoryCompiler;
+import com.dylibso.chicory.corpus.CorpusResources;
+import com.dylibso.chicory.runtime.HostFunction;
+import com.dylibso.chicory.runtime.ImportValues;
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.runtime.WasmFunctionHandle;
+import com.dylibso.chicory.wasm.Parser;
+import com.dylibso.chicory.wasm.WasmModule;
+import com.dylibso.chicory.wasm.types.FunctionType;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+public class CompiledStackTraceTest {
+
+    private static final WasmModule MODULE =
+            Parser.parse(CorpusResources.getResource("compiled/tiered-loop.wat.wasm"));
+
+    private static Instance instance(WasmFunctionHandle probe) {
+        return Instance.builder(MODULE)
+                .withImportValues(
+                        ImportValues.builder()
+                                .addFunction(
+                                        new HostFunction(
+                                                "env", "probe", FunctionType.empty(), probe))
+                                .build())
+                .withMachineFactory(MachineFactoryCompiler::compile)
+                .build();
+    }
+
+    @Test
+    public void shouldOnlyListTheFramesOfTheMachine() {
+        var stackTrace = new AtomicReference<int[]>();
+        var inner =
+                instance(
+                        (instance, args) -> {
+                            stackTrace.set(instance.getMachine().stackTrace());
+                            return null;
+                        });
+        // compiled with the same class name, in another class loader
+        var outer =
+                instance(
+                        (instance, args) -> {
+                            inner.export("run").apply(1);
+                            return null;
+                        });
+
+        assertEquals(1L, outer.export("run").apply(1)[0]);
+        // the probe import called by $callee called by run, as in the interpreter
+        assertArrayEquals(new int[] {0, 1, 2}, stackTrace.get());
+    }
+}
@@ -1,10 +1,13 @@
 package com.dylibso.chicory.compiler.internal;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import com.dylibso.chicory.compiler.MachineFactoryCompiler;
 import com.dylibso.chicory.corpus.CorpusResources;
 import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.runtime.WasmException;
 import com.dylibso.chicory.wasm.Parser;
 import com.dylibso.chicory.wasm.WasmModule;
 import java.util.HashMap;
@@ -74,4 +77,21 @@ public class ExceptionTest {
         assertArrayEquals(new long[] {0}, function.apply(0));
         assertArrayEquals(new long[] {1}, function.apply(1));
     }
+
+    @Test
+    public void recordTheBacktraceOfCompiledThrows() {
+        var instance =
+                Instance.builder(MODULE)
+                        .withMachineFactory(MachineFactoryCompiler::compile)
+                        .withBacktraces(true)
+                        .build();
+
+        var exception =
+                assertThrows(
+                        WasmException.class, () -> instance.export("catch-complex-1").apply(2));
+        assertEquals(0, exception.getStackTrace().length);
+        var frames = exception.backtrace().frames();
+        assertEquals(1, frames.size());
+        assertEquals(0, frames.get(0).funcId());
+    }
 }
@@ -0,0 +1,72 @@
+package com.dylibso.chicory.compiler.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.dylibso.chicory.compiler.MachineFactoryCompiler;
+import com.dylibso.chicory.corpus.CorpusResources;
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.runtime.InterpreterMachine;
+import com.dylibso.chicory.runtime.Machine;
+import com.dylibso.chicory.runtime.TrapException;
+import com.dylibso.chicory.wasm.Parser;
+import com.dylibso.chicory.wasm.WasmModule;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+public class FuelTest {
+
+    private static final long FUEL = 1_000_000;
+
+    private static WasmModule module(String name) {
+        return Parser.parse(CorpusResources.getResource("compiled/" + name));
+    }
+
+    private static long consumed(
+            WasmModule module,
+            Function<Instance, Machine> machineFactory,
+            String name,
+            long... args) {
+        var instance =
+                Instance.builder(module).withMachineFactory(machineFactory).withFuel(FUEL).build();
+        instance.export(name).apply(args);
+        return FUEL - instance.fuel();
+    }
+
+    private static void assertSameFuel(String file, String name, long... args) {
+        var module = module(file);
+        var compiled = MachineFactoryCompiler.builder(module).withFuelMetering(true).compile();
+        assertEquals(
+                consumed(module, InterpreterMachine::new, name, args),
+                consumed(module, compiled, name, args));
+    }
+
+    @Test
+    public void shouldConsumeTheFuelOfTheInterpreter() {
+        assertSameFuel("iterfact.wat.wasm", "iterFact", 10);
+        assertSameFuel("power.c.wasm", "run", 8);
+        assertSameFuel("br_table.wat.wasm", "switch_like", 1);
+    }
+
+    @Test
+    public void shouldTrapOutOfFuel() {
+        var module = module("infinite-loop.c.wasm");
+        var instance =
+                Instance.builder(module)
+                        .withMachineFactory(
+                                MachineFactoryCompiler.builder(module)
+                                        .withFuelMetering(true)
+                                        .compile())
+                        .withFuel(10_000)
+                        .build();
+
+        var e = assertThrows(TrapException.class, () -> instance.export("run").apply());
+        assertEquals("out of fuel", e.getMessage());
+    }
+
+    @Test
+    public void shouldNotMeterByDefault() {
+        var module = module("iterfact.wat.wasm");
+        assertEquals(0, consumed(module, MachineFactoryCompiler::compile, "iterFact", 10));
+    }
+}
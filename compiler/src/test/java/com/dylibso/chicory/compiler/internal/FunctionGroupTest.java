@@ -0,0 +1,179 @@
+package com.dylibso.chicory.compiler.internal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.dylibso.chicory.compiler.FunctionGroupLoading;
+import com.dylibso.chicory.corpus.CorpusResources;
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.wasm.Parser;
+import com.dylibso.chicory.wasm.WasmModule;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassTooLargeException;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+public class FunctionGroupTest {
+
+    private static WasmModule loadModule() {
+        return Parser.parse(CorpusResources.getResource("compiled/functions_10.wat.wasm"));
+    }
+
+    private static long callFunc10(WasmModule module, ClassLoadingCollector collector) {
+        var instance =
+                Instance.builder(module).withMachineFactory(collector.machineFactory()).build();
+        return instance.export("func_10").apply(0)[0];
+    }
+
+    @Test
+    public void shouldCompileGroupsInParallelDeterministically() {
+        var module = loadModule();
+        var pool = new ForkJoinPool(4);
+        try {
+            var first = compile(module, pool);
+            var second = compile(module, pool);
+
+            var names = new ArrayList<>(first.classBytes().keySet());
+            assertEquals(names, new ArrayList<>(second.classBytes().keySet()));
+            for (var name : names) {
+                assertArrayEquals(first.classBytes().get(name), second.classBytes().get(name));
+            }
+            assertTrue(names.contains(Compiler.DEFAULT_CLASS_NAME + "FuncGroup_3"));
+            assertEquals(55L, callFunc10(module, first));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static ClassLoadingCollector compile(WasmModule module, ForkJoinPool pool) {
+        return (ClassLoadingCollector)
+                Compiler.builder(module)
+                        .withMaxFunctionsPerClass(3)
+                        .withForkJoinPool(pool)
+                        .build()
+                        .compile()
+                        .collector();
+    }
+
+    @Test
+    public void shouldGenerateFunctionGroupsOnDemand() {
+        assertLazyFunctionGroups(FunctionGroupLoading.LAZY);
+    }
+
+    @Test
+    public void shouldGenerateFunctionGroupsInBackground() {
+        assertLazyFunctionGroups(FunctionGroupLoading.BACKGROUND);
+    }
+
+    private static void assertLazyFunctionGroups(FunctionGroupLoading loading) {
+        var module = loadModule();
+        var collector =
+                (ClassLoadingCollector)
+                        Compiler.builder(module)
+                                .withMaxFunctionsPerClass(3)
+                                .withFunctionGroupLoading(loading)
+                                .build()
+                                .compile()
+                                .collector();
+
+        assertFalse(
+                collector.classBytes().keySet().stream()
+                        .anyMatch(name -> name.contains("FuncGroup_")));
+        assertEquals(55L, callFunc10(module, collector));
+        // the groups are shared by the instances
+        assertEquals(55L, callFunc10(module, collector));
+    }
+
+    @Test
+    public void shouldGenerateTheGroupsOfLargeFunctionsWithTheMachine() {
+        var module = loadModule();
+        var small =
+                Compiler.builder(module)
+                        .withMaxFunctionsPerClass(3)
+                        .withFunctionGroupLoading(FunctionGroupLoading.LAZY)
+                        .build();
+        small.compile();
+        assertEquals(0, small.generatedFunctionGroups());
+
+        // all the functions are large for such a limit
+        var large =
+                Compiler.builder(module)
+                        .withMaxFunctionsPerClass(3)
+                        .withMaxMethodInstructions(8)
+                        .withFunctionGroupLoading(FunctionGroupLoading.LAZY)
+                        .build();
+        var collector = (ClassLoadingCollector) large.compile().collector();
+        assertEquals(4, large.generatedFunctionGroups());
+        assertEquals(55L, callFunc10(module, collector));
+    }
+
+    @Test
+    public void shouldMoveFunctionsOfTooLargeGroupToOverflowClasses() {
+        var module = loadModule();
+        var collector =
+                (ClassLoadingCollector)
+                        Compiler.builder(module)
+                                .withClassCollectorFactory(SmallClassCollector::new)
+                                .build()
+                                .compile()
+                                .collector();
+
+        var group = Compiler.DEFAULT_CLASS_NAME + "FuncGroup_0";
+        for (var split : new int[] {2, 4, 5, 7, 8}) {
+            assertTrue(collector.classBytes().containsKey(group + "_" + split));
+        }
+        assertEquals(55L, callFunc10(module, collector));
+    }
+
+    // Rejects the classes holding more than two function bodies, trampolines don't count.
+    private static final class SmallClassCollector extends ClassLoadingCollector {
+        @Override
+        public void put(String className, byte[] bytes) {
+            if (className.contains("FuncGroup_") && functionBodies(bytes) > 2) {
+                throw new ClassTooLargeException(className, 0);
+            }
+            super.put(className, bytes);
+        }
+
+        private static int functionBodies(byte[] bytes) {
+            int[] count = new int[1];
+            new ClassReader(bytes)
+                    .accept(
+                            new ClassVisitor(Opcodes.ASM9) {
+                                @Override
+                                public MethodVisitor visitMethod(
+                                        int access,
+                                        String name,
+                                        String descriptor,
+                                        String signature,
+                                        String[] exceptions) {
+                                    if (!name.startsWith("func_")) {
+                                        return null;
+                                    }
+                                    count[0]++;
+                                    return new MethodVisitor(Opcodes.ASM9) {
+                                        @Override
+                                        public void visitMethodInsn(
+                                                int opcode,
+                                                String owner,
+                                                String method,
+                                                String methodDescriptor,
+                                                boolean isInterface) {
+                                            if (method.equals(name)) {
+                                                count[0]--;
+                                            }
+                                        }
+                                    };
+                                }
+                            },
+                            0);
+            return count[0];
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.dylibso.chicory.compiler.internal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.dylibso.chicory.corpus.CorpusResources;
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.wasm.Parser;
+import com.dylibso.chicory.wasm.WasmModule;
+import com.dylibso.chicory.wasm.types.ExternalType;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+public class FunctionOutlinerTest {
+
+    private static WasmModule loadModule(String fileName) {
+        return Parser.parse(CorpusResources.getResource(fileName));
+    }
+
+    private static ClassLoadingCollector compile(WasmModule module, int maxMethodInstructions) {
+        return (ClassLoadingCollector)
+                Compiler.builder(module)
+                        .withMaxMethodInstructions(maxMethodInstructions)
+                        .build()
+                        .compile()
+                        .collector();
+    }
+
+    private static Instance instance(WasmModule module, ClassLoadingCollector collector) {
+        return Instance.builder(module).withMachineFactory(collector.machineFactory()).build();
+    }
+
+    @Test
+    public void shouldOutlineRegionsOfLargeFunctions() {
+        var module = loadModule("compiled/memory.c.wasm");
+        var collector = compile(module, 100);
+
+        assertTrue(outlinedMethods(collector) > 1);
+        assertEquals(11L, instance(module, collector).export("run").apply()[0]);
+    }
+
+    @Test
+    public void shouldOutlineLoopsAndBranches() {
+        var module = loadModule("compiled/complex.c.wasm");
+        var collector = compile(module, 100);
+
+        assertTrue(outlinedMethods(collector) > 0);
+        assertEquals(-679L, instance(module, collector).export("run").apply()[0]);
+    }
+
+    @Test
+    public void shouldPassLocalsToOutlinedRegions() {
+        var module = loadModule("compiled/count_vowels.rs.wasm");
+        var collector = compile(module, 100);
+        assertTrue(outlinedMethods(collector) > 0);
+
+        var instance = instance(module, collector);
+        var alloc = instance.export("alloc");
+        var dealloc = instance.export("dealloc");
+        var countVowels = instance.export("count_vowels");
+        var message = "Hello, World! Outlined regions are still compiled.";
+        var len = message.getBytes(UTF_8).length;
+        int ptr = (int) alloc.apply(len)[0];
+        instance.memory().writeString(ptr, message);
+        assertEquals(16L, countVowels.apply(ptr, len)[0]);
+        dealloc.apply(ptr, len);
+    }
+
+    @Test
+    public void shouldNotOutlineSmallFunctions() {
+        var module = loadModule("compiled/complex.c.wasm");
+        var largest = largestFunction(module);
+        var collector = compile(module, largest);
+
+        assertEquals(0, outlinedMethods(collector));
+        assertEquals(-679L, instance(module, collector).export("run").apply()[0]);
+        assertTrue(outlinedMethods(compile(module, largest - 1)) > 0);
+    }
+
+    // the number of compiler instructions of the largest function
+    private static int largestFunction(WasmModule module) {
+        var analyzer = new WasmAnalyzer(module);
+        int imports = module.importSection().count(ExternalType.FUNCTION);
+        int largest = 0;
+        for (int i = 0; i < module.functionSection().functionCount(); i++) {
+            largest = Math.max(largest, analyzer.analyze(imports + i).instructions().size());
+        }
+        return largest;
+    }
+
+    // counts the func_N_K methods
+    private static int outlinedMethods(ClassLoadingCollector collector) {
+        int[] count = new int[1];
+        for (var bytes : collector.classBytes().values()) {
+            new ClassReader(bytes)
+                    .accept(
+                            new ClassVisitor(Opcodes.ASM9) {
+                                @Override
+                                public MethodVisitor visitMethod(
+                                        int access,
+                                        String name,
+                                        String descriptor,
+                                        String signature,
+                                        String[] exceptions) {
+                                    if (name.matches("func_\\d+_\\d+")) {
+                                        count[0]++;
+                                    }
+                                    return null;
+                                }
+                            },
+                            0);
+        }
+        return count[0];
+    }
+}
@@ -0,0 +1,55 @@
+package com.dylibso.chicory.compiler.internal;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.dylibso.chicory.compiler.MachineFactoryCompiler;
+import com.dylibso.chicory.corpus.CorpusResources;
+import com.dylibso.chicory.runtime.ChicoryInterruptedException;
+import com.dylibso.chicory.runtime.Epoch;
+import com.dylibso.chicory.runtime.GuestProfiler;
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.wasm.Parser;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+public class GuestProfilerTest {
+
+    private static Instance profiledInstance(String name, GuestProfiler profiler) {
+        return Instance.builder(Parser.parse(CorpusResources.getResource("compiled/" + name)))
+                .withMachineFactory(MachineFactoryCompiler::compile)
+                .withProfiler(profiler)
+                .build();
+    }
+
+    @Test
+    public void shouldSampleTheCompiledFunctions() {
+        var profiler = new GuestProfiler();
+        var instance = profiledInstance("infinite-loop.c.wasm", profiler);
+
+        try (var timer = Epoch.startTimer(Duration.ofMillis(1))) {
+            instance.setEpochDeadline(50);
+            assertThrows(ChicoryInterruptedException.class, () -> instance.export("run").apply());
+        }
+
+        var samples = profiler.samples();
+        assertTrue(samples.get("run.command_export;run") > 0, samples.toString());
+    }
+
+    @Test
+    public void shouldSampleTheRecursiveCalls() {
+        var profiler = new GuestProfiler();
+        var instance = profiledInstance("power.c.wasm", profiler);
+
+        try (var timer = Epoch.startTimer(Duration.ofMillis(1))) {
+            while (profiler.samples().isEmpty()) {
+                instance.export("run").apply(16);
+            }
+        }
+
+        for (var stack : profiler.samples().keySet()) {
+            assertTrue(stack.startsWith("run.command_export"), stack);
+        }
+        assertTrue(profiler.samples().keySet().stream().anyMatch(s -> s.contains(";run;run")));
+    }
+}
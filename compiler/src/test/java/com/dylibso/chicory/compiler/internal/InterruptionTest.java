@@ -9,10 +9,13 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.dylibso.chicory.compiler.MachineFactoryCompiler;
 import com.dylibso.chicory.corpus.CorpusResources;
+import com.dylibso.chicory.runtime.ChicoryInterruptedException;
+import com.dylibso.chicory.runtime.Epoch;
 import com.dylibso.chicory.runtime.Instance;
 import com.dylibso.chicory.wasm.ChicoryException;
 import com.dylibso.chicory.wasm.Parser;
 import com.dylibso.chicory.wasm.WasmModule;
+import java.time.Duration;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.junit.jupiter.api.Test;
 
@@ -40,6 +43,22 @@ public class InterruptionTest {
         assertInterruption(() -> function.apply(100), functionIdx(module, "run"));
     }
 
+    @Test
+    public void shouldInterruptLoopAtEpochDeadline() {
+        var module = Parser.parse(CorpusResources.getResource("compiled/infinite-loop.c.wasm"));
+        var instance =
+                Instance.builder(module)
+                        .withMachineFactory(MachineFactoryCompiler::compile)
+                        .build();
+        var function = instance.export("run");
+
+        try (var timer = Epoch.startTimer(Duration.ofMillis(1))) {
+            instance.setEpochDeadline(10);
+            var e = assertThrows(ChicoryInterruptedException.class, function::apply);
+            assertEquals("Epoch deadline reached", e.getMessage());
+        }
+    }
+
     private static int functionIdx(WasmModule module, String name) {
         for (int i = 0; i < module.exportSection().exportCount(); i++) {
             var export = module.exportSection().getExport(i);
@@ -0,0 +1,76 @@
+package com.dylibso.chicory.compiler.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.dylibso.chicory.compiler.MachineFactoryCompiler;
+import com.dylibso.chicory.corpus.CorpusResources;
+import com.dylibso.chicory.runtime.HostFunction;
+import com.dylibso.chicory.runtime.ImportValues;
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.wasm.Parser;
+import com.dylibso.chicory.wasm.types.FunctionType;
+import com.dylibso.chicory.wasm.types.ValType;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class JfrEventsTest {
+
+    @TempDir Path tempDir;
+
+    @Test
+    public void shouldRecordTheCompilationAndTheHostCalls() throws IOException {
+        // e.g. not readable on the module path
+        var jfr = ModuleLayer.boot().findModule("jdk.jfr");
+        assumeTrue(jfr.isPresent() && getClass().getModule().canRead(jfr.get()));
+
+        var file = tempDir.resolve("recording.jfr");
+        try (var recording = new Recording()) {
+            recording.enable("com.dylibso.chicory.Compile");
+            recording.enable("com.dylibso.chicory.HostCall");
+            recording.start();
+
+            var module =
+                    Parser.parse(CorpusResources.getResource("compiled/host-function.wat.wasm"));
+            var log =
+                    new HostFunction(
+                            "console",
+                            "log",
+                            FunctionType.of(List.of(ValType.I32, ValType.I32), List.of()),
+                            (instance, args) -> null);
+            Instance.builder(module)
+                    .withImportValues(ImportValues.builder().addFunction(log).build())
+                    .withMachineFactory(MachineFactoryCompiler::compile)
+                    .build()
+                    .export("logIt")
+                    .apply();
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        var events =
+                RecordingFile.readAllEvents(file).stream()
+                        .collect(Collectors.groupingBy(e -> e.getEventType().getName()));
+
+        List<RecordedEvent> compiles = events.get("com.dylibso.chicory.Compile");
+        assertEquals(1, compiles.size());
+        var compile = compiles.get(0);
+        assertEquals("com.dylibso.chicory.$gen.CompiledMachine", compile.getString("className"));
+        assertTrue(compile.getInt("classCount") > 1);
+        assertTrue(compile.getLong("size") > 0);
+
+        // the host calls of the compiled code leave the typed path to be recorded
+        List<RecordedEvent> hostCalls = events.get("com.dylibso.chicory.HostCall");
+        assertEquals(10, hostCalls.size());
+        assertEquals("console.log", hostCalls.get(0).getString("functionName"));
+    }
+}
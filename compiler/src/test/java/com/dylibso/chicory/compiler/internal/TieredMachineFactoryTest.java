@@ -0,0 +1,123 @@
+package com.dylibso.chicory.compiler.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.dylibso.chicory.compiler.TieredMachineFactory;
+import com.dylibso.chicory.corpus.CorpusResources;
+import com.dylibso.chicory.runtime.HostFunction;
+import com.dylibso.chicory.runtime.ImportValues;
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.wasm.Parser;
+import com.dylibso.chicory.wasm.types.FunctionType;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class TieredMachineFactoryTest {
+
+    @Test
+    public void shouldCompileHotFunctions() {
+        var module = Parser.parse(CorpusResources.getResource("compiled/fac.wat.wasm"));
+        var factory =
+                TieredMachineFactory.builder(module)
+                        .withThreshold(30)
+                        .withExecutor(Runnable::run)
+                        .withCompilationDelay(Duration.ZERO)
+                        .build();
+        var instance = Instance.builder(module).withMachineFactory(factory).build();
+        var fac = instance.export("fac-ssa");
+
+        // each call runs $1 15 times, $0 5 times and 4 iterations of the loop of $2
+        assertEquals(120L, fac.apply(5)[0]);
+        assertEquals(0, factory.compiledFunctions());
+        assertEquals(120L, fac.apply(5)[0]);
+        assertEquals(1, factory.compiledFunctions());
+
+        // the interpreted functions are still profiled once running next to compiled ones
+        for (int i = 0; i < 6; i++) {
+            assertEquals(120L, fac.apply(5)[0]);
+        }
+        assertEquals(3, factory.compiledFunctions());
+        assertEquals(2432902008176640000L, fac.apply(20)[0]);
+    }
+
+    @Test
+    public void shouldSpaceOutTheCompilationRounds() {
+        var module = Parser.parse(CorpusResources.getResource("compiled/fac.wat.wasm"));
+        var factory =
+                TieredMachineFactory.builder(module)
+                        .withThreshold(30)
+                        .withExecutor(Runnable::run)
+                        .withCompilationDelay(Duration.ofHours(1))
+                        .build();
+        var instance = Instance.builder(module).withMachineFactory(factory).build();
+        var fac = instance.export("fac-ssa");
+
+        for (int i = 0; i < 8; i++) {
+            assertEquals(120L, fac.apply(5)[0]);
+        }
+        // the first round starts right away, the next one waits for the delay
+        assertEquals(1, factory.compiledFunctions());
+    }
+
+    @Test
+    public void shouldShareCompiledFunctionsBetweenInstances() {
+        var module = Parser.parse(CorpusResources.getResource("compiled/iterfact.wat.wasm"));
+        var factory =
+                TieredMachineFactory.builder(module)
+                        .withThreshold(10)
+                        .withExecutor(Runnable::run)
+                        .withCompilationDelay(Duration.ZERO)
+                        .build();
+        var first = Instance.builder(module).withMachineFactory(factory).build();
+        assertEquals(3628800L, first.export("iterFact").apply(10)[0]);
+        assertEquals(1, factory.compiledFunctions());
+
+        var second = Instance.builder(module).withMachineFactory(factory).build();
+        assertEquals(120L, second.export("iterFact").apply(5)[0]);
+    }
+
+    @Test
+    public void shouldSwitchToTheCompiledTierDuringALongCall() {
+        var module = Parser.parse(CorpusResources.getResource("compiled/tiered-loop.wat.wasm"));
+        var factory =
+                TieredMachineFactory.builder(module)
+                        .withThreshold(10)
+                        .withExecutor(Runnable::run)
+                        .withCompilationDelay(Duration.ZERO)
+                        .build();
+        var compiledCalls = new AtomicInteger();
+        var probe =
+                new HostFunction(
+                        "env",
+                        "probe",
+                        FunctionType.empty(),
+                        (instance, args) -> {
+                            var compiled =
+                                    StackWalker.getInstance()
+                                            .walk(
+                                                    frames ->
+                                                            frames.anyMatch(
+                                                                    f ->
+                                                                            f.getMethodName()
+                                                                                    .equals(
+                                                                                            "func_1")));
+                            if (compiled) {
+                                compiledCalls.incrementAndGet();
+                            }
+                            return null;
+                        });
+        var instance =
+                Instance.builder(module)
+                        .withImportValues(ImportValues.builder().addFunction(probe).build())
+                        .withMachineFactory(factory)
+                        .build();
+
+        // the loop of run stays in the interpreter, its calls reach the compiled callee
+        assertEquals(100L, instance.export("run").apply(100)[0]);
+        assertTrue(compiledCalls.get() >= 80, "compiled calls: " + compiledCalls.get());
+        // run is hot as well once it returned
+        assertEquals(2, factory.compiledFunctions());
+    }
+}
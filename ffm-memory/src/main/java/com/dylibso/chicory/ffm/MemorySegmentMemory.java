@@ -0,0 +1,868 @@
+package com.dylibso.chicory.ffm;
+
+import static com.dylibso.chicory.runtime.ConstantEvaluators.computeConstantValue;
+import static java.lang.Math.min;
+
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.runtime.Memory;
+import com.dylibso.chicory.runtime.WasmRuntimeException;
+import com.dylibso.chicory.runtime.internal.JfrEvents;
+import com.dylibso.chicory.runtime.internal.WaitQueues;
+import com.dylibso.chicory.wasm.ChicoryException;
+import com.dylibso.chicory.wasm.UninstantiableException;
+import com.dylibso.chicory.wasm.types.ActiveDataSegment;
+import com.dylibso.chicory.wasm.types.DataSegment;
+import com.dylibso.chicory.wasm.types.MemoryLimits;
+import com.dylibso.chicory.wasm.types.PassiveDataSegment;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Locale;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Represents the linear memory in the Wasm program, stored off-heap in a single
+ * native {@link MemorySegment}.
+ *
+ * The address space is contiguous: an access is one bounds-checked access to the segment,
+ * without the page lookup and the page-crossing slow paths of the page-based memories,
+ * and large memories don't add to the heap scanned by the garbage collector.
+ *
+ * On Linux and macOS, the memory reserves the address space of its maximum size with an
+ * anonymous {@code mmap}: the OS commits the pages, zeroed, when they are first touched, so
+ * growing only extends the accessible view, without copying, and the threads sharing the memory
+ * keep accessing the same addresses. This uses the native linker, run with
+ * {@code --enable-native-access=com.dylibso.chicory.ffm} to allow it without a warning.
+ *
+ * Elsewhere, the segment is allocated and zeroed by an {@link Arena}: a memory allocates a
+ * larger segment and copies its content when a grow exceeds the allocated size, and a shared
+ * memory allocates its maximum size up front, which is rejected beyond
+ * {@value #MAX_ALLOCATED_SHARED_PAGES} pages.
+ *
+ * Use it with {@code Instance.builder(module).withMemoryFactory(MemorySegmentMemory::new)}.
+ */
+public final class MemorySegmentMemory implements Memory {
+    private static final ValueLayout.OfShort SHORT =
+            ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfInt INT =
+            ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfLong LONG =
+            ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfFloat FLOAT =
+            ValueLayout.JAVA_FLOAT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfDouble DOUBLE =
+            ValueLayout.JAVA_DOUBLE_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    // the atomic instructions are aligned, which the memory segment var handles require
+    private static final VarHandle BYTE_HANDLE = ValueLayout.JAVA_BYTE.varHandle();
+    private static final VarHandle SHORT_HANDLE =
+            ValueLayout.JAVA_SHORT.withOrder(ByteOrder.LITTLE_ENDIAN).varHandle();
+    private static final VarHandle INT_HANDLE =
+            ValueLayout.JAVA_INT.withOrder(ByteOrder.LITTLE_ENDIAN).varHandle();
+    private static final VarHandle LONG_HANDLE =
+            ValueLayout.JAVA_LONG.withOrder(ByteOrder.LITTLE_ENDIAN).varHandle();
+
+    /**
+     * The maximum number of pages of a shared memory where the address space can't be reserved,
+     * as it's allocated up front: 1 GiB.
+     */
+    public static final int MAX_ALLOCATED_SHARED_PAGES = 16384;
+
+    private static final int PROT_READ_WRITE = 0x1 | 0x2;
+    private static final int MAP_PRIVATE = 0x2;
+
+    // mmap and munmap, null if the address space can't be reserved on this platform
+    private static final MethodHandle MMAP;
+    private static final MethodHandle MUNMAP;
+    private static final int MAP_FLAGS;
+
+    static {
+        var os = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+        int flags;
+        if (os.startsWith("linux")) {
+            // MAP_ANONYMOUS | MAP_NORESERVE, not to reserve swap for the whole address space
+            flags = MAP_PRIVATE | 0x20 | 0x4000;
+        } else if (os.startsWith("mac")) {
+            // MAP_ANON
+            flags = MAP_PRIVATE | 0x1000;
+        } else {
+            flags = 0;
+        }
+        MethodHandle mmap = null;
+        MethodHandle munmap = null;
+        if (flags != 0 && ValueLayout.ADDRESS.byteSize() == Long.BYTES) {
+            try {
+                var linker = Linker.nativeLinker();
+                var lookup = linker.defaultLookup();
+                mmap =
+                        linker.downcallHandle(
+                                lookup.find("mmap").orElseThrow(),
+                                FunctionDescriptor.of(
+                                        ValueLayout.ADDRESS,
+                                        ValueLayout.ADDRESS,
+                                        ValueLayout.JAVA_LONG,
+                                        ValueLayout.JAVA_INT,
+                                        ValueLayout.JAVA_INT,
+                                        ValueLayout.JAVA_INT,
+                                        ValueLayout.JAVA_LONG));
+                munmap =
+                        linker.downcallHandle(
+                                lookup.find("munmap").orElseThrow(),
+                                FunctionDescriptor.of(
+                                        ValueLayout.JAVA_INT,
+                                        ValueLayout.ADDRESS,
+                                        ValueLayout.JAVA_LONG));
+            } catch (RuntimeException e) {
+                // e.g. the native access is denied to the module
+                mmap = null;
+                munmap = null;
+            }
+        }
+        MMAP = mmap;
+        MUNMAP = (mmap == null) ? null : munmap;
+        MAP_FLAGS = flags;
+    }
+
+    private final MemoryLimits limits;
+    private DataSegment[] dataSegments;
+
+    // The allocated segment, it can be larger than the current size of the memory
+    private MemorySegment storage;
+
+    // View of the first nPages pages of the storage, all the accesses go through it
+    // so that the bounds checks of the segment are the bounds checks of the memory
+    private volatile MemorySegment segment;
+
+    // Number of currently allocated pages
+    private volatile int nPages;
+
+    // Lock for grow operation (only used when memory is shared)
+    private final Object growLock = new Object();
+
+    public MemorySegmentMemory(MemoryLimits limits) {
+        this.limits = limits;
+        this.nPages = limits.initialPages();
+        long bytes = (long) PAGE_SIZE * nPages;
+        long maximumBytes = (long) PAGE_SIZE * maximumPages();
+        var reserved = reserve(maximumBytes);
+        if (reserved != null) {
+            this.storage = reserved;
+        } else if (limits.shared()) {
+            if (maximumPages() > MAX_ALLOCATED_SHARED_PAGES) {
+                throw new ChicoryException(
+                        "Shared memory of "
+                                + maximumPages()
+                                + " maximum pages can't be allocated up front, the limit is "
+                                + MAX_ALLOCATED_SHARED_PAGES
+                                + " pages where the address space can't be reserved");
+            }
+            this.storage = allocate(maximumBytes);
+        } else {
+            this.storage = allocate(bytes);
+        }
+        this.segment = storage.asSlice(0, bytes);
+
+        if (limits.shared()) {
+            waitQueues = new WaitQueues();
+        } else {
+            waitQueues = null;
+        }
+    }
+
+    // Maps the address space without committing it, or returns null if not supported
+    private static MemorySegment reserve(long bytes) {
+        if (MMAP == null || bytes == 0) {
+            return null;
+        }
+        MemorySegment address;
+        try {
+            address =
+                    (MemorySegment)
+                            MMAP.invokeExact(
+                                    MemorySegment.NULL, bytes, PROT_READ_WRITE, MAP_FLAGS, -1, 0L);
+        } catch (Throwable e) {
+            return null;
+        }
+        if (address.address() == -1L) {
+            // MAP_FAILED, e.g. the address space is exhausted
+            return null;
+        }
+        // unmapped once the segment isn't reachable anymore
+        return address.reinterpret(bytes, Arena.ofAuto(), mapped -> unmap(mapped, bytes));
+    }
+
+    private static void unmap(MemorySegment address, long bytes) {
+        try {
+            int result = (int) MUNMAP.invokeExact(address, bytes);
+            assert result == 0;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to unmap the memory", e);
+        }
+    }
+
+    private static MemorySegment allocate(long bytes) {
+        // one arena per allocation, so that a replaced storage is freed
+        // as soon as it isn't reachable anymore
+        return Arena.ofAuto().allocate(bytes, Long.BYTES);
+    }
+
+    // The threads waiting on the addresses, null if not shared
+    private final WaitQueues waitQueues;
+
+    @Override
+    @SuppressWarnings("removal")
+    public Object lock(int address) {
+        throw new UnsupportedOperationException();
+    }
+
+    // Wait IF condition is true
+    private int waitOn(int address, BooleanSupplier condition, long timeout) {
+        if (!shared()) {
+            throw new ChicoryException("Attempt to wait on a non-shared memory, not supported.");
+        }
+        return waitQueues.await(address, condition, timeout);
+    }
+
+    @Override
+    @SuppressWarnings("removal")
+    public int waitOn(int address, int expected, long timeout) {
+        return waitOn(address, () -> atomicReadInt(address) == expected, timeout);
+    }
+
+    @Override
+    @SuppressWarnings("removal")
+    public int waitOn(int address, long expected, long timeout) {
+        return waitOn(address, () -> atomicReadLong(address) == expected, timeout);
+    }
+
+    // Notify waiters at this address
+    @Override
+    @SuppressWarnings("removal")
+    public int notify(int address, int maxThreads) {
+        if (!shared()) {
+            return 0;
+        }
+        return waitQueues.notify(address, maxThreads);
+    }
+
+    /**
+     * Gets the size of the memory in number of pages
+     */
+    @Override
+    public int pages() {
+        return nPages;
+    }
+
+    @Override
+    public int grow(int size) {
+        var event = JfrEvents.beginMemoryGrow();
+        int prevPages;
+        if (!shared()) {
+            prevPages = growImpl(size);
+        } else {
+            synchronized (growLock) {
+                prevPages = growImpl(size);
+            }
+        }
+        JfrEvents.endMemoryGrow(event, prevPages, size);
+        return prevPages;
+    }
+
+    private int growImpl(int size) {
+        int prevPages = nPages;
+        int numPages = prevPages + size;
+
+        if (numPages > maximumPages() || numPages < prevPages) {
+            return -1;
+        }
+
+        long bytes = (long) PAGE_SIZE * numPages;
+        if (bytes > storage.byteSize()) {
+            // only non-reserved and non-shared memories get here, the others are at full size
+            long capacity =
+                    min(Math.max(bytes, 2 * storage.byteSize()), (long) PAGE_SIZE * maximumPages());
+            storage = allocate(capacity).copyFrom(storage);
+        }
+
+        // Publish the new view before the page count (volatile writes)
+        segment = storage.asSlice(0, bytes);
+        nPages = numPages;
+        return prevPages;
+    }
+
+    @Override
+    public int initialPages() {
+        return this.limits.initialPages();
+    }
+
+    @Override
+    public int maximumPages() {
+        return min(this.limits.maximumPages(), RUNTIME_MAX_PAGES);
+    }
+
+    @Override
+    public boolean shared() {
+        return this.limits.shared();
+    }
+
+    @Override
+    public void initialize(Instance instance, DataSegment[] dataSegments) {
+        initialize(instance, dataSegments, 0);
+    }
+
+    @Override
+    public void initialize(Instance instance, DataSegment[] dataSegments, int memoryIndex) {
+        this.dataSegments = dataSegments;
+        if (dataSegments == null) {
+            return;
+        }
+
+        for (var s : dataSegments) {
+            if (s instanceof ActiveDataSegment) {
+                var segment = (ActiveDataSegment) s;
+                if (segment.index() != memoryIndex) {
+                    continue;
+                }
+                var offsetExpr = segment.offsetInstructions();
+                var data = segment.data();
+                var offset = (int) computeConstantValue(instance, offsetExpr)[0];
+                checkBounds(offset, data.length, sizeInBytes(), UninstantiableException::new);
+                write(offset, data, 0, data.length);
+            } else if (s instanceof PassiveDataSegment) {
+                // Passive segment should be skipped
+            } else {
+                throw new ChicoryException("Data segment should be active or passive: " + s);
+            }
+        }
+    }
+
+    private static void checkBounds(
+            int addr, int size, int limit, Function<String, ChicoryException> exceptionFactory) {
+        if (addr < 0 || size < 0 || addr > limit || (size > 0 && ((addr + size) > limit))) {
+            var errorMsg =
+                    "out of bounds memory access: attempted to access address: "
+                            + addr
+                            + " but limit is: "
+                            + limit
+                            + " and size: "
+                            + size;
+            throw exceptionFactory.apply(errorMsg);
+        }
+    }
+
+    private RuntimeException outOfBoundsException(RuntimeException e, int addr, int size) {
+        if (e instanceof IndexOutOfBoundsException || e instanceof IllegalArgumentException) {
+            var limit = sizeInBytes();
+            var errorMsg =
+                    "out of bounds memory access: attempted to access address: "
+                            + addr
+                            + " but limit is: "
+                            + limit
+                            + " and size: "
+                            + size;
+            return new WasmRuntimeException(errorMsg);
+        } else {
+            return e;
+        }
+    }
+
+    @Override
+    public void initPassiveSegment(int segmentId, int dest, int offset, int size) {
+        var segment = dataSegments[segmentId];
+        write(dest, segment.data(), offset, size);
+    }
+
+    private int sizeInBytes() {
+        return PAGE_SIZE * nPages;
+    }
+
+    @Override
+    public void write(int addr, byte[] data, int offset, int size) {
+        checkBounds(offset, size, data.length, WasmRuntimeException::new);
+        checkBounds(addr, size, sizeInBytes(), WasmRuntimeException::new);
+        MemorySegment.copy(data, offset, segment, ValueLayout.JAVA_BYTE, addr, size);
+    }
+
+    @Override
+    public byte read(int addr) {
+        try {
+            return segment.get(ValueLayout.JAVA_BYTE, addr);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 1);
+        }
+    }
+
+    @Override
+    public byte[] readBytes(int addr, int len) {
+        checkBounds(addr, len, sizeInBytes(), WasmRuntimeException::new);
+        byte[] result = new byte[len];
+        MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, addr, result, 0, len);
+        return result;
+    }
+
+    @Override
+    public ByteBuffer[] buffers(int addr, int len) {
+        checkBounds(addr, len, sizeInBytes(), WasmRuntimeException::new);
+        return new ByteBuffer[] {
+            segment.asSlice(addr, len).asByteBuffer().order(ByteOrder.LITTLE_ENDIAN)
+        };
+    }
+
+    @Override
+    public ByteBuffer[] readOnlyBuffers(int addr, int len) {
+        checkBounds(addr, len, sizeInBytes(), WasmRuntimeException::new);
+        return new ByteBuffer[] {
+            segment.asSlice(addr, len).asReadOnly().asByteBuffer().order(ByteOrder.LITTLE_ENDIAN)
+        };
+    }
+
+    @Override
+    public int readFrom(ReadableByteChannel channel, int addr, int len) throws IOException {
+        return Memory.readFully(channel, buffers(addr, len));
+    }
+
+    @Override
+    public void writeI32(int addr, int data) {
+        try {
+            segment.set(INT, addr, data);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 4);
+        }
+    }
+
+    @Override
+    public int readInt(int addr) {
+        try {
+            return segment.get(INT, addr);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 4);
+        }
+    }
+
+    @Override
+    public void writeLong(int addr, long data) {
+        try {
+            segment.set(LONG, addr, data);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 8);
+        }
+    }
+
+    @Override
+    public long readLong(int addr) {
+        try {
+            return segment.get(LONG, addr);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 8);
+        }
+    }
+
+    @Override
+    public void writeShort(int addr, short data) {
+        try {
+            segment.set(SHORT, addr, data);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 2);
+        }
+    }
+
+    @Override
+    public short readShort(int addr) {
+        try {
+            return segment.get(SHORT, addr);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 2);
+        }
+    }
+
+    @Override
+    public long readU16(int addr) {
+        return readShort(addr) & 0xFFFFL;
+    }
+
+    @Override
+    public void writeByte(int addr, byte data) {
+        try {
+            segment.set(ValueLayout.JAVA_BYTE, addr, data);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 1);
+        }
+    }
+
+    @Override
+    public void writeF32(int addr, float data) {
+        try {
+            segment.set(FLOAT, addr, data);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 4);
+        }
+    }
+
+    @Override
+    public long readF32(int addr) {
+        return readInt(addr);
+    }
+
+    @Override
+    public float readFloat(int addr) {
+        try {
+            return segment.get(FLOAT, addr);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 4);
+        }
+    }
+
+    @Override
+    public void writeF64(int addr, double data) {
+        try {
+            segment.set(DOUBLE, addr, data);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 8);
+        }
+    }
+
+    @Override
+    public double readDouble(int addr) {
+        try {
+            return segment.get(DOUBLE, addr);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 8);
+        }
+    }
+
+    @Override
+    public long readF64(int addr) {
+        return readLong(addr);
+    }
+
+    @Override
+    public void zero() {
+        segment.fill((byte) 0);
+    }
+
+    @Override
+    public void fill(byte value, int fromIndex, int toIndex) {
+        int size = toIndex - fromIndex;
+        checkBounds(fromIndex, size, sizeInBytes(), WasmRuntimeException::new);
+        segment.asSlice(fromIndex, size).fill(value);
+    }
+
+    @Override
+    public void copy(int dest, int src, int size) {
+        int limit = sizeInBytes();
+        checkBounds(dest, size, limit, WasmRuntimeException::new);
+        checkBounds(src, size, limit, WasmRuntimeException::new);
+        // overlapping ranges are copied as if through an intermediate segment
+        var view = segment;
+        MemorySegment.copy(view, src, view, dest, size);
+    }
+
+    @Override
+    public void drop(int segment) {
+        dataSegments[segment] = PassiveDataSegment.EMPTY;
+    }
+
+    // ===========================================
+    // Atomic operations
+    // ===========================================
+
+    // Memory segments support atomic updates of ints and longs only, the byte and short
+    // read-modify-write operations run a compare and set loop on the aligned int around them.
+    private int updateNarrow(int addr, int size, int operand, IntBinaryOperator update) {
+        try {
+            var view = segment;
+            long aligned = addr & ~3L;
+            int shift = (addr & 3) * 8;
+            int mask = (size == 1 ? 0xFF : 0xFFFF) << shift;
+            while (true) {
+                int oldInt = (int) INT_HANDLE.getVolatile(view, aligned);
+                int newValue = update.applyAsInt(oldInt >>> shift, operand);
+                int newInt = (oldInt & ~mask) | ((newValue << shift) & mask);
+                if (INT_HANDLE.compareAndSet(view, aligned, oldInt, newInt)) {
+                    return oldInt >>> shift;
+                }
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, size);
+        }
+    }
+
+    private int cmpxchgNarrow(int addr, int size, int expected, int replacement) {
+        try {
+            var view = segment;
+            long aligned = addr & ~3L;
+            int shift = (addr & 3) * 8;
+            int valueMask = size == 1 ? 0xFF : 0xFFFF;
+            int mask = valueMask << shift;
+            while (true) {
+                int oldInt = (int) INT_HANDLE.getVolatile(view, aligned);
+                int oldValue = (oldInt >>> shift) & valueMask;
+                if (oldValue != (expected & valueMask)) {
+                    return oldValue;
+                }
+                int newInt = (oldInt & ~mask) | ((replacement << shift) & mask);
+                if (INT_HANDLE.compareAndSet(view, aligned, oldInt, newInt)) {
+                    return oldValue;
+                }
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, size);
+        }
+    }
+
+    @Override
+    public void atomicFence() {
+        VarHandle.fullFence();
+    }
+
+    @Override
+    public byte atomicReadByte(int addr) {
+        try {
+            return (byte) BYTE_HANDLE.getVolatile(segment, (long) addr);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 1);
+        }
+    }
+
+    @Override
+    public short atomicReadShort(int addr) {
+        try {
+            return (short) SHORT_HANDLE.getVolatile(segment, (long) addr);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 2);
+        }
+    }
+
+    @Override
+    public int atomicReadInt(int addr) {
+        try {
+            return (int) INT_HANDLE.getVolatile(segment, (long) addr);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 4);
+        }
+    }
+
+    @Override
+    public long atomicReadLong(int addr) {
+        try {
+            return (long) LONG_HANDLE.getVolatile(segment, (long) addr);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 8);
+        }
+    }
+
+    @Override
+    public void atomicWriteByte(int addr, byte value) {
+        try {
+            BYTE_HANDLE.setVolatile(segment, (long) addr, value);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 1);
+        }
+    }
+
+    @Override
+    public void atomicWriteShort(int addr, short value) {
+        try {
+            SHORT_HANDLE.setVolatile(segment, (long) addr, value);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 2);
+        }
+    }
+
+    @Override
+    public void atomicWriteInt(int addr, int value) {
+        try {
+            INT_HANDLE.setVolatile(segment, (long) addr, value);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 4);
+        }
+    }
+
+    @Override
+    public void atomicWriteLong(int addr, long value) {
+        try {
+            LONG_HANDLE.setVolatile(segment, (long) addr, value);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 8);
+        }
+    }
+
+    @Override
+    public byte atomicAddByte(int addr, byte delta) {
+        return (byte) updateNarrow(addr, 1, delta, (a, b) -> a + b);
+    }
+
+    @Override
+    public short atomicAddShort(int addr, short delta) {
+        return (short) updateNarrow(addr, 2, delta, (a, b) -> a + b);
+    }
+
+    @Override
+    public int atomicAddInt(int addr, int delta) {
+        try {
+            return (int) INT_HANDLE.getAndAdd(segment, (long) addr, delta);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 4);
+        }
+    }
+
+    @Override
+    public long atomicAddLong(int addr, long delta) {
+        try {
+            return (long) LONG_HANDLE.getAndAdd(segment, (long) addr, delta);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 8);
+        }
+    }
+
+    @Override
+    public byte atomicAndByte(int addr, byte mask) {
+        return (byte) updateNarrow(addr, 1, mask, (a, b) -> a & b);
+    }
+
+    @Override
+    public short atomicAndShort(int addr, short mask) {
+        return (short) updateNarrow(addr, 2, mask, (a, b) -> a & b);
+    }
+
+    @Override
+    public int atomicAndInt(int addr, int mask) {
+        try {
+            return (int) INT_HANDLE.getAndBitwiseAnd(segment, (long) addr, mask);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 4);
+        }
+    }
+
+    @Override
+    public long atomicAndLong(int addr, long mask) {
+        try {
+            return (long) LONG_HANDLE.getAndBitwiseAnd(segment, (long) addr, mask);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 8);
+        }
+    }
+
+    @Override
+    public byte atomicOrByte(int addr, byte mask) {
+        return (byte) updateNarrow(addr, 1, mask, (a, b) -> a | b);
+    }
+
+    @Override
+    public short atomicOrShort(int addr, short mask) {
+        return (short) updateNarrow(addr, 2, mask, (a, b) -> a | b);
+    }
+
+    @Override
+    public int atomicOrInt(int addr, int mask) {
+        try {
+            return (int) INT_HANDLE.getAndBitwiseOr(segment, (long) addr, mask);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 4);
+        }
+    }
+
+    @Override
+    public long atomicOrLong(int addr, long mask) {
+        try {
+            return (long) LONG_HANDLE.getAndBitwiseOr(segment, (long) addr, mask);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 8);
+        }
+    }
+
+    @Override
+    public byte atomicXorByte(int addr, byte mask) {
+        return (byte) updateNarrow(addr, 1, mask, (a, b) -> a ^ b);
+    }
+
+    @Override
+    public short atomicXorShort(int addr, short mask) {
+        return (short) updateNarrow(addr, 2, mask, (a, b) -> a ^ b);
+    }
+
+    @Override
+    public int atomicXorInt(int addr, int mask) {
+        try {
+            return (int) INT_HANDLE.getAndBitwiseXor(segment, (long) addr, mask);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 4);
+        }
+    }
+
+    @Override
+    public long atomicXorLong(int addr, long mask) {
+        try {
+            return (long) LONG_HANDLE.getAndBitwiseXor(segment, (long) addr, mask);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 8);
+        }
+    }
+
+    @Override
+    public byte atomicXchgByte(int addr, byte value) {
+        return (byte) updateNarrow(addr, 1, value, (a, b) -> b);
+    }
+
+    @Override
+    public short atomicXchgShort(int addr, short value) {
+        return (short) updateNarrow(addr, 2, value, (a, b) -> b);
+    }
+
+    @Override
+    public int atomicXchgInt(int addr, int value) {
+        try {
+            return (int) INT_HANDLE.getAndSet(segment, (long) addr, value);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 4);
+        }
+    }
+
+    @Override
+    public long atomicXchgLong(int addr, long value) {
+        try {
+            return (long) LONG_HANDLE.getAndSet(segment, (long) addr, value);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 8);
+        }
+    }
+
+    @Override
+    public byte atomicCmpxchgByte(int addr, byte expected, byte replacement) {
+        return (byte) cmpxchgNarrow(addr, 1, expected, replacement);
+    }
+
+    @Override
+    public short atomicCmpxchgShort(int addr, short expected, short replacement) {
+        return (short) cmpxchgNarrow(addr, 2, expected, replacement);
+    }
+
+    @Override
+    public int atomicCmpxchgInt(int addr, int expected, int replacement) {
+        try {
+            return (int) INT_HANDLE.compareAndExchange(segment, (long) addr, expected, replacement);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 4);
+        }
+    }
+
+    @Override
+    public long atomicCmpxchgLong(int addr, long expected, long replacement) {
+        try {
+            return (long)
+                    LONG_HANDLE.compareAndExchange(segment, (long) addr, expected, replacement);
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 8);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+module com.dylibso.chicory.ffm {
+    requires transitive com.dylibso.chicory.runtime;
+    requires com.dylibso.chicory.wasm;
+
+    exports com.dylibso.chicory.ffm;
+}
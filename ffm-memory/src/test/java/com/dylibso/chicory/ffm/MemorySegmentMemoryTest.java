@@ -0,0 +1,96 @@
+package com.dylibso.chicory.ffm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.dylibso.chicory.corpus.CorpusResources;
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.runtime.WasmRuntimeException;
+import com.dylibso.chicory.wasm.Parser;
+import com.dylibso.chicory.wasm.types.MemoryLimits;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+
+public class MemorySegmentMemoryTest {
+
+    @Test
+    public void shouldRunWithMemoryFactory() {
+        var instance =
+                Instance.builder(
+                                Parser.parse(
+                                        CorpusResources.getResource("compiled/memory.wat.wasm")))
+                        .withMemoryFactory(MemorySegmentMemory::new)
+                        .build();
+
+        assertEquals(42L, instance.export("run32").apply(42)[0]);
+        assertEquals(42, instance.memory().readInt(0));
+        assertEquals(Long.MIN_VALUE, instance.export("run64").apply(Long.MIN_VALUE)[0]);
+    }
+
+    @Test
+    public void shouldKeepContentWhenGrowing() {
+        var memory = new MemorySegmentMemory(new MemoryLimits(1, 10));
+        memory.writeLong(65536 - 8, 0x0102030405060708L);
+
+        assertEquals(1, memory.grow(3));
+        assertEquals(4, memory.pages());
+        assertEquals(0x0102030405060708L, memory.readLong(65536 - 8));
+        assertEquals(0, memory.readLong(4 * 65536 - 8));
+
+        assertEquals(-1, memory.grow(7));
+        assertThrows(WasmRuntimeException.class, () -> memory.readInt(4 * 65536 - 2));
+    }
+
+    @Test
+    public void shouldCopyOverlappingRanges() {
+        var memory = new MemorySegmentMemory(new MemoryLimits(1, 1));
+        byte[] data = {1, 2, 3, 4, 5, 6, 7, 8};
+        memory.write(100, data);
+
+        memory.copy(104, 100, 8);
+
+        assertArrayEquals(data, memory.readBytes(104, 8));
+    }
+
+    @Test
+    public void shouldUpdateNarrowValuesAtomically() {
+        var memory = new MemorySegmentMemory(new MemoryLimits(1, 1, true));
+        memory.writeI32(8, 0x11223344);
+
+        assertEquals((byte) 0x22, memory.atomicAddByte(10, (byte) 1));
+        assertEquals((short) 0x1123, memory.atomicXchgShort(10, (short) 0x7FFF));
+        assertEquals((byte) 0x44, memory.atomicCmpxchgByte(8, (byte) 0x44, (byte) 0xFF));
+        assertEquals((byte) 0x33, memory.atomicCmpxchgByte(9, (byte) 0x00, (byte) 0x01));
+
+        assertEquals(0x7FFF33FF, memory.atomicReadInt(8));
+    }
+
+    private static long residentKiB() throws IOException {
+        for (var line : Files.readAllLines(Path.of("/proc/self/status"))) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("[^0-9]", ""));
+            }
+        }
+        throw new IllegalStateException("VmRSS not found");
+    }
+
+    @Test
+    public void shouldOnlyCommitTheTouchedPagesOfSharedMemories() throws IOException {
+        assumeTrue(Files.exists(Path.of("/proc/self/status")));
+        long before = residentKiB();
+
+        // the address space of the maximum of the runtime, 2 GiB
+        var memory = new MemorySegmentMemory(new MemoryLimits(1, 65536, true));
+        assertEquals(1, memory.grow(16383));
+        memory.atomicWriteInt(16384 * 65536 - 4, 42);
+
+        assertEquals(42, memory.atomicReadInt(16384 * 65536 - 4));
+        assertEquals(0, memory.readInt(8192 * 65536));
+        assertTrue(residentKiB() - before < 64 * 1024, "committed the untouched pages");
+    }
+}
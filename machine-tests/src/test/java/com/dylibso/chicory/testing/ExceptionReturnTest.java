@@ -3,6 +3,7 @@ package com.dylibso.chicory.testing;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import com.dylibso.chicory.corpus.CorpusResources;
+import com.dylibso.chicory.runtime.DecodedInterpreterMachine;
 import com.dylibso.chicory.runtime.ImportValues;
 import com.dylibso.chicory.runtime.Instance;
 import com.dylibso.chicory.runtime.InterpreterMachine;
@@ -24,7 +25,10 @@ public class ExceptionReturnTest {
         return Stream.of(
                 Arguments.of(
                         (Function<Instance.Builder, Instance.Builder>)
-                                (b) -> b.withMachineFactory(InterpreterMachine::new)));
+                                (b) -> b.withMachineFactory(InterpreterMachine::new)),
+                Arguments.of(
+                        (Function<Instance.Builder, Instance.Builder>)
+                                (b) -> b.withMachineFactory(DecodedInterpreterMachine::new)));
     }
 
     @ParameterizedTest
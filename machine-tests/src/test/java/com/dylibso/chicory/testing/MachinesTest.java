@@ -9,11 +9,13 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.dylibso.chicory.compiler.MachineFactoryCompiler;
 import com.dylibso.chicory.corpus.CorpusResources;
+import com.dylibso.chicory.runtime.DecodedInterpreterMachine;
 import com.dylibso.chicory.runtime.HostFunction;
 import com.dylibso.chicory.runtime.ImportTable;
 import com.dylibso.chicory.runtime.ImportValues;
 import com.dylibso.chicory.runtime.Instance;
 import com.dylibso.chicory.runtime.InterpreterMachine;
+import com.dylibso.chicory.runtime.Machine;
 import com.dylibso.chicory.runtime.Store;
 import com.dylibso.chicory.runtime.TableInstance;
 import com.dylibso.chicory.runtime.TrapException;
@@ -35,11 +37,13 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.lang.invoke.MethodType;
 import java.nio.file.FileSystem;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import org.junit.jupiter.api.Test;
 
 public final class MachinesTest {
@@ -227,6 +231,41 @@ public final class MachinesTest {
         }
     }
 
+    @Test
+    public void shouldCallExportHandles() throws Throwable {
+        List<Function<Instance, Machine>> factories =
+                List.of(
+                        InterpreterMachine::new,
+                        DecodedInterpreterMachine::new,
+                        MachineFactoryCompiler::compile);
+        for (var factory : factories) {
+            var iterFact =
+                    Instance.builder(loadModule("compiled/iterfact.wat.wasm"))
+                            .withMachineFactory(factory)
+                            .build()
+                            .exports()
+                            .handle("iterFact");
+            assertEquals(MethodType.methodType(int.class, int.class), iterFact.type());
+            assertEquals(120, (int) iterFact.invokeExact(5));
+
+            var iterFact64 =
+                    Instance.builder(loadModule("compiled/iterfact-64.wat.wasm"))
+                            .withMachineFactory(factory)
+                            .build()
+                            .exports()
+                            .handle("iterFact");
+            assertEquals(3628800L, (long) iterFact64.invokeExact(10L));
+
+            var add =
+                    Instance.builder(loadModule("compiled/add.wat.wasm"))
+                            .withMachineFactory(factory)
+                            .build()
+                            .exports()
+                            .handle("add");
+            assertEquals(-1, (int) add.invokeExact(Integer.MAX_VALUE, Integer.MIN_VALUE));
+        }
+    }
+
     private Instance buildKotlinWasm(
             ByteArrayOutputStream stdout, Instance.Builder instanceBuilder) {
         var wasi =
@@ -301,14 +340,15 @@ public final class MachinesTest {
         Instance.builder(loadModule("compiled/call_indirect-import.wat.wasm"))
                 .withImportValues(store.toImportValues())
                 .withMachineFactory(MachineFactoryCompiler::compile)
+                .withBacktraces(true)
                 .build();
 
         assertEquals(42, instance.export("call-self").apply()[0]);
         assertEquals(88, instance.export("call-other").apply()[0]);
 
+        // recorded by the compiled machine of the module which trapped
         var ex = assertThrows(TrapException.class, instance.export("call-other-fail")::apply);
-        var className = ex.getStackTrace()[0].getClassName();
-        assertTrue(className.contains("CompiledMachine"), className);
+        assertOtherFail(ex);
     }
 
     @Test
@@ -329,14 +369,22 @@ public final class MachinesTest {
         Instance.builder(loadModule("compiled/call_indirect-import.wat.wasm"))
                 .withImportValues(store.toImportValues())
                 .withMachineFactory(InterpreterMachine::new)
+                .withBacktraces(true)
                 .build();
 
         assertEquals(42, instance.export("call-self").apply()[0]);
         assertEquals(88, instance.export("call-other").apply()[0]);
 
+        // recorded by the interpreter of the module which trapped
         var ex = assertThrows(TrapException.class, instance.export("call-other-fail")::apply);
-        var className = ex.getStackTrace()[0].getClassName();
-        assertTrue(className.contains("InterpreterMachine"), className);
+        assertOtherFail(ex);
+    }
+
+    private static void assertOtherFail(TrapException ex) {
+        var frames = ex.backtrace().frames();
+        assertEquals(1, frames.size());
+        assertEquals(1, frames.get(0).funcId());
+        assertEquals("otherFail", frames.get(0).name());
     }
 
     @Test
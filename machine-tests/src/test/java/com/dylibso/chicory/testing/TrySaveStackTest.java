@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import com.dylibso.chicory.compiler.MachineFactoryCompiler;
 import com.dylibso.chicory.corpus.CorpusResources;
+import com.dylibso.chicory.runtime.DecodedInterpreterMachine;
 import com.dylibso.chicory.runtime.Instance;
 import com.dylibso.chicory.runtime.InterpreterMachine;
 import com.dylibso.chicory.wasm.Parser;
@@ -30,7 +31,10 @@ public class TrySaveStackTest {
                                 (b) -> b.withMachineFactory(InterpreterMachine::new)),
                 Arguments.of(
                         (Function<Instance.Builder, Instance.Builder>)
-                                (b) -> b.withMachineFactory(MachineFactoryCompiler::compile)));
+                                (b) -> b.withMachineFactory(MachineFactoryCompiler::compile)),
+                Arguments.of(
+                        (Function<Instance.Builder, Instance.Builder>)
+                                (b) -> b.withMachineFactory(DecodedInterpreterMachine::new)));
     }
 
     @ParameterizedTest
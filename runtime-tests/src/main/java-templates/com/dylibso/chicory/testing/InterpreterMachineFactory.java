@@ -1,12 +1,20 @@
 package com.dylibso.chicory.testing;
 
+import com.dylibso.chicory.runtime.DecodedInterpreterMachine;
 import com.dylibso.chicory.runtime.Instance;
 import com.dylibso.chicory.runtime.InterpreterMachine;
 import com.dylibso.chicory.runtime.Machine;
 
 public class InterpreterMachineFactory {
 
-    public static InterpreterMachine create(Instance instance) {
+    // set by the test-decoded-machine execution
+    private static final boolean DECODED =
+            "decoded".equals(System.getProperty("chicory.testing.machine"));
+
+    public static Machine create(Instance instance) {
+        if (DECODED) {
+            return new DecodedInterpreterMachine(instance);
+        }
         return new InterpreterMachine(instance);
     }
 
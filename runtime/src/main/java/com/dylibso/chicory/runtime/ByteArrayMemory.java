@@ -4,19 +4,22 @@ import static com.dylibso.chicory.runtime.ConstantEvaluators.computeConstantValu
 import static java.lang.Math.min;
 
 import com.dylibso.chicory.runtime.alloc.MemAllocStrategy;
+import com.dylibso.chicory.runtime.internal.JfrEvents;
+import com.dylibso.chicory.runtime.internal.WaitQueues;
 import com.dylibso.chicory.wasm.ChicoryException;
 import com.dylibso.chicory.wasm.UninstantiableException;
 import com.dylibso.chicory.wasm.types.ActiveDataSegment;
 import com.dylibso.chicory.wasm.types.DataSegment;
 import com.dylibso.chicory.wasm.types.MemoryLimits;
 import com.dylibso.chicory.wasm.types.PassiveDataSegment;
+import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.VarHandle;
 import java.lang.invoke.VarHandle.AccessMode;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
 import java.util.Arrays;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BooleanSupplier;
 import java.util.function.Function;
 
@@ -69,9 +72,16 @@ public final class ByteArrayMemory implements Memory {
     private DataSegment[] dataSegments;
 
     // Page-based storage: fixed-size array of pages, slots filled lazily during grow
-    // Individual pages are never reallocated once created, enabling lock-free reads
+    // Individual pages are never reallocated once created, enabling lock-free reads,
+    // except for the copy-on-write pages of forked memories, which are never shared
     private final byte[][] pages;
 
+    // Pages shared with a fork, copied before the next write, null until the first fork
+    private boolean[] borrowed;
+
+    // The pages of a fork when it was created, restored by restore(), null if not a fork
+    private final byte[][] origin;
+
     // Number of currently allocated pages
     private volatile int nPages;
 
@@ -88,14 +98,31 @@ public final class ByteArrayMemory implements Memory {
             pages[i] = new byte[PAGE_SIZE];
         }
         this.nPages = limits.initialPages();
+        this.origin = null;
 
         if (limits.shared()) {
-            waitStates = new ConcurrentHashMap<>();
+            waitQueues = new WaitQueues();
         } else {
-            waitStates = null;
+            waitQueues = null;
         }
     }
 
+    private ByteArrayMemory(ByteArrayMemory source, DataSegment[] dataSegments) {
+        this.limits = source.limits;
+        this.dataSegments = dataSegments;
+        this.pages = source.pages.clone();
+        this.nPages = source.nPages;
+        this.borrowed = new boolean[pages.length];
+        Arrays.fill(borrowed, 0, nPages, true);
+        // the lock of the source is held, see fork()
+        if (source.borrowed == null) {
+            source.borrowed = new boolean[pages.length];
+        }
+        Arrays.fill(source.borrowed, 0, nPages, true);
+        this.origin = Arrays.copyOf(pages, nPages);
+        this.waitQueues = null;
+    }
+
     /**
      * @deprecated The MemAllocStrategy is no longer used since memory is allocated by page.
      *             Use {@link #ByteArrayMemory(MemoryLimits)} instead.
@@ -106,17 +133,8 @@ public final class ByteArrayMemory implements Memory {
         this(limits);
     }
 
-    // Tracks wait state per address: waiter count and pending wakeups
-    // all field access should be guarded by synchronizing on the instance.
-    // Invariants: 0 <= pendingWakeups <= waiterCount
-    private static final class WaitState {
-        // The number of threads currently waiting
-        int waiterCount;
-        // The number of waiting threads that have been scheduled to wake up
-        int pendingWakeups;
-    }
-
-    private final Map<Integer, WaitState> waitStates;
+    // The threads waiting on the addresses, null if not shared
+    private final WaitQueues waitQueues;
 
     @Override
     @SuppressWarnings("removal")
@@ -125,7 +143,11 @@ public final class ByteArrayMemory implements Memory {
     }
 
     private Object monitor(int address) {
-        return waitStates.computeIfAbsent(address, k -> new WaitState());
+        if (waitQueues == null) {
+            // not shared, no concurrent access
+            return this;
+        }
+        return waitQueues.monitor(address);
     }
 
     // Wait IF condition is true
@@ -133,51 +155,7 @@ public final class ByteArrayMemory implements Memory {
         if (!shared()) {
             throw new ChicoryException("Attempt to wait on a non-shared memory, not supported.");
         }
-
-        long deadline = (timeout < 0) ? Long.MAX_VALUE : System.nanoTime() + timeout;
-
-        WaitState state = waitStates.computeIfAbsent(address, k -> new WaitState());
-
-        synchronized (state) {
-            // Check the condition while holding the lock
-            // This must be atomic with the decision to wait
-            if (!condition.getAsBoolean()) {
-                return 1; // not-equal
-            }
-
-            state.waiterCount++;
-            try {
-
-                while (state.pendingWakeups == 0) {
-                    long remaining = deadline - System.nanoTime();
-                    if (remaining <= 0) {
-                        return 2; // timeout
-                    }
-                    long millis = Math.max(remaining / 1_000_000L, 0);
-                    int nanos = Math.max((int) (remaining % 1_000_000L), 0);
-                    try {
-                        state.wait(millis, nanos);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new ChicoryInterruptedException("Thread interrupted");
-                    }
-                }
-                return 0; // woken
-            } finally {
-
-                if (state.pendingWakeups > 0) {
-                    // any thread leaving the try block is correct to consume
-                    // a pending wakeup IF available:
-                    // ret 0 - woken thread correctly consumes a wakeup
-                    // ret 2 - timeout can only occur with pendingWakeups == 0 so will not consume
-                    // throw - isn't part of the wasm runtime but is semantically correct to consume
-                    state.pendingWakeups--;
-                }
-                state.waiterCount--;
-                assert (0 <= state.pendingWakeups);
-                assert (state.pendingWakeups <= state.waiterCount);
-            }
-        }
+        return waitQueues.await(address, condition, timeout);
     }
 
     @Override
@@ -199,41 +177,7 @@ public final class ByteArrayMemory implements Memory {
         if (!shared()) {
             return 0;
         }
-
-        WaitState state = waitStates.get(address);
-        if (state == null) {
-            return 0;
-        }
-
-        synchronized (state) {
-            int actualWaiters = state.waiterCount - state.pendingWakeups;
-
-            if (actualWaiters == 0) {
-                return 0;
-            }
-
-            // Calculate how many to wake: min(actualWaiters, maxThreads)
-            int toWake;
-            if (maxThreads < 0) {
-                toWake = actualWaiters; // wake all
-            } else {
-                toWake = Math.min(actualWaiters, maxThreads);
-            }
-
-            // Add pending wakeups - waiters will consume these
-            state.pendingWakeups += toWake;
-            assert (state.pendingWakeups <= state.waiterCount);
-
-            // It's always safe to notify all. In the wait routine we consume pendingWakeups
-            // and go back to waiting if there are none. We could also choose to notify waiters
-            // one by one in a loop. The optimal choice of whether to notify all should be
-            // toWake > C * state.waiterCount, where C is an unknown constant weighing the cost
-            // of looping through notify vs. having threads wake and go back to waiting. Since
-            // the constant is unknown we opt for the simplest choice of just notifying all.
-            state.notifyAll();
-
-            return toWake;
-        }
+        return waitQueues.notify(address, maxThreads);
     }
 
     /**
@@ -246,12 +190,17 @@ public final class ByteArrayMemory implements Memory {
 
     @Override
     public int grow(int size) {
+        var event = JfrEvents.beginMemoryGrow();
+        int prevPages;
         if (!shared()) {
-            return growImpl(size);
-        }
-        synchronized (growLock) {
-            return growImpl(size);
+            prevPages = growImpl(size);
+        } else {
+            synchronized (growLock) {
+                prevPages = growImpl(size);
+            }
         }
+        JfrEvents.endMemoryGrow(event, prevPages, size);
+        return prevPages;
     }
 
     private int growImpl(int size) {
@@ -272,6 +221,41 @@ public final class ByteArrayMemory implements Memory {
         return prevPages;
     }
 
+    private byte[] writablePage(int pageIdx) {
+        byte[] page = pages[pageIdx];
+        if (borrowed != null && borrowed[pageIdx]) {
+            page = page.clone();
+            pages[pageIdx] = page;
+            borrowed[pageIdx] = false;
+        }
+        return page;
+    }
+
+    @Override
+    public void restore() {
+        if (origin == null) {
+            throw new UnsupportedOperationException("Only forked memories can be restored");
+        }
+        for (int i = 0; i < nPages; i++) {
+            if (i >= origin.length) {
+                pages[i] = null;
+            } else if (!borrowed[i]) {
+                pages[i] = origin[i];
+                borrowed[i] = true;
+            }
+        }
+        nPages = origin.length;
+    }
+
+    // synchronized as the forks, e.g. of an InstancePool, share the bookkeeping of the source
+    @Override
+    public synchronized Memory fork(DataSegment[] dataSegments) {
+        if (shared()) {
+            throw new UnsupportedOperationException("Shared memories can't be forked");
+        }
+        return new ByteArrayMemory(this, dataSegments);
+    }
+
     @Override
     public int initialPages() {
         return this.limits.initialPages();
@@ -369,7 +353,7 @@ public final class ByteArrayMemory implements Memory {
             int pageIdx = addr >>> PAGE_SHIFT;
             int pageOffset = addr & PAGE_MASK;
             int chunk = Math.min(size, PAGE_SIZE - pageOffset);
-            System.arraycopy(data, offset, pages[pageIdx], pageOffset, chunk);
+            System.arraycopy(data, offset, writablePage(pageIdx), pageOffset, chunk);
             addr += chunk;
             offset += chunk;
             size -= chunk;
@@ -404,12 +388,48 @@ public final class ByteArrayMemory implements Memory {
         return result;
     }
 
+    @Override
+    public ByteBuffer[] buffers(int addr, int len) {
+        return slices(addr, len, false);
+    }
+
+    @Override
+    public ByteBuffer[] readOnlyBuffers(int addr, int len) {
+        return slices(addr, len, true);
+    }
+
+    @Override
+    public int readFrom(ReadableByteChannel channel, int addr, int len) throws IOException {
+        return Memory.readFully(channel, buffers(addr, len));
+    }
+
+    private ByteBuffer[] slices(int addr, int len, boolean readOnly) {
+        checkBounds(addr, len, sizeInBytes(), WasmRuntimeException::new);
+        int first = addr >>> PAGE_SHIFT;
+        int last = len == 0 ? first : (addr + len - 1) >>> PAGE_SHIFT;
+        var result = new ByteBuffer[last - first + 1];
+        int remaining = len;
+        int a = addr;
+        for (int i = 0; i < result.length; i++) {
+            int pageOffset = a & PAGE_MASK;
+            int chunk = Math.min(remaining, PAGE_SIZE - pageOffset);
+            int pageIdx = a >>> PAGE_SHIFT;
+            var page = readOnly ? pages[pageIdx] : writablePage(pageIdx);
+            var slice = ByteBuffer.wrap(page, pageOffset, chunk).slice();
+            result[i] =
+                    (readOnly ? slice.asReadOnlyBuffer() : slice).order(ByteOrder.LITTLE_ENDIAN);
+            a += chunk;
+            remaining -= chunk;
+        }
+        return result;
+    }
+
     @Override
     public void writeI32(int addr, int data) {
         int off = addr & PAGE_MASK;
         if (off + 4 <= PAGE_SIZE) {
             try {
-                INT_ARR_HANDLE.set(pages[addr >>> PAGE_SHIFT], off, data);
+                INT_ARR_HANDLE.set(writablePage(addr >>> PAGE_SHIFT), off, data);
             } catch (RuntimeException e) {
                 throw outOfBoundsException(e, addr, 4);
             }
@@ -452,7 +472,7 @@ public final class ByteArrayMemory implements Memory {
         int off = addr & PAGE_MASK;
         if (off + 8 <= PAGE_SIZE) {
             try {
-                LONG_ARR_HANDLE.set(pages[addr >>> PAGE_SHIFT], off, data);
+                LONG_ARR_HANDLE.set(writablePage(addr >>> PAGE_SHIFT), off, data);
             } catch (RuntimeException e) {
                 throw outOfBoundsException(e, addr, 8);
             }
@@ -503,7 +523,7 @@ public final class ByteArrayMemory implements Memory {
         int off = addr & PAGE_MASK;
         if (off + 2 <= PAGE_SIZE) {
             try {
-                SHORT_ARR_HANDLE.set(pages[addr >>> PAGE_SHIFT], off, data);
+                SHORT_ARR_HANDLE.set(writablePage(addr >>> PAGE_SHIFT), off, data);
             } catch (RuntimeException e) {
                 throw outOfBoundsException(e, addr, 2);
             }
@@ -544,7 +564,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public void writeByte(int addr, byte data) {
         try {
-            pages[addr >>> PAGE_SHIFT][addr & PAGE_MASK] = data;
+            writablePage(addr >>> PAGE_SHIFT)[addr & PAGE_MASK] = data;
         } catch (RuntimeException e) {
             throw outOfBoundsException(e, addr, 1);
         }
@@ -555,7 +575,7 @@ public final class ByteArrayMemory implements Memory {
         int off = addr & PAGE_MASK;
         if (off + 4 <= PAGE_SIZE) {
             try {
-                FLOAT_ARR_HANDLE.set(pages[addr >>> PAGE_SHIFT], off, data);
+                FLOAT_ARR_HANDLE.set(writablePage(addr >>> PAGE_SHIFT), off, data);
             } catch (RuntimeException e) {
                 throw outOfBoundsException(e, addr, 4);
             }
@@ -588,7 +608,7 @@ public final class ByteArrayMemory implements Memory {
         int off = addr & PAGE_MASK;
         if (off + 8 <= PAGE_SIZE) {
             try {
-                DOUBLE_ARR_HANDLE.set(pages[addr >>> PAGE_SHIFT], off, data);
+                DOUBLE_ARR_HANDLE.set(writablePage(addr >>> PAGE_SHIFT), off, data);
             } catch (RuntimeException e) {
                 throw outOfBoundsException(e, addr, 8);
             }
@@ -630,7 +650,7 @@ public final class ByteArrayMemory implements Memory {
             int pageIdx = addr >>> PAGE_SHIFT;
             int pageOffset = addr & PAGE_MASK;
             int chunk = Math.min(remaining, PAGE_SIZE - pageOffset);
-            Arrays.fill(pages[pageIdx], pageOffset, pageOffset + chunk, value);
+            Arrays.fill(writablePage(pageIdx), pageOffset, pageOffset + chunk, value);
             addr += chunk;
             remaining -= chunk;
         }
@@ -657,7 +677,7 @@ public final class ByteArrayMemory implements Memory {
             System.arraycopy(
                     pages[src >>> PAGE_SHIFT],
                     srcOffset,
-                    pages[dest >>> PAGE_SHIFT],
+                    writablePage(dest >>> PAGE_SHIFT),
                     destOffset,
                     chunk);
             dest += chunk;
@@ -680,7 +700,7 @@ public final class ByteArrayMemory implements Memory {
             System.arraycopy(
                     pages[src >>> PAGE_SHIFT],
                     src & PAGE_MASK,
-                    pages[dest >>> PAGE_SHIFT],
+                    writablePage(dest >>> PAGE_SHIFT),
                     dest & PAGE_MASK,
                     chunk);
             size -= chunk;
@@ -704,7 +724,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public byte atomicAddByte(int addr, byte delta) {
         try {
-            byte[] page = pages[addr >>> PAGE_SHIFT];
+            byte[] page = writablePage(addr >>> PAGE_SHIFT);
             int off = addr & PAGE_MASK;
             if (HAS_BYTE_ATOMICS) {
                 return (byte) BYTE_ARR_HANDLE.getAndAdd(page, off, delta);
@@ -722,7 +742,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public int atomicAddInt(int addr, int delta) {
         try {
-            byte[] page = pages[addr >>> PAGE_SHIFT];
+            byte[] page = writablePage(addr >>> PAGE_SHIFT);
             int off = addr & PAGE_MASK;
             if (HAS_INT_ATOMICS) {
                 return (int) INT_ARR_HANDLE.getAndAdd(page, off, delta);
@@ -740,7 +760,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public long atomicAddLong(int addr, long delta) {
         try {
-            byte[] page = pages[addr >>> PAGE_SHIFT];
+            byte[] page = writablePage(addr >>> PAGE_SHIFT);
             int off = addr & PAGE_MASK;
             if (HAS_LONG_ATOMICS) {
                 return (long) LONG_ARR_HANDLE.getAndAdd(page, off, delta);
@@ -758,7 +778,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public short atomicAddShort(int addr, short delta) {
         try {
-            byte[] page = pages[addr >>> PAGE_SHIFT];
+            byte[] page = writablePage(addr >>> PAGE_SHIFT);
             int off = addr & PAGE_MASK;
             if (HAS_SHORT_ATOMICS) {
                 return (short) SHORT_ARR_HANDLE.getAndAdd(page, off, delta);
@@ -792,7 +812,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public byte atomicAndByte(int addr, byte mask) {
         try {
-            byte[] page = pages[addr >>> PAGE_SHIFT];
+            byte[] page = writablePage(addr >>> PAGE_SHIFT);
             int off = addr & PAGE_MASK;
             if (HAS_BYTE_ATOMICS) {
                 return (byte) BYTE_ARR_HANDLE.getAndBitwiseAnd(page, off, mask);
@@ -810,7 +830,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public int atomicAndInt(int addr, int mask) {
         try {
-            byte[] page = pages[addr >>> PAGE_SHIFT];
+            byte[] page = writablePage(addr >>> PAGE_SHIFT);
             int off = addr & PAGE_MASK;
             if (HAS_INT_ATOMICS) {
                 return (int) INT_ARR_HANDLE.getAndBitwiseAnd(page, off, mask);
@@ -828,7 +848,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public long atomicAndLong(int addr, long mask) {
         try {
-            byte[] page = pages[addr >>> PAGE_SHIFT];
+            byte[] page = writablePage(addr >>> PAGE_SHIFT);
             int off = addr & PAGE_MASK;
             if (HAS_LONG_ATOMICS) {
                 return (long) LONG_ARR_HANDLE.getAndBitwiseAnd(page, off, mask);
@@ -846,7 +866,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public short atomicAndShort(int addr, short mask) {
         try {
-            byte[] page = pages[addr >>> PAGE_SHIFT];
+            byte[] page = writablePage(addr >>> PAGE_SHIFT);
             int off = addr & PAGE_MASK;
             if (HAS_SHORT_ATOMICS) {
                 return (short) SHORT_ARR_HANDLE.getAndBitwiseAnd(page, off, mask);
@@ -872,7 +892,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public byte atomicCmpxchgByte(int addr, byte expected, byte replacement) {
         try {
-            byte[] page = pages[addr >>> PAGE_SHIFT];
+            byte[] page = writablePage(addr >>> PAGE_SHIFT);
             int off = addr & PAGE_MASK;
             if (HAS_BYTE_ATOMICS) {
                 return (byte) BYTE_ARR_HANDLE.compareAndExchange(page, off, expected, replacement);
@@ -892,7 +912,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public int atomicCmpxchgInt(int addr, int expected, int replacement) {
         try {
-            byte[] page = pages[addr >>> PAGE_SHIFT];
+            byte[] page = writablePage(addr >>> PAGE_SHIFT);
             int off = addr & PAGE_MASK;
             if (HAS_INT_ATOMICS) {
                 return (int) INT_ARR_HANDLE.compareAndExchange(page, off, expected, replacement);
@@ -912,7 +932,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public long atomicCmpxchgLong(int addr, long expected, long replacement) {
         try {
-            byte[] page = pages[addr >>> PAGE_SHIFT];
+            byte[] page = writablePage(addr >>> PAGE_SHIFT);
             int off = addr & PAGE_MASK;
             if (HAS_LONG_ATOMICS) {
                 return (long) LONG_ARR_HANDLE.compareAndExchange(page, off, expected, replacement);
@@ -932,7 +952,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public short atomicCmpxchgShort(int addr, short expected, short replacement) {
         try {
-            byte[] page = pages[addr >>> PAGE_SHIFT];
+            byte[] page = writablePage(addr >>> PAGE_SHIFT);
             int off = addr & PAGE_MASK;
             if (HAS_SHORT_ATOMICS) {
                 return (short)
@@ -970,7 +990,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public byte atomicOrByte(int addr, byte mask) {
         try {
-            byte[] page = pages[addr >>> PAGE_SHIFT];
+            byte[] page = writablePage(addr >>> PAGE_SHIFT);
             int off = addr & PAGE_MASK;
             if (HAS_BYTE_ATOMICS) {
                 return (byte) BYTE_ARR_HANDLE.getAndBitwiseOr(page, off, mask);
@@ -988,7 +1008,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public int atomicOrInt(int addr, int mask) {
         try {
-            byte[] page = pages[addr >>> PAGE_SHIFT];
+            byte[] page = writablePage(addr >>> PAGE_SHIFT);
             int off = addr & PAGE_MASK;
             if (HAS_INT_ATOMICS) {
                 return (int) INT_ARR_HANDLE.getAndBitwiseOr(page, off, mask);
@@ -1006,7 +1026,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public long atomicOrLong(int addr, long mask) {
         try {
-            byte[] page = pages[addr >>> PAGE_SHIFT];
+            byte[] page = writablePage(addr >>> PAGE_SHIFT);
             int off = addr & PAGE_MASK;
             if (HAS_LONG_ATOMICS) {
                 return (long) LONG_ARR_HANDLE.getAndBitwiseOr(page, off, mask);
@@ -1024,7 +1044,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public short atomicOrShort(int addr, short mask) {
         try {
-            byte[] page = pages[addr >>> PAGE_SHIFT];
+            byte[] page = writablePage(addr >>> PAGE_SHIFT);
             int off = addr & PAGE_MASK;
             if (HAS_SHORT_ATOMICS) {
                 return (short) SHORT_ARR_HANDLE.getAndBitwiseOr(page, off, mask);
@@ -1114,7 +1134,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public void atomicWriteByte(int addr, byte value) {
         try {
-            byte[] page = pages[addr >>> PAGE_SHIFT];
+            byte[] page = writablePage(addr >>> PAGE_SHIFT);
             int off = addr & PAGE_MASK;
             if (BYTE_ARR_HANDLE.isAccessModeSupported(AccessMode.SET_VOLATILE)) {
                 BYTE_ARR_HANDLE.setVolatile(page, off, value);
@@ -1131,7 +1151,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public void atomicWriteInt(int addr, int value) {
         try {
-            byte[] page = pages[addr >>> PAGE_SHIFT];
+            byte[] page = writablePage(addr >>> PAGE_SHIFT);
             int off = addr & PAGE_MASK;
             if (INT_ARR_HANDLE.isAccessModeSupported(AccessMode.SET_VOLATILE)) {
                 INT_ARR_HANDLE.setVolatile(page, off, value);
@@ -1148,7 +1168,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public void atomicWriteLong(int addr, long value) {
         try {
-            byte[] page = pages[addr >>> PAGE_SHIFT];
+            byte[] page = writablePage(addr >>> PAGE_SHIFT);
             int off = addr & PAGE_MASK;
             if (LONG_ARR_HANDLE.isAccessModeSupported(AccessMode.SET_VOLATILE)) {
                 LONG_ARR_HANDLE.setVolatile(page, off, value);
@@ -1165,7 +1185,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public void atomicWriteShort(int addr, short value) {
         try {
-            byte[] page = pages[addr >>> PAGE_SHIFT];
+            byte[] page = writablePage(addr >>> PAGE_SHIFT);
             int off = addr & PAGE_MASK;
             if (SHORT_ARR_HANDLE.isAccessModeSupported(AccessMode.SET_VOLATILE)) {
                 SHORT_ARR_HANDLE.setVolatile(page, off, value);
@@ -1182,7 +1202,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public byte atomicXchgByte(int addr, byte value) {
         try {
-            byte[] page = pages[addr >>> PAGE_SHIFT];
+            byte[] page = writablePage(addr >>> PAGE_SHIFT);
             int off = addr & PAGE_MASK;
             if (HAS_BYTE_ATOMICS) {
                 return (byte) BYTE_ARR_HANDLE.getAndSet(page, off, value);
@@ -1200,7 +1220,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public int atomicXchgInt(int addr, int value) {
         try {
-            byte[] page = pages[addr >>> PAGE_SHIFT];
+            byte[] page = writablePage(addr >>> PAGE_SHIFT);
             int off = addr & PAGE_MASK;
             if (HAS_INT_ATOMICS) {
                 return (int) INT_ARR_HANDLE.getAndSet(page, off, value);
@@ -1218,7 +1238,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public long atomicXchgLong(int addr, long value) {
         try {
-            byte[] page = pages[addr >>> PAGE_SHIFT];
+            byte[] page = writablePage(addr >>> PAGE_SHIFT);
             int off = addr & PAGE_MASK;
             if (HAS_LONG_ATOMICS) {
                 return (long) LONG_ARR_HANDLE.getAndSet(page, off, value);
@@ -1236,7 +1256,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public short atomicXchgShort(int addr, short value) {
         try {
-            byte[] page = pages[addr >>> PAGE_SHIFT];
+            byte[] page = writablePage(addr >>> PAGE_SHIFT);
             int off = addr & PAGE_MASK;
             if (HAS_SHORT_ATOMICS) {
                 return (short) SHORT_ARR_HANDLE.getAndSet(page, off, value);
@@ -1267,7 +1287,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public byte atomicXorByte(int addr, byte mask) {
         try {
-            byte[] page = pages[addr >>> PAGE_SHIFT];
+            byte[] page = writablePage(addr >>> PAGE_SHIFT);
             int off = addr & PAGE_MASK;
             if (HAS_BYTE_ATOMICS) {
                 return (byte) BYTE_ARR_HANDLE.getAndBitwiseXor(page, off, mask);
@@ -1285,7 +1305,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public int atomicXorInt(int addr, int mask) {
         try {
-            byte[] page = pages[addr >>> PAGE_SHIFT];
+            byte[] page = writablePage(addr >>> PAGE_SHIFT);
             int off = addr & PAGE_MASK;
             if (HAS_INT_ATOMICS) {
                 return (int) INT_ARR_HANDLE.getAndBitwiseXor(page, off, mask);
@@ -1303,7 +1323,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public long atomicXorLong(int addr, long mask) {
         try {
-            byte[] page = pages[addr >>> PAGE_SHIFT];
+            byte[] page = writablePage(addr >>> PAGE_SHIFT);
             int off = addr & PAGE_MASK;
             if (HAS_LONG_ATOMICS) {
                 return (long) LONG_ARR_HANDLE.getAndBitwiseXor(page, off, mask);
@@ -1321,7 +1341,7 @@ public final class ByteArrayMemory implements Memory {
     @Override
     public short atomicXorShort(int addr, short mask) {
         try {
-            byte[] page = pages[addr >>> PAGE_SHIFT];
+            byte[] page = writablePage(addr >>> PAGE_SHIFT);
             int off = addr & PAGE_MASK;
             if (HAS_SHORT_ATOMICS) {
                 return (short) SHORT_ARR_HANDLE.getAndBitwiseXor(page, off, mask);
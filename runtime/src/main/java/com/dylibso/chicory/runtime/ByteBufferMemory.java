@@ -4,20 +4,25 @@ import static com.dylibso.chicory.runtime.ConstantEvaluators.computeConstantValu
 import static java.lang.Math.min;
 
 import com.dylibso.chicory.runtime.alloc.MemAllocStrategy;
+import com.dylibso.chicory.runtime.internal.JfrEvents;
+import com.dylibso.chicory.runtime.internal.WaitQueues;
 import com.dylibso.chicory.wasm.ChicoryException;
 import com.dylibso.chicory.wasm.UninstantiableException;
 import com.dylibso.chicory.wasm.types.ActiveDataSegment;
 import com.dylibso.chicory.wasm.types.DataSegment;
 import com.dylibso.chicory.wasm.types.MemoryLimits;
 import com.dylibso.chicory.wasm.types.PassiveDataSegment;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.invoke.VarHandle.AccessMode;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.BufferOverflowException;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
 import java.util.Arrays;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BooleanSupplier;
 import java.util.function.Function;
 
@@ -32,17 +37,28 @@ public final class ByteBufferMemory implements Memory {
     // release.
     static final Runnable ATOMIC_FENCE_IMPL = getAtomicFenceImpl();
 
+    // whether the atomic operations can use VarHandles, not available on older Android API levels
+    private static final boolean LOCK_FREE = hasVarHandles();
+
     // Page addressing constants
     private static final int PAGE_SHIFT = 16; // PAGE_SIZE = 65536 = 2^16
     private static final int PAGE_MASK = PAGE_SIZE - 1;
 
     private final MemoryLimits limits;
+    private final boolean preinitialized;
     private DataSegment[] dataSegments;
 
     // Page-based storage: fixed-size array of pages, slots filled lazily during grow
-    // Individual pages are never reallocated once created, enabling lock-free reads
+    // Individual pages are never reallocated once created, enabling lock-free reads,
+    // except for the copy-on-write pages of forked memories, which are never shared
     private final ByteBuffer[] pages;
 
+    // Pages shared with a fork, copied before the next write, null until the first fork
+    private boolean[] borrowed;
+
+    // The pages of a fork when it was created, restored by restore(), null if not a fork
+    private final ByteBuffer[] origin;
+
     // Number of currently allocated pages
     private volatile int nPages;
 
@@ -50,21 +66,58 @@ public final class ByteBufferMemory implements Memory {
     private final Object growLock = new Object();
 
     public ByteBufferMemory(MemoryLimits limits) {
+        this(limits, new ByteBuffer[0], false);
+    }
+
+    /**
+     * Starts the memory with the given pages, e.g. regions of a mapped file, and allocates
+     * the remaining initial pages.
+     *
+     * @param preinitialized whether the given pages already hold the active data segments,
+     *                       so that {@link #initialize} doesn't copy them again
+     */
+    ByteBufferMemory(MemoryLimits limits, ByteBuffer[] initialPages, boolean preinitialized) {
         this.limits = limits;
+        this.preinitialized = preinitialized;
         int maxPages = min(limits.maximumPages(), RUNTIME_MAX_PAGES);
         this.pages = new ByteBuffer[maxPages];
 
         // Allocate initial pages
         for (int i = 0; i < limits.initialPages(); i++) {
-            pages[i] = ByteBuffer.allocate(PAGE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            pages[i] =
+                    i < initialPages.length
+                            ? initialPages[i]
+                            : ByteBuffer.allocate(PAGE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
         }
         this.nPages = limits.initialPages();
+        this.origin = null;
 
         if (limits.shared()) {
-            waitStates = new ConcurrentHashMap<>();
+            waitQueues = new WaitQueues();
         } else {
-            waitStates = null;
+            waitQueues = null;
+        }
+    }
+
+    private ByteBufferMemory(ByteBufferMemory source, DataSegment[] dataSegments) {
+        this.limits = source.limits;
+        this.preinitialized = source.preinitialized;
+        this.dataSegments = dataSegments;
+        this.pages = new ByteBuffer[source.pages.length];
+        this.nPages = source.nPages;
+        for (int i = 0; i < nPages; i++) {
+            // duplicate, the position of the page is used by the bulk accesses
+            pages[i] = source.pages[i].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        }
+        this.borrowed = new boolean[pages.length];
+        Arrays.fill(borrowed, 0, nPages, true);
+        // the lock of the source is held, see fork()
+        if (source.borrowed == null) {
+            source.borrowed = new boolean[pages.length];
         }
+        Arrays.fill(source.borrowed, 0, nPages, true);
+        this.origin = Arrays.copyOf(pages, nPages);
+        this.waitQueues = null;
     }
 
     /**
@@ -77,26 +130,22 @@ public final class ByteBufferMemory implements Memory {
         this(limits);
     }
 
-    // Tracks wait state per address: waiter count and pending wakeups
-    // all field access should be guarded by synchronizing on the instance.
-    // Invariants: 0 <= pendingWakeups <= waiterCount
-    private static final class WaitState {
-        // The number of threads currently waiting
-        int waiterCount;
-        // The number of waiting threads that have been scheduled to wake up
-        int pendingWakeups;
-    }
-
-    private final Map<Integer, WaitState> waitStates;
+    // The threads waiting on the addresses, null if not shared
+    private final WaitQueues waitQueues;
 
     @Override
     @SuppressWarnings("removal")
     public Object lock(int address) {
-        if (!shared()) {
-            // disable locking
-            return new Object();
+        return monitor(address);
+    }
+
+    // The lock of the atomic operations without VarHandles
+    private Object monitor(int address) {
+        if (waitQueues == null) {
+            // not shared, no concurrent access
+            return this;
         }
-        return waitStates.computeIfAbsent(address, k -> new WaitState());
+        return waitQueues.monitor(address);
     }
 
     // Wait IF condition is true
@@ -104,63 +153,19 @@ public final class ByteBufferMemory implements Memory {
         if (!shared()) {
             throw new ChicoryException("Attempt to wait on a non-shared memory, not supported.");
         }
-
-        long deadline = (timeout < 0) ? Long.MAX_VALUE : System.nanoTime() + timeout;
-
-        WaitState state = waitStates.computeIfAbsent(address, k -> new WaitState());
-
-        synchronized (state) {
-            // Check the condition while holding the lock
-            // This must be atomic with the decision to wait
-            if (!condition.getAsBoolean()) {
-                return 1; // not-equal
-            }
-
-            state.waiterCount++;
-            try {
-
-                while (state.pendingWakeups == 0) {
-                    long remaining = deadline - System.nanoTime();
-                    if (remaining <= 0) {
-                        return 2; // timeout
-                    }
-                    long millis = Math.max(remaining / 1_000_000L, 0);
-                    int nanos = Math.max((int) (remaining % 1_000_000L), 0);
-                    try {
-                        state.wait(millis, nanos);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new ChicoryInterruptedException("Thread interrupted");
-                    }
-                }
-                return 0; // woken
-            } finally {
-
-                if (state.pendingWakeups > 0) {
-                    // any thread leaving the try block is correct to consume
-                    // a pending wakeup IF available:
-                    // ret 0 - woken thread correctly consumes a wakeup
-                    // ret 2 - timeout can only occur with pendingWakeups == 0 so will not consume
-                    // throw - isn't part of the wasm runtime but is semantically correct to consume
-                    state.pendingWakeups--;
-                }
-                state.waiterCount--;
-                assert (0 <= state.pendingWakeups);
-                assert (state.pendingWakeups <= state.waiterCount);
-            }
-        }
+        return waitQueues.await(address, condition, timeout);
     }
 
     @Override
     @SuppressWarnings("removal")
     public int waitOn(int address, int expected, long timeout) {
-        return waitOn(address, () -> readInt(address) == expected, timeout);
+        return waitOn(address, () -> atomicReadInt(address) == expected, timeout);
     }
 
     @Override
     @SuppressWarnings("removal")
     public int waitOn(int address, long expected, long timeout) {
-        return waitOn(address, () -> readLong(address) == expected, timeout);
+        return waitOn(address, () -> atomicReadLong(address) == expected, timeout);
     }
 
     // Notify waiters at this address
@@ -170,41 +175,7 @@ public final class ByteBufferMemory implements Memory {
         if (!shared()) {
             return 0;
         }
-
-        WaitState state = waitStates.get(address);
-        if (state == null) {
-            return 0;
-        }
-
-        synchronized (state) {
-            int actualWaiters = state.waiterCount - state.pendingWakeups;
-
-            if (actualWaiters == 0) {
-                return 0;
-            }
-
-            // Calculate how many to wake: min(actualWaiters, maxThreads)
-            int toWake;
-            if (maxThreads < 0) {
-                toWake = actualWaiters; // wake all
-            } else {
-                toWake = Math.min(actualWaiters, maxThreads);
-            }
-
-            // Add pending wakeups - waiters will consume these
-            state.pendingWakeups += toWake;
-            assert (state.pendingWakeups <= state.waiterCount);
-
-            // It's always safe to notify all. In the wait routine we consume pendingWakeups
-            // and go back to waiting if there are none. We could also choose to notify waiters
-            // one by one in a loop. The optimal choice of whether to notify all should be
-            // toWake > C * state.waiterCount, where C is an unknown constant weighing the cost
-            // of looping through notify vs. having threads wake and go back to waiting. Since
-            // the constant is unknown we opt for the simplest choice of just notifying all.
-            state.notifyAll();
-
-            return toWake;
-        }
+        return waitQueues.notify(address, maxThreads);
     }
 
     /**
@@ -217,12 +188,17 @@ public final class ByteBufferMemory implements Memory {
 
     @Override
     public int grow(int size) {
+        var event = JfrEvents.beginMemoryGrow();
+        int prevPages;
         if (!shared()) {
-            return growImpl(size);
-        }
-        synchronized (growLock) {
-            return growImpl(size);
+            prevPages = growImpl(size);
+        } else {
+            synchronized (growLock) {
+                prevPages = growImpl(size);
+            }
         }
+        JfrEvents.endMemoryGrow(event, prevPages, size);
+        return prevPages;
     }
 
     private int growImpl(int size) {
@@ -243,6 +219,43 @@ public final class ByteBufferMemory implements Memory {
         return prevPages;
     }
 
+    private ByteBuffer writablePage(int pageIdx) {
+        ByteBuffer page = pages[pageIdx];
+        if (borrowed != null && borrowed[pageIdx]) {
+            var copy = ByteBuffer.allocate(PAGE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            copyChunk(page, 0, copy, 0, PAGE_SIZE);
+            pages[pageIdx] = copy;
+            borrowed[pageIdx] = false;
+            page = copy;
+        }
+        return page;
+    }
+
+    @Override
+    public void restore() {
+        if (origin == null) {
+            throw new UnsupportedOperationException("Only forked memories can be restored");
+        }
+        for (int i = 0; i < nPages; i++) {
+            if (i >= origin.length) {
+                pages[i] = null;
+            } else if (!borrowed[i]) {
+                pages[i] = origin[i];
+                borrowed[i] = true;
+            }
+        }
+        nPages = origin.length;
+    }
+
+    // synchronized as the forks, e.g. of an InstancePool, share the bookkeeping of the source
+    @Override
+    public synchronized Memory fork(DataSegment[] dataSegments) {
+        if (shared()) {
+            throw new UnsupportedOperationException("Shared memories can't be forked");
+        }
+        return new ByteBufferMemory(this, dataSegments);
+    }
+
     @Override
     public int initialPages() {
         return this.limits.initialPages();
@@ -280,7 +293,9 @@ public final class ByteBufferMemory implements Memory {
                 var data = segment.data();
                 var offset = (int) computeConstantValue(instance, offsetExpr)[0];
                 checkBounds(offset, data.length, sizeInBytes(), UninstantiableException::new);
-                write(offset, data, 0, data.length);
+                if (!preinitialized) {
+                    write(offset, data, 0, data.length);
+                }
             } else if (s instanceof PassiveDataSegment) {
                 // Passive segment should be skipped
             } else {
@@ -342,8 +357,9 @@ public final class ByteBufferMemory implements Memory {
             int pageIdx = addr >>> PAGE_SHIFT;
             int pageOffset = addr & PAGE_MASK;
             int chunk = Math.min(size, PAGE_SIZE - pageOffset);
-            pages[pageIdx].position(pageOffset);
-            pages[pageIdx].put(data, offset, chunk);
+            var page = writablePage(pageIdx);
+            page.position(pageOffset);
+            page.put(data, offset, chunk);
             addr += chunk;
             offset += chunk;
             size -= chunk;
@@ -379,12 +395,50 @@ public final class ByteBufferMemory implements Memory {
         return result;
     }
 
+    @Override
+    public ByteBuffer[] buffers(int addr, int len) {
+        return slices(addr, len, false);
+    }
+
+    @Override
+    public ByteBuffer[] readOnlyBuffers(int addr, int len) {
+        return slices(addr, len, true);
+    }
+
+    @Override
+    public int readFrom(ReadableByteChannel channel, int addr, int len) throws IOException {
+        return Memory.readFully(channel, buffers(addr, len));
+    }
+
+    private ByteBuffer[] slices(int addr, int len, boolean readOnly) {
+        checkBounds(addr, len, sizeInBytes(), WasmRuntimeException::new);
+        int first = addr >>> PAGE_SHIFT;
+        int last = len == 0 ? first : (addr + len - 1) >>> PAGE_SHIFT;
+        var result = new ByteBuffer[last - first + 1];
+        int remaining = len;
+        int a = addr;
+        for (int i = 0; i < result.length; i++) {
+            int pageOffset = a & PAGE_MASK;
+            int chunk = Math.min(remaining, PAGE_SIZE - pageOffset);
+            // duplicate, the position of the page itself is used by the bulk accesses
+            var page =
+                    readOnly
+                            ? pages[a >>> PAGE_SHIFT].asReadOnlyBuffer()
+                            : writablePage(a >>> PAGE_SHIFT).duplicate();
+            page.limit(pageOffset + chunk).position(pageOffset);
+            result[i] = page.slice().order(ByteOrder.LITTLE_ENDIAN);
+            a += chunk;
+            remaining -= chunk;
+        }
+        return result;
+    }
+
     @Override
     public void writeI32(int addr, int data) {
         int off = addr & PAGE_MASK;
         if (off + 4 <= PAGE_SIZE) {
             try {
-                pages[addr >>> PAGE_SHIFT].putInt(off, data);
+                writablePage(addr >>> PAGE_SHIFT).putInt(off, data);
             } catch (RuntimeException e) {
                 throw outOfBoundsException(e, addr, 4);
             }
@@ -427,7 +481,7 @@ public final class ByteBufferMemory implements Memory {
         int off = addr & PAGE_MASK;
         if (off + 8 <= PAGE_SIZE) {
             try {
-                pages[addr >>> PAGE_SHIFT].putLong(off, data);
+                writablePage(addr >>> PAGE_SHIFT).putLong(off, data);
             } catch (RuntimeException e) {
                 throw outOfBoundsException(e, addr, 8);
             }
@@ -478,7 +532,7 @@ public final class ByteBufferMemory implements Memory {
         int off = addr & PAGE_MASK;
         if (off + 2 <= PAGE_SIZE) {
             try {
-                pages[addr >>> PAGE_SHIFT].putShort(off, data);
+                writablePage(addr >>> PAGE_SHIFT).putShort(off, data);
             } catch (RuntimeException e) {
                 throw outOfBoundsException(e, addr, 2);
             }
@@ -519,7 +573,7 @@ public final class ByteBufferMemory implements Memory {
     @Override
     public void writeByte(int addr, byte data) {
         try {
-            pages[addr >>> PAGE_SHIFT].put(addr & PAGE_MASK, data);
+            writablePage(addr >>> PAGE_SHIFT).put(addr & PAGE_MASK, data);
         } catch (RuntimeException e) {
             throw outOfBoundsException(e, addr, 1);
         }
@@ -530,7 +584,7 @@ public final class ByteBufferMemory implements Memory {
         int off = addr & PAGE_MASK;
         if (off + 4 <= PAGE_SIZE) {
             try {
-                pages[addr >>> PAGE_SHIFT].putFloat(off, data);
+                writablePage(addr >>> PAGE_SHIFT).putFloat(off, data);
             } catch (RuntimeException e) {
                 throw outOfBoundsException(e, addr, 4);
             }
@@ -563,7 +617,7 @@ public final class ByteBufferMemory implements Memory {
         int off = addr & PAGE_MASK;
         if (off + 8 <= PAGE_SIZE) {
             try {
-                pages[addr >>> PAGE_SHIFT].putDouble(off, data);
+                writablePage(addr >>> PAGE_SHIFT).putDouble(off, data);
             } catch (RuntimeException e) {
                 throw outOfBoundsException(e, addr, 8);
             }
@@ -597,9 +651,6 @@ public final class ByteBufferMemory implements Memory {
     }
 
     @Override
-    // Safe: pages are always heap-allocated via ByteBuffer.allocate(), which guarantees a backing
-    // array.
-    @SuppressWarnings("ByteBufferBackingArray")
     public void fill(byte value, int fromIndex, int toIndex) {
         int addr = fromIndex;
         int remaining = toIndex - fromIndex;
@@ -608,14 +659,43 @@ public final class ByteBufferMemory implements Memory {
             int pageIdx = addr >>> PAGE_SHIFT;
             int pageOffset = addr & PAGE_MASK;
             int chunk = Math.min(remaining, PAGE_SIZE - pageOffset);
-            Arrays.fill(pages[pageIdx].array(), pageOffset, pageOffset + chunk, value);
+            fillPage(writablePage(pageIdx), pageOffset, pageOffset + chunk, value);
             addr += chunk;
             remaining -= chunk;
         }
     }
 
+    // Heap pages are filled and copied through their backing array, pages mapped from a file
+    // (see MappedMemory) through the buffer.
+    private static void fillPage(ByteBuffer page, int from, int to, byte value) {
+        if (page.hasArray()) {
+            int base = page.arrayOffset();
+            Arrays.fill(page.array(), base + from, base + to, value);
+        } else {
+            for (int i = from; i < to; i++) {
+                page.put(i, value);
+            }
+        }
+    }
+
+    private static void copyChunk(
+            ByteBuffer src, int srcOffset, ByteBuffer dest, int destOffset, int size) {
+        if (src.hasArray() && dest.hasArray()) {
+            System.arraycopy(
+                    src.array(),
+                    src.arrayOffset() + srcOffset,
+                    dest.array(),
+                    dest.arrayOffset() + destOffset,
+                    size);
+        } else {
+            // through a copy, the chunks of an overlapping copy can share a page
+            byte[] chunk = new byte[size];
+            src.duplicate().position(srcOffset).get(chunk);
+            dest.duplicate().position(destOffset).put(chunk);
+        }
+    }
+
     @Override
-    @SuppressWarnings("ByteBufferBackingArray")
     public void copy(int dest, int src, int size) {
         int limit = sizeInBytes();
         checkBounds(dest, size, limit, WasmRuntimeException::new);
@@ -628,16 +708,15 @@ public final class ByteBufferMemory implements Memory {
         }
     }
 
-    @SuppressWarnings("ByteBufferBackingArray")
     private void copyForward(int dest, int src, int size) {
         while (size > 0) {
             int destOffset = dest & PAGE_MASK;
             int srcOffset = src & PAGE_MASK;
             int chunk = Math.min(size, PAGE_SIZE - Math.max(destOffset, srcOffset));
-            System.arraycopy(
-                    pages[src >>> PAGE_SHIFT].array(),
+            copyChunk(
+                    pages[src >>> PAGE_SHIFT],
                     srcOffset,
-                    pages[dest >>> PAGE_SHIFT].array(),
+                    writablePage(dest >>> PAGE_SHIFT),
                     destOffset,
                     chunk);
             dest += chunk;
@@ -646,7 +725,6 @@ public final class ByteBufferMemory implements Memory {
         }
     }
 
-    @SuppressWarnings("ByteBufferBackingArray")
     private void copyBackward(int dest, int src, int size) {
         dest += size;
         src += size;
@@ -658,10 +736,10 @@ public final class ByteBufferMemory implements Memory {
             int chunk = Math.min(size, Math.min(destAvail, srcAvail));
             dest -= chunk;
             src -= chunk;
-            System.arraycopy(
-                    pages[src >>> PAGE_SHIFT].array(),
+            copyChunk(
+                    pages[src >>> PAGE_SHIFT],
                     src & PAGE_MASK,
-                    pages[dest >>> PAGE_SHIFT].array(),
+                    writablePage(dest >>> PAGE_SHIFT),
                     dest & PAGE_MASK,
                     chunk);
             size -= chunk;
@@ -673,6 +751,721 @@ public final class ByteBufferMemory implements Memory {
         dataSegments[segment] = PassiveDataSegment.EMPTY;
     }
 
+    // ===========================================
+    // Atomic operations
+    // ===========================================
+    //
+    // The ByteBuffer views only support the atomic updates of int and long, so the bytes and
+    // shorts are updated through the int containing them; the Wasm atomics are always aligned.
+
+    @Override
+    public byte atomicAddByte(int addr, byte delta) {
+        try {
+            ByteBuffer page = writablePage(addr >>> PAGE_SHIFT);
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                int alignedOff = off & ~3;
+                int shift = (off & 3) * 8;
+                int mask = 0xFF << shift;
+                while (true) {
+                    int oldInt = (int) Handles.INT.getVolatile(page, alignedOff);
+                    byte old = (byte) (oldInt >>> shift);
+                    int newInt = (oldInt & ~mask) | (((old + delta) & 0xFF) << shift);
+                    if (Handles.INT.compareAndSet(page, alignedOff, oldInt, newInt)) {
+                        return old;
+                    }
+                }
+            }
+            synchronized (monitor(addr)) {
+                byte value = page.get(off);
+                page.put(off, (byte) (value + delta));
+                return value;
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 1);
+        }
+    }
+
+    @Override
+    public int atomicAddInt(int addr, int delta) {
+        try {
+            ByteBuffer page = writablePage(addr >>> PAGE_SHIFT);
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                return (int) Handles.INT.getAndAdd(page, off, delta);
+            }
+            synchronized (monitor(addr)) {
+                int value = page.getInt(off);
+                page.putInt(off, (value + delta));
+                return value;
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 4);
+        }
+    }
+
+    @Override
+    public long atomicAddLong(int addr, long delta) {
+        try {
+            ByteBuffer page = writablePage(addr >>> PAGE_SHIFT);
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                return (long) Handles.LONG.getAndAdd(page, off, delta);
+            }
+            synchronized (monitor(addr)) {
+                long value = page.getLong(off);
+                page.putLong(off, (value + delta));
+                return value;
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 8);
+        }
+    }
+
+    @Override
+    public short atomicAddShort(int addr, short delta) {
+        try {
+            ByteBuffer page = writablePage(addr >>> PAGE_SHIFT);
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                int alignedOff = off & ~3;
+                int shift = (off & 2) * 8;
+                int mask = 0xFFFF << shift;
+                while (true) {
+                    int oldInt = (int) Handles.INT.getVolatile(page, alignedOff);
+                    short old = (short) (oldInt >>> shift);
+                    int newInt = (oldInt & ~mask) | (((old + delta) & 0xFFFF) << shift);
+                    if (Handles.INT.compareAndSet(page, alignedOff, oldInt, newInt)) {
+                        return old;
+                    }
+                }
+            }
+            synchronized (monitor(addr)) {
+                short value = page.getShort(off);
+                page.putShort(off, (short) (value + delta));
+                return value;
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 2);
+        }
+    }
+
+    @Override
+    public byte atomicAndByte(int addr, byte mask) {
+        try {
+            ByteBuffer page = writablePage(addr >>> PAGE_SHIFT);
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                // the other bits of the int are and-ed with ones
+                int shift = (off & 3) * 8;
+                int intMask = ((mask & 0xFF) << shift) | ~(0xFF << shift);
+                return (byte)
+                        ((int) Handles.INT.getAndBitwiseAnd(page, off & ~3, intMask) >>> shift);
+            }
+            synchronized (monitor(addr)) {
+                byte value = page.get(off);
+                page.put(off, (byte) (value & mask));
+                return value;
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 1);
+        }
+    }
+
+    @Override
+    public int atomicAndInt(int addr, int mask) {
+        try {
+            ByteBuffer page = writablePage(addr >>> PAGE_SHIFT);
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                return (int) Handles.INT.getAndBitwiseAnd(page, off, mask);
+            }
+            synchronized (monitor(addr)) {
+                int value = page.getInt(off);
+                page.putInt(off, (value & mask));
+                return value;
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 4);
+        }
+    }
+
+    @Override
+    public long atomicAndLong(int addr, long mask) {
+        try {
+            ByteBuffer page = writablePage(addr >>> PAGE_SHIFT);
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                return (long) Handles.LONG.getAndBitwiseAnd(page, off, mask);
+            }
+            synchronized (monitor(addr)) {
+                long value = page.getLong(off);
+                page.putLong(off, (value & mask));
+                return value;
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 8);
+        }
+    }
+
+    @Override
+    public short atomicAndShort(int addr, short mask) {
+        try {
+            ByteBuffer page = writablePage(addr >>> PAGE_SHIFT);
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                // the other bits of the int are and-ed with ones
+                int shift = (off & 2) * 8;
+                int intMask = ((mask & 0xFFFF) << shift) | ~(0xFFFF << shift);
+                return (short)
+                        ((int) Handles.INT.getAndBitwiseAnd(page, off & ~3, intMask) >>> shift);
+            }
+            synchronized (monitor(addr)) {
+                short value = page.getShort(off);
+                page.putShort(off, (short) (value & mask));
+                return value;
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 2);
+        }
+    }
+
+    @Override
+    public byte atomicCmpxchgByte(int addr, byte expected, byte replacement) {
+        try {
+            ByteBuffer page = writablePage(addr >>> PAGE_SHIFT);
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                int alignedOff = off & ~3;
+                int shift = (off & 3) * 8;
+                int mask = 0xFF << shift;
+                while (true) {
+                    int oldInt = (int) Handles.INT.getVolatile(page, alignedOff);
+                    byte old = (byte) (oldInt >>> shift);
+                    if (old != expected) {
+                        return old;
+                    }
+                    int newInt = (oldInt & ~mask) | ((replacement & 0xFF) << shift);
+                    if (Handles.INT.compareAndSet(page, alignedOff, oldInt, newInt)) {
+                        return old;
+                    }
+                }
+            }
+            synchronized (monitor(addr)) {
+                byte value = page.get(off);
+                if (value == expected) {
+                    page.put(off, replacement);
+                }
+                return value;
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 1);
+        }
+    }
+
+    @Override
+    public int atomicCmpxchgInt(int addr, int expected, int replacement) {
+        try {
+            ByteBuffer page = writablePage(addr >>> PAGE_SHIFT);
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                return (int) Handles.INT.compareAndExchange(page, off, expected, replacement);
+            }
+            synchronized (monitor(addr)) {
+                int value = page.getInt(off);
+                if (value == expected) {
+                    page.putInt(off, replacement);
+                }
+                return value;
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 4);
+        }
+    }
+
+    @Override
+    public long atomicCmpxchgLong(int addr, long expected, long replacement) {
+        try {
+            ByteBuffer page = writablePage(addr >>> PAGE_SHIFT);
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                return (long) Handles.LONG.compareAndExchange(page, off, expected, replacement);
+            }
+            synchronized (monitor(addr)) {
+                long value = page.getLong(off);
+                if (value == expected) {
+                    page.putLong(off, replacement);
+                }
+                return value;
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 8);
+        }
+    }
+
+    @Override
+    public short atomicCmpxchgShort(int addr, short expected, short replacement) {
+        try {
+            ByteBuffer page = writablePage(addr >>> PAGE_SHIFT);
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                int alignedOff = off & ~3;
+                int shift = (off & 2) * 8;
+                int mask = 0xFFFF << shift;
+                while (true) {
+                    int oldInt = (int) Handles.INT.getVolatile(page, alignedOff);
+                    short old = (short) (oldInt >>> shift);
+                    if (old != expected) {
+                        return old;
+                    }
+                    int newInt = (oldInt & ~mask) | ((replacement & 0xFFFF) << shift);
+                    if (Handles.INT.compareAndSet(page, alignedOff, oldInt, newInt)) {
+                        return old;
+                    }
+                }
+            }
+            synchronized (monitor(addr)) {
+                short value = page.getShort(off);
+                if (value == expected) {
+                    page.putShort(off, replacement);
+                }
+                return value;
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 2);
+        }
+    }
+
+    @Override
+    public byte atomicOrByte(int addr, byte mask) {
+        try {
+            ByteBuffer page = writablePage(addr >>> PAGE_SHIFT);
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                // the other bits of the int are or-ed with zeros
+                int shift = (off & 3) * 8;
+                int intMask = (mask & 0xFF) << shift;
+                return (byte)
+                        ((int) Handles.INT.getAndBitwiseOr(page, off & ~3, intMask) >>> shift);
+            }
+            synchronized (monitor(addr)) {
+                byte value = page.get(off);
+                page.put(off, (byte) (value | mask));
+                return value;
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 1);
+        }
+    }
+
+    @Override
+    public int atomicOrInt(int addr, int mask) {
+        try {
+            ByteBuffer page = writablePage(addr >>> PAGE_SHIFT);
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                return (int) Handles.INT.getAndBitwiseOr(page, off, mask);
+            }
+            synchronized (monitor(addr)) {
+                int value = page.getInt(off);
+                page.putInt(off, (value | mask));
+                return value;
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 4);
+        }
+    }
+
+    @Override
+    public long atomicOrLong(int addr, long mask) {
+        try {
+            ByteBuffer page = writablePage(addr >>> PAGE_SHIFT);
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                return (long) Handles.LONG.getAndBitwiseOr(page, off, mask);
+            }
+            synchronized (monitor(addr)) {
+                long value = page.getLong(off);
+                page.putLong(off, (value | mask));
+                return value;
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 8);
+        }
+    }
+
+    @Override
+    public short atomicOrShort(int addr, short mask) {
+        try {
+            ByteBuffer page = writablePage(addr >>> PAGE_SHIFT);
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                // the other bits of the int are or-ed with zeros
+                int shift = (off & 2) * 8;
+                int intMask = (mask & 0xFFFF) << shift;
+                return (short)
+                        ((int) Handles.INT.getAndBitwiseOr(page, off & ~3, intMask) >>> shift);
+            }
+            synchronized (monitor(addr)) {
+                short value = page.getShort(off);
+                page.putShort(off, (short) (value | mask));
+                return value;
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 2);
+        }
+    }
+
+    @Override
+    public byte atomicReadByte(int addr) {
+        try {
+            ByteBuffer page = pages[addr >>> PAGE_SHIFT];
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                int shift = (off & 3) * 8;
+                return (byte) ((int) Handles.INT.getVolatile(page, off & ~3) >>> shift);
+            }
+            synchronized (monitor(addr)) {
+                return page.get(off);
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 1);
+        }
+    }
+
+    @Override
+    public int atomicReadInt(int addr) {
+        try {
+            ByteBuffer page = pages[addr >>> PAGE_SHIFT];
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                return (int) Handles.INT.getVolatile(page, off);
+            }
+            synchronized (monitor(addr)) {
+                return page.getInt(off);
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 4);
+        }
+    }
+
+    @Override
+    public long atomicReadLong(int addr) {
+        try {
+            ByteBuffer page = pages[addr >>> PAGE_SHIFT];
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                return (long) Handles.LONG.getVolatile(page, off);
+            }
+            synchronized (monitor(addr)) {
+                return page.getLong(off);
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 8);
+        }
+    }
+
+    @Override
+    public short atomicReadShort(int addr) {
+        try {
+            ByteBuffer page = pages[addr >>> PAGE_SHIFT];
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                return (short) Handles.SHORT.getVolatile(page, off);
+            }
+            synchronized (monitor(addr)) {
+                return page.getShort(off);
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 2);
+        }
+    }
+
+    @Override
+    public void atomicWriteByte(int addr, byte value) {
+        try {
+            ByteBuffer page = writablePage(addr >>> PAGE_SHIFT);
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                int alignedOff = off & ~3;
+                int shift = (off & 3) * 8;
+                int mask = 0xFF << shift;
+                while (true) {
+                    int oldInt = (int) Handles.INT.getVolatile(page, alignedOff);
+                    int newInt = (oldInt & ~mask) | ((value & 0xFF) << shift);
+                    if (Handles.INT.compareAndSet(page, alignedOff, oldInt, newInt)) {
+                        return;
+                    }
+                }
+            }
+            synchronized (monitor(addr)) {
+                page.put(off, value);
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 1);
+        }
+    }
+
+    @Override
+    public void atomicWriteInt(int addr, int value) {
+        try {
+            ByteBuffer page = writablePage(addr >>> PAGE_SHIFT);
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                Handles.INT.setVolatile(page, off, value);
+                return;
+            }
+            synchronized (monitor(addr)) {
+                page.putInt(off, value);
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 4);
+        }
+    }
+
+    @Override
+    public void atomicWriteLong(int addr, long value) {
+        try {
+            ByteBuffer page = writablePage(addr >>> PAGE_SHIFT);
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                Handles.LONG.setVolatile(page, off, value);
+                return;
+            }
+            synchronized (monitor(addr)) {
+                page.putLong(off, value);
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 8);
+        }
+    }
+
+    @Override
+    public void atomicWriteShort(int addr, short value) {
+        try {
+            ByteBuffer page = writablePage(addr >>> PAGE_SHIFT);
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                Handles.SHORT.setVolatile(page, off, value);
+                return;
+            }
+            synchronized (monitor(addr)) {
+                page.putShort(off, value);
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 2);
+        }
+    }
+
+    @Override
+    public byte atomicXchgByte(int addr, byte value) {
+        try {
+            ByteBuffer page = writablePage(addr >>> PAGE_SHIFT);
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                int alignedOff = off & ~3;
+                int shift = (off & 3) * 8;
+                int mask = 0xFF << shift;
+                while (true) {
+                    int oldInt = (int) Handles.INT.getVolatile(page, alignedOff);
+                    byte old = (byte) (oldInt >>> shift);
+                    int newInt = (oldInt & ~mask) | ((value & 0xFF) << shift);
+                    if (Handles.INT.compareAndSet(page, alignedOff, oldInt, newInt)) {
+                        return old;
+                    }
+                }
+            }
+            synchronized (monitor(addr)) {
+                byte oldValue = page.get(off);
+                page.put(off, value);
+                return oldValue;
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 1);
+        }
+    }
+
+    @Override
+    public int atomicXchgInt(int addr, int value) {
+        try {
+            ByteBuffer page = writablePage(addr >>> PAGE_SHIFT);
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                return (int) Handles.INT.getAndSet(page, off, value);
+            }
+            synchronized (monitor(addr)) {
+                int oldValue = page.getInt(off);
+                page.putInt(off, value);
+                return oldValue;
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 4);
+        }
+    }
+
+    @Override
+    public long atomicXchgLong(int addr, long value) {
+        try {
+            ByteBuffer page = writablePage(addr >>> PAGE_SHIFT);
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                return (long) Handles.LONG.getAndSet(page, off, value);
+            }
+            synchronized (monitor(addr)) {
+                long oldValue = page.getLong(off);
+                page.putLong(off, value);
+                return oldValue;
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 8);
+        }
+    }
+
+    @Override
+    public short atomicXchgShort(int addr, short value) {
+        try {
+            ByteBuffer page = writablePage(addr >>> PAGE_SHIFT);
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                int alignedOff = off & ~3;
+                int shift = (off & 2) * 8;
+                int mask = 0xFFFF << shift;
+                while (true) {
+                    int oldInt = (int) Handles.INT.getVolatile(page, alignedOff);
+                    short old = (short) (oldInt >>> shift);
+                    int newInt = (oldInt & ~mask) | ((value & 0xFFFF) << shift);
+                    if (Handles.INT.compareAndSet(page, alignedOff, oldInt, newInt)) {
+                        return old;
+                    }
+                }
+            }
+            synchronized (monitor(addr)) {
+                short oldValue = page.getShort(off);
+                page.putShort(off, value);
+                return oldValue;
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 2);
+        }
+    }
+
+    @Override
+    public byte atomicXorByte(int addr, byte mask) {
+        try {
+            ByteBuffer page = writablePage(addr >>> PAGE_SHIFT);
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                // the other bits of the int are xor-ed with zeros
+                int shift = (off & 3) * 8;
+                int intMask = (mask & 0xFF) << shift;
+                return (byte)
+                        ((int) Handles.INT.getAndBitwiseXor(page, off & ~3, intMask) >>> shift);
+            }
+            synchronized (monitor(addr)) {
+                byte value = page.get(off);
+                page.put(off, (byte) (value ^ mask));
+                return value;
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 1);
+        }
+    }
+
+    @Override
+    public int atomicXorInt(int addr, int mask) {
+        try {
+            ByteBuffer page = writablePage(addr >>> PAGE_SHIFT);
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                return (int) Handles.INT.getAndBitwiseXor(page, off, mask);
+            }
+            synchronized (monitor(addr)) {
+                int value = page.getInt(off);
+                page.putInt(off, (value ^ mask));
+                return value;
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 4);
+        }
+    }
+
+    @Override
+    public long atomicXorLong(int addr, long mask) {
+        try {
+            ByteBuffer page = writablePage(addr >>> PAGE_SHIFT);
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                return (long) Handles.LONG.getAndBitwiseXor(page, off, mask);
+            }
+            synchronized (monitor(addr)) {
+                long value = page.getLong(off);
+                page.putLong(off, (value ^ mask));
+                return value;
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 8);
+        }
+    }
+
+    @Override
+    public short atomicXorShort(int addr, short mask) {
+        try {
+            ByteBuffer page = writablePage(addr >>> PAGE_SHIFT);
+            int off = addr & PAGE_MASK;
+            if (LOCK_FREE) {
+                // the other bits of the int are xor-ed with zeros
+                int shift = (off & 2) * 8;
+                int intMask = (mask & 0xFFFF) << shift;
+                return (short)
+                        ((int) Handles.INT.getAndBitwiseXor(page, off & ~3, intMask) >>> shift);
+            }
+            synchronized (monitor(addr)) {
+                short value = page.getShort(off);
+                page.putShort(off, (short) (value ^ mask));
+                return value;
+            }
+        } catch (RuntimeException e) {
+            throw outOfBoundsException(e, addr, 2);
+        }
+    }
+
+    // Loaded only if the VarHandles are available
+    private static final class Handles {
+        static final VarHandle SHORT =
+                MethodHandles.byteBufferViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+        static final VarHandle INT =
+                MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+        static final VarHandle LONG =
+                MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+        private Handles() {}
+    }
+
+    private static boolean hasVarHandles() {
+        try {
+            return Handles.SHORT.isAccessModeSupported(AccessMode.GET_VOLATILE)
+                    && Handles.SHORT.isAccessModeSupported(AccessMode.SET_VOLATILE)
+                    && hasFullAtomicSupport(Handles.INT)
+                    && hasFullAtomicSupport(Handles.LONG);
+        } catch (LinkageError e) {
+            // to take into account older Android API level:
+            // https://developer.android.com/reference/java/lang/invoke/MethodHandles
+            return false;
+        }
+    }
+
+    private static boolean hasFullAtomicSupport(VarHandle varHandle) {
+        return varHandle.isAccessModeSupported(AccessMode.GET_VOLATILE)
+                && varHandle.isAccessModeSupported(AccessMode.SET_VOLATILE)
+                && varHandle.isAccessModeSupported(AccessMode.COMPARE_AND_SET)
+                && varHandle.isAccessModeSupported(AccessMode.COMPARE_AND_EXCHANGE)
+                && varHandle.isAccessModeSupported(AccessMode.GET_AND_SET)
+                && varHandle.isAccessModeSupported(AccessMode.GET_AND_ADD)
+                && varHandle.isAccessModeSupported(AccessMode.GET_AND_BITWISE_AND)
+                && varHandle.isAccessModeSupported(AccessMode.GET_AND_BITWISE_OR)
+                && varHandle.isAccessModeSupported(AccessMode.GET_AND_BITWISE_XOR);
+    }
+
     private static Runnable getAtomicFenceImpl() {
         try {
             // to take into account older Android API level:
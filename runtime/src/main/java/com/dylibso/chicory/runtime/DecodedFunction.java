@@ -0,0 +1,38 @@
+package com.dylibso.chicory.runtime;
+
+/**
+ * A function body lowered once into a flat code array.
+ * <p>
+ * Every instruction is an opcode from {@link DecodedOpCode} followed by its immediates,
+ * branch targets are absolute indexes into {@link #code} and the number of stack slots
+ * to keep and to discard when branching are pre-computed by {@link FunctionDecoder}.
+ * 64-bit constants are stored in {@link #constants}.
+ */
+final class DecodedFunction {
+
+    final int funcId;
+    final int[] code;
+    final long[] constants;
+    final int paramCount;
+    // initial values of the parameters and locals, parameters are overwritten on each call
+    final long[] locals;
+    final int resultCount;
+    final int maxStackHeight;
+
+    DecodedFunction(
+            int funcId,
+            int[] code,
+            long[] constants,
+            int paramCount,
+            long[] locals,
+            int resultCount,
+            int maxStackHeight) {
+        this.funcId = funcId;
+        this.code = code;
+        this.constants = constants;
+        this.paramCount = paramCount;
+        this.locals = locals;
+        this.resultCount = resultCount;
+        this.maxStackHeight = maxStackHeight;
+    }
+}
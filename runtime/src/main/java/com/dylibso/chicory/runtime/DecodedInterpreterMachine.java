@@ -0,0 +1,1564 @@
+package com.dylibso.chicory.runtime;
+
+import static com.dylibso.chicory.runtime.InterpreterMachine.checkInterruption;
+import static com.dylibso.chicory.wasm.types.Value.REF_NULL_VALUE;
+import static java.util.Objects.requireNonNullElse;
+
+import com.dylibso.chicory.wasm.ChicoryException;
+import com.dylibso.chicory.wasm.types.FunctionType;
+import com.dylibso.chicory.wasm.types.OpCode;
+import com.dylibso.chicory.wasm.types.Value;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.stream.IntStream;
+
+/**
+ * An interpreter that lowers each function body once, on its first invocation, into a
+ * compact code array and executes it in a tight loop.
+ * <p>
+ * Compared to the {@link InterpreterMachine} the operands are read inline from the code array,
+ * branch targets are pre-resolved and no control frames are allocated at runtime.
+ * Functions that can't be lowered (e.g. using SIMD, exception handling, tail calls, GC or
+ * atomics) are transparently executed by an {@link InterpreterMachine}, as well as all the
+ * functions of instances with an execution listener or metered with fuel.
+ * <p>
+ * It can be enabled with:
+ * <pre>
+ * Instance.builder(module).withMachineFactory(DecodedInterpreterMachine::new).build();
+ * </pre>
+ */
+public class DecodedInterpreterMachine implements Machine {
+
+    private static final int MIN_STACK_CAPACITY = 64;
+    private static final int MIN_FRAMES_CAPACITY = 16;
+
+    public static final int DEFAULT_MAX_CALL_DEPTH = 10_000;
+
+    // invokeN(DecodedFunction, long...) for N parameters
+    private static final MethodHandle[] INVOKERS = new MethodHandle[5];
+
+    static {
+        try {
+            var lookup = MethodHandles.lookup();
+            for (int i = 0; i < INVOKERS.length; i++) {
+                var params = new Class<?>[i + 1];
+                params[0] = DecodedFunction.class;
+                Arrays.fill(params, 1, params.length, long.class);
+                INVOKERS[i] =
+                        lookup.findVirtual(
+                                DecodedInterpreterMachine.class,
+                                "invoke" + i,
+                                MethodType.methodType(long.class, params));
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    // marker for the functions that are executed by the InterpreterMachine
+    private static final DecodedFunction NOT_DECODED =
+            new DecodedFunction(-1, new int[0], new long[0], 0, new long[0], 0, 0);
+    // marker frame of an entry in the InterpreterMachine
+    private static final DecodedFunction INTERPRETED =
+            new DecodedFunction(-1, new int[0], new long[0], 0, new long[0], 0, 0);
+
+    private final Instance instance;
+    private final FallbackInterpreterMachine interpreter;
+    private final DecodedFunction[] functions;
+
+    private final int maxCallDepth;
+
+    // parameters, locals and operands of all the active functions
+    private long[] stack;
+    // first free slot of the stack when the execution leaves the decoded code
+    private int top;
+
+    // active functions: function, return address once it calls and frame base
+    private DecodedFunction[] frameFunctions;
+    private int[] framePcs;
+    private int[] frameBases;
+    // the interpreted callers set aside by the INTERPRETED frames, innermost first
+    private StackFrame[][] frameCallers;
+    private int depth;
+
+    public DecodedInterpreterMachine(Instance instance) {
+        this(instance, DEFAULT_MAX_CALL_DEPTH);
+    }
+
+    /**
+     * @param maxCallDepth the maximum number of nested calls between decoded functions,
+     *                     exceeding it traps with "call stack exhausted".
+     */
+    public DecodedInterpreterMachine(Instance instance, int maxCallDepth) {
+        this.instance = instance;
+        this.maxCallDepth = maxCallDepth;
+        this.interpreter = new FallbackInterpreterMachine(instance);
+        this.functions =
+                new DecodedFunction
+                        [instance.imports().functionCount()
+                                + instance.module().functionSection().functionCount()];
+        this.stack = new long[MIN_STACK_CAPACITY];
+        this.frameFunctions = new DecodedFunction[MIN_FRAMES_CAPACITY];
+        this.framePcs = new int[MIN_FRAMES_CAPACITY];
+        this.frameBases = new int[MIN_FRAMES_CAPACITY];
+        this.frameCallers = new StackFrame[MIN_FRAMES_CAPACITY][];
+    }
+
+    @Override
+    public long[] call(int funcId, long[] args) throws ChicoryException {
+        var fn = decoded(funcId);
+        if (fn == null) {
+            return interpreter.callNested(funcId, args);
+        }
+
+        var base = top;
+        ensureCapacity(base + fn.paramCount);
+        var count = Math.min(args.length, fn.paramCount);
+        System.arraycopy(args, 0, stack, base, count);
+        Arrays.fill(stack, base + count, base + fn.paramCount, 0L);
+
+        run(fn, base);
+
+        if (fn.resultCount == 0) {
+            return null;
+        }
+        return Arrays.copyOfRange(stack, base, base + fn.resultCount);
+    }
+
+    /**
+     * Returns a handle writing the arguments directly in the value stack, with no arrays,
+     * for the decoded functions with up to 4 parameters and at most one result.
+     */
+    @Override
+    public MethodHandle handle(int funcId, FunctionType type) {
+        var fn = decoded(funcId);
+        var arity = type.params().size();
+        if (fn == null || arity >= INVOKERS.length || type.returns().size() > 1) {
+            return Machine.super.handle(funcId, type);
+        }
+        var invoker = MethodHandles.insertArguments(INVOKERS[arity], 0, this, fn);
+        return FunctionHandles.fromLongs(invoker, type);
+    }
+
+    private long invoke0(DecodedFunction fn) {
+        var base = top;
+        ensureCapacity(base);
+        return run(fn, base);
+    }
+
+    private long invoke1(DecodedFunction fn, long arg0) {
+        var base = top;
+        ensureCapacity(base + 1);
+        stack[base] = arg0;
+        return run(fn, base);
+    }
+
+    private long invoke2(DecodedFunction fn, long arg0, long arg1) {
+        var base = top;
+        ensureCapacity(base + 2);
+        stack[base] = arg0;
+        stack[base + 1] = arg1;
+        return run(fn, base);
+    }
+
+    private long invoke3(DecodedFunction fn, long arg0, long arg1, long arg2) {
+        var base = top;
+        ensureCapacity(base + 3);
+        stack[base] = arg0;
+        stack[base + 1] = arg1;
+        stack[base + 2] = arg2;
+        return run(fn, base);
+    }
+
+    private long invoke4(DecodedFunction fn, long arg0, long arg1, long arg2, long arg3) {
+        var base = top;
+        ensureCapacity(base + 4);
+        stack[base] = arg0;
+        stack[base + 1] = arg1;
+        stack[base + 2] = arg2;
+        stack[base + 3] = arg3;
+        return run(fn, base);
+    }
+
+    /**
+     * Runs a function from a call of the embedder, the results are left on the stack starting
+     * at {@code base}.
+     *
+     * @return the first result, or {@code 0} for a function without results.
+     */
+    private long run(DecodedFunction fn, int base) {
+        var callerDepth = depth;
+        try {
+            execute(fn, base);
+            return (fn.resultCount == 0) ? 0L : stack[base];
+        } catch (TrapException e) {
+            // recorded by the innermost function, before the frames are popped
+            throw e.recordBacktrace(instance);
+        } catch (StackOverflowError e) {
+            throw new ChicoryException("call stack exhausted", e);
+        } finally {
+            top = base;
+            depth = callerDepth;
+        }
+    }
+
+    private DecodedFunction decoded(int funcId) {
+        var fn = functions[funcId];
+        if (fn == null) {
+            fn =
+                    instance.hasExecutionListener() || instance.isFuelMetered()
+                            ? null
+                            : FunctionDecoder.decode(instance, funcId);
+            if (fn == null) {
+                fn = NOT_DECODED;
+            }
+            functions[funcId] = fn;
+        }
+        return (fn == NOT_DECODED) ? null : fn;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > stack.length) {
+            stack = Arrays.copyOf(stack, Math.max(capacity, stack.length << 1));
+        }
+    }
+
+    private static int address(long value, int offset) {
+        int address = (int) value;
+        if (address < 0) {
+            throw new WasmRuntimeException("out of bounds memory access");
+        }
+        return offset + address;
+    }
+
+    private Memory memory(Memory memory, int memIdx) {
+        return (memIdx == 0) ? memory : instance.memory(memIdx);
+    }
+
+    /**
+     * Sets up the frame of a function whose parameters are on the stack starting at {@code base},
+     * the locals follow the parameters and the operands follow the locals.
+     *
+     * @return the stack pointer of the empty operand stack.
+     */
+    private int enter(DecodedFunction fn, int base) {
+        checkInterruption(instance);
+        var localsEnd = base + fn.locals.length;
+        ensureCapacity(localsEnd + fn.maxStackHeight);
+        System.arraycopy(
+                fn.locals,
+                fn.paramCount,
+                stack,
+                base + fn.paramCount,
+                fn.locals.length - fn.paramCount);
+        return localsEnd;
+    }
+
+    private void pushFrame(DecodedFunction fn, int pc, int base) {
+        if (depth == maxCallDepth) {
+            throw new ChicoryException("call stack exhausted");
+        }
+        if (depth == frameFunctions.length) {
+            var capacity = depth << 1;
+            frameFunctions = Arrays.copyOf(frameFunctions, capacity);
+            framePcs = Arrays.copyOf(framePcs, capacity);
+            frameBases = Arrays.copyOf(frameBases, capacity);
+            frameCallers = Arrays.copyOf(frameCallers, capacity);
+        }
+        frameFunctions[depth] = fn;
+        framePcs[depth] = pc;
+        frameBases[depth] = base;
+        depth++;
+    }
+
+    /**
+     * Returns the functions being executed, innermost first: the decoded functions and the ones
+     * run in between by the {@link InterpreterMachine}.
+     */
+    @Override
+    public int[] stackTrace() {
+        var trace = IntStream.builder();
+        var interpreted = interpreter.interpretedStackTrace();
+        for (int i = depth - 1; i >= 0; i--) {
+            var fn = frameFunctions[i];
+            if (fn != INTERPRETED) {
+                trace.add(fn.funcId);
+                continue;
+            }
+            // the interpreter was entered here: its frames are the callees of this frame
+            for (var funcId : interpreted) {
+                trace.add(funcId);
+            }
+            var callers = frameCallers[i];
+            interpreted = new int[(callers == null) ? 0 : callers.length];
+            for (int j = 0; j < interpreted.length; j++) {
+                interpreted[j] = callers[j].funcId();
+            }
+        }
+        for (var funcId : interpreted) {
+            trace.add(funcId);
+        }
+        return trace.build().toArray();
+    }
+
+    /**
+     * Executes a decoded function, the parameters are read from the stack starting at {@code base}
+     * and the results are left on the stack starting at the same position.
+     * <p>
+     * Calls between decoded functions don't recurse, the callee is pushed on the frames stack
+     * with the return address of the caller and the callee parameters on top of the operands of
+     * the caller become the callee frame.
+     */
+    private void execute(DecodedFunction fn, int base) {
+        final var entryDepth = depth;
+        final var memory = instance.memory();
+
+        var code = fn.code;
+        pushFrame(fn, 0, base);
+        var sp = enter(fn, base);
+        var s = stack;
+        var pc = 0;
+
+        while (true) {
+            switch (code[pc++]) {
+                case DecodedOpCode.UNREACHABLE:
+                    throw new TrapException("Trapped on unreachable instruction");
+                case DecodedOpCode.LOOP:
+                    checkInterruption(instance);
+                    break;
+                case DecodedOpCode.IF:
+                    if ((int) s[--sp] == 0) {
+                        pc = code[pc];
+                    } else {
+                        pc++;
+                    }
+                    break;
+                case DecodedOpCode.BR:
+                    pc = code[pc];
+                    break;
+                case DecodedOpCode.BR_UNWIND:
+                    {
+                        var keep = code[pc + 1];
+                        var drop = code[pc + 2];
+                        System.arraycopy(s, sp - keep, s, sp - keep - drop, keep);
+                        sp -= drop;
+                        pc = code[pc];
+                        break;
+                    }
+                case DecodedOpCode.BR_IF:
+                    if ((int) s[--sp] != 0) {
+                        pc = code[pc];
+                    } else {
+                        pc++;
+                    }
+                    break;
+                case DecodedOpCode.BR_IF_UNWIND:
+                    if ((int) s[--sp] != 0) {
+                        var keep = code[pc + 1];
+                        var drop = code[pc + 2];
+                        System.arraycopy(s, sp - keep, s, sp - keep - drop, keep);
+                        sp -= drop;
+                        pc = code[pc];
+                    } else {
+                        pc += 3;
+                    }
+                    break;
+                case DecodedOpCode.BR_TABLE:
+                    {
+                        var count = code[pc];
+                        var idx = (int) s[--sp];
+                        if (idx < 0 || idx >= count) {
+                            idx = count;
+                        }
+                        var entry = pc + 1 + idx * 3;
+                        var keep = code[entry + 1];
+                        var drop = code[entry + 2];
+                        if (drop != 0) {
+                            System.arraycopy(s, sp - keep, s, sp - keep - drop, keep);
+                            sp -= drop;
+                        }
+                        pc = code[entry];
+                        break;
+                    }
+                case DecodedOpCode.RETURN:
+                    {
+                        var count = fn.resultCount;
+                        if (sp - count != base) {
+                            System.arraycopy(s, sp - count, s, base, count);
+                        }
+                        depth--;
+                        if (depth == entryDepth) {
+                            return;
+                        }
+                        sp = base + count;
+                        fn = frameFunctions[depth - 1];
+                        pc = framePcs[depth - 1];
+                        base = frameBases[depth - 1];
+                        code = fn.code;
+                        break;
+                    }
+                case DecodedOpCode.CALL:
+                    {
+                        var callee = decoded(code[pc]);
+                        if (callee == null) {
+                            sp = invoke(code[pc], sp, code[pc + 1], code[pc + 2]);
+                            s = stack;
+                            pc += 3;
+                            break;
+                        }
+                        framePcs[depth - 1] = pc + 3;
+                        base = sp - code[pc + 1];
+                        fn = callee;
+                        code = fn.code;
+                        pushFrame(fn, 0, base);
+                        sp = enter(fn, base);
+                        s = stack;
+                        pc = 0;
+                        break;
+                    }
+                case DecodedOpCode.CALL_INDIRECT:
+                    {
+                        var funcTableIdx = (int) s[--sp];
+                        var table = instance.table(code[pc + 1]);
+                        var funcId = table.requiredRef(funcTableIdx);
+                        var refInstance =
+                                requireNonNullElse(table.instance(funcTableIdx), instance);
+                        InterpreterMachine.verifyIndirectCallByTypeIdx(
+                                refInstance.functionType(funcId),
+                                code[pc],
+                                refInstance.canonicalTypes());
+
+                        var callee = (refInstance == instance) ? decoded(funcId) : null;
+                        if (callee == null) {
+                            sp =
+                                    (refInstance == instance)
+                                            ? invoke(funcId, sp, code[pc + 2], code[pc + 3])
+                                            : callExternal(
+                                                    refInstance,
+                                                    funcId,
+                                                    sp,
+                                                    code[pc + 2],
+                                                    code[pc + 3]);
+                            s = stack;
+                            pc += 4;
+                            break;
+                        }
+                        framePcs[depth - 1] = pc + 4;
+                        base = sp - code[pc + 2];
+                        fn = callee;
+                        code = fn.code;
+                        pushFrame(fn, 0, base);
+                        sp = enter(fn, base);
+                        s = stack;
+                        pc = 0;
+                        break;
+                    }
+                case DecodedOpCode.DROP:
+                    sp--;
+                    break;
+                case DecodedOpCode.SELECT:
+                    {
+                        var pred = (int) s[--sp];
+                        sp--;
+                        if (pred == 0) {
+                            s[sp - 1] = s[sp];
+                        }
+                        break;
+                    }
+                case DecodedOpCode.LOCAL_GET:
+                    s[sp++] = s[base + code[pc++]];
+                    break;
+                case DecodedOpCode.LOCAL_SET:
+                    s[base + code[pc++]] = s[--sp];
+                    break;
+                case DecodedOpCode.LOCAL_TEE:
+                    s[base + code[pc++]] = s[sp - 1];
+                    break;
+                case DecodedOpCode.GLOBAL_GET:
+                    s[sp++] = instance.global(code[pc++]).getValueLow();
+                    break;
+                case DecodedOpCode.GLOBAL_SET:
+                    instance.global(code[pc++]).setValue(s[--sp]);
+                    break;
+                case DecodedOpCode.TABLE_GET:
+                    {
+                        var idx = code[pc++];
+                        var ref = OpcodeImpl.TABLE_GET(instance, idx, (int) s[sp - 1]);
+                        s[sp - 1] =
+                                OpcodeImpl.unboxFromTable(
+                                        ref, instance, instance.table(idx).elementType());
+                        break;
+                    }
+                case DecodedOpCode.TABLE_SET:
+                    {
+                        var table = instance.table(code[pc++]);
+                        var value = OpcodeImpl.boxForTable(s[--sp], instance);
+                        table.setRef((int) s[--sp], value, instance);
+                        break;
+                    }
+                case DecodedOpCode.I32_LOAD:
+                    s[sp - 1] = memory(memory, code[pc + 1]).readI32(address(s[sp - 1], code[pc]));
+                    pc += 2;
+                    break;
+                case DecodedOpCode.I64_LOAD:
+                    s[sp - 1] = memory(memory, code[pc + 1]).readI64(address(s[sp - 1], code[pc]));
+                    pc += 2;
+                    break;
+                case DecodedOpCode.F32_LOAD:
+                    s[sp - 1] = memory(memory, code[pc + 1]).readF32(address(s[sp - 1], code[pc]));
+                    pc += 2;
+                    break;
+                case DecodedOpCode.F64_LOAD:
+                    s[sp - 1] = memory(memory, code[pc + 1]).readF64(address(s[sp - 1], code[pc]));
+                    pc += 2;
+                    break;
+                case DecodedOpCode.I32_LOAD8_S:
+                case DecodedOpCode.I64_LOAD8_S:
+                    s[sp - 1] = memory(memory, code[pc + 1]).readI8(address(s[sp - 1], code[pc]));
+                    pc += 2;
+                    break;
+                case DecodedOpCode.I32_LOAD8_U:
+                case DecodedOpCode.I64_LOAD8_U:
+                    s[sp - 1] = memory(memory, code[pc + 1]).readU8(address(s[sp - 1], code[pc]));
+                    pc += 2;
+                    break;
+                case DecodedOpCode.I32_LOAD16_S:
+                case DecodedOpCode.I64_LOAD16_S:
+                    s[sp - 1] = memory(memory, code[pc + 1]).readI16(address(s[sp - 1], code[pc]));
+                    pc += 2;
+                    break;
+                case DecodedOpCode.I32_LOAD16_U:
+                case DecodedOpCode.I64_LOAD16_U:
+                    s[sp - 1] = memory(memory, code[pc + 1]).readU16(address(s[sp - 1], code[pc]));
+                    pc += 2;
+                    break;
+                case DecodedOpCode.I64_LOAD32_S:
+                    s[sp - 1] = memory(memory, code[pc + 1]).readI32(address(s[sp - 1], code[pc]));
+                    pc += 2;
+                    break;
+                case DecodedOpCode.I64_LOAD32_U:
+                    s[sp - 1] = memory(memory, code[pc + 1]).readU32(address(s[sp - 1], code[pc]));
+                    pc += 2;
+                    break;
+                case DecodedOpCode.I32_STORE:
+                case DecodedOpCode.I64_STORE32:
+                    sp -= 2;
+                    memory(memory, code[pc + 1])
+                            .writeI32(address(s[sp], code[pc]), (int) s[sp + 1]);
+                    pc += 2;
+                    break;
+                case DecodedOpCode.I64_STORE:
+                    sp -= 2;
+                    memory(memory, code[pc + 1]).writeLong(address(s[sp], code[pc]), s[sp + 1]);
+                    pc += 2;
+                    break;
+                case DecodedOpCode.F32_STORE:
+                    sp -= 2;
+                    memory(memory, code[pc + 1])
+                            .writeF32(address(s[sp], code[pc]), Value.longToFloat(s[sp + 1]));
+                    pc += 2;
+                    break;
+                case DecodedOpCode.F64_STORE:
+                    sp -= 2;
+                    memory(memory, code[pc + 1])
+                            .writeF64(address(s[sp], code[pc]), Value.longToDouble(s[sp + 1]));
+                    pc += 2;
+                    break;
+                case DecodedOpCode.I32_STORE8:
+                case DecodedOpCode.I64_STORE8:
+                    sp -= 2;
+                    memory(memory, code[pc + 1])
+                            .writeByte(address(s[sp], code[pc]), (byte) s[sp + 1]);
+                    pc += 2;
+                    break;
+                case DecodedOpCode.I32_STORE16:
+                case DecodedOpCode.I64_STORE16:
+                    sp -= 2;
+                    memory(memory, code[pc + 1])
+                            .writeShort(address(s[sp], code[pc]), (short) s[sp + 1]);
+                    pc += 2;
+                    break;
+                case DecodedOpCode.OUT_OF_BOUNDS:
+                    throw new WasmRuntimeException("out of bounds memory access");
+                case DecodedOpCode.MEMORY_SIZE:
+                    s[sp++] = instance.memory(code[pc++]).pages();
+                    break;
+                case DecodedOpCode.MEMORY_GROW:
+                    s[sp - 1] = instance.memory(code[pc++]).grow((int) s[sp - 1]);
+                    break;
+                case DecodedOpCode.MEMORY_FILL:
+                    {
+                        sp -= 3;
+                        var offset = (int) s[sp];
+                        var size = (int) s[sp + 2];
+                        instance.memory(code[pc++]).fill((byte) s[sp + 1], offset, offset + size);
+                        break;
+                    }
+                case DecodedOpCode.MEMORY_COPY:
+                    {
+                        sp -= 3;
+                        var destination = (int) s[sp];
+                        var offset = (int) s[sp + 1];
+                        var size = (int) s[sp + 2];
+                        var dstMem = instance.memory(code[pc]);
+                        var srcMem = instance.memory(code[pc + 1]);
+                        if (dstMem == srcMem) {
+                            dstMem.copy(destination, offset, size);
+                        } else {
+                            dstMem.write(destination, srcMem.readBytes(offset, size));
+                        }
+                        pc += 2;
+                        break;
+                    }
+                case DecodedOpCode.MEMORY_INIT:
+                    sp -= 3;
+                    instance.memory(code[pc + 1])
+                            .initPassiveSegment(
+                                    code[pc], (int) s[sp], (int) s[sp + 1], (int) s[sp + 2]);
+                    pc += 2;
+                    break;
+                case DecodedOpCode.DATA_DROP:
+                    instance.dropDataSegment(code[pc++]);
+                    break;
+                case DecodedOpCode.TABLE_SIZE:
+                    s[sp++] = instance.table(code[pc++]).size();
+                    break;
+                case DecodedOpCode.TABLE_GROW:
+                    {
+                        var table = instance.table(code[pc++]);
+                        var size = (int) s[--sp];
+                        var value = OpcodeImpl.boxForTable(s[sp - 1], instance);
+                        s[sp - 1] = table.grow(size, value, instance);
+                        break;
+                    }
+                case DecodedOpCode.TABLE_FILL:
+                    {
+                        sp -= 3;
+                        var value = OpcodeImpl.boxForTable(s[sp + 1], instance);
+                        OpcodeImpl.TABLE_FILL(
+                                instance, code[pc++], (int) s[sp + 2], value, (int) s[sp]);
+                        break;
+                    }
+                case DecodedOpCode.TABLE_COPY:
+                    sp -= 3;
+                    OpcodeImpl.TABLE_COPY(
+                            instance,
+                            code[pc + 1],
+                            code[pc],
+                            (int) s[sp + 2],
+                            (int) s[sp + 1],
+                            (int) s[sp]);
+                    pc += 2;
+                    break;
+                case DecodedOpCode.TABLE_INIT:
+                    sp -= 3;
+                    OpcodeImpl.TABLE_INIT(
+                            instance,
+                            code[pc + 1],
+                            code[pc],
+                            (int) s[sp + 2],
+                            (int) s[sp + 1],
+                            (int) s[sp]);
+                    pc += 2;
+                    break;
+                case DecodedOpCode.ELEM_DROP:
+                    instance.setElement(code[pc++], null);
+                    break;
+                case DecodedOpCode.I32_CONST:
+                case DecodedOpCode.F32_CONST:
+                    s[sp++] = code[pc++];
+                    break;
+                case DecodedOpCode.I64_CONST:
+                case DecodedOpCode.F64_CONST:
+                    s[sp++] = fn.constants[code[pc++]];
+                    break;
+                case DecodedOpCode.REF_NULL:
+                    s[sp++] = REF_NULL_VALUE;
+                    break;
+                case DecodedOpCode.REF_FUNC:
+                    s[sp++] = code[pc++];
+                    break;
+                case DecodedOpCode.REF_IS_NULL:
+                    s[sp - 1] = (s[sp - 1] == REF_NULL_VALUE) ? Value.TRUE : Value.FALSE;
+                    break;
+                case DecodedOpCode.REF_AS_NON_NULL:
+                    if (s[sp - 1] == REF_NULL_VALUE) {
+                        throw new TrapException("Trapped on ref_as_non_null on null reference");
+                    }
+                    break;
+                // i32 comparisons
+                case DecodedOpCode.I32_EQZ:
+                    s[sp - 1] = OpcodeImpl.I32_EQZ((int) s[sp - 1]);
+                    break;
+                case DecodedOpCode.I32_EQ:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I32_EQ((int) s[sp], (int) s[sp - 1]);
+                    break;
+                case DecodedOpCode.I32_NE:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I32_NE((int) s[sp], (int) s[sp - 1]);
+                    break;
+                case DecodedOpCode.I32_LT_S:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I32_LT_S((int) s[sp - 1], (int) s[sp]);
+                    break;
+                case DecodedOpCode.I32_LT_U:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I32_LT_U((int) s[sp - 1], (int) s[sp]);
+                    break;
+                case DecodedOpCode.I32_GT_S:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I32_GT_S((int) s[sp - 1], (int) s[sp]);
+                    break;
+                case DecodedOpCode.I32_GT_U:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I32_GT_U((int) s[sp - 1], (int) s[sp]);
+                    break;
+                case DecodedOpCode.I32_LE_S:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I32_LE_S((int) s[sp - 1], (int) s[sp]);
+                    break;
+                case DecodedOpCode.I32_LE_U:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I32_LE_U((int) s[sp - 1], (int) s[sp]);
+                    break;
+                case DecodedOpCode.I32_GE_S:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I32_GE_S((int) s[sp - 1], (int) s[sp]);
+                    break;
+                case DecodedOpCode.I32_GE_U:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I32_GE_U((int) s[sp - 1], (int) s[sp]);
+                    break;
+                // i64 comparisons
+                case DecodedOpCode.I64_EQZ:
+                    s[sp - 1] = OpcodeImpl.I64_EQZ(s[sp - 1]);
+                    break;
+                case DecodedOpCode.I64_EQ:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I64_EQ(s[sp], s[sp - 1]);
+                    break;
+                case DecodedOpCode.I64_NE:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I64_NE(s[sp], s[sp - 1]);
+                    break;
+                case DecodedOpCode.I64_LT_S:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I64_LT_S(s[sp - 1], s[sp]);
+                    break;
+                case DecodedOpCode.I64_LT_U:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I64_LT_U(s[sp - 1], s[sp]);
+                    break;
+                case DecodedOpCode.I64_GT_S:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I64_GT_S(s[sp - 1], s[sp]);
+                    break;
+                case DecodedOpCode.I64_GT_U:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I64_GT_U(s[sp - 1], s[sp]);
+                    break;
+                case DecodedOpCode.I64_LE_S:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I64_LE_S(s[sp - 1], s[sp]);
+                    break;
+                case DecodedOpCode.I64_LE_U:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I64_LE_U(s[sp - 1], s[sp]);
+                    break;
+                case DecodedOpCode.I64_GE_S:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I64_GE_S(s[sp - 1], s[sp]);
+                    break;
+                case DecodedOpCode.I64_GE_U:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I64_GE_U(s[sp - 1], s[sp]);
+                    break;
+                // f32 comparisons
+                case DecodedOpCode.F32_EQ:
+                    sp--;
+                    s[sp - 1] =
+                            OpcodeImpl.F32_EQ(
+                                    Value.longToFloat(s[sp - 1]), Value.longToFloat(s[sp]));
+                    break;
+                case DecodedOpCode.F32_NE:
+                    sp--;
+                    s[sp - 1] =
+                            OpcodeImpl.F32_NE(
+                                    Value.longToFloat(s[sp - 1]), Value.longToFloat(s[sp]));
+                    break;
+                case DecodedOpCode.F32_LT:
+                    sp--;
+                    s[sp - 1] =
+                            OpcodeImpl.F32_LT(
+                                    Value.longToFloat(s[sp - 1]), Value.longToFloat(s[sp]));
+                    break;
+                case DecodedOpCode.F32_GT:
+                    sp--;
+                    s[sp - 1] =
+                            OpcodeImpl.F32_GT(
+                                    Value.longToFloat(s[sp - 1]), Value.longToFloat(s[sp]));
+                    break;
+                case DecodedOpCode.F32_LE:
+                    sp--;
+                    s[sp - 1] =
+                            OpcodeImpl.F32_LE(
+                                    Value.longToFloat(s[sp - 1]), Value.longToFloat(s[sp]));
+                    break;
+                case DecodedOpCode.F32_GE:
+                    sp--;
+                    s[sp - 1] =
+                            OpcodeImpl.F32_GE(
+                                    Value.longToFloat(s[sp - 1]), Value.longToFloat(s[sp]));
+                    break;
+                // f64 comparisons
+                case DecodedOpCode.F64_EQ:
+                    sp--;
+                    s[sp - 1] =
+                            OpcodeImpl.F64_EQ(
+                                    Value.longToDouble(s[sp - 1]), Value.longToDouble(s[sp]));
+                    break;
+                case DecodedOpCode.F64_NE:
+                    sp--;
+                    s[sp - 1] =
+                            OpcodeImpl.F64_NE(
+                                    Value.longToDouble(s[sp - 1]), Value.longToDouble(s[sp]));
+                    break;
+                case DecodedOpCode.F64_LT:
+                    sp--;
+                    s[sp - 1] =
+                            OpcodeImpl.F64_LT(
+                                    Value.longToDouble(s[sp - 1]), Value.longToDouble(s[sp]));
+                    break;
+                case DecodedOpCode.F64_GT:
+                    sp--;
+                    s[sp - 1] =
+                            OpcodeImpl.F64_GT(
+                                    Value.longToDouble(s[sp - 1]), Value.longToDouble(s[sp]));
+                    break;
+                case DecodedOpCode.F64_LE:
+                    sp--;
+                    s[sp - 1] =
+                            OpcodeImpl.F64_LE(
+                                    Value.longToDouble(s[sp - 1]), Value.longToDouble(s[sp]));
+                    break;
+                case DecodedOpCode.F64_GE:
+                    sp--;
+                    s[sp - 1] =
+                            OpcodeImpl.F64_GE(
+                                    Value.longToDouble(s[sp - 1]), Value.longToDouble(s[sp]));
+                    break;
+                // i32 arithmetic
+                case DecodedOpCode.I32_CLZ:
+                    s[sp - 1] = OpcodeImpl.I32_CLZ((int) s[sp - 1]);
+                    break;
+                case DecodedOpCode.I32_CTZ:
+                    s[sp - 1] = OpcodeImpl.I32_CTZ((int) s[sp - 1]);
+                    break;
+                case DecodedOpCode.I32_POPCNT:
+                    s[sp - 1] = OpcodeImpl.I32_POPCNT((int) s[sp - 1]);
+                    break;
+                case DecodedOpCode.I32_ADD:
+                    {
+                        sp--;
+                        int result = (int) s[sp - 1] + (int) s[sp];
+                        s[sp - 1] = result;
+                        break;
+                    }
+                case DecodedOpCode.I32_SUB:
+                    {
+                        sp--;
+                        int result = (int) s[sp - 1] - (int) s[sp];
+                        s[sp - 1] = result;
+                        break;
+                    }
+                case DecodedOpCode.I32_MUL:
+                    {
+                        sp--;
+                        int result = (int) s[sp - 1] * (int) s[sp];
+                        s[sp - 1] = result;
+                        break;
+                    }
+                case DecodedOpCode.I32_DIV_S:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I32_DIV_S((int) s[sp - 1], (int) s[sp]);
+                    break;
+                case DecodedOpCode.I32_DIV_U:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I32_DIV_U((int) s[sp - 1], (int) s[sp]);
+                    break;
+                case DecodedOpCode.I32_REM_S:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I32_REM_S((int) s[sp - 1], (int) s[sp]);
+                    break;
+                case DecodedOpCode.I32_REM_U:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I32_REM_U((int) s[sp - 1], (int) s[sp]);
+                    break;
+                case DecodedOpCode.I32_AND:
+                    {
+                        sp--;
+                        int result = (int) s[sp - 1] & (int) s[sp];
+                        s[sp - 1] = result;
+                        break;
+                    }
+                case DecodedOpCode.I32_OR:
+                    {
+                        sp--;
+                        int result = (int) s[sp - 1] | (int) s[sp];
+                        s[sp - 1] = result;
+                        break;
+                    }
+                case DecodedOpCode.I32_XOR:
+                    {
+                        sp--;
+                        int result = (int) s[sp - 1] ^ (int) s[sp];
+                        s[sp - 1] = result;
+                        break;
+                    }
+                case DecodedOpCode.I32_SHL:
+                    {
+                        sp--;
+                        int result = (int) s[sp - 1] << (int) s[sp];
+                        s[sp - 1] = result;
+                        break;
+                    }
+                case DecodedOpCode.I32_SHR_S:
+                    {
+                        sp--;
+                        int result = (int) s[sp - 1] >> (int) s[sp];
+                        s[sp - 1] = result;
+                        break;
+                    }
+                case DecodedOpCode.I32_SHR_U:
+                    {
+                        sp--;
+                        int result = (int) s[sp - 1] >>> (int) s[sp];
+                        s[sp - 1] = result;
+                        break;
+                    }
+                case DecodedOpCode.I32_ROTL:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I32_ROTL((int) s[sp - 1], (int) s[sp]);
+                    break;
+                case DecodedOpCode.I32_ROTR:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I32_ROTR((int) s[sp - 1], (int) s[sp]);
+                    break;
+                // i64 arithmetic
+                case DecodedOpCode.I64_CLZ:
+                    s[sp - 1] = OpcodeImpl.I64_CLZ(s[sp - 1]);
+                    break;
+                case DecodedOpCode.I64_CTZ:
+                    s[sp - 1] = OpcodeImpl.I64_CTZ(s[sp - 1]);
+                    break;
+                case DecodedOpCode.I64_POPCNT:
+                    s[sp - 1] = OpcodeImpl.I64_POPCNT(s[sp - 1]);
+                    break;
+                case DecodedOpCode.I64_ADD:
+                    sp--;
+                    s[sp - 1] += s[sp];
+                    break;
+                case DecodedOpCode.I64_SUB:
+                    sp--;
+                    s[sp - 1] -= s[sp];
+                    break;
+                case DecodedOpCode.I64_MUL:
+                    sp--;
+                    s[sp - 1] *= s[sp];
+                    break;
+                case DecodedOpCode.I64_DIV_S:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I64_DIV_S(s[sp - 1], s[sp]);
+                    break;
+                case DecodedOpCode.I64_DIV_U:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I64_DIV_U(s[sp - 1], s[sp]);
+                    break;
+                case DecodedOpCode.I64_REM_S:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I64_REM_S(s[sp - 1], s[sp]);
+                    break;
+                case DecodedOpCode.I64_REM_U:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I64_REM_U(s[sp - 1], s[sp]);
+                    break;
+                case DecodedOpCode.I64_AND:
+                    sp--;
+                    s[sp - 1] &= s[sp];
+                    break;
+                case DecodedOpCode.I64_OR:
+                    sp--;
+                    s[sp - 1] |= s[sp];
+                    break;
+                case DecodedOpCode.I64_XOR:
+                    sp--;
+                    s[sp - 1] ^= s[sp];
+                    break;
+                case DecodedOpCode.I64_SHL:
+                    sp--;
+                    s[sp - 1] <<= s[sp];
+                    break;
+                case DecodedOpCode.I64_SHR_S:
+                    sp--;
+                    s[sp - 1] >>= s[sp];
+                    break;
+                case DecodedOpCode.I64_SHR_U:
+                    sp--;
+                    s[sp - 1] >>>= s[sp];
+                    break;
+                case DecodedOpCode.I64_ROTL:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I64_ROTL(s[sp - 1], s[sp]);
+                    break;
+                case DecodedOpCode.I64_ROTR:
+                    sp--;
+                    s[sp - 1] = OpcodeImpl.I64_ROTR(s[sp - 1], s[sp]);
+                    break;
+                // f32 arithmetic
+                case DecodedOpCode.F32_ABS:
+                    s[sp - 1] = Value.floatToLong(OpcodeImpl.F32_ABS(Value.longToFloat(s[sp - 1])));
+                    break;
+                case DecodedOpCode.F32_NEG:
+                    s[sp - 1] = Value.floatToLong(-Value.longToFloat(s[sp - 1]));
+                    break;
+                case DecodedOpCode.F32_CEIL:
+                    s[sp - 1] =
+                            Value.floatToLong(OpcodeImpl.F32_CEIL(Value.longToFloat(s[sp - 1])));
+                    break;
+                case DecodedOpCode.F32_FLOOR:
+                    s[sp - 1] =
+                            Value.floatToLong(OpcodeImpl.F32_FLOOR(Value.longToFloat(s[sp - 1])));
+                    break;
+                case DecodedOpCode.F32_TRUNC:
+                    s[sp - 1] =
+                            Value.floatToLong(OpcodeImpl.F32_TRUNC(Value.longToFloat(s[sp - 1])));
+                    break;
+                case DecodedOpCode.F32_NEAREST:
+                    s[sp - 1] =
+                            Value.floatToLong(OpcodeImpl.F32_NEAREST(Value.longToFloat(s[sp - 1])));
+                    break;
+                case DecodedOpCode.F32_SQRT:
+                    s[sp - 1] =
+                            Value.floatToLong(OpcodeImpl.F32_SQRT(Value.longToFloat(s[sp - 1])));
+                    break;
+                case DecodedOpCode.F32_ADD:
+                    sp--;
+                    s[sp - 1] =
+                            Value.floatToLong(
+                                    Value.longToFloat(s[sp]) + Value.longToFloat(s[sp - 1]));
+                    break;
+                case DecodedOpCode.F32_SUB:
+                    sp--;
+                    s[sp - 1] =
+                            Value.floatToLong(
+                                    Value.longToFloat(s[sp - 1]) - Value.longToFloat(s[sp]));
+                    break;
+                case DecodedOpCode.F32_MUL:
+                    sp--;
+                    s[sp - 1] =
+                            Value.floatToLong(
+                                    Value.longToFloat(s[sp - 1]) * Value.longToFloat(s[sp]));
+                    break;
+                case DecodedOpCode.F32_DIV:
+                    sp--;
+                    s[sp - 1] =
+                            Value.floatToLong(
+                                    Value.longToFloat(s[sp - 1]) / Value.longToFloat(s[sp]));
+                    break;
+                case DecodedOpCode.F32_MIN:
+                    sp--;
+                    s[sp - 1] =
+                            Value.floatToLong(
+                                    OpcodeImpl.F32_MIN(
+                                            Value.longToFloat(s[sp]),
+                                            Value.longToFloat(s[sp - 1])));
+                    break;
+                case DecodedOpCode.F32_MAX:
+                    sp--;
+                    s[sp - 1] =
+                            Value.floatToLong(
+                                    OpcodeImpl.F32_MAX(
+                                            Value.longToFloat(s[sp]),
+                                            Value.longToFloat(s[sp - 1])));
+                    break;
+                case DecodedOpCode.F32_COPYSIGN:
+                    sp--;
+                    s[sp - 1] =
+                            Value.floatToLong(
+                                    OpcodeImpl.F32_COPYSIGN(
+                                            Value.longToFloat(s[sp - 1]),
+                                            Value.longToFloat(s[sp])));
+                    break;
+                // f64 arithmetic
+                case DecodedOpCode.F64_ABS:
+                    s[sp - 1] =
+                            Value.doubleToLong(OpcodeImpl.F64_ABS(Value.longToDouble(s[sp - 1])));
+                    break;
+                case DecodedOpCode.F64_NEG:
+                    s[sp - 1] = Value.doubleToLong(-Value.longToDouble(s[sp - 1]));
+                    break;
+                case DecodedOpCode.F64_CEIL:
+                    s[sp - 1] =
+                            Value.doubleToLong(OpcodeImpl.F64_CEIL(Value.longToDouble(s[sp - 1])));
+                    break;
+                case DecodedOpCode.F64_FLOOR:
+                    s[sp - 1] =
+                            Value.doubleToLong(OpcodeImpl.F64_FLOOR(Value.longToDouble(s[sp - 1])));
+                    break;
+                case DecodedOpCode.F64_TRUNC:
+                    s[sp - 1] =
+                            Value.doubleToLong(OpcodeImpl.F64_TRUNC(Value.longToDouble(s[sp - 1])));
+                    break;
+                case DecodedOpCode.F64_NEAREST:
+                    s[sp - 1] =
+                            Value.doubleToLong(
+                                    OpcodeImpl.F64_NEAREST(Value.longToDouble(s[sp - 1])));
+                    break;
+                case DecodedOpCode.F64_SQRT:
+                    s[sp - 1] =
+                            Value.doubleToLong(OpcodeImpl.F64_SQRT(Value.longToDouble(s[sp - 1])));
+                    break;
+                case DecodedOpCode.F64_ADD:
+                    sp--;
+                    s[sp - 1] =
+                            Value.doubleToLong(
+                                    Value.longToDouble(s[sp]) + Value.longToDouble(s[sp - 1]));
+                    break;
+                case DecodedOpCode.F64_SUB:
+                    sp--;
+                    s[sp - 1] =
+                            Value.doubleToLong(
+                                    Value.longToDouble(s[sp - 1]) - Value.longToDouble(s[sp]));
+                    break;
+                case DecodedOpCode.F64_MUL:
+                    sp--;
+                    s[sp - 1] =
+                            Value.doubleToLong(
+                                    Value.longToDouble(s[sp - 1]) * Value.longToDouble(s[sp]));
+                    break;
+                case DecodedOpCode.F64_DIV:
+                    sp--;
+                    s[sp - 1] =
+                            Value.doubleToLong(
+                                    Value.longToDouble(s[sp - 1]) / Value.longToDouble(s[sp]));
+                    break;
+                case DecodedOpCode.F64_MIN:
+                    sp--;
+                    s[sp - 1] =
+                            Value.doubleToLong(
+                                    OpcodeImpl.F64_MIN(
+                                            Value.longToDouble(s[sp]),
+                                            Value.longToDouble(s[sp - 1])));
+                    break;
+                case DecodedOpCode.F64_MAX:
+                    sp--;
+                    s[sp - 1] =
+                            Value.doubleToLong(
+                                    OpcodeImpl.F64_MAX(
+                                            Value.longToDouble(s[sp]),
+                                            Value.longToDouble(s[sp - 1])));
+                    break;
+                case DecodedOpCode.F64_COPYSIGN:
+                    sp--;
+                    s[sp - 1] =
+                            Value.doubleToLong(
+                                    OpcodeImpl.F64_COPYSIGN(
+                                            Value.longToDouble(s[sp - 1]),
+                                            Value.longToDouble(s[sp])));
+                    break;
+                // conversions
+                case DecodedOpCode.I32_WRAP_I64:
+                case DecodedOpCode.I64_EXTEND_I32_S:
+                    s[sp - 1] = (int) s[sp - 1];
+                    break;
+                case DecodedOpCode.I32_TRUNC_F32_S:
+                    s[sp - 1] = OpcodeImpl.I32_TRUNC_F32_S(Value.longToFloat(s[sp - 1]));
+                    break;
+                case DecodedOpCode.I32_TRUNC_F32_U:
+                    s[sp - 1] = OpcodeImpl.I32_TRUNC_F32_U(Value.longToFloat(s[sp - 1]));
+                    break;
+                case DecodedOpCode.I32_TRUNC_F64_S:
+                    s[sp - 1] = OpcodeImpl.I32_TRUNC_F64_S(Value.longToDouble(s[sp - 1]));
+                    break;
+                case DecodedOpCode.I32_TRUNC_F64_U:
+                    s[sp - 1] = OpcodeImpl.I32_TRUNC_F64_U(Value.longToDouble(s[sp - 1]));
+                    break;
+                case DecodedOpCode.I64_EXTEND_I32_U:
+                    s[sp - 1] = OpcodeImpl.I64_EXTEND_I32_U((int) s[sp - 1]);
+                    break;
+                case DecodedOpCode.I64_TRUNC_F32_S:
+                    s[sp - 1] = OpcodeImpl.I64_TRUNC_F32_S(Value.longToFloat(s[sp - 1]));
+                    break;
+                case DecodedOpCode.I64_TRUNC_F32_U:
+                    s[sp - 1] = OpcodeImpl.I64_TRUNC_F32_U(Value.longToFloat(s[sp - 1]));
+                    break;
+                case DecodedOpCode.I64_TRUNC_F64_S:
+                    s[sp - 1] = OpcodeImpl.I64_TRUNC_F64_S(Value.longToDouble(s[sp - 1]));
+                    break;
+                case DecodedOpCode.I64_TRUNC_F64_U:
+                    s[sp - 1] = OpcodeImpl.I64_TRUNC_F64_U(Value.longToDouble(s[sp - 1]));
+                    break;
+                case DecodedOpCode.F32_CONVERT_I32_S:
+                    s[sp - 1] = Value.floatToLong(OpcodeImpl.F32_CONVERT_I32_S((int) s[sp - 1]));
+                    break;
+                case DecodedOpCode.F32_CONVERT_I32_U:
+                    s[sp - 1] = Value.floatToLong(OpcodeImpl.F32_CONVERT_I32_U((int) s[sp - 1]));
+                    break;
+                case DecodedOpCode.F32_CONVERT_I64_S:
+                    s[sp - 1] = Value.floatToLong(OpcodeImpl.F32_CONVERT_I64_S(s[sp - 1]));
+                    break;
+                case DecodedOpCode.F32_CONVERT_I64_U:
+                    s[sp - 1] = Value.floatToLong(OpcodeImpl.F32_CONVERT_I64_U(s[sp - 1]));
+                    break;
+                case DecodedOpCode.F32_DEMOTE_F64:
+                    s[sp - 1] = Value.floatToLong((float) Value.longToDouble(s[sp - 1]));
+                    break;
+                case DecodedOpCode.F64_CONVERT_I32_S:
+                    s[sp - 1] = Value.doubleToLong(OpcodeImpl.F64_CONVERT_I32_S((int) s[sp - 1]));
+                    break;
+                case DecodedOpCode.F64_CONVERT_I32_U:
+                    s[sp - 1] = Value.doubleToLong(OpcodeImpl.F64_CONVERT_I32_U((int) s[sp - 1]));
+                    break;
+                case DecodedOpCode.F64_CONVERT_I64_S:
+                    s[sp - 1] = Value.doubleToLong(OpcodeImpl.F64_CONVERT_I64_S(s[sp - 1]));
+                    break;
+                case DecodedOpCode.F64_CONVERT_I64_U:
+                    s[sp - 1] = Value.doubleToLong(OpcodeImpl.F64_CONVERT_I64_U(s[sp - 1]));
+                    break;
+                case DecodedOpCode.F64_PROMOTE_F32:
+                    s[sp - 1] = Value.doubleToLong(Value.longToFloat(s[sp - 1]));
+                    break;
+                case DecodedOpCode.I32_REINTERPRET_F32:
+                case DecodedOpCode.F32_REINTERPRET_I32:
+                    s[sp - 1] = (int) s[sp - 1];
+                    break;
+                case DecodedOpCode.I64_REINTERPRET_F64:
+                case DecodedOpCode.F64_REINTERPRET_I64:
+                    // the bits are already stored as they are
+                    break;
+                case DecodedOpCode.I32_EXTEND_8_S:
+                    s[sp - 1] = OpcodeImpl.I32_EXTEND_8_S((int) s[sp - 1]);
+                    break;
+                case DecodedOpCode.I32_EXTEND_16_S:
+                    s[sp - 1] = OpcodeImpl.I32_EXTEND_16_S((int) s[sp - 1]);
+                    break;
+                case DecodedOpCode.I64_EXTEND_8_S:
+                    s[sp - 1] = OpcodeImpl.I64_EXTEND_8_S(s[sp - 1]);
+                    break;
+                case DecodedOpCode.I64_EXTEND_16_S:
+                    s[sp - 1] = OpcodeImpl.I64_EXTEND_16_S(s[sp - 1]);
+                    break;
+                case DecodedOpCode.I64_EXTEND_32_S:
+                    s[sp - 1] = OpcodeImpl.I64_EXTEND_32_S(s[sp - 1]);
+                    break;
+                case DecodedOpCode.I32_TRUNC_SAT_F32_S:
+                    s[sp - 1] = OpcodeImpl.I32_TRUNC_SAT_F32_S(Value.longToFloat(s[sp - 1]));
+                    break;
+                case DecodedOpCode.I32_TRUNC_SAT_F32_U:
+                    s[sp - 1] = OpcodeImpl.I32_TRUNC_SAT_F32_U(Value.longToFloat(s[sp - 1]));
+                    break;
+                case DecodedOpCode.I32_TRUNC_SAT_F64_S:
+                    s[sp - 1] = OpcodeImpl.I32_TRUNC_SAT_F64_S(Value.longToDouble(s[sp - 1]));
+                    break;
+                case DecodedOpCode.I32_TRUNC_SAT_F64_U:
+                    s[sp - 1] = OpcodeImpl.I32_TRUNC_SAT_F64_U(Value.longToDouble(s[sp - 1]));
+                    break;
+                case DecodedOpCode.I64_TRUNC_SAT_F32_S:
+                    s[sp - 1] = OpcodeImpl.I64_TRUNC_SAT_F32_S(Value.longToFloat(s[sp - 1]));
+                    break;
+                case DecodedOpCode.I64_TRUNC_SAT_F32_U:
+                    s[sp - 1] = OpcodeImpl.I64_TRUNC_SAT_F32_U(Value.longToFloat(s[sp - 1]));
+                    break;
+                case DecodedOpCode.I64_TRUNC_SAT_F64_S:
+                    s[sp - 1] = OpcodeImpl.I64_TRUNC_SAT_F64_S(Value.longToDouble(s[sp - 1]));
+                    break;
+                case DecodedOpCode.I64_TRUNC_SAT_F64_U:
+                    s[sp - 1] = OpcodeImpl.I64_TRUNC_SAT_F64_U(Value.longToDouble(s[sp - 1]));
+                    break;
+                // superinstructions
+                case DecodedOpCode.LOCAL_GET_2:
+                    s[sp] = s[base + code[pc]];
+                    s[sp + 1] = s[base + code[pc + 1]];
+                    sp += 2;
+                    pc += 2;
+                    break;
+                case DecodedOpCode.LOCAL_GET_I32_CONST:
+                    s[sp] = s[base + code[pc]];
+                    s[sp + 1] = code[pc + 1];
+                    sp += 2;
+                    pc += 2;
+                    break;
+                case DecodedOpCode.I32_ADD_LOCALS:
+                    {
+                        int result = (int) s[base + code[pc]] + (int) s[base + code[pc + 1]];
+                        s[sp++] = result;
+                        pc += 2;
+                        break;
+                    }
+                case DecodedOpCode.I32_ADD_CONST:
+                    {
+                        int result = (int) s[sp - 1] + code[pc++];
+                        s[sp - 1] = result;
+                        break;
+                    }
+                case DecodedOpCode.I32_ADD_LOCAL_CONST:
+                    {
+                        int result = (int) s[base + code[pc]] + code[pc + 1];
+                        s[sp++] = result;
+                        pc += 2;
+                        break;
+                    }
+                case DecodedOpCode.I32_LOAD_LOCAL:
+                    s[sp++] =
+                            memory(memory, code[pc + 2])
+                                    .readI32(address(s[base + code[pc]], code[pc + 1]));
+                    pc += 3;
+                    break;
+                case DecodedOpCode.BR_IF_I32_EQZ:
+                    if ((int) s[--sp] == 0) {
+                        pc = code[pc];
+                    } else {
+                        pc++;
+                    }
+                    break;
+                case DecodedOpCode.BR_IF_I32_EQ:
+                    sp -= 2;
+                    if ((int) s[sp] == (int) s[sp + 1]) {
+                        pc = code[pc];
+                    } else {
+                        pc++;
+                    }
+                    break;
+                case DecodedOpCode.BR_IF_I32_NE:
+                    sp -= 2;
+                    if ((int) s[sp] != (int) s[sp + 1]) {
+                        pc = code[pc];
+                    } else {
+                        pc++;
+                    }
+                    break;
+                case DecodedOpCode.BR_IF_I32_LT_S:
+                    sp -= 2;
+                    if ((int) s[sp] < (int) s[sp + 1]) {
+                        pc = code[pc];
+                    } else {
+                        pc++;
+                    }
+                    break;
+                case DecodedOpCode.BR_IF_I32_LT_U:
+                    sp -= 2;
+                    if (Integer.compareUnsigned((int) s[sp], (int) s[sp + 1]) < 0) {
+                        pc = code[pc];
+                    } else {
+                        pc++;
+                    }
+                    break;
+                case DecodedOpCode.BR_IF_I32_GT_S:
+                    sp -= 2;
+                    if ((int) s[sp] > (int) s[sp + 1]) {
+                        pc = code[pc];
+                    } else {
+                        pc++;
+                    }
+                    break;
+                case DecodedOpCode.BR_IF_I32_GT_U:
+                    sp -= 2;
+                    if (Integer.compareUnsigned((int) s[sp], (int) s[sp + 1]) > 0) {
+                        pc = code[pc];
+                    } else {
+                        pc++;
+                    }
+                    break;
+                case DecodedOpCode.BR_IF_I32_LE_S:
+                    sp -= 2;
+                    if ((int) s[sp] <= (int) s[sp + 1]) {
+                        pc = code[pc];
+                    } else {
+                        pc++;
+                    }
+                    break;
+                case DecodedOpCode.BR_IF_I32_LE_U:
+                    sp -= 2;
+                    if (Integer.compareUnsigned((int) s[sp], (int) s[sp + 1]) <= 0) {
+                        pc = code[pc];
+                    } else {
+                        pc++;
+                    }
+                    break;
+                case DecodedOpCode.BR_IF_I32_GE_S:
+                    sp -= 2;
+                    if ((int) s[sp] >= (int) s[sp + 1]) {
+                        pc = code[pc];
+                    } else {
+                        pc++;
+                    }
+                    break;
+                case DecodedOpCode.BR_IF_I32_GE_U:
+                    sp -= 2;
+                    if (Integer.compareUnsigned((int) s[sp], (int) s[sp + 1]) >= 0) {
+                        pc = code[pc];
+                    } else {
+                        pc++;
+                    }
+                    break;
+                default:
+                    throw new ChicoryException(
+                            "Machine doesn't recognize decoded opcode " + code[pc - 1]);
+            }
+        }
+    }
+
+    /**
+     * Calls an imported or a not decoded function of this instance with the parameters on top of
+     * the stack.
+     *
+     * @return the stack pointer after pushing the results.
+     */
+    private int invoke(int funcId, int sp, int paramCount, int resultCount) {
+        var base = sp - paramCount;
+        top = sp;
+        long[] results;
+        if (funcId < instance.imports().functionCount()) {
+            checkInterruption(instance);
+            var handle = instance.imports().function(funcId).handle();
+            var hasResult = resultCount == 1;
+            if (resultCount <= 1) {
+                var typed = TypedFunctionHandle.typeOf(paramCount, hasResult);
+                if (typed != null && typed.isInstance(handle)) {
+                    // the arguments are read before the call, a nested call can grow the stack
+                    var result =
+                            TypedFunctionHandle.invoke(
+                                    handle, instance, stack, base, paramCount, hasResult);
+                    if (hasResult) {
+                        stack[base] = result;
+                    }
+                    return base + resultCount;
+                }
+            }
+            results = handle.apply(instance, Arrays.copyOfRange(stack, base, sp));
+        } else {
+            var args = Arrays.copyOfRange(stack, base, sp);
+            results = interpreter.callNested(funcId, args);
+        }
+        return pushResults(base, results, resultCount);
+    }
+
+    /**
+     * Calls a function of another instance with the parameters on top of the stack.
+     *
+     * @return the stack pointer after pushing the results.
+     */
+    private int callExternal(
+            Instance refInstance, int funcId, int sp, int paramCount, int resultCount) {
+        var base = sp - paramCount;
+        var args = Arrays.copyOfRange(stack, base, sp);
+        top = sp;
+        checkInterruption(instance);
+        var results = refInstance.getMachine().call(funcId, args);
+        return pushResults(base, results, resultCount);
+    }
+
+    private int pushResults(int base, long[] results, int resultCount) {
+        if (results != null) {
+            System.arraycopy(results, 0, stack, base, Math.min(results.length, resultCount));
+        }
+        return base + resultCount;
+    }
+
+    /**
+     * Executes the functions that can't be decoded, calls from those functions are
+     * routed back to the decoded code when possible.
+     */
+    private final class FallbackInterpreterMachine extends InterpreterMachine {
+
+        FallbackInterpreterMachine(Instance instance) {
+            super(instance);
+        }
+
+        /**
+         * Returns the whole stack, see {@link DecodedInterpreterMachine#stackTrace()}, e.g. for
+         * the backtrace of the traps raised by the interpreted functions.
+         */
+        @Override
+        public int[] stackTrace() {
+            return DecodedInterpreterMachine.this.stackTrace();
+        }
+
+        int[] interpretedStackTrace() {
+            return super.stackTrace();
+        }
+
+        /**
+         * Calls a function from the decoded code. The InterpreterMachine keeps its call stack
+         * in the machine, the frames of the interpreted callers are set aside meanwhile, so
+         * that an exception not handled by the callee doesn't resume them, in an
+         * {@code INTERPRETED} frame recording where the interpreter was entered.
+         */
+        long[] callNested(int funcId, long[] args) {
+            var operands = stack();
+            var height = operands.size();
+            var markerDepth = depth;
+            pushFrame(INTERPRETED, 0, 0);
+            var callers = callStack.isEmpty() ? null : callStack.toArray(new StackFrame[0]);
+            frameCallers[markerDepth] = callers;
+            callStack.clear();
+            try {
+                return call(funcId, args);
+            } finally {
+                frameCallers[markerDepth] = null;
+                depth = markerDepth;
+                callStack.clear();
+                if (callers != null) {
+                    // innermost first
+                    for (int i = callers.length - 1; i >= 0; i--) {
+                        callStack.push(callers[i]);
+                    }
+                }
+                operands.unwind(height, 0);
+            }
+        }
+
+        @Override
+        protected long[] call(
+                MStack stack,
+                Instance instance,
+                Deque<StackFrame> callStack,
+                int funcId,
+                long[] args,
+                FunctionType callType,
+                boolean popResults)
+                throws ChicoryException {
+            if (decoded(funcId) == null) {
+                return super.call(stack, instance, callStack, funcId, args, callType, popResults);
+            }
+
+            var type = instance.type(instance.functionType(funcId));
+            if (callType != null) {
+                verifyIndirectCall(type, callType, instance.module().typeSection());
+            }
+
+            // not pushed on the call stack, the decoded frames already have the callee,
+            // THROW_REF only unwinds from it
+            var stackFrame = new StackFrame(instance, funcId, args);
+            stackFrame.pushCtrl(OpCode.CALL, 0, type.returns().size(), stack.size());
+            try {
+                var results = DecodedInterpreterMachine.this.call(funcId, args);
+                if (popResults) {
+                    return results;
+                }
+                if (results != null) {
+                    for (var result : results) {
+                        stack.push(result);
+                    }
+                }
+            } catch (WasmException e) {
+                THROW_REF(instance, instance.registerException(e), stack, stackFrame, callStack);
+            }
+            return null;
+        }
+    }
+}
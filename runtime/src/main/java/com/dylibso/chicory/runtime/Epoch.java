@@ -0,0 +1,115 @@
+package com.dylibso.chicory.runtime;
+
+import static java.util.Objects.requireNonNull;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A process wide counter, incremented by a timer, bounding the execution time of the
+ * instances with an epoch deadline (see {@link Instance#setEpochDeadline(long)}).
+ * <p>
+ * The calls and the loops of an instance compare the counter with the deadline, so that the
+ * instance is interrupted within one tick once the deadline is reached, without another thread
+ * to interrupt it. While a timer is running, the thread interruption is checked once per tick
+ * as well, instead of at every call.
+ *
+ * <pre>{@code
+ * try (var timer = Epoch.startTimer(Duration.ofMillis(10))) {
+ *     instance.setEpochDeadline(100); // about one second
+ *     instance.export("run").apply();
+ * }
+ * }</pre>
+ */
+public final class Epoch {
+    private static final VarHandle CURRENT;
+
+    static {
+        try {
+            CURRENT =
+                    MethodHandles.lookup().findStaticVarHandle(Epoch.class, "current", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static volatile long current;
+    private static final AtomicInteger TIMERS = new AtomicInteger();
+
+    private Epoch() {}
+
+    /**
+     * Returns the number of ticks so far.
+     */
+    public static long current() {
+        return current;
+    }
+
+    // whether the counter is advancing, see Instance#checkInterruption()
+    static boolean timerRunning() {
+        return TIMERS.get() > 0;
+    }
+
+    /**
+     * Increments the counter by one tick.
+     */
+    public static void increment() {
+        CURRENT.getAndAdd(1L);
+    }
+
+    /**
+     * Starts a daemon thread incrementing the counter at every interval, until closed.
+     * There's usually a single timer for the whole process.
+     */
+    public static Timer startTimer(Duration interval) {
+        requireNonNull(interval, "interval");
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("interval must be positive: " + interval);
+        }
+        var timer = new Timer(interval.toNanos());
+        TIMERS.incrementAndGet();
+        timer.thread.start();
+        return timer;
+    }
+
+    public static final class Timer implements AutoCloseable {
+        private final Thread thread;
+        private volatile boolean closed;
+
+        private Timer(long intervalNanos) {
+            this.thread =
+                    new Thread(
+                            () -> {
+                                long next = System.nanoTime() + intervalNanos;
+                                while (!closed) {
+                                    LockSupport.parkNanos(next - System.nanoTime());
+                                    if (System.nanoTime() - next >= 0) {
+                                        increment();
+                                        next += intervalNanos;
+                                    }
+                                }
+                            },
+                            "chicory-epoch-timer");
+            this.thread.setDaemon(true);
+        }
+
+        /**
+         * Stops the timer. Once the last timer is closed, the counter is incremented a last
+         * time, so that the running instances check the thread at every call again.
+         */
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            LockSupport.unpark(thread);
+            if (TIMERS.decrementAndGet() == 0) {
+                increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.dylibso.chicory.runtime;
+
+/**
+ * Called when an instance runs out of fuel, see {@link Instance.Builder#withFuel(long)}.
+ */
+@FunctionalInterface
+public interface FuelHandler {
+    /**
+     * Returns the fuel to add to the instance for the execution to go on, or 0 to trap.
+     * The instance is paused meanwhile, e.g. the handler can wait for the guest's turn.
+     */
+    long refuel(Instance instance);
+}
@@ -0,0 +1,732 @@
+package com.dylibso.chicory.runtime;
+
+import static com.dylibso.chicory.wasm.types.ValType.sizeOf;
+
+import com.dylibso.chicory.wasm.types.AnnotatedInstruction;
+import com.dylibso.chicory.wasm.types.FunctionType;
+import com.dylibso.chicory.wasm.types.OpCode;
+import com.dylibso.chicory.wasm.types.ValType;
+import com.dylibso.chicory.wasm.types.Value;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Lowers a {@link com.dylibso.chicory.wasm.types.FunctionBody} into a {@link DecodedFunction}.
+ * <p>
+ * The operand stack height is tracked statically while decoding, this allows resolving
+ * every branch to an absolute target together with the exact amount of values to move,
+ * so that no control frames are needed at runtime. Unreachable code is dropped.
+ * <p>
+ * Frequent instruction sequences (e.g. {@code local.get; local.get; i32.add} or
+ * {@code i32.eqz; br_if}) are fused into superinstructions executed with a single dispatch.
+ * <p>
+ * Functions using features that are not supported by the decoded form
+ * (v128 values, exception handling, tail calls, GC and atomics) are rejected
+ * and remain executed by the {@link InterpreterMachine}.
+ */
+final class FunctionDecoder {
+
+    // fusion of superinstructions can be turned off to measure its effect
+    private static final boolean SUPERINSTRUCTIONS =
+            !"false".equals(System.getProperty("chicory.superinstructions"));
+
+    private static final class Block {
+        final boolean loop;
+        final int height;
+        final int params;
+        final int results;
+        final int start;
+        // position of the IF jump target to patch when reaching ELSE or END
+        int elsePatch = -1;
+        int[] patches = new int[4];
+        int patchCount;
+
+        Block(boolean loop, int height, int params, int results, int start) {
+            this.loop = loop;
+            this.height = height;
+            this.params = params;
+            this.results = results;
+            this.start = start;
+        }
+
+        int arity() {
+            return loop ? params : results;
+        }
+
+        void addPatch(int position) {
+            if (patchCount == patches.length) {
+                patches = Arrays.copyOf(patches, patchCount * 2);
+            }
+            patches[patchCount++] = position;
+        }
+    }
+
+    private final Instance instance;
+    private final List<Block> blocks = new ArrayList<>();
+
+    private int[] code = new int[64];
+    private int size;
+    private long[] constants = new long[8];
+    private int constantCount;
+
+    // start of the last emitted instruction, it can be fused with the next one
+    // only when no branch lands in between
+    private int last = -1;
+    private int barrier;
+
+    private int height;
+    private int maxHeight;
+    private boolean unreachable;
+    private int unreachableDepth;
+
+    private FunctionDecoder(Instance instance) {
+        this.instance = instance;
+    }
+
+    /**
+     * Returns the decoded function or {@code null} if the function is an import or can't be decoded.
+     */
+    static DecodedFunction decode(Instance instance, int funcId) {
+        var body = instance.function(funcId);
+        if (body == null) {
+            return null;
+        }
+        var type = instance.type(instance.functionType(funcId));
+        if (!isScalar(type) || !isScalar(body.localTypes())) {
+            return null;
+        }
+
+        var params = type.params().size();
+        var locals = new long[params + body.localTypes().size()];
+        for (int i = 0; i < body.localTypes().size(); i++) {
+            locals[params + i] = Value.zero(body.localTypes().get(i));
+        }
+
+        var decoder = new FunctionDecoder(instance);
+        var results = type.returns().size();
+        decoder.blocks.add(new Block(false, 0, 0, results, 0));
+        for (var instruction : body.instructions()) {
+            if (!decoder.lower(instruction)) {
+                return null;
+            }
+        }
+        return new DecodedFunction(
+                funcId,
+                Arrays.copyOf(decoder.code, decoder.size),
+                Arrays.copyOf(decoder.constants, decoder.constantCount),
+                params,
+                locals,
+                results,
+                Math.max(decoder.maxHeight, results));
+    }
+
+    private static boolean isScalar(FunctionType type) {
+        return isScalar(type.params()) && isScalar(type.returns());
+    }
+
+    private static boolean isScalar(List<ValType> types) {
+        return sizeOf(types) == types.size();
+    }
+
+    private void op(int opcode) {
+        last = size;
+        emit(opcode);
+    }
+
+    private void emit(int value) {
+        if (size == code.length) {
+            code = Arrays.copyOf(code, size * 2);
+        }
+        code[size++] = value;
+    }
+
+    private void emit(int op, int operand) {
+        op(op);
+        emit(operand);
+    }
+
+    private void emit(int op, int operand1, int operand2) {
+        op(op);
+        emit(operand1);
+        emit(operand2);
+    }
+
+    private int constant(long value) {
+        if (constantCount == constants.length) {
+            constants = Arrays.copyOf(constants, constantCount * 2);
+        }
+        constants[constantCount] = value;
+        return constantCount++;
+    }
+
+    private void pop(int count) {
+        height -= count;
+    }
+
+    private void push(int count) {
+        height += count;
+        if (height > maxHeight) {
+            maxHeight = height;
+        }
+    }
+
+    private void patch(int position) {
+        code[position] = size;
+    }
+
+    /**
+     * Returns the opcode of the last emitted instruction if it can be fused with the next one, -1 otherwise.
+     */
+    private int lastOp() {
+        return (SUPERINSTRUCTIONS && last >= barrier) ? code[last] : -1;
+    }
+
+    /**
+     * Removes the last emitted instruction, so that a fused one can take its place.
+     */
+    private void rewind() {
+        size = last;
+    }
+
+    private int blockParams(AnnotatedInstruction scope) {
+        var typeId = scope.operand(0);
+        if (typeId == 0x40 || ValType.isValid(typeId)) {
+            return 0;
+        }
+        return instance.type((int) typeId).params().size();
+    }
+
+    private int blockResults(AnnotatedInstruction scope) {
+        var typeId = scope.operand(0);
+        if (typeId == 0x40) {
+            return 0;
+        }
+        if (ValType.isValid(typeId)) {
+            return 1;
+        }
+        return instance.type((int) typeId).returns().size();
+    }
+
+    private boolean isScalarBlock(AnnotatedInstruction scope) {
+        var typeId = scope.operand(0);
+        if (typeId == 0x40) {
+            return true;
+        }
+        if (ValType.isValid(typeId)) {
+            return typeId != ValType.V128.id();
+        }
+        return isScalar(instance.type((int) typeId));
+    }
+
+    private ValType globalType(int idx) {
+        var imported = instance.imports().globalCount();
+        if (idx < imported) {
+            return instance.imports().global(idx).instance().getType();
+        }
+        return instance.module().globalSection().getGlobal(idx - imported).valueType();
+    }
+
+    private void branch(int op, int depth) {
+        var target = blocks.get(blocks.size() - 1 - depth);
+        var keep = target.arity();
+        var drop = height - keep - target.height;
+        if (drop == 0) {
+            op(op == DecodedOpCode.BR_IF ? fuseBrIf() : op);
+        } else {
+            op(op == DecodedOpCode.BR ? DecodedOpCode.BR_UNWIND : DecodedOpCode.BR_IF_UNWIND);
+        }
+        branchTarget(target);
+        if (drop != 0) {
+            emit(keep);
+            emit(drop);
+        }
+    }
+
+    /**
+     * Fuses a preceding i32 comparison into a conditional branch.
+     */
+    private int fuseBrIf() {
+        int fused;
+        switch (lastOp()) {
+            case DecodedOpCode.I32_EQZ:
+                fused = DecodedOpCode.BR_IF_I32_EQZ;
+                break;
+            case DecodedOpCode.I32_EQ:
+                fused = DecodedOpCode.BR_IF_I32_EQ;
+                break;
+            case DecodedOpCode.I32_NE:
+                fused = DecodedOpCode.BR_IF_I32_NE;
+                break;
+            case DecodedOpCode.I32_LT_S:
+                fused = DecodedOpCode.BR_IF_I32_LT_S;
+                break;
+            case DecodedOpCode.I32_LT_U:
+                fused = DecodedOpCode.BR_IF_I32_LT_U;
+                break;
+            case DecodedOpCode.I32_GT_S:
+                fused = DecodedOpCode.BR_IF_I32_GT_S;
+                break;
+            case DecodedOpCode.I32_GT_U:
+                fused = DecodedOpCode.BR_IF_I32_GT_U;
+                break;
+            case DecodedOpCode.I32_LE_S:
+                fused = DecodedOpCode.BR_IF_I32_LE_S;
+                break;
+            case DecodedOpCode.I32_LE_U:
+                fused = DecodedOpCode.BR_IF_I32_LE_U;
+                break;
+            case DecodedOpCode.I32_GE_S:
+                fused = DecodedOpCode.BR_IF_I32_GE_S;
+                break;
+            case DecodedOpCode.I32_GE_U:
+                fused = DecodedOpCode.BR_IF_I32_GE_U;
+                break;
+            default:
+                return DecodedOpCode.BR_IF;
+        }
+        rewind();
+        return fused;
+    }
+
+    private void branchTarget(Block target) {
+        if (target.loop) {
+            emit(target.start);
+        } else {
+            target.addPatch(size);
+            emit(-1);
+        }
+    }
+
+    private void markUnreachable() {
+        unreachable = true;
+        unreachableDepth = 0;
+    }
+
+    private boolean lower(AnnotatedInstruction ins) {
+        var opcode = ins.opcode();
+        if (unreachable) {
+            switch (opcode) {
+                case BLOCK:
+                case LOOP:
+                case IF:
+                case TRY_TABLE:
+                    unreachableDepth++;
+                    return true;
+                case ELSE:
+                    if (unreachableDepth == 0) {
+                        break;
+                    }
+                    return true;
+                case END:
+                    if (unreachableDepth == 0) {
+                        break;
+                    }
+                    unreachableDepth--;
+                    return true;
+                default:
+                    return true;
+            }
+        }
+
+        switch (opcode) {
+            case NOP:
+                return true;
+            case UNREACHABLE:
+                op(DecodedOpCode.UNREACHABLE);
+                markUnreachable();
+                return true;
+            case BLOCK:
+            case LOOP:
+                {
+                    if (!isScalarBlock(ins)) {
+                        return false;
+                    }
+                    var params = blockParams(ins);
+                    var loop = opcode == OpCode.LOOP;
+                    blocks.add(new Block(loop, height - params, params, blockResults(ins), size));
+                    if (loop) {
+                        // the interruption check is executed on every iteration
+                        op(DecodedOpCode.LOOP);
+                        barrier = size;
+                    }
+                    return true;
+                }
+            case IF:
+                {
+                    if (!isScalarBlock(ins)) {
+                        return false;
+                    }
+                    pop(1);
+                    var params = blockParams(ins);
+                    var block = new Block(false, height - params, params, blockResults(ins), size);
+                    blocks.add(block);
+                    op(DecodedOpCode.IF);
+                    block.elsePatch = size;
+                    emit(-1);
+                    return true;
+                }
+            case ELSE:
+                {
+                    var block = blocks.get(blocks.size() - 1);
+                    if (!unreachable) {
+                        op(DecodedOpCode.BR);
+                        block.addPatch(size);
+                        emit(-1);
+                    }
+                    patch(block.elsePatch);
+                    block.elsePatch = -1;
+                    barrier = size;
+                    height = block.height + block.params;
+                    unreachable = false;
+                    return true;
+                }
+            case END:
+                {
+                    var block = blocks.remove(blocks.size() - 1);
+                    if (block.elsePatch != -1) {
+                        patch(block.elsePatch);
+                    }
+                    for (int i = 0; i < block.patchCount; i++) {
+                        patch(block.patches[i]);
+                    }
+                    barrier = size;
+                    height = block.height + block.results;
+                    unreachable = false;
+                    if (blocks.isEmpty()) {
+                        op(DecodedOpCode.RETURN);
+                    }
+                    return true;
+                }
+            case BR:
+                {
+                    var depth = (int) ins.operand(0);
+                    if (depth == blocks.size() - 1) {
+                        op(DecodedOpCode.RETURN);
+                    } else {
+                        branch(DecodedOpCode.BR, depth);
+                    }
+                    markUnreachable();
+                    return true;
+                }
+            case BR_IF:
+                {
+                    pop(1);
+                    var depth = (int) ins.operand(0);
+                    if (depth == blocks.size() - 1) {
+                        // branching to the function block is a return
+                        var keep = blocks.get(0).results;
+                        op(DecodedOpCode.BR_IF_UNWIND);
+                        blocks.get(0).addPatch(size);
+                        emit(-1);
+                        emit(keep);
+                        emit(height - keep);
+                    } else {
+                        branch(DecodedOpCode.BR_IF, depth);
+                    }
+                    return true;
+                }
+            case BR_TABLE:
+                {
+                    pop(1);
+                    var count = ins.operandCount() - 1;
+                    emit(DecodedOpCode.BR_TABLE, count);
+                    for (int i = 0; i <= count; i++) {
+                        var target = blocks.get(blocks.size() - 1 - (int) ins.operand(i));
+                        var keep = target.arity();
+                        branchTarget(target);
+                        emit(keep);
+                        emit(height - keep - target.height);
+                    }
+                    markUnreachable();
+                    return true;
+                }
+            case RETURN:
+                op(DecodedOpCode.RETURN);
+                markUnreachable();
+                return true;
+            case CALL:
+                {
+                    var funcId = (int) ins.operand(0);
+                    var type = instance.type(instance.functionType(funcId));
+                    if (!isScalar(type)) {
+                        return false;
+                    }
+                    emit(DecodedOpCode.CALL, funcId);
+                    emit(type.params().size());
+                    emit(type.returns().size());
+                    pop(type.params().size());
+                    push(type.returns().size());
+                    return true;
+                }
+            case CALL_INDIRECT:
+                {
+                    var typeId = (int) ins.operand(0);
+                    var type = instance.type(typeId);
+                    if (!isScalar(type)) {
+                        return false;
+                    }
+                    emit(DecodedOpCode.CALL_INDIRECT, typeId, (int) ins.operand(1));
+                    emit(type.params().size());
+                    emit(type.returns().size());
+                    pop(1 + type.params().size());
+                    push(type.returns().size());
+                    return true;
+                }
+            case DROP:
+                if (ins.operand(0) == ValType.ID.V128) {
+                    return false;
+                }
+                op(DecodedOpCode.DROP);
+                pop(1);
+                return true;
+            case SELECT:
+            case SELECT_T:
+                if (ins.operand(0) == ValType.ID.V128 || ins.operand(0) == ValType.V128.id()) {
+                    return false;
+                }
+                op(DecodedOpCode.SELECT);
+                pop(2);
+                return true;
+            case LOCAL_GET:
+                localGet((int) ins.operand(0));
+                push(1);
+                return true;
+            case LOCAL_SET:
+                emit(DecodedOpCode.LOCAL_SET, (int) ins.operand(0));
+                pop(1);
+                return true;
+            case LOCAL_TEE:
+                emit(DecodedOpCode.LOCAL_TEE, (int) ins.operand(0));
+                return true;
+            case GLOBAL_GET:
+                if (globalType((int) ins.operand(0)).equals(ValType.V128)) {
+                    return false;
+                }
+                emit(DecodedOpCode.GLOBAL_GET, (int) ins.operand(0));
+                push(1);
+                return true;
+            case GLOBAL_SET:
+                if (globalType((int) ins.operand(0)).equals(ValType.V128)) {
+                    return false;
+                }
+                emit(DecodedOpCode.GLOBAL_SET, (int) ins.operand(0));
+                pop(1);
+                return true;
+            case I32_LOAD:
+            case I64_LOAD:
+            case F32_LOAD:
+            case F64_LOAD:
+            case I32_LOAD8_S:
+            case I32_LOAD8_U:
+            case I32_LOAD16_S:
+            case I32_LOAD16_U:
+            case I64_LOAD8_S:
+            case I64_LOAD8_U:
+            case I64_LOAD16_S:
+            case I64_LOAD16_U:
+            case I64_LOAD32_S:
+            case I64_LOAD32_U:
+                memoryAccess(ins);
+                return true;
+            case I32_STORE:
+            case I64_STORE:
+            case F32_STORE:
+            case F64_STORE:
+            case I32_STORE8:
+            case I32_STORE16:
+            case I64_STORE8:
+            case I64_STORE16:
+            case I64_STORE32:
+                memoryAccess(ins);
+                pop(2);
+                return true;
+            case MEMORY_SIZE:
+                emit(DecodedOpCode.MEMORY_SIZE, (int) ins.operand(0));
+                push(1);
+                return true;
+            case MEMORY_GROW:
+                emit(DecodedOpCode.MEMORY_GROW, (int) ins.operand(0));
+                return true;
+            case MEMORY_FILL:
+                emit(DecodedOpCode.MEMORY_FILL, (int) ins.operand(0));
+                pop(3);
+                return true;
+            case MEMORY_COPY:
+                emit(DecodedOpCode.MEMORY_COPY, (int) ins.operand(0), (int) ins.operand(1));
+                pop(3);
+                return true;
+            case MEMORY_INIT:
+                emit(DecodedOpCode.MEMORY_INIT, (int) ins.operand(0), (int) ins.operand(1));
+                pop(3);
+                return true;
+            case DATA_DROP:
+                emit(DecodedOpCode.DATA_DROP, (int) ins.operand(0));
+                return true;
+            case TABLE_GET:
+                emit(DecodedOpCode.TABLE_GET, (int) ins.operand(0));
+                return true;
+            case TABLE_SET:
+                emit(DecodedOpCode.TABLE_SET, (int) ins.operand(0));
+                pop(2);
+                return true;
+            case TABLE_SIZE:
+                emit(DecodedOpCode.TABLE_SIZE, (int) ins.operand(0));
+                push(1);
+                return true;
+            case TABLE_GROW:
+                emit(DecodedOpCode.TABLE_GROW, (int) ins.operand(0));
+                pop(1);
+                return true;
+            case TABLE_FILL:
+                emit(DecodedOpCode.TABLE_FILL, (int) ins.operand(0));
+                pop(3);
+                return true;
+            case TABLE_COPY:
+                emit(DecodedOpCode.TABLE_COPY, (int) ins.operand(0), (int) ins.operand(1));
+                pop(3);
+                return true;
+            case TABLE_INIT:
+                emit(DecodedOpCode.TABLE_INIT, (int) ins.operand(0), (int) ins.operand(1));
+                pop(3);
+                return true;
+            case ELEM_DROP:
+                emit(DecodedOpCode.ELEM_DROP, (int) ins.operand(0));
+                return true;
+            case I32_CONST:
+                i32Const((int) ins.operand(0));
+                push(1);
+                return true;
+            case F32_CONST:
+                emit(DecodedOpCode.F32_CONST, (int) ins.operand(0));
+                push(1);
+                return true;
+            case I64_CONST:
+                emit(DecodedOpCode.I64_CONST, constant(ins.operand(0)));
+                push(1);
+                return true;
+            case F64_CONST:
+                emit(DecodedOpCode.F64_CONST, constant(ins.operand(0)));
+                push(1);
+                return true;
+            case REF_NULL:
+                op(DecodedOpCode.REF_NULL);
+                push(1);
+                return true;
+            case REF_FUNC:
+                emit(DecodedOpCode.REF_FUNC, (int) ins.operand(0));
+                push(1);
+                return true;
+            case REF_IS_NULL:
+                op(DecodedOpCode.REF_IS_NULL);
+                return true;
+            case REF_AS_NON_NULL:
+                op(DecodedOpCode.REF_AS_NON_NULL);
+                return true;
+            default:
+                return lowerNumeric(ins);
+        }
+    }
+
+    private void localGet(int idx) {
+        switch (lastOp()) {
+            case DecodedOpCode.LOCAL_GET:
+                {
+                    var first = code[last + 1];
+                    rewind();
+                    emit(DecodedOpCode.LOCAL_GET_2, first, idx);
+                    return;
+                }
+            case DecodedOpCode.LOCAL_SET:
+                if (code[last + 1] == idx) {
+                    code[last] = DecodedOpCode.LOCAL_TEE;
+                    return;
+                }
+                break;
+            default:
+                break;
+        }
+        emit(DecodedOpCode.LOCAL_GET, idx);
+    }
+
+    private void i32Const(int value) {
+        if (lastOp() == DecodedOpCode.LOCAL_GET) {
+            var idx = code[last + 1];
+            rewind();
+            emit(DecodedOpCode.LOCAL_GET_I32_CONST, idx, value);
+            return;
+        }
+        emit(DecodedOpCode.I32_CONST, value);
+    }
+
+    private void i32Add(int sign) {
+        switch (lastOp()) {
+            case DecodedOpCode.I32_CONST:
+                {
+                    var value = code[last + 1];
+                    rewind();
+                    emit(DecodedOpCode.I32_ADD_CONST, sign * value);
+                    return;
+                }
+            case DecodedOpCode.LOCAL_GET_I32_CONST:
+                code[last] = DecodedOpCode.I32_ADD_LOCAL_CONST;
+                code[last + 2] *= sign;
+                return;
+            case DecodedOpCode.LOCAL_GET_2:
+                if (sign > 0) {
+                    code[last] = DecodedOpCode.I32_ADD_LOCALS;
+                    return;
+                }
+                break;
+            default:
+                break;
+        }
+        op(sign > 0 ? DecodedOpCode.I32_ADD : DecodedOpCode.I32_SUB);
+    }
+
+    private void memoryAccess(AnnotatedInstruction ins) {
+        var offset = ins.operand(1);
+        if (offset < 0 || offset >= Integer.MAX_VALUE) {
+            emit(DecodedOpCode.OUT_OF_BOUNDS, 0, 0);
+        } else if (ins.opcode() == OpCode.I32_LOAD && lastOp() == DecodedOpCode.LOCAL_GET) {
+            var idx = code[last + 1];
+            rewind();
+            emit(DecodedOpCode.I32_LOAD_LOCAL, idx, (int) offset);
+            emit((int) ins.operand(2));
+        } else {
+            emit(ins.opcode().opcode(), (int) offset, (int) ins.operand(2));
+        }
+    }
+
+    private boolean lowerNumeric(AnnotatedInstruction ins) {
+        var op = ins.opcode().opcode();
+        if (op >= 0xFC00 && op <= 0xFC07) {
+            // saturating truncations
+            op(0xE0 + (op & 0xFF));
+            return true;
+        }
+        if (op < DecodedOpCode.I32_EQZ || op > DecodedOpCode.I64_EXTEND_32_S) {
+            return false;
+        }
+        if (isBinary(op)) {
+            pop(1);
+        }
+        if (op == DecodedOpCode.I32_ADD) {
+            i32Add(1);
+        } else if (op == DecodedOpCode.I32_SUB) {
+            i32Add(-1);
+        } else {
+            op(op);
+        }
+        return true;
+    }
+
+    private static boolean isBinary(int op) {
+        return (op > DecodedOpCode.I32_EQZ && op < DecodedOpCode.I64_EQZ)
+                || (op > DecodedOpCode.I64_EQZ && op < DecodedOpCode.I32_CLZ)
+                || (op >= DecodedOpCode.I32_ADD && op <= DecodedOpCode.I32_ROTR)
+                || (op >= DecodedOpCode.I64_ADD && op <= DecodedOpCode.I64_ROTR)
+                || (op >= DecodedOpCode.F32_ADD && op <= DecodedOpCode.F32_COPYSIGN)
+                || (op >= DecodedOpCode.F64_ADD && op <= DecodedOpCode.F64_COPYSIGN);
+    }
+}
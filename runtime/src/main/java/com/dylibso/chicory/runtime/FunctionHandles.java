@@ -0,0 +1,204 @@
+package com.dylibso.chicory.runtime;
+
+import com.dylibso.chicory.wasm.types.FunctionType;
+import com.dylibso.chicory.wasm.types.ValType;
+import com.dylibso.chicory.wasm.types.Value;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+
+/**
+ * Builds the {@link MethodHandle}s returned by {@link Machine#handle(int, FunctionType)}.
+ * <p>
+ * The handles take and return the JVM types of the wasm values: {@code int} for i32 and
+ * references, {@code long} for i64, {@code float} for f32 and {@code double} for f64.
+ * A function without results returns {@code void} and a function with multiple results
+ * returns the {@code long[]} of {@link Machine#call(int, long[])}.
+ */
+public final class FunctionHandles {
+
+    private static final MethodHandle MACHINE_CALL;
+    private static final MethodHandle FIRST_RESULT;
+    private static final MethodHandle LONG_TO_F32;
+    private static final MethodHandle LONG_TO_F64;
+    private static final MethodHandle F32_TO_LONG;
+    private static final MethodHandle F64_TO_LONG;
+    private static final MethodHandle GC_SAFE_POINT;
+
+    static {
+        try {
+            var lookup = MethodHandles.lookup();
+            MACHINE_CALL =
+                    lookup.findVirtual(
+                            Machine.class,
+                            "call",
+                            MethodType.methodType(long[].class, int.class, long[].class));
+            FIRST_RESULT =
+                    lookup.findStatic(
+                            FunctionHandles.class,
+                            "firstResult",
+                            MethodType.methodType(long.class, long[].class));
+            LONG_TO_F32 =
+                    lookup.findStatic(
+                            Value.class,
+                            "longToFloat",
+                            MethodType.methodType(float.class, long.class));
+            LONG_TO_F64 =
+                    lookup.findStatic(
+                            Value.class,
+                            "longToDouble",
+                            MethodType.methodType(double.class, long.class));
+            F32_TO_LONG =
+                    lookup.findStatic(
+                            Value.class,
+                            "floatToLong",
+                            MethodType.methodType(long.class, float.class));
+            F64_TO_LONG =
+                    lookup.findStatic(
+                            Value.class,
+                            "doubleToLong",
+                            MethodType.methodType(long.class, double.class));
+            GC_SAFE_POINT =
+                    lookup.findVirtual(
+                            Instance.class, "gcSafePoint", MethodType.methodType(void.class));
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private FunctionHandles() {}
+
+    /**
+     * @return the type of the handles calling a function of the given wasm type.
+     */
+    public static MethodType methodType(FunctionType type) {
+        var params = new Class<?>[type.params().size()];
+        for (int i = 0; i < params.length; i++) {
+            params[i] = jvmType(type.params().get(i));
+        }
+        return MethodType.methodType(jvmReturnType(type.returns()), params);
+    }
+
+    /**
+     * Adapts {@link Machine#call(int, long[])}, boxing the arguments and the result in arrays,
+     * for the machines that don't provide a more direct way of calling a function.
+     */
+    public static MethodHandle adapt(Machine machine, int funcId, FunctionType type) {
+        var call = MethodHandles.insertArguments(MACHINE_CALL, 0, machine, funcId);
+        call = call.asCollector(long[].class, type.params().size());
+        if (type.returns().size() == 1) {
+            call = MethodHandles.filterReturnValue(call, FIRST_RESULT);
+        }
+        return fromLongs(call, type);
+    }
+
+    /**
+     * Converts a handle taking the arguments and returning the result in their {@code long}
+     * encoding, as in the {@code long[]} of {@link Machine#call(int, long[])}, to a handle
+     * with the JVM types of {@link #methodType(FunctionType)}.
+     */
+    public static MethodHandle fromLongs(MethodHandle handle, FunctionType type) {
+        var params = type.params();
+        var filters = new MethodHandle[params.size()];
+        for (int i = 0; i < filters.length; i++) {
+            filters[i] = toLong(params.get(i));
+        }
+        handle = MethodHandles.filterArguments(handle, 0, filters);
+
+        var returns = type.returns();
+        if (returns.isEmpty()) {
+            return handle.asType(handle.type().changeReturnType(void.class));
+        } else if (returns.size() == 1) {
+            return MethodHandles.filterReturnValue(handle, fromLong(returns.get(0)));
+        }
+        return handle;
+    }
+
+    /**
+     * Runs the GC safe point of the instance after each call of the handle, as
+     * {@link Instance.Exports#function(String)} does.
+     */
+    static MethodHandle withSafePoint(MethodHandle handle, Instance instance) {
+        var type = handle.type();
+        var safePoint = GC_SAFE_POINT.bindTo(instance);
+        MethodHandle cleanup;
+        if (type.returnType() == void.class) {
+            cleanup = MethodHandles.dropArguments(safePoint, 0, Throwable.class);
+        } else {
+            var identity = MethodHandles.identity(type.returnType());
+            cleanup =
+                    MethodHandles.foldArguments(
+                            MethodHandles.dropArguments(identity, 0, Throwable.class), safePoint);
+        }
+        cleanup =
+                MethodHandles.dropArguments(
+                        cleanup, cleanup.type().parameterCount(), type.parameterList());
+        return MethodHandles.tryFinally(handle, cleanup);
+    }
+
+    private static long firstResult(long[] results) {
+        return results[0];
+    }
+
+    private static Class<?> jvmReturnType(List<ValType> types) {
+        switch (types.size()) {
+            case 0:
+                return void.class;
+            case 1:
+                return jvmType(types.get(0));
+            default:
+                return long[].class;
+        }
+    }
+
+    private static Class<?> jvmType(ValType type) {
+        switch (type.opcode()) {
+            case ValType.ID.I32:
+            case ValType.ID.Ref:
+            case ValType.ID.RefNull:
+            case ValType.ID.ExnRef:
+                return int.class;
+            case ValType.ID.I64:
+                return long.class;
+            case ValType.ID.F32:
+                return float.class;
+            case ValType.ID.F64:
+                return double.class;
+            default:
+                throw new IllegalArgumentException("Unsupported ValType: " + type);
+        }
+    }
+
+    // a null filter leaves the value as it is
+    private static MethodHandle toLong(ValType type) {
+        switch (type.opcode()) {
+            case ValType.ID.F32:
+                return F32_TO_LONG;
+            case ValType.ID.F64:
+                return F64_TO_LONG;
+            case ValType.ID.I64:
+                return null;
+            default:
+                // int to long, sign extended as in the long[] arguments
+                return MethodHandles.explicitCastArguments(
+                        MethodHandles.identity(long.class),
+                        MethodType.methodType(long.class, int.class));
+        }
+    }
+
+    private static MethodHandle fromLong(ValType type) {
+        switch (type.opcode()) {
+            case ValType.ID.F32:
+                return LONG_TO_F32;
+            case ValType.ID.F64:
+                return LONG_TO_F64;
+            case ValType.ID.I64:
+                return MethodHandles.identity(long.class);
+            default:
+                return MethodHandles.explicitCastArguments(
+                        MethodHandles.identity(long.class),
+                        MethodType.methodType(int.class, long.class));
+        }
+    }
+}
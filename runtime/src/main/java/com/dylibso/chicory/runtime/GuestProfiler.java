@@ -0,0 +1,90 @@
+package com.dylibso.chicory.runtime;
+
+import com.dylibso.chicory.wasm.types.NameCustomSection;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A sampling profiler attributing the execution time to the functions of the guest, in the
+ * interpreter as well as in the compiled code, without the overhead of an
+ * {@link ExecutionListener}.
+ * <p>
+ * The instances built with {@link Instance.Builder#withProfiler(GuestProfiler)} sample their
+ * stack of functions once per {@link Epoch} tick, at their next call or loop iteration, so the
+ * sampling interval is the one of the epoch timer. The functions are named after the name
+ * section of the module, and the samples are written as collapsed stacks, the input of the
+ * flame graph tools (e.g. flamegraph.pl or speedscope).
+ *
+ * <pre>{@code
+ * var profiler = new GuestProfiler();
+ * var instance = Instance.builder(module).withProfiler(profiler).build();
+ * try (var timer = Epoch.startTimer(Duration.ofMillis(1))) {
+ *     instance.export("run").apply();
+ * }
+ * profiler.writeCollapsedStacks(writer);
+ * }</pre>
+ * <p>
+ * The machines that don't keep track of their stack (see {@link Machine#stackTrace()}) aren't
+ * sampled.
+ */
+public final class GuestProfiler {
+
+    // collapsed stack -> number of samples
+    private final Map<String, LongAdder> samples = new ConcurrentHashMap<>();
+
+    void sample(Instance instance) {
+        int[] stackTrace = instance.getMachine().stackTrace();
+        if (stackTrace.length == 0) {
+            return;
+        }
+        var nameSection = instance.module().nameSection();
+        var stack = new StringBuilder();
+        for (int i = stackTrace.length - 1; i >= 0; i--) {
+            if (stack.length() > 0) {
+                stack.append(';');
+            }
+            stack.append(functionName(nameSection, stackTrace[i]));
+        }
+        samples.computeIfAbsent(stack.toString(), k -> new LongAdder()).increment();
+    }
+
+    private static String functionName(NameCustomSection nameSection, int funcId) {
+        var name = nameSection == null ? null : nameSection.nameOfFunction(funcId);
+        if (name == null) {
+            return "wasm-function[" + funcId + "]";
+        }
+        // the separators of the collapsed stacks
+        return name.replace(';', ':').replace('\n', ' ');
+    }
+
+    /**
+     * Returns the number of samples of each stack, from the outermost function to the innermost
+     * one separated by {@code ;}.
+     */
+    public Map<String, Long> samples() {
+        var result = new TreeMap<String, Long>();
+        samples.forEach((stack, count) -> result.put(stack, count.sum()));
+        return result;
+    }
+
+    /**
+     * Writes a line per stack, followed by its number of samples.
+     */
+    public void writeCollapsedStacks(Writer out) throws IOException {
+        for (var entry : samples().entrySet()) {
+            out.write(entry.getKey() + " " + entry.getValue() + "\n");
+        }
+        out.flush();
+    }
+
+    /**
+     * Discards the samples so far.
+     */
+    public void reset() {
+        samples.clear();
+    }
+}
@@ -11,6 +11,7 @@ import static java.util.Objects.requireNonNullElse;
 import static java.util.Objects.requireNonNullElseGet;
 
 import com.dylibso.chicory.runtime.internal.GcRefStore;
+import com.dylibso.chicory.runtime.internal.JfrEvents;
 import com.dylibso.chicory.wasm.ChicoryException;
 import com.dylibso.chicory.wasm.InvalidException;
 import com.dylibso.chicory.wasm.UninstantiableException;
@@ -18,6 +19,7 @@ import com.dylibso.chicory.wasm.UnlinkableException;
 import com.dylibso.chicory.wasm.WasmModule;
 import com.dylibso.chicory.wasm.types.ActiveDataSegment;
 import com.dylibso.chicory.wasm.types.ActiveElement;
+import com.dylibso.chicory.wasm.types.CanonicalTypes;
 import com.dylibso.chicory.wasm.types.DataSegment;
 import com.dylibso.chicory.wasm.types.Element;
 import com.dylibso.chicory.wasm.types.Export;
@@ -43,6 +45,7 @@ import com.dylibso.chicory.wasm.types.TagType;
 import com.dylibso.chicory.wasm.types.TypeSection;
 import com.dylibso.chicory.wasm.types.ValType;
 import com.dylibso.chicory.wasm.types.Value;
+import java.lang.invoke.MethodHandle;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -55,8 +58,10 @@ public class Instance {
     public static final String START_FUNCTION_NAME = "_start";
 
     private final WasmModule module;
+    private final Function<Instance, Machine> machineFactory;
     private final Machine machine;
     private final FunctionBody[] functions;
+    private final StackFrame.Layout[] frameLayouts;
     private final GlobalFactory globalFactory;
     private final Memory[] memories;
     private final DataSegment[] dataSegments;
@@ -75,8 +80,33 @@ public class Instance {
     private final Map<Integer, WasmException> exnRefs;
     private final GcRefStore gcRefs;
 
+    // the instance this one was forked from, null if it was built
+    private final Instance template;
+
     private TailCallPending tailCallPending;
 
+    // the Epoch counter value interrupting the execution, NO_EPOCH_DEADLINE to only check the
+    // thread interruption
+    private static final long NO_EPOCH_DEADLINE = Long.MIN_VALUE;
+    private volatile long epochDeadline = NO_EPOCH_DEADLINE;
+    // the Epoch counter value from which checkInterruption checks the deadline, the profiler and
+    // the thread again, Long.MIN_VALUE to check them at the next call
+    private volatile long nextInterruptionCheck = Long.MIN_VALUE;
+
+    // NO_FUEL when the execution isn't metered
+    private static final long NO_FUEL = -1;
+    private final long initialFuel;
+    private final FuelHandler fuelHandler;
+    private long fuel;
+
+    private final GuestProfiler profiler;
+    // the epoch of the last sample
+    private long profiledEpoch;
+
+    private final boolean backtraces;
+
+    private final CanonicalTypes canonicalTypes;
+
     static final class TailCallPending {
         final int funcId;
         final long[] args;
@@ -105,16 +135,29 @@ public class Instance {
             GlobalFactory globalFactory,
             boolean initialize,
             boolean start,
-            ExecutionListener listener) {
+            ExecutionListener listener,
+            long fuel,
+            FuelHandler fuelHandler,
+            GuestProfiler profiler,
+            boolean backtraces) {
         this.module = module;
         this.globalInitializers = globalInitializers.clone();
         this.globals = new GlobalInstance[globalInitializers.length];
         this.memories = memories;
         this.dataSegments = dataSegments;
         this.functions = functions.clone();
+        this.frameLayouts = new StackFrame.Layout[functions.length];
         this.types = types.clone();
         this.functionTypes = functionTypes.clone();
+        this.canonicalTypes = module.typeSection().canonicalTypes();
         this.imports = imports;
+        this.initialFuel = fuel;
+        this.fuel = fuel;
+        this.fuelHandler = fuelHandler;
+        this.profiler = profiler;
+        this.profiledEpoch = Epoch.current();
+        this.backtraces = backtraces;
+        this.machineFactory = machineFactory;
         this.machine = machineFactory.apply(this);
         this.tables = new TableInstance[tables.length];
         this.elements = elements.clone();
@@ -130,6 +173,7 @@ public class Instance {
 
         this.exnRefs = new HashMap<>();
         this.gcRefs = new GcRefStore(this);
+        this.template = null;
 
         for (int i = 0; i < tables.length; i++) {
             long rawValue = computeConstantValue(this, tables[i].initialize())[0];
@@ -146,6 +190,109 @@ public class Instance {
         }
     }
 
+    private Instance(Instance template) {
+        this.module = template.module;
+        this.globalInitializers = template.globalInitializers;
+        this.dataSegments = template.dataSegments.clone();
+        this.memories = new Memory[template.memories.length];
+        for (int i = 0; i < memories.length; i++) {
+            memories[i] = template.memories[i].fork(dataSegments);
+        }
+        this.functions = template.functions;
+        this.frameLayouts = new StackFrame.Layout[functions.length];
+        this.types = template.types;
+        this.functionTypes = template.functionTypes;
+        this.canonicalTypes = template.canonicalTypes;
+        this.imports = template.imports;
+        this.initialFuel = template.initialFuel;
+        this.fuel = template.initialFuel;
+        this.fuelHandler = template.fuelHandler;
+        this.profiler = template.profiler;
+        this.profiledEpoch = Epoch.current();
+        this.backtraces = template.backtraces;
+        this.machineFactory = template.machineFactory;
+        this.machine = machineFactory.apply(this);
+        this.elements = template.elements.clone();
+        this.tags = new TagInstance[template.tags.length];
+        for (int i = 0; i < tags.length; i++) {
+            tags[i] = new TagInstance(template.tags[i].tagType(), template.tags[i].type());
+        }
+        this.exports = template.exports;
+        this.listener = template.listener;
+        this.globalFactory = template.globalFactory;
+        this.fluentExports = new Exports(this);
+
+        this.exnRefs = new HashMap<>();
+        this.gcRefs = new GcRefStore(this);
+        this.template = template;
+
+        this.globals = new GlobalInstance[template.globals.length];
+        for (int i = 0; i < globals.length; i++) {
+            var g = template.globals[i];
+            if (globalFactory != null) {
+                globals[i] =
+                        globalFactory.create(
+                                g.getValueLow(),
+                                g.getValueHigh(),
+                                g.getType(),
+                                g.getMutabilityType());
+            } else {
+                globals[i] =
+                        new GlobalInstance(
+                                g.getValueLow(),
+                                g.getValueHigh(),
+                                g.getType(),
+                                g.getMutabilityType());
+            }
+            globals[i].setInstance(this);
+        }
+        this.tables = new TableInstance[template.tables.length];
+        for (int i = 0; i < tables.length; i++) {
+            tables[i] = template.tables[i].fork(template, this);
+        }
+    }
+
+    /**
+     * Creates a copy of this initialized instance without running any initialization again:
+     * the memories are forked copy-on-write (see {@link Memory#fork}), globals and tables are
+     * copied, and the imports are shared. Keeping an instance as a template and forking one
+     * copy per request isolates the requests at a fraction of the cost of building them.
+     * <p>
+     * The template must not be executing while it's forked. Shared memories and instances
+     * holding GC references can't be forked.
+     */
+    public Instance fork() {
+        if (!gcRefs.isEmpty()) {
+            throw new UnsupportedOperationException(
+                    "Instances holding GC references can't be forked");
+        }
+        return new Instance(this);
+    }
+
+    /**
+     * Restores a fork to the state of its template, see {@link InstancePool}.
+     */
+    void restore() {
+        for (var memory : memories) {
+            memory.restore();
+        }
+        System.arraycopy(template.dataSegments, 0, dataSegments, 0, dataSegments.length);
+        System.arraycopy(template.elements, 0, elements, 0, elements.length);
+        for (int i = 0; i < globals.length; i++) {
+            globals[i].setValueLow(template.globals[i].getValueLow());
+            globals[i].setValueHigh(template.globals[i].getValueHigh());
+        }
+        for (int i = 0; i < tables.length; i++) {
+            tables[i].restore(template.tables[i], template, this);
+        }
+        exnRefs.clear();
+        gcRefs.clear();
+        tailCallPending = null;
+        fuel = initialFuel;
+        epochDeadline = NO_EPOCH_DEADLINE;
+        nextInterruptionCheck = Long.MIN_VALUE;
+    }
+
     public Instance initialize(boolean start) {
         // Globals must be initialized before element/data segments,
         // because segment offsets can reference local globals via global.get.
@@ -277,6 +424,19 @@ public class Instance {
             };
         }
 
+        /**
+         * Returns a {@link MethodHandle} calling the exported function with
+         * typed arguments and result, e.g. {@code (int) handle.invokeExact(1, 2)} for an
+         * {@code (i32, i32) -> i32} function, see {@link FunctionHandles#methodType(FunctionType)}.
+         * Depending on the machine the call avoids the arrays of {@link ExportFunction}.
+         */
+        public MethodHandle handle(String name) {
+            var export = getExport(FUNCTION, name);
+            var funcId = export.index();
+            var type = instance.type(instance.functionType(funcId));
+            return FunctionHandles.withSafePoint(instance.machine.handle(funcId, type), instance);
+        }
+
         public GlobalInstance global(String name) {
             var export = getExport(GLOBAL, name);
             return instance.global(export.index());
@@ -310,6 +470,21 @@ public class Instance {
         return functions[(int) idx - imports.functionCount()];
     }
 
+    /**
+     * Returns the layout of the locals of a function defined by this instance, computed on first use.
+     */
+    StackFrame.Layout frameLayout(int funcId) {
+        var idx = funcId - imports.functionCount();
+        var layout = frameLayouts[idx];
+        if (layout == null) {
+            layout =
+                    new StackFrame.Layout(
+                            type(functionType(funcId)).params(), functions[idx].localTypes());
+            frameLayouts[idx] = layout;
+        }
+        return layout;
+    }
+
     public int functionCount() {
         return imports.functionCount() + functions.length;
     }
@@ -445,6 +620,14 @@ public class Instance {
         return gcRefs.get(idx);
     }
 
+    /**
+     * Returns the canonical ids of the types of the module, e.g. to check the type of the
+     * functions called indirectly.
+     */
+    public CanonicalTypes canonicalTypes() {
+        return canonicalTypes;
+    }
+
     public boolean heapTypeMatch(
             long ref, boolean nullable, int targetHeapType, int sourceHeapType) {
         if (ref == Value.REF_NULL_VALUE) {
@@ -483,6 +666,9 @@ public class Instance {
         if (actual == target) {
             return true;
         }
+        if (actual >= 0 && target >= 0) {
+            return canonicalTypes.isSubtype(actual, target);
+        }
         return ValType.heapTypeSubtype(actual, target, module.typeSection());
     }
 
@@ -515,6 +701,119 @@ public class Instance {
         this.tailCallPending = null;
     }
 
+    /**
+     * Returns whether the execution consumes fuel, see {@link Builder#withFuel(long)}.
+     */
+    public boolean isFuelMetered() {
+        return initialFuel != NO_FUEL;
+    }
+
+    /**
+     * Returns the fuel left.
+     */
+    public long fuel() {
+        return fuel;
+    }
+
+    /**
+     * Adds fuel, e.g. before calling the instance again once it ran out of fuel.
+     */
+    public void addFuel(long fuel) {
+        if (fuel < 0) {
+            throw new IllegalArgumentException("fuel must not be negative: " + fuel);
+        }
+        this.fuel += fuel;
+    }
+
+    /**
+     * Consumes the fuel of a basic block, called by the machines before executing it.
+     * Out of fuel, the {@link FuelHandler} is asked for more, and the execution traps without.
+     */
+    public void consumeFuel(long cost) {
+        if (initialFuel == NO_FUEL) {
+            return;
+        }
+        fuel -= cost;
+        while (fuel < 0) {
+            long refill = fuelHandler == null ? 0 : fuelHandler.refuel(this);
+            if (refill <= 0) {
+                // the block didn't run
+                fuel += cost;
+                throw new TrapException("out of fuel");
+            }
+            fuel += refill;
+        }
+    }
+
+    /**
+     * Interrupts the execution once the {@link Epoch} counter advanced by the given number of
+     * ticks from now, the thread interruption is still checked as well.
+     * It can be called while the instance is running, e.g. to extend the deadline.
+     */
+    public void setEpochDeadline(long ticks) {
+        if (ticks < 0) {
+            throw new IllegalArgumentException("ticks must not be negative: " + ticks);
+        }
+        long now = Epoch.current();
+        // saturate to never
+        this.epochDeadline = now + ticks < now ? Long.MAX_VALUE : now + ticks;
+        this.nextInterruptionCheck = Long.MIN_VALUE;
+    }
+
+    /**
+     * Removes the epoch deadline, the execution is only interrupted with the thread again.
+     */
+    public void clearEpochDeadline() {
+        this.epochDeadline = NO_EPOCH_DEADLINE;
+        this.nextInterruptionCheck = Long.MIN_VALUE;
+    }
+
+    /**
+     * Terminates the execution if the epoch deadline is reached or if the thread is
+     * interrupted.
+     * This is called at the start of each call and at the potentially backward branches,
+     * where the {@link GuestProfiler} samples the instance as well.
+     * <p>
+     * While an {@link Epoch} timer is running, this only compares the counter with the next
+     * tick, so the deadline, the profiler and the thread are checked once per tick; otherwise
+     * they're checked at every call.
+     */
+    public final void checkInterruption() {
+        long epoch = Epoch.current();
+        if (epoch < nextInterruptionCheck) {
+            return;
+        }
+        checkInterruption(epoch);
+    }
+
+    private void checkInterruption(long epoch) {
+        if (profiler != null && epoch != profiledEpoch) {
+            profiledEpoch = epoch;
+            profiler.sample(this);
+        }
+        long deadline = epochDeadline;
+        if (deadline != NO_EPOCH_DEADLINE && epoch >= deadline) {
+            throw new ChicoryInterruptedException("Epoch deadline reached");
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            throw new ChicoryInterruptedException("Thread interrupted");
+        }
+        // without a timer the counter doesn't advance: check again at the next call
+        nextInterruptionCheck = Epoch.timerRunning() ? epoch + 1 : Long.MIN_VALUE;
+    }
+
+    /**
+     * Whether the traps and the wasm exceptions record their {@link WasmBacktrace}, see
+     * {@link Builder#withBacktraces(boolean)}.
+     */
+    public boolean backtraces() {
+        return backtraces;
+    }
+
+    boolean hasExecutionListener() {
+        return listener != null;
+    }
+
     void onExecution(Instruction instruction, MStack stack) {
         if (listener != null) {
             listener.onExecution(instruction, stack);
@@ -537,6 +836,10 @@ public class Instance {
         private ExecutionListener listener;
         private ImportValues importValues;
         private Function<Instance, Machine> machineFactory;
+        private long fuel = NO_FUEL;
+        private FuelHandler fuelHandler;
+        private GuestProfiler profiler;
+        private boolean backtraces;
 
         private Builder(WasmModule module) {
             this.module = Objects.requireNonNull(module);
@@ -590,6 +893,45 @@ public class Instance {
             return this;
         }
 
+        /**
+         * Meters the execution with the given fuel: each basic block consumes the weight of its
+         * instructions (see {@link com.dylibso.chicory.runtime.internal.FuelCosts}), the same in
+         * the interpreter and in the code compiled with fuel metering, and the instance traps
+         * once out of fuel, unless a {@link #withFuelHandler(FuelHandler)} refuels it.
+         * Forks and restored instances start again with this fuel.
+         */
+        public Builder withFuel(long fuel) {
+            if (fuel < 0) {
+                throw new IllegalArgumentException("fuel must not be negative: " + fuel);
+            }
+            this.fuel = fuel;
+            return this;
+        }
+
+        public Builder withFuelHandler(FuelHandler fuelHandler) {
+            this.fuelHandler = fuelHandler;
+            return this;
+        }
+
+        /**
+         * Samples the functions executed by the instance, see {@link GuestProfiler}.
+         */
+        public Builder withProfiler(GuestProfiler profiler) {
+            this.profiler = profiler;
+            return this;
+        }
+
+        /**
+         * Records the stack of functions of the traps and the wasm exceptions raised by the
+         * instance, see {@link TrapException#backtrace()} and {@link WasmException#backtrace()}.
+         * Without it, they carry neither a wasm nor a JVM stack trace, as they are raised
+         * routinely by some guests.
+         */
+        public Builder withBacktraces(boolean backtraces) {
+            this.backtraces = backtraces;
+            return this;
+        }
+
         private boolean checkExternalFunctionSignature(FunctionImport imprt, ImportFunction f) {
             try {
                 validateExternalFunctionSignature(imprt, f);
@@ -980,6 +1322,7 @@ public class Instance {
         }
 
         public Instance build() {
+            var event = JfrEvents.beginInstantiate();
             Map<String, Export> exports = genExports(module.exportSection());
             var globalInitializers = module.globalSection().globals();
 
@@ -1091,25 +1434,32 @@ public class Instance {
                 machineFactory = InterpreterMachine::new;
             }
 
-            return new Instance(
-                    module,
-                    globalInitializers,
-                    memories,
-                    dataSegments,
-                    functions,
-                    types,
-                    functionTypes,
-                    mappedHostImports,
-                    tables,
-                    elements,
-                    module.tagSection().map(TagSection::types).orElse(null),
-                    exports,
-                    machineFactory,
-                    tableFactory,
-                    globalFactory,
-                    initialize,
-                    start,
-                    listener);
+            var instance =
+                    new Instance(
+                            module,
+                            globalInitializers,
+                            memories,
+                            dataSegments,
+                            functions,
+                            types,
+                            functionTypes,
+                            mappedHostImports,
+                            tables,
+                            elements,
+                            module.tagSection().map(TagSection::types).orElse(null),
+                            exports,
+                            machineFactory,
+                            tableFactory,
+                            globalFactory,
+                            initialize,
+                            start,
+                            listener,
+                            fuel,
+                            fuelHandler,
+                            profiler,
+                            backtraces);
+            JfrEvents.endInstantiate(event, instance);
+            return instance;
         }
     }
 }
@@ -0,0 +1,107 @@
+package com.dylibso.chicory.runtime;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out forks of an initialized template instance (see {@link Instance#fork()}) and
+ * takes them back once used, restoring only the state they changed: the memory pages
+ * written since they were acquired, globals, tables and GC references.
+ *
+ * <pre>{@code
+ * var pool = InstancePool.builder(Instance.builder(module).build()).build();
+ * var instance = pool.acquire();
+ * try {
+ *     instance.export("handle").apply();
+ * } finally {
+ *     pool.release(instance);
+ * }
+ * }</pre>
+ *
+ * The template must not be executed once the pool is created. Imports, including imported
+ * memories, are shared with the template and not restored.
+ */
+public final class InstancePool {
+    private final Instance template;
+    private final int maxIdle;
+    private final ConcurrentLinkedDeque<Instance> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    // the instances handed out and not released yet
+    private final Set<Instance> acquired =
+            Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+
+    private InstancePool(Instance template, int maxIdle) {
+        this.template = template;
+        this.maxIdle = maxIdle;
+    }
+
+    public static Builder builder(Instance template) {
+        return new Builder(template);
+    }
+
+    /**
+     * Returns an idle instance, or a new fork of the template when none is available.
+     */
+    public Instance acquire() {
+        var instance = idle.pollFirst();
+        if (instance == null) {
+            instance = template.fork();
+        } else {
+            idleCount.decrementAndGet();
+        }
+        acquired.add(instance);
+        return instance;
+    }
+
+    /**
+     * Restores the instance and keeps it for the next {@link #acquire()}, unless the pool
+     * already holds the maximum number of idle instances.
+     * The instance must not be used by the caller anymore.
+     *
+     * @throws IllegalArgumentException if the instance wasn't acquired from this pool, or
+     *         was already released.
+     */
+    public void release(Instance instance) {
+        if (!acquired.remove(instance)) {
+            throw new IllegalArgumentException(
+                    "The instance wasn't acquired from this pool or was already released");
+        }
+        if (idleCount.incrementAndGet() > maxIdle) {
+            idleCount.decrementAndGet();
+            return;
+        }
+        instance.restore();
+        // most recently used first, its pages are more likely to be in the caches
+        idle.offerFirst(instance);
+    }
+
+    public static final class Builder {
+        private final Instance template;
+        private int maxIdle = Runtime.getRuntime().availableProcessors();
+
+        private Builder(Instance template) {
+            this.template = requireNonNull(template);
+        }
+
+        /**
+         * The maximum number of idle instances kept by the pool, the number of available
+         * processors by default.
+         */
+        public Builder withMaxIdle(int maxIdle) {
+            if (maxIdle < 0) {
+                throw new IllegalArgumentException("maxIdle must not be negative: " + maxIdle);
+            }
+            this.maxIdle = maxIdle;
+            return this;
+        }
+
+        public InstancePool build() {
+            return new InstancePool(template, maxIdle);
+        }
+    }
+}
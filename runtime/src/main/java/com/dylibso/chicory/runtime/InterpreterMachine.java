@@ -4,9 +4,12 @@ import static com.dylibso.chicory.wasm.types.ValType.sizeOf;
 import static com.dylibso.chicory.wasm.types.Value.REF_NULL_VALUE;
 import static java.util.Objects.requireNonNullElse;
 
+import com.dylibso.chicory.runtime.internal.FuelCosts;
+import com.dylibso.chicory.runtime.internal.JfrEvents;
 import com.dylibso.chicory.wasm.ChicoryException;
 import com.dylibso.chicory.wasm.InvalidException;
 import com.dylibso.chicory.wasm.types.AnnotatedInstruction;
+import com.dylibso.chicory.wasm.types.CanonicalTypes;
 import com.dylibso.chicory.wasm.types.CatchOpCode;
 import com.dylibso.chicory.wasm.types.FunctionType;
 import com.dylibso.chicory.wasm.types.Instruction;
@@ -32,12 +35,21 @@ public class InterpreterMachine implements Machine {
         XCHG
     }
 
+    private static final int MAX_POOLED_FRAMES = 256;
+
     private final MStack stack;
 
     protected final Deque<StackFrame> callStack;
 
     private final Instance instance;
 
+    // frames of completed calls, reused by the next calls
+    private final StackFrame[] framePool = new StackFrame[MAX_POOLED_FRAMES];
+    private int framePoolSize;
+
+    // fuel charged at each instruction of the functions, computed on their first call
+    private int[][] fuelCosts;
+
     public InterpreterMachine(Instance instance) {
         this.instance = instance;
         stack = new MStack();
@@ -75,36 +87,44 @@ public class InterpreterMachine implements Machine {
             boolean popResults)
             throws ChicoryException {
 
-        checkInterruption();
+        checkInterruption(instance);
         var typeId = instance.functionType(funcId);
         var type = instance.type(typeId);
 
-        if (callType != null) {
+        if (callType != null && callType != type) {
             verifyIndirectCall(type, callType, instance.module().typeSection());
         }
 
         var func = instance.function(funcId);
         if (func != null) {
-            var stackFrame =
-                    new StackFrame(
-                            instance,
-                            funcId,
-                            args,
-                            type.params(),
-                            func.localTypes(),
-                            func.instructions());
+            var stackFrame = acquireFrame(instance, funcId, args, func.instructions());
             stackFrame.pushCtrl(OpCode.CALL, 0, sizeOf(type.returns()), stack.size());
             callStack.push(stackFrame);
 
+            var released = false;
             try {
                 eval(stack, instance, callStack);
+                onReturn(funcId, stackFrame.backEdges());
+                released = true;
+            } catch (TrapException e) {
+                // recorded by the innermost function, before the frames are popped
+                if (instance.backtraces() && e.backtrace() == null) {
+                    e.setBacktrace(WasmBacktrace.of(instance, stackTrace()));
+                }
+                throw e;
             } catch (StackOverflowError e) {
                 throw new ChicoryException("call stack exhausted", e);
             } finally {
                 if (!callStack.isEmpty() && callStack.peek() == stackFrame) {
                     callStack.pop();
+                } else {
+                    // the frame can still be referenced by an outer eval loop
+                    released = false;
                 }
             }
+            if (released) {
+                releaseFrame(stackFrame);
+            }
         } else {
             var stackFrame = new StackFrame(instance, funcId, args);
             stackFrame.pushCtrl(OpCode.CALL, 0, sizeOf(type.returns()), stack.size());
@@ -113,7 +133,13 @@ public class InterpreterMachine implements Machine {
             var imprt = instance.imports().function(funcId);
 
             try {
-                var results = imprt.handle().apply(instance, args);
+                var event = JfrEvents.beginHostCall();
+                long[] results;
+                try {
+                    results = imprt.handle().apply(instance, args);
+                } finally {
+                    JfrEvents.endHostCall(event, instance, funcId);
+                }
                 // a host function can return null or an array of ints
                 // which we will push onto the stack
                 if (results != null) {
@@ -149,6 +175,63 @@ public class InterpreterMachine implements Machine {
         return results;
     }
 
+    private void consumeFuel(Instance instance, StackFrame frame) {
+        if (fuelCosts == null) {
+            fuelCosts =
+                    new int
+                            [instance.imports().functionCount()
+                                    + instance.module().functionSection().functionCount()]
+                            [];
+        }
+        var costs = fuelCosts[frame.funcId()];
+        if (costs == null) {
+            costs = FuelCosts.of(instance.function(frame.funcId()));
+            fuelCosts[frame.funcId()] = costs;
+        }
+        int cost = costs[frame.currentPc()];
+        if (cost != 0) {
+            instance.consumeFuel(cost);
+        }
+    }
+
+    @Override
+    public int[] stackTrace() {
+        return stackTrace(callStack);
+    }
+
+    private static int[] stackTrace(Deque<StackFrame> callStack) {
+        var result = new int[callStack.size()];
+        int i = 0;
+        for (var frame : callStack) {
+            result[i++] = frame.funcId();
+        }
+        return result;
+    }
+
+    /**
+     * Called when a function defined by the instance returns, with the number of branches
+     * back to one of its loops during the call, e.g. to find the functions worth compiling.
+     */
+    protected void onReturn(int funcId, int backEdges) {}
+
+    private StackFrame acquireFrame(
+            Instance instance, int funcId, long[] args, List<AnnotatedInstruction> code) {
+        var layout = instance.frameLayout(funcId);
+        if (framePoolSize == 0) {
+            return new StackFrame(instance, funcId, args, layout, code);
+        }
+        var frame = framePool[--framePoolSize];
+        framePool[framePoolSize] = null;
+        frame.init(instance, funcId, args, layout, code);
+        return frame;
+    }
+
+    private void releaseFrame(StackFrame frame) {
+        if (framePoolSize < MAX_POOLED_FRAMES) {
+            framePool[framePoolSize++] = frame;
+        }
+    }
+
     protected Instance instance() {
         return instance;
     }
@@ -168,6 +251,9 @@ public class InterpreterMachine implements Machine {
                 return;
             }
             var instruction = frame.loadCurrentInstruction();
+            if (instance.isFuelMetered()) {
+                consumeFuel(instance, frame);
+            }
             //                LOGGER.log(
             //                        System.Logger.Level.DEBUG,
             //                        "func="
@@ -216,8 +302,7 @@ public class InterpreterMachine implements Machine {
                     break;
                 case END:
                     {
-                        var ctrlFrame = frame.popCtrl();
-                        StackFrame.doControlTransfer(ctrlFrame, stack);
+                        frame.endCtrl(stack);
 
                         // if this is the last end, then we're done with
                         // the function
@@ -229,8 +314,7 @@ public class InterpreterMachine implements Machine {
                 case RETURN:
                     {
                         // RETURN doesn't pass through the END
-                        var ctrlFrame = frame.popCtrlTillCall();
-                        StackFrame.doControlTransfer(ctrlFrame, stack);
+                        frame.returnCtrl(stack);
                         shouldReturn = true;
                         break;
                     }
@@ -2645,18 +2729,13 @@ public class InterpreterMachine implements Machine {
 
         // optimizing when the tail call happens in the same function
         if (currentStackFrame.funcId() == funcId) {
-            var ctrlFrame = currentStackFrame.popCtrlTillCall();
-            StackFrame.doControlTransfer(ctrlFrame, stack);
+            currentStackFrame.restartCtrl(stack);
             currentStackFrame.reset(args);
-            currentStackFrame.pushCtrl(ctrlFrame);
             return currentStackFrame;
         } else {
             var fromCallStack = !callStack.isEmpty();
-            var ctrlFrame =
-                    (fromCallStack)
-                            ? callStack.pop().popCtrlTillCall()
-                            : currentStackFrame.popCtrlTillCall();
-            StackFrame.doControlTransfer(ctrlFrame, stack);
+            var returningFrame = (fromCallStack) ? callStack.pop() : currentStackFrame;
+            returningFrame.returnCtrl(stack);
 
             if (func != null) {
                 var newFrame =
@@ -2664,8 +2743,7 @@ public class InterpreterMachine implements Machine {
                                 instance,
                                 funcId,
                                 args,
-                                type.params(),
-                                func.localTypes(),
+                                instance.frameLayout(funcId),
                                 func.instructions());
                 newFrame.pushCtrl(OpCode.CALL, 0, sizeOf(type.returns()), stack.size());
                 if (fromCallStack) {
@@ -2715,9 +2793,9 @@ public class InterpreterMachine implements Machine {
         var refInstance = requireNonNullElse(table.instance(funcTableIdx), instance);
         var type = refInstance.type(typeId);
 
-        // Verify type match using nominal type indices
+        // Verify type match using the canonical type ids
         var actualTypeIdx = refInstance.functionType(funcId);
-        verifyIndirectCallByTypeIdx(actualTypeIdx, typeId, refInstance.module().typeSection());
+        verifyIndirectCallByTypeIdx(actualTypeIdx, typeId, refInstance.canonicalTypes());
 
         var refMachine = refInstance.getMachine().getClass();
         if (!refInstance.equals(instance) && !refMachine.equals(instance.getMachine().getClass())) {
@@ -2730,28 +2808,22 @@ public class InterpreterMachine implements Machine {
 
         // optimizing when the tail call happens in the same function
         if (currentStackFrame.funcId() == funcId) {
-            var ctrlFrame = currentStackFrame.popCtrlTillCall();
-            StackFrame.doControlTransfer(ctrlFrame, stack);
+            currentStackFrame.restartCtrl(stack);
             currentStackFrame.reset(args);
-            currentStackFrame.pushCtrl(ctrlFrame);
             return currentStackFrame;
         } else {
             var func = instance.function(funcId);
             var fromCallStack = !callStack.isEmpty();
 
             if (func != null) {
-                var ctrlFrame =
-                        (fromCallStack)
-                                ? callStack.pop().popCtrlTillCall()
-                                : currentStackFrame.popCtrlTillCall();
-                StackFrame.doControlTransfer(ctrlFrame, stack);
+                var returningFrame = (fromCallStack) ? callStack.pop() : currentStackFrame;
+                returningFrame.returnCtrl(stack);
                 var newFrame =
                         new StackFrame(
                                 instance,
                                 funcId,
                                 args,
-                                type.params(),
-                                func.localTypes(),
+                                instance.frameLayout(funcId),
                                 func.instructions());
                 newFrame.pushCtrl(OpCode.CALL, 0, sizeOf(type.returns()), stack.size());
                 if (fromCallStack) {
@@ -2803,21 +2875,17 @@ public class InterpreterMachine implements Machine {
 
         // optimizing when the tail call happens in the same function
         if (currentStackFrame.funcId() == funcId) {
-            var ctrlFrame = currentStackFrame.popCtrlTillCall();
-            StackFrame.doControlTransfer(ctrlFrame, stack);
+            currentStackFrame.restartCtrl(stack);
             currentStackFrame.reset(args);
-            currentStackFrame.pushCtrl(ctrlFrame);
             return currentStackFrame;
         } else {
-            var ctrlFrame = callStack.pop();
-            StackFrame.doControlTransfer(ctrlFrame.popCtrlTillCall(), stack);
+            callStack.pop().returnCtrl(stack);
             var newFrame =
                     new StackFrame(
                             instance,
                             funcId,
                             args,
-                            type.params(),
-                            func.localTypes(),
+                            instance.frameLayout(funcId),
                             func.instructions());
             newFrame.pushCtrl(OpCode.CALL, 0, sizeOf(type.returns()), stack.size());
             callStack.push(newFrame);
@@ -2837,9 +2905,9 @@ public class InterpreterMachine implements Machine {
         var refInstance = requireNonNullElse(table.instance(funcTableIdx), instance);
         var type = refInstance.type(typeId);
 
-        // Verify type match using nominal type indices
+        // Verify type match using the canonical type ids
         var actualTypeIdx = refInstance.functionType(funcId);
-        verifyIndirectCallByTypeIdx(actualTypeIdx, typeId, refInstance.module().typeSection());
+        verifyIndirectCallByTypeIdx(actualTypeIdx, typeId, refInstance.canonicalTypes());
 
         // given a list of param types, let's pop those params off the stack
         // and pass as args to the function call
@@ -2847,7 +2915,7 @@ public class InterpreterMachine implements Machine {
         if (useCurrentInstanceInterpreter(instance, refInstance, funcId)) {
             call(stack, instance, callStack, funcId, args, null, false);
         } else {
-            checkInterruption();
+            checkInterruption(instance);
             var results = refInstance.getMachine().call(funcId, args);
             if (results != null) {
                 for (var result : results) {
@@ -2901,12 +2969,12 @@ public class InterpreterMachine implements Machine {
         boolean found = false;
         while (!found) {
             while (frame.ctrlStackSize() > 0) {
-                var ctrlFrame = frame.popCtrl();
-                if (ctrlFrame.opCode != OpCode.TRY_TABLE) {
+                var ctrl = frame.popCtrl();
+                if (frame.ctrlOpCode(ctrl) != OpCode.TRY_TABLE) {
                     continue;
                 }
 
-                frame.jumpTo(ctrlFrame.pc);
+                frame.jumpTo(frame.ctrlPc(ctrl));
                 var tryInst = frame.loadCurrentInstruction();
 
                 var catches = tryInst.catches();
@@ -3015,22 +3083,17 @@ public class InterpreterMachine implements Machine {
     }
 
     private static void ctrlJump(StackFrame frame, MStack stack, int n) {
-        var ctrlFrame = frame.popCtrl(n);
-        frame.pushCtrl(ctrlFrame);
-        // a LOOP jumps back to the first instruction without passing through an END
-        if (ctrlFrame.opCode == OpCode.LOOP) {
-            StackFrame.doControlTransfer(ctrlFrame, stack);
-        }
+        frame.branchCtrl(n, stack);
     }
 
     private static void BR(StackFrame frame, MStack stack, AnnotatedInstruction instruction) {
-        checkInterruption();
+        checkInterruption(frame.instance());
         ctrlJump(frame, stack, (int) instruction.operand(0));
         frame.jumpTo(instruction.labelTrue());
     }
 
     private static void BR_TABLE(StackFrame frame, MStack stack, AnnotatedInstruction instruction) {
-        checkInterruption();
+        checkInterruption(frame.instance());
         var pred = (int) stack.pop();
 
         var defaultIdx = instruction.operandCount() - 1;
@@ -3045,7 +3108,7 @@ public class InterpreterMachine implements Machine {
     }
 
     private static void BR_IF(StackFrame frame, MStack stack, AnnotatedInstruction instruction) {
-        checkInterruption();
+        checkInterruption(frame.instance());
         var pred = (int) stack.pop();
 
         if (pred == 0) {
@@ -3126,23 +3189,20 @@ public class InterpreterMachine implements Machine {
     }
 
     protected static void verifyIndirectCallByTypeIdx(
-            int actualTypeIdx, int expectedTypeIdx, TypeSection ts) throws ChicoryException {
-        if (actualTypeIdx != expectedTypeIdx
-                && !ValType.heapTypeSubtype(actualTypeIdx, expectedTypeIdx, ts)) {
+            int actualTypeIdx, int expectedTypeIdx, CanonicalTypes types) throws ChicoryException {
+        if (actualTypeIdx != expectedTypeIdx && !types.isSubtype(actualTypeIdx, expectedTypeIdx)) {
             throw new ChicoryException("indirect call type mismatch");
         }
     }
 
     /**
-     * Terminate WASM execution if requested.
+     * Terminate WASM execution if requested, see {@link Instance#checkInterruption()}.
      * This is called at the start of each call and at any potentially backwards branches.
      * Forward branches and other non-branch instructions are not checked, as the
      * execution will run until it eventually reaches a termination point.
      */
-    private static void checkInterruption() {
-        if (Thread.currentThread().isInterrupted()) {
-            throw new ChicoryInterruptedException("Thread interrupted");
-        }
+    static void checkInterruption(Instance instance) {
+        instance.checkInterruption();
     }
 
     // ===== GC opcode implementations =====
@@ -45,4 +45,15 @@ public class MStack {
     public int size() {
         return count;
     }
+
+    /**
+     * Drops the values between {@code height} and the top {@code keep} values.
+     */
+    void unwind(int height, int keep) {
+        var from = count - keep;
+        if (from > height) {
+            System.arraycopy(elements, from, elements, height, keep);
+            count = height + keep;
+        }
+    }
 }
@@ -1,9 +1,30 @@
 package com.dylibso.chicory.runtime;
 
 import com.dylibso.chicory.wasm.ChicoryException;
+import com.dylibso.chicory.wasm.types.FunctionType;
+import java.lang.invoke.MethodHandle;
 
 @FunctionalInterface
 public interface Machine {
 
     long[] call(int funcId, long[] args) throws ChicoryException;
+
+    /**
+     * Returns a handle calling the function {@code funcId} with the typed arguments and result
+     * described in {@link FunctionHandles#methodType(FunctionType)}.
+     * <p>
+     * The default implementation adapts {@link #call(int, long[])}, machines can override it
+     * to avoid boxing the arguments and the results in arrays.
+     */
+    default MethodHandle handle(int funcId, FunctionType type) {
+        return FunctionHandles.adapt(this, funcId, type);
+    }
+
+    /**
+     * Returns the functions the current thread is executing, innermost first, e.g. for the
+     * {@link GuestProfiler}, or an empty array when the machine doesn't keep track of them.
+     */
+    default int[] stackTrace() {
+        return new int[0];
+    }
 }
@@ -0,0 +1,143 @@
+package com.dylibso.chicory.runtime;
+
+import static java.util.Objects.requireNonNull;
+
+import com.dylibso.chicory.wasm.ChicoryException;
+import com.dylibso.chicory.wasm.types.MemoryLimits;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Creates memories whose initial pages are mapped from an image file instead of being
+ * allocated and filled by copying the data segments.
+ * <p>
+ * The image holds the content of the memory from address 0, as written by
+ * {@link #writeImage(Memory, Path)}. Its pages are loaded lazily by the operating system
+ * and, with the default {@link FileChannel.MapMode#PRIVATE} mode, shared by all the memories
+ * mapping the same file until they write to them.
+ *
+ * <pre>{@code
+ * var image = MappedMemory.builder(Path.of("heap.img")).withPreinitialized(true).build();
+ * var instance = Instance.builder(module).withMemoryFactory(image::memory).build();
+ * }</pre>
+ */
+public final class MappedMemory {
+    private final Path file;
+    private final FileChannel.MapMode mode;
+    private final boolean preinitialized;
+
+    private MappedMemory(Path file, FileChannel.MapMode mode, boolean preinitialized) {
+        this.file = file;
+        this.mode = mode;
+        this.preinitialized = preinitialized;
+    }
+
+    public static Builder builder(Path file) {
+        return new Builder(file);
+    }
+
+    /**
+     * Maps the image into a new memory with the given limits. Pages past the end of the image,
+     * and the last page when the image doesn't end on a page boundary, are allocated on the heap.
+     */
+    public Memory memory(MemoryLimits limits) {
+        // FileChannel requires write access for private mappings too
+        try (var channel =
+                FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            int imagePages = (int) ((size + Memory.PAGE_SIZE - 1) / Memory.PAGE_SIZE);
+            if (imagePages > limits.initialPages()) {
+                throw new ChicoryException(
+                        "Memory image "
+                                + file
+                                + " has "
+                                + imagePages
+                                + " pages, more than the "
+                                + limits.initialPages()
+                                + " initial pages of the memory");
+            }
+            var pages = new ByteBuffer[imagePages];
+            int mappedPages = (int) (size / Memory.PAGE_SIZE);
+            if (mappedPages > 0) {
+                MappedByteBuffer mapped =
+                        channel.map(mode, 0, (long) mappedPages * Memory.PAGE_SIZE);
+                for (int i = 0; i < mappedPages; i++) {
+                    var page = mapped.duplicate();
+                    page.limit((i + 1) * Memory.PAGE_SIZE);
+                    page.position(i * Memory.PAGE_SIZE);
+                    pages[i] = page.slice().order(ByteOrder.LITTLE_ENDIAN);
+                }
+            }
+            if (mappedPages < imagePages) {
+                var last = ByteBuffer.allocate(Memory.PAGE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                long position = (long) mappedPages * Memory.PAGE_SIZE;
+                while (last.hasRemaining()) {
+                    if (channel.read(last, position + last.position()) < 0) {
+                        break;
+                    }
+                }
+                pages[mappedPages] = last;
+            }
+            return new ByteBufferMemory(limits, pages, preinitialized);
+        } catch (IOException e) {
+            throw new ChicoryException("Failed to map memory image " + file, e);
+        }
+    }
+
+    /**
+     * Writes the whole content of the memory to the file, in the format mapped by
+     * {@link #memory(MemoryLimits)}.
+     */
+    public static void writeImage(Memory memory, Path file) throws IOException {
+        try (var channel =
+                FileChannel.open(
+                        file,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            memory.transferTo(0, memory.pages() * Memory.PAGE_SIZE, channel);
+        }
+    }
+
+    public static final class Builder {
+        private final Path file;
+        private FileChannel.MapMode mode = FileChannel.MapMode.PRIVATE;
+        private boolean preinitialized;
+
+        private Builder(Path file) {
+            this.file = requireNonNull(file);
+        }
+
+        /**
+         * {@link FileChannel.MapMode#PRIVATE}, the default, gives every memory copy-on-write
+         * pages, {@link FileChannel.MapMode#READ_WRITE} writes the changes through to the file,
+         * where other mappings of the file see them.
+         */
+        public Builder withMapMode(FileChannel.MapMode mode) {
+            if (mode != FileChannel.MapMode.PRIVATE && mode != FileChannel.MapMode.READ_WRITE) {
+                throw new IllegalArgumentException("Unsupported map mode: " + mode);
+            }
+            this.mode = mode;
+            return this;
+        }
+
+        /**
+         * Whether the image already holds the active data segments of the module, e.g. when
+         * it was written right after instantiating it with {@code withStart(false)}.
+         * The memories then skip copying the segments on initialization.
+         */
+        public Builder withPreinitialized(boolean preinitialized) {
+            this.preinitialized = preinitialized;
+            return this;
+        }
+
+        public MappedMemory build() {
+            return new MappedMemory(file, mode, preinitialized);
+        }
+    }
+}
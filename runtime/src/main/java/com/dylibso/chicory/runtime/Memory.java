@@ -1,6 +1,11 @@
 package com.dylibso.chicory.runtime;
 
 import com.dylibso.chicory.wasm.types.DataSegment;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 
@@ -321,6 +326,25 @@ public interface Memory {
 
     void initPassiveSegment(int segmentId, int dest, int offset, int size);
 
+    /**
+     * Returns a copy of this memory sharing its pages copy-on-write: neither memory sees
+     * the writes of the other, and a page is only copied the first time one of them writes
+     * to it. The copy reads the passive segments from {@code dataSegments}, usually the
+     * forking instance's own copy of them, see {@link Instance#fork()}.
+     */
+    default Memory fork(DataSegment[] dataSegments) {
+        throw new UnsupportedOperationException("Fork is not supported by " + getClass().getName());
+    }
+
+    /**
+     * Restores a memory returned by {@link #fork} to its content when it was forked,
+     * shrinking it back if it grew since. Only the pages written since then are touched.
+     */
+    default void restore() {
+        throw new UnsupportedOperationException(
+                "Restore is not supported by " + getClass().getName());
+    }
+
     default void writeString(int offset, String data, Charset charSet) {
         write(offset, data.getBytes(charSet));
     }
@@ -367,6 +391,92 @@ public interface Memory {
 
     byte[] readBytes(int addr, int len);
 
+    /**
+     * Views the range {@code [addr, addr + len)} of the memory without copying it.
+     * A range crossing page boundaries is returned as one little-endian buffer per page,
+     * in address order, so the result can be passed to a scattering or gathering channel.
+     * <p>
+     * Writes through the buffers are visible to the guest. The buffers are only valid
+     * until the memory is reset or replaced.
+     *
+     * @throws UnsupportedOperationException if the memory can't view its storage in place.
+     */
+    default ByteBuffer[] buffers(int addr, int len) {
+        throw new UnsupportedOperationException(
+                "Writable buffers are not supported by " + getClass().getName());
+    }
+
+    /**
+     * Same as {@link #buffers(int, int)}, but the buffers are read-only.
+     * Implementations that can't view their storage in place return a copy.
+     */
+    default ByteBuffer[] readOnlyBuffers(int addr, int len) {
+        return new ByteBuffer[] {
+            ByteBuffer.wrap(readBytes(addr, len)).order(ByteOrder.LITTLE_ENDIAN).asReadOnlyBuffer()
+        };
+    }
+
+    /**
+     * Writes the range {@code [addr, addr + len)} of the memory to the channel.
+     *
+     * @return the number of bytes written, less than {@code len} only when a non-blocking
+     *         channel stops accepting bytes.
+     */
+    default long transferTo(int addr, int len, WritableByteChannel channel) throws IOException {
+        long written = 0;
+        for (var buffer : readOnlyBuffers(addr, len)) {
+            while (buffer.hasRemaining()) {
+                int count = channel.write(buffer);
+                if (count == 0) {
+                    return written;
+                }
+                written += count;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Reads up to {@code len} bytes from the channel into the memory starting at {@code addr}.
+     *
+     * @return the number of bytes read, or -1 if the channel reached the end of the stream
+     *         before any byte was read.
+     */
+    default int readFrom(ReadableByteChannel channel, int addr, int len) throws IOException {
+        var buffer = ByteBuffer.allocate(len);
+        int count = readFully(channel, new ByteBuffer[] {buffer});
+        if (count > 0) {
+            write(addr, buffer.array(), 0, count);
+        }
+        return count;
+    }
+
+    /**
+     * Reads from the channel into the buffers, in order, until they are full, the channel
+     * reaches the end of the stream or a non-blocking channel has no bytes available.
+     * The memories that override {@link #readFrom(ReadableByteChannel, int, int)} to read
+     * into their {@link #buffers(int, int)} use it.
+     *
+     * @return the number of bytes read, or -1 if the channel reached the end of the stream
+     *         before any byte was read.
+     */
+    static int readFully(ReadableByteChannel channel, ByteBuffer[] buffers) throws IOException {
+        int read = 0;
+        for (var buffer : buffers) {
+            while (buffer.hasRemaining()) {
+                int count = channel.read(buffer);
+                if (count < 0) {
+                    return read == 0 ? -1 : read;
+                }
+                if (count == 0) {
+                    return read;
+                }
+                read += count;
+            }
+        }
+        return read;
+    }
+
     void writeI32(int addr, int data);
 
     int readInt(int addr);
@@ -6,7 +6,6 @@ import com.dylibso.chicory.wasm.types.AnnotatedInstruction;
 import com.dylibso.chicory.wasm.types.OpCode;
 import com.dylibso.chicory.wasm.types.ValType;
 import com.dylibso.chicory.wasm.types.Value;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -19,28 +18,88 @@ import java.util.List;
  * This also means it's not possible to set the program counter to an instruction in another function
  * on accident, as this is not allowed in the spec. You can only jump to instructions
  * within the function you are in and only specific places.
+ * <p>
+ * The control frames are kept in flat arrays and a frame can be re-initialized
+ * for another call, so that the {@link InterpreterMachine} can reuse it.
  */
 public class StackFrame {
-    private final List<AnnotatedInstruction> code;
+    private static final int MIN_CTRL_CAPACITY = 8;
+
+    // number of ints stored per control frame: startValues, endValues, height and pc
+    private static final int CTRL_DATA_SIZE = 4;
+
+    /**
+     * The layout of the locals of a function, computed once per function body
+     * and shared by all its frames.
+     */
+    static final class Layout {
+        static final Layout EMPTY = new Layout(List.of(), List.of());
+
+        private final ValType[] localTypes;
+        private final int[] localIdx;
+        private final int paramsSize;
+        // initial values of all the locals slots
+        private final long[] zeros;
+
+        Layout(List<ValType> argsTypes, List<ValType> localTypes) {
+            int localsSize = argsTypes.size() + localTypes.size();
+            this.localTypes = new ValType[localsSize];
+            for (int i = 0; i < argsTypes.size(); i++) {
+                this.localTypes[i] = argsTypes.get(i);
+            }
+            for (int i = 0; i < localTypes.size(); i++) {
+                this.localTypes[argsTypes.size() + i] = localTypes.get(i);
+            }
+            this.paramsSize = sizeOf(argsTypes);
+            this.zeros = new long[paramsSize + sizeOf(localTypes)];
+            this.localIdx = new int[localsSize];
+
+            // initialize codesegment locals.
+            int j = 0;
+            for (var i = 0; i < localTypes.size(); i++) {
+                ValType type = localTypes.get(i);
+                var idx = j + paramsSize;
+                if (!type.equals(ValType.V128)) {
+                    zeros[idx] = Value.zero(type);
+                    j += 1;
+                } else {
+                    zeros[idx] = Value.zero(ValType.I64);
+                    zeros[idx + 1] = Value.zero(ValType.I64);
+                    j += 2;
+                }
+            }
+
+            // initialize local indexes
+            j = 0;
+            for (int i = 0; i < this.localTypes.length; i++) {
+                this.localIdx[i] = j;
+                if (!this.localTypes[i].equals(ValType.V128)) {
+                    j += 1;
+                } else {
+                    j += 2;
+                }
+            }
+        }
+    }
+
+    private List<AnnotatedInstruction> code;
     private AnnotatedInstruction currentInstruction;
 
-    private final int funcId;
+    private int funcId;
     private int pc;
-    private final long[] locals;
-    private final ValType[] localTypes;
-    private final int[] localIdx;
-    private final Instance instance;
+    private long[] locals;
+    private Layout layout;
+    private Instance instance;
+
+    private OpCode[] ctrlOpCodes = new OpCode[MIN_CTRL_CAPACITY];
+    private int[] ctrlData = new int[MIN_CTRL_CAPACITY * CTRL_DATA_SIZE];
+    private int ctrlSize;
 
-    private final List<CtrlFrame> ctrlStack = new ArrayList<>();
+    // branches back to a loop since the call, see InterpreterMachine#onReturn
+    private int backEdges;
 
     public StackFrame(Instance instance, int funcId, long[] args) {
-        this(
-                instance,
-                funcId,
-                args,
-                Collections.emptyList(),
-                Collections.emptyList(),
-                Collections.emptyList());
+        this(instance, funcId, args, Layout.EMPTY, Collections.emptyList());
     }
 
     StackFrame(
@@ -50,64 +109,67 @@ public class StackFrame {
             List<ValType> argsTypes,
             List<ValType> localTypes,
             List<AnnotatedInstruction> code) {
-        this.code = code;
+        this(instance, funcId, args, new Layout(argsTypes, localTypes), code);
+    }
+
+    StackFrame(
+            Instance instance,
+            int funcId,
+            long[] args,
+            Layout layout,
+            List<AnnotatedInstruction> code) {
+        this.locals = new long[layout.zeros.length];
+        init(instance, funcId, args, layout, code);
+    }
+
+    /**
+     * Re-initializes this frame for a new call, all the control frames are discarded.
+     */
+    void init(
+            Instance instance,
+            int funcId,
+            long[] args,
+            Layout layout,
+            List<AnnotatedInstruction> code) {
         this.instance = instance;
         this.funcId = funcId;
-        this.locals = Arrays.copyOf(args, sizeOf(argsTypes) + sizeOf(localTypes));
-        int localsSize = argsTypes.size() + localTypes.size();
-        this.localTypes = new ValType[localsSize];
-        for (int i = 0; i < argsTypes.size(); i++) {
-            this.localTypes[i] = argsTypes.get(i);
-        }
-        for (int i = 0; i < localTypes.size(); i++) {
-            this.localTypes[argsTypes.size() + i] = localTypes.get(i);
-        }
-        this.localIdx = new int[localsSize];
-
-        // initialize codesegment locals.
-        int j = 0;
-        for (var i = 0; i < localTypes.size(); i++) {
-            ValType type = localTypes.get(i);
-            var idx = j + sizeOf(argsTypes);
-            if (!type.equals(ValType.V128)) {
-                locals[idx] = Value.zero(type);
-                j += 1;
-            } else {
-                locals[idx] = Value.zero(ValType.I64);
-                locals[idx + 1] = Value.zero(ValType.I64);
-                j += 2;
-            }
-        }
+        this.layout = layout;
+        this.code = code;
+        this.currentInstruction = null;
+        this.pc = 0;
+        this.ctrlSize = 0;
+        this.backEdges = 0;
 
-        // initialize local indexes
-        j = 0;
-        for (int i = 0; i < this.localTypes.length; i++) {
-            this.localIdx[i] = j;
-            if (!localType(i).equals(ValType.V128)) {
-                j += 1;
-            } else {
-                j += 2;
-            }
+        if (locals.length != layout.zeros.length) {
+            locals = new long[layout.zeros.length];
         }
+        reset(args);
     }
 
     void reset(long[] args) {
-        for (int i = 0; i < locals.length; i++) {
-            setLocal(i, args[i]);
-        }
+        System.arraycopy(layout.zeros, 0, locals, 0, locals.length);
+        System.arraycopy(args, 0, locals, 0, Math.min(args.length, layout.paramsSize));
         pc = 0;
     }
 
+    Instance instance() {
+        return instance;
+    }
+
     int funcId() {
         return funcId;
     }
 
+    int backEdges() {
+        return backEdges;
+    }
+
     ValType localType(int i) {
-        return this.localTypes[i];
+        return layout.localTypes[i];
     }
 
     public int localIndexOf(int idx) {
-        return this.localIdx[idx];
+        return layout.localIdx[idx];
     }
 
     void setLocal(int i, long v) {
@@ -148,48 +210,92 @@ public class StackFrame {
         return pc >= code.size();
     }
 
-    void pushCtrl(CtrlFrame ctrlFrame) {
-        ctrlStack.add(ctrlFrame);
-    }
-
     void pushCtrl(OpCode opcode, int startValues, int returnValues, int height) {
-        ctrlStack.add(new CtrlFrame(opcode, startValues, returnValues, height));
+        pushCtrl(opcode, startValues, returnValues, height, 0);
     }
 
     void pushCtrl(OpCode opcode, int startValues, int returnValues, int height, int pc) {
-        ctrlStack.add(new CtrlFrame(opcode, startValues, returnValues, height, pc));
+        if (ctrlSize == ctrlOpCodes.length) {
+            ctrlOpCodes = Arrays.copyOf(ctrlOpCodes, ctrlSize << 1);
+            ctrlData = Arrays.copyOf(ctrlData, (ctrlSize << 1) * CTRL_DATA_SIZE);
+        }
+        ctrlOpCodes[ctrlSize] = opcode;
+        var i = ctrlSize * CTRL_DATA_SIZE;
+        ctrlData[i] = startValues;
+        ctrlData[i + 1] = returnValues;
+        ctrlData[i + 2] = height;
+        ctrlData[i + 3] = pc;
+        ctrlSize++;
     }
 
     int ctrlStackSize() {
-        return ctrlStack.size();
+        return ctrlSize;
     }
 
-    CtrlFrame popCtrl() {
-        var ctrlFrame = ctrlStack.remove(ctrlStack.size() - 1);
-        return ctrlFrame;
+    /**
+     * Pops the innermost control frame, its values can still be read with
+     * {@link #ctrlOpCode(int)} and {@link #ctrlPc(int)} until the next push.
+     *
+     * @return the index of the popped control frame.
+     */
+    int popCtrl() {
+        return --ctrlSize;
     }
 
-    CtrlFrame popCtrl(int n) {
-        int mostRecentCallHeight = ctrlStack.size();
+    OpCode ctrlOpCode(int ctrl) {
+        return ctrlOpCodes[ctrl];
+    }
+
+    int ctrlPc(int ctrl) {
+        return ctrlData[ctrl * CTRL_DATA_SIZE + 3];
+    }
+
+    private int mostRecentCall() {
+        int ctrl = ctrlSize;
         while (true) {
-            if (ctrlStack.get(--mostRecentCallHeight).opCode == OpCode.CALL) {
-                break;
+            if (ctrlOpCodes[--ctrl] == OpCode.CALL) {
+                return ctrl;
             }
         }
-        var finalHeight = ctrlStack.size() - (mostRecentCallHeight + n + 1);
-        CtrlFrame ctrlFrame = null;
-        while (ctrlStack.size() > finalHeight) {
-            ctrlFrame = popCtrl();
-        }
-        return ctrlFrame;
     }
 
-    CtrlFrame popCtrlTillCall() {
-        while (true) {
-            var ctrlFrame = popCtrl();
-            if (ctrlFrame.opCode == OpCode.CALL) {
-                return ctrlFrame;
-            }
+    /**
+     * Exits the innermost control frame, at an END.
+     */
+    void endCtrl(MStack stack) {
+        doControlTransfer(popCtrl(), stack);
+    }
+
+    /**
+     * Unwinds all the control frames up to the most recent call, on a return.
+     */
+    void returnCtrl(MStack stack) {
+        var ctrl = mostRecentCall();
+        ctrlSize = ctrl;
+        doControlTransfer(ctrl, stack);
+    }
+
+    /**
+     * Unwinds the control frames of the current call, keeping the call itself,
+     * when a function is tail called in the same frame.
+     */
+    void restartCtrl(MStack stack) {
+        var ctrl = mostRecentCall();
+        ctrlSize = ctrl + 1;
+        doControlTransfer(ctrl, stack);
+    }
+
+    /**
+     * Unwinds the control frames for a branch to the label {@code n}, the target stays on
+     * the control stack as it's left by the END of its block.
+     */
+    void branchCtrl(int n, MStack stack) {
+        var ctrl = ctrlSize - (mostRecentCall() + n + 1);
+        ctrlSize = ctrl + 1;
+        // a LOOP jumps back to the first instruction without passing through an END
+        if (ctrlOpCodes[ctrl] == OpCode.LOOP) {
+            backEdges++;
+            doControlTransfer(ctrl, stack);
         }
     }
 
@@ -197,8 +303,18 @@ public class StackFrame {
         pc = newPc;
     }
 
-    static void doControlTransfer(CtrlFrame ctrlFrame, MStack stack) {
-        var endResults = ctrlFrame.startValues + ctrlFrame.endValues; // unwind stack
+    private void doControlTransfer(int ctrl, MStack stack) {
+        var i = ctrl * CTRL_DATA_SIZE;
+        doControlTransfer(ctrlData[i], ctrlData[i + 1], ctrlData[i + 2], stack);
+    }
+
+    static void doControlTransfer(int startValues, int endValues, int height, MStack stack) {
+        var endResults = startValues + endValues; // unwind stack
+        if (endResults <= stack.size()) {
+            stack.unwind(height, endResults);
+            return;
+        }
+
         long[] returns = new long[endResults];
         for (int i = 0; i < returns.length; i++) {
             if (stack.size() > 0) {
@@ -206,7 +322,7 @@ public class StackFrame {
             }
         }
 
-        while (stack.size() > ctrlFrame.height) {
+        while (stack.size() > height) {
             stack.pop();
         }
 
@@ -22,6 +22,34 @@ public class TableInstance {
         Arrays.fill(refs, initialValue);
     }
 
+    /**
+     * Copies the table for a fork of {@code from}, its own elements are rebound to {@code to}.
+     */
+    TableInstance fork(Instance from, Instance to) {
+        var copy = new TableInstance(table, REF_NULL_VALUE);
+        copy.restore(this, from, to);
+        return copy;
+    }
+
+    /**
+     * Restores the elements of a table returned by {@link #fork} from the table it was forked
+     * from.
+     */
+    void restore(TableInstance source, Instance from, Instance to) {
+        if (refs.length == source.refs.length) {
+            System.arraycopy(source.refs, 0, refs, 0, refs.length);
+            System.arraycopy(source.instances, 0, instances, 0, instances.length);
+        } else {
+            refs = source.refs.clone();
+            instances = source.instances.clone();
+        }
+        for (int i = 0; i < instances.length; i++) {
+            if (instances[i] == from) {
+                instances[i] = to;
+            }
+        }
+    }
+
     public int size() {
         return refs.length;
     }
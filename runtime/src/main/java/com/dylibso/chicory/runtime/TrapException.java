@@ -2,8 +2,45 @@ package com.dylibso.chicory.runtime;
 
 import com.dylibso.chicory.wasm.ChicoryException;
 
+/**
+ * A trap of the execution.
+ * <p>
+ * As some guests trap routinely, e.g. on bad input, traps don't capture the JVM stack trace,
+ * unless the {@code chicory.trapStackTraces} system property is {@code true}; the instances
+ * built with {@link Instance.Builder#withBacktraces(boolean)} record the stack of wasm
+ * functions instead, see {@link #backtrace()}.
+ */
 public class TrapException extends ChicoryException {
+    static final boolean STACK_TRACES = Boolean.getBoolean("chicory.trapStackTraces");
+
+    private WasmBacktrace backtrace;
+
     public TrapException(String msg) {
-        super(msg);
+        super(msg, null, true, STACK_TRACES);
+    }
+
+    /**
+     * Returns the functions executed when the trap was raised, or {@code null} if not recorded.
+     */
+    public WasmBacktrace backtrace() {
+        return backtrace;
+    }
+
+    void setBacktrace(WasmBacktrace backtrace) {
+        this.backtrace = backtrace;
+    }
+
+    /**
+     * Records the backtrace of the trap from the machine of the given instance, if it records
+     * them and none was recorded yet: to be called while the functions which raised the trap
+     * are still executing, e.g. by the compiled code.
+     *
+     * @return this trap
+     */
+    public TrapException recordBacktrace(Instance instance) {
+        if (backtrace == null && instance.backtraces()) {
+            backtrace = WasmBacktrace.capture(instance);
+        }
+        return this;
     }
 }
@@ -0,0 +1,585 @@
+package com.dylibso.chicory.runtime;
+
+/**
+ * Allocation free variants of {@link WasmFunctionHandle} for host functions with up to
+ * {@link #MAX_ARITY} parameters and at most one result.
+ * <p>
+ * The arguments and the result use the same {@code long} encoding as the {@code long[]} of
+ * {@link WasmFunctionHandle#apply(Instance, long...)}, e.g. {@code (int) arg0} for an i32 or
+ * {@link com.dylibso.chicory.wasm.types.Value#longToFloat(long)} for an f32,
+ * so the machines can call them without boxing the arguments into arrays.
+ * Every variant is still a {@link WasmFunctionHandle} and can be used anywhere a handle is expected.
+ */
+public final class TypedFunctionHandle {
+    public static final int MAX_ARITY = 9;
+
+    private TypedFunctionHandle() {}
+
+    /**
+     * @return the interface implemented by the typed handles with {@code arity} parameters,
+     *         or {@code null} if there is none.
+     */
+    public static Class<? extends WasmFunctionHandle> typeOf(int arity, boolean hasResult) {
+        switch (arity) {
+            case 0:
+                return hasResult ? Arity0.class : Arity0Void.class;
+            case 1:
+                return hasResult ? Arity1.class : Arity1Void.class;
+            case 2:
+                return hasResult ? Arity2.class : Arity2Void.class;
+            case 3:
+                return hasResult ? Arity3.class : Arity3Void.class;
+            case 4:
+                return hasResult ? Arity4.class : Arity4Void.class;
+            case 5:
+                return hasResult ? Arity5.class : Arity5Void.class;
+            case 6:
+                return hasResult ? Arity6.class : Arity6Void.class;
+            case 7:
+                return hasResult ? Arity7.class : Arity7Void.class;
+            case 8:
+                return hasResult ? Arity8.class : Arity8Void.class;
+            case 9:
+                return hasResult ? Arity9.class : Arity9Void.class;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Invokes a typed handle, of the interface returned by {@link #typeOf(int, boolean)}, with the
+     * arguments read from {@code stack} starting at {@code base}.
+     *
+     * @return the result, or {@code 0} for a function without result.
+     */
+    static long invoke(
+            WasmFunctionHandle handle,
+            Instance instance,
+            long[] stack,
+            int base,
+            int arity,
+            boolean hasResult) {
+        switch (arity) {
+            case 0:
+                if (hasResult) {
+                    return ((Arity0) handle).invoke(instance);
+                }
+                ((Arity0Void) handle).invoke(instance);
+                return 0L;
+            case 1:
+                if (hasResult) {
+                    return ((Arity1) handle).invoke(instance, stack[base]);
+                }
+                ((Arity1Void) handle).invoke(instance, stack[base]);
+                return 0L;
+            case 2:
+                if (hasResult) {
+                    return ((Arity2) handle).invoke(instance, stack[base], stack[base + 1]);
+                }
+                ((Arity2Void) handle).invoke(instance, stack[base], stack[base + 1]);
+                return 0L;
+            case 3:
+                if (hasResult) {
+                    return ((Arity3) handle)
+                            .invoke(instance, stack[base], stack[base + 1], stack[base + 2]);
+                }
+                ((Arity3Void) handle)
+                        .invoke(instance, stack[base], stack[base + 1], stack[base + 2]);
+                return 0L;
+            case 4:
+                if (hasResult) {
+                    return ((Arity4) handle)
+                            .invoke(
+                                    instance,
+                                    stack[base],
+                                    stack[base + 1],
+                                    stack[base + 2],
+                                    stack[base + 3]);
+                }
+                ((Arity4Void) handle)
+                        .invoke(
+                                instance,
+                                stack[base],
+                                stack[base + 1],
+                                stack[base + 2],
+                                stack[base + 3]);
+                return 0L;
+            case 5:
+                if (hasResult) {
+                    return ((Arity5) handle)
+                            .invoke(
+                                    instance,
+                                    stack[base],
+                                    stack[base + 1],
+                                    stack[base + 2],
+                                    stack[base + 3],
+                                    stack[base + 4]);
+                }
+                ((Arity5Void) handle)
+                        .invoke(
+                                instance,
+                                stack[base],
+                                stack[base + 1],
+                                stack[base + 2],
+                                stack[base + 3],
+                                stack[base + 4]);
+                return 0L;
+            case 6:
+                if (hasResult) {
+                    return ((Arity6) handle)
+                            .invoke(
+                                    instance,
+                                    stack[base],
+                                    stack[base + 1],
+                                    stack[base + 2],
+                                    stack[base + 3],
+                                    stack[base + 4],
+                                    stack[base + 5]);
+                }
+                ((Arity6Void) handle)
+                        .invoke(
+                                instance,
+                                stack[base],
+                                stack[base + 1],
+                                stack[base + 2],
+                                stack[base + 3],
+                                stack[base + 4],
+                                stack[base + 5]);
+                return 0L;
+            case 7:
+                if (hasResult) {
+                    return ((Arity7) handle)
+                            .invoke(
+                                    instance,
+                                    stack[base],
+                                    stack[base + 1],
+                                    stack[base + 2],
+                                    stack[base + 3],
+                                    stack[base + 4],
+                                    stack[base + 5],
+                                    stack[base + 6]);
+                }
+                ((Arity7Void) handle)
+                        .invoke(
+                                instance,
+                                stack[base],
+                                stack[base + 1],
+                                stack[base + 2],
+                                stack[base + 3],
+                                stack[base + 4],
+                                stack[base + 5],
+                                stack[base + 6]);
+                return 0L;
+            case 8:
+                if (hasResult) {
+                    return ((Arity8) handle)
+                            .invoke(
+                                    instance,
+                                    stack[base],
+                                    stack[base + 1],
+                                    stack[base + 2],
+                                    stack[base + 3],
+                                    stack[base + 4],
+                                    stack[base + 5],
+                                    stack[base + 6],
+                                    stack[base + 7]);
+                }
+                ((Arity8Void) handle)
+                        .invoke(
+                                instance,
+                                stack[base],
+                                stack[base + 1],
+                                stack[base + 2],
+                                stack[base + 3],
+                                stack[base + 4],
+                                stack[base + 5],
+                                stack[base + 6],
+                                stack[base + 7]);
+                return 0L;
+            case 9:
+                if (hasResult) {
+                    return ((Arity9) handle)
+                            .invoke(
+                                    instance,
+                                    stack[base],
+                                    stack[base + 1],
+                                    stack[base + 2],
+                                    stack[base + 3],
+                                    stack[base + 4],
+                                    stack[base + 5],
+                                    stack[base + 6],
+                                    stack[base + 7],
+                                    stack[base + 8]);
+                }
+                ((Arity9Void) handle)
+                        .invoke(
+                                instance,
+                                stack[base],
+                                stack[base + 1],
+                                stack[base + 2],
+                                stack[base + 3],
+                                stack[base + 4],
+                                stack[base + 5],
+                                stack[base + 6],
+                                stack[base + 7],
+                                stack[base + 8]);
+                return 0L;
+            default:
+                throw new IllegalArgumentException("Unsupported arity: " + arity);
+        }
+    }
+
+    /**
+     * A host function with no parameters and one result.
+     */
+    @FunctionalInterface
+    public interface Arity0 extends WasmFunctionHandle {
+        long invoke(Instance instance);
+
+        @Override
+        default long[] apply(Instance instance, long... args) {
+            return new long[] {invoke(instance)};
+        }
+    }
+
+    /**
+     * A host function with no parameters and no result.
+     */
+    @FunctionalInterface
+    public interface Arity0Void extends WasmFunctionHandle {
+        void invoke(Instance instance);
+
+        @Override
+        default long[] apply(Instance instance, long... args) {
+            invoke(instance);
+            return null;
+        }
+    }
+
+    /**
+     * A host function with 1 parameter and one result.
+     */
+    @FunctionalInterface
+    public interface Arity1 extends WasmFunctionHandle {
+        long invoke(Instance instance, long arg0);
+
+        @Override
+        default long[] apply(Instance instance, long... args) {
+            return new long[] {invoke(instance, args[0])};
+        }
+    }
+
+    /**
+     * A host function with 1 parameter and no result.
+     */
+    @FunctionalInterface
+    public interface Arity1Void extends WasmFunctionHandle {
+        void invoke(Instance instance, long arg0);
+
+        @Override
+        default long[] apply(Instance instance, long... args) {
+            invoke(instance, args[0]);
+            return null;
+        }
+    }
+
+    /**
+     * A host function with 2 parameters and one result.
+     */
+    @FunctionalInterface
+    public interface Arity2 extends WasmFunctionHandle {
+        long invoke(Instance instance, long arg0, long arg1);
+
+        @Override
+        default long[] apply(Instance instance, long... args) {
+            return new long[] {invoke(instance, args[0], args[1])};
+        }
+    }
+
+    /**
+     * A host function with 2 parameters and no result.
+     */
+    @FunctionalInterface
+    public interface Arity2Void extends WasmFunctionHandle {
+        void invoke(Instance instance, long arg0, long arg1);
+
+        @Override
+        default long[] apply(Instance instance, long... args) {
+            invoke(instance, args[0], args[1]);
+            return null;
+        }
+    }
+
+    /**
+     * A host function with 3 parameters and one result.
+     */
+    @FunctionalInterface
+    public interface Arity3 extends WasmFunctionHandle {
+        long invoke(Instance instance, long arg0, long arg1, long arg2);
+
+        @Override
+        default long[] apply(Instance instance, long... args) {
+            return new long[] {invoke(instance, args[0], args[1], args[2])};
+        }
+    }
+
+    /**
+     * A host function with 3 parameters and no result.
+     */
+    @FunctionalInterface
+    public interface Arity3Void extends WasmFunctionHandle {
+        void invoke(Instance instance, long arg0, long arg1, long arg2);
+
+        @Override
+        default long[] apply(Instance instance, long... args) {
+            invoke(instance, args[0], args[1], args[2]);
+            return null;
+        }
+    }
+
+    /**
+     * A host function with 4 parameters and one result.
+     */
+    @FunctionalInterface
+    public interface Arity4 extends WasmFunctionHandle {
+        long invoke(Instance instance, long arg0, long arg1, long arg2, long arg3);
+
+        @Override
+        default long[] apply(Instance instance, long... args) {
+            return new long[] {invoke(instance, args[0], args[1], args[2], args[3])};
+        }
+    }
+
+    /**
+     * A host function with 4 parameters and no result.
+     */
+    @FunctionalInterface
+    public interface Arity4Void extends WasmFunctionHandle {
+        void invoke(Instance instance, long arg0, long arg1, long arg2, long arg3);
+
+        @Override
+        default long[] apply(Instance instance, long... args) {
+            invoke(instance, args[0], args[1], args[2], args[3]);
+            return null;
+        }
+    }
+
+    /**
+     * A host function with 5 parameters and one result.
+     */
+    @FunctionalInterface
+    public interface Arity5 extends WasmFunctionHandle {
+        long invoke(Instance instance, long arg0, long arg1, long arg2, long arg3, long arg4);
+
+        @Override
+        default long[] apply(Instance instance, long... args) {
+            return new long[] {invoke(instance, args[0], args[1], args[2], args[3], args[4])};
+        }
+    }
+
+    /**
+     * A host function with 5 parameters and no result.
+     */
+    @FunctionalInterface
+    public interface Arity5Void extends WasmFunctionHandle {
+        void invoke(Instance instance, long arg0, long arg1, long arg2, long arg3, long arg4);
+
+        @Override
+        default long[] apply(Instance instance, long... args) {
+            invoke(instance, args[0], args[1], args[2], args[3], args[4]);
+            return null;
+        }
+    }
+
+    /**
+     * A host function with 6 parameters and one result.
+     */
+    @FunctionalInterface
+    public interface Arity6 extends WasmFunctionHandle {
+        long invoke(
+                Instance instance,
+                long arg0,
+                long arg1,
+                long arg2,
+                long arg3,
+                long arg4,
+                long arg5);
+
+        @Override
+        default long[] apply(Instance instance, long... args) {
+            return new long[] {
+                invoke(instance, args[0], args[1], args[2], args[3], args[4], args[5])
+            };
+        }
+    }
+
+    /**
+     * A host function with 6 parameters and no result.
+     */
+    @FunctionalInterface
+    public interface Arity6Void extends WasmFunctionHandle {
+        void invoke(
+                Instance instance,
+                long arg0,
+                long arg1,
+                long arg2,
+                long arg3,
+                long arg4,
+                long arg5);
+
+        @Override
+        default long[] apply(Instance instance, long... args) {
+            invoke(instance, args[0], args[1], args[2], args[3], args[4], args[5]);
+            return null;
+        }
+    }
+
+    /**
+     * A host function with 7 parameters and one result.
+     */
+    @FunctionalInterface
+    public interface Arity7 extends WasmFunctionHandle {
+        long invoke(
+                Instance instance,
+                long arg0,
+                long arg1,
+                long arg2,
+                long arg3,
+                long arg4,
+                long arg5,
+                long arg6);
+
+        @Override
+        default long[] apply(Instance instance, long... args) {
+            return new long[] {
+                invoke(instance, args[0], args[1], args[2], args[3], args[4], args[5], args[6])
+            };
+        }
+    }
+
+    /**
+     * A host function with 7 parameters and no result.
+     */
+    @FunctionalInterface
+    public interface Arity7Void extends WasmFunctionHandle {
+        void invoke(
+                Instance instance,
+                long arg0,
+                long arg1,
+                long arg2,
+                long arg3,
+                long arg4,
+                long arg5,
+                long arg6);
+
+        @Override
+        default long[] apply(Instance instance, long... args) {
+            invoke(instance, args[0], args[1], args[2], args[3], args[4], args[5], args[6]);
+            return null;
+        }
+    }
+
+    /**
+     * A host function with 8 parameters and one result.
+     */
+    @FunctionalInterface
+    public interface Arity8 extends WasmFunctionHandle {
+        long invoke(
+                Instance instance,
+                long arg0,
+                long arg1,
+                long arg2,
+                long arg3,
+                long arg4,
+                long arg5,
+                long arg6,
+                long arg7);
+
+        @Override
+        default long[] apply(Instance instance, long... args) {
+            return new long[] {
+                invoke(
+                        instance, args[0], args[1], args[2], args[3], args[4], args[5], args[6],
+                        args[7])
+            };
+        }
+    }
+
+    /**
+     * A host function with 8 parameters and no result.
+     */
+    @FunctionalInterface
+    public interface Arity8Void extends WasmFunctionHandle {
+        void invoke(
+                Instance instance,
+                long arg0,
+                long arg1,
+                long arg2,
+                long arg3,
+                long arg4,
+                long arg5,
+                long arg6,
+                long arg7);
+
+        @Override
+        default long[] apply(Instance instance, long... args) {
+            invoke(
+                    instance, args[0], args[1], args[2], args[3], args[4], args[5], args[6],
+                    args[7]);
+            return null;
+        }
+    }
+
+    /**
+     * A host function with 9 parameters and one result.
+     */
+    @FunctionalInterface
+    public interface Arity9 extends WasmFunctionHandle {
+        long invoke(
+                Instance instance,
+                long arg0,
+                long arg1,
+                long arg2,
+                long arg3,
+                long arg4,
+                long arg5,
+                long arg6,
+                long arg7,
+                long arg8);
+
+        @Override
+        default long[] apply(Instance instance, long... args) {
+            return new long[] {
+                invoke(
+                        instance, args[0], args[1], args[2], args[3], args[4], args[5], args[6],
+                        args[7], args[8])
+            };
+        }
+    }
+
+    /**
+     * A host function with 9 parameters and no result.
+     */
+    @FunctionalInterface
+    public interface Arity9Void extends WasmFunctionHandle {
+        void invoke(
+                Instance instance,
+                long arg0,
+                long arg1,
+                long arg2,
+                long arg3,
+                long arg4,
+                long arg5,
+                long arg6,
+                long arg7,
+                long arg8);
+
+        @Override
+        default long[] apply(Instance instance, long... args) {
+            invoke(
+                    instance, args[0], args[1], args[2], args[3], args[4], args[5], args[6],
+                    args[7], args[8]);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.dylibso.chicory.runtime;
+
+import com.dylibso.chicory.wasm.types.NameCustomSection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The functions of the guest being executed when a trap or a wasm exception was raised,
+ * recorded by the instances built with {@link Instance.Builder#withBacktraces(boolean)}.
+ * <p>
+ * Only the function indices are captured, from the stack the machine keeps track of (see
+ * {@link Machine#stackTrace()}), and the functions are named after the name section of the
+ * module when the frames are read.
+ */
+public final class WasmBacktrace {
+
+    public static final class Frame {
+        private final int funcId;
+        private final String name;
+
+        Frame(int funcId, String name) {
+            this.funcId = funcId;
+            this.name = name;
+        }
+
+        public int funcId() {
+            return funcId;
+        }
+
+        /**
+         * Returns the name of the function in the name section, or {@code null} if unnamed.
+         */
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            var index = "wasm-function[" + funcId + "]";
+            return (name == null) ? index : name + " (" + index + ")";
+        }
+    }
+
+    private final int[] funcIds;
+    private final NameCustomSection nameSection;
+
+    private WasmBacktrace(int[] funcIds, NameCustomSection nameSection) {
+        this.funcIds = funcIds;
+        this.nameSection = nameSection;
+    }
+
+    static WasmBacktrace of(Instance instance, int[] funcIds) {
+        return new WasmBacktrace(funcIds, instance.module().nameSection());
+    }
+
+    static WasmBacktrace capture(Instance instance) {
+        return of(instance, instance.getMachine().stackTrace());
+    }
+
+    /**
+     * Returns the frames, innermost first.
+     */
+    public List<Frame> frames() {
+        var frames = new ArrayList<Frame>(funcIds.length);
+        for (int funcId : funcIds) {
+            var name = (nameSection == null) ? null : nameSection.nameOfFunction(funcId);
+            frames.add(new Frame(funcId, name));
+        }
+        return Collections.unmodifiableList(frames);
+    }
+
+    @Override
+    public String toString() {
+        var result = new StringBuilder();
+        for (var frame : frames()) {
+            result.append("\tat ").append(frame).append('\n');
+        }
+        return result.toString();
+    }
+}
@@ -1,15 +1,27 @@
 package com.dylibso.chicory.runtime;
 
+/**
+ * An exception thrown by the guest, or by a host function to the guest, with the
+ * {@code throw} instruction of the exception handling proposal.
+ * <p>
+ * As it's also used for control flow, it doesn't capture the JVM stack trace, see
+ * {@link TrapException} and {@link #backtrace()}.
+ */
 public class WasmException extends RuntimeException {
     private final int tagIdx;
     private final long[] args;
     private final Instance instance;
+    private final WasmBacktrace backtrace;
 
     public WasmException(Instance instance, int tagIdx, long[] args) {
+        super(null, null, true, TrapException.STACK_TRACES);
         this.instance = instance;
         this.tagIdx = tagIdx;
         this.args = args.clone();
-        this.setStackTrace(new StackTraceElement[0]);
+        this.backtrace =
+                (instance != null && instance.backtraces())
+                        ? WasmBacktrace.capture(instance)
+                        : null;
     }
 
     public Instance instance() {
@@ -23,4 +35,12 @@ public class WasmException extends RuntimeException {
     public long[] args() {
         return args;
     }
+
+    /**
+     * Returns the functions executed when the exception was thrown, or {@code null} if not
+     * recorded, see {@link Instance.Builder#withBacktraces(boolean)}.
+     */
+    public WasmBacktrace backtrace() {
+        return backtrace;
+    }
 }
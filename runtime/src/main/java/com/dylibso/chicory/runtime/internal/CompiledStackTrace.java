@@ -0,0 +1,52 @@
+package com.dylibso.chicory.runtime.internal;
+
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The stack trace of the compiled machines, found in the frames of their {@code func_N}
+ * methods, see {@link com.dylibso.chicory.runtime.Machine#stackTrace()}.
+ */
+public final class CompiledStackTrace {
+
+    private static final String FUNC_PREFIX = "func_";
+
+    private static final StackWalker WALKER =
+            StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+    private CompiledStackTrace() {}
+
+    /**
+     * Returns the functions compiled with the given machine class that the current thread is
+     * executing, innermost first: the classes named after the machine class and defined by
+     * its class loader, so that the machines of other modules compiled with the same name
+     * are left out.
+     */
+    public static int[] of(Class<?> machineClass) {
+        var funcIds =
+                WALKER.walk(frames -> funcIds(frames, machineClass).collect(Collectors.toList()));
+        var result = new int[funcIds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = funcIds.get(i);
+        }
+        return result;
+    }
+
+    private static Stream<Integer> funcIds(
+            Stream<StackWalker.StackFrame> frames, Class<?> machineClass) {
+        var className = machineClass.getName();
+        var classLoader = machineClass.getClassLoader();
+        return frames.filter(
+                        frame ->
+                                frame.getClassName().startsWith(className)
+                                        && frame.getDeclaringClass().getClassLoader()
+                                                == classLoader)
+                .map(StackWalker.StackFrame::getMethodName)
+                // the regions outlined to func_N_K run within func_N
+                .filter(
+                        name ->
+                                name.startsWith(FUNC_PREFIX)
+                                        && name.indexOf('_', FUNC_PREFIX.length()) < 0)
+                .map(name -> Integer.parseInt(name.substring(FUNC_PREFIX.length())));
+    }
+}
@@ -54,6 +54,15 @@ public class CompilerInterpreterMachine extends InterpreterMachine {
         return super.call(stack, instance, callStack, funcId, args, callType, popResults);
     }
 
+    @Override
+    protected void onReturn(int funcId, int backEdges) {
+        // keep profiling the functions left to the interpreter by a tiered machine
+        var machine = instance().getMachine();
+        if (machine instanceof FunctionProfiler) {
+            ((FunctionProfiler) machine).onReturn(funcId, backEdges);
+        }
+    }
+
     @Override
     protected void CALL(Operands operands) {
         var instance = instance();
@@ -0,0 +1,106 @@
+package com.dylibso.chicory.runtime.internal;
+
+import com.dylibso.chicory.wasm.types.AnnotatedInstruction;
+import com.dylibso.chicory.wasm.types.FunctionBody;
+import com.dylibso.chicory.wasm.types.OpCode;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The fuel charged by the interpreter and the compiled code, see
+ * {@link com.dylibso.chicory.runtime.Instance.Builder#withFuel(long)}.
+ * <p>
+ * The fuel of a basic block, the sum of the weights of its instructions, is charged at once
+ * before its first instruction, so that both modes consume the same fuel at the same points.
+ */
+public final class FuelCosts {
+
+    private FuelCosts() {}
+
+    /**
+     * Returns the fuel charged before each instruction of the function, the cost of the basic
+     * block starting there, 0 for the other instructions.
+     */
+    public static int[] of(FunctionBody body) {
+        List<AnnotatedInstruction> instructions = body.instructions();
+        int size = instructions.size();
+
+        // the basic blocks start at the branch targets and after the control instructions
+        var leaders = new BitSet(size + 1);
+        leaders.set(0);
+        for (int i = 0; i < size; i++) {
+            var ins = instructions.get(i);
+            boolean control = isControl(ins.opcode());
+            if (ins.labelTrue() != AnnotatedInstruction.UNDEFINED_LABEL) {
+                leaders.set(ins.labelTrue());
+                control = true;
+            }
+            if (ins.labelFalse() != AnnotatedInstruction.UNDEFINED_LABEL) {
+                leaders.set(ins.labelFalse());
+                control = true;
+            }
+            if (!ins.labelTable().isEmpty()) {
+                for (int label : ins.labelTable()) {
+                    leaders.set(label);
+                }
+                control = true;
+            }
+            if (ins.catches() != null) {
+                for (var handler : ins.catches()) {
+                    leaders.set(handler.resolvedLabel());
+                }
+            }
+            if (control) {
+                leaders.set(i + 1);
+            }
+        }
+
+        var costs = new int[size];
+        int leader = 0;
+        for (int i = 0; i < size; i++) {
+            if (leaders.get(i)) {
+                leader = i;
+            }
+            costs[leader] += weight(instructions.get(i).opcode());
+        }
+        return costs;
+    }
+
+    /**
+     * The fuel consumed by an instruction: 0 for the structure of the code, 1 otherwise.
+     */
+    public static int weight(OpCode opcode) {
+        switch (opcode) {
+            case NOP:
+            case BLOCK:
+            case LOOP:
+            case ELSE:
+            case END:
+            case TRY_TABLE:
+                return 0;
+            default:
+                return 1;
+        }
+    }
+
+    private static boolean isControl(OpCode opcode) {
+        switch (opcode) {
+            case BLOCK:
+            case LOOP:
+            case IF:
+            case ELSE:
+            case END:
+            case TRY_TABLE:
+            case RETURN:
+            case UNREACHABLE:
+            case THROW:
+            case THROW_REF:
+            case RETURN_CALL:
+            case RETURN_CALL_INDIRECT:
+            case RETURN_CALL_REF:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.dylibso.chicory.runtime.internal;
+
+/**
+ * Implemented by machines collecting how often the functions they interpret run, so that
+ * the interpreters they delegate to can report to them.
+ */
+public interface FunctionProfiler {
+
+    /**
+     * Called when an interpreted function returns, see
+     * {@link com.dylibso.chicory.runtime.InterpreterMachine#onReturn(int, int)}.
+     */
+    void onReturn(int funcId, int backEdges);
+}
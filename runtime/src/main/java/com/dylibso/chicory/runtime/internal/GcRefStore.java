@@ -56,6 +56,19 @@ public class GcRefStore {
         return map.get(key);
     }
 
+    /** Whether no reference is stored, e.g. before any GC allocation. */
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    /** Drops all the references, e.g. when the instance is restored. */
+    public void clear() {
+        map.clear();
+        nextId = ID_OFFSET;
+        allocsSinceLastSweep = 0;
+        sweepRequested = false;
+    }
+
     /** Called at safe points (between top-level calls). */
     public void safePoint() {
         if (sweepRequested) {
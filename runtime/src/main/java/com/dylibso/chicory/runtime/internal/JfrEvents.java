@@ -0,0 +1,84 @@
+package com.dylibso.chicory.runtime.internal;
+
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.wasm.WasmModule;
+import java.util.Map;
+
+/**
+ * Emits the JFR events of the runtime and the compiler, when the {@code jdk.jfr} module is
+ * available (e.g. not on Android), through {@link JfrRecorder} so that the event classes are
+ * only loaded then.
+ * <p>
+ * The events are disabled by default, and enabled in the JFR settings, e.g.
+ * {@code jfr configure +com.dylibso.chicory.HostCall#enabled=true}.
+ * The {@code begin} methods return the started event, or {@code null} when it's disabled.
+ */
+public final class JfrEvents {
+    private static final boolean AVAILABLE = isAvailable();
+
+    private JfrEvents() {}
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, JfrEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    public static Object beginInstantiate() {
+        return AVAILABLE ? JfrRecorder.beginInstantiate() : null;
+    }
+
+    public static void endInstantiate(Object event, Instance instance) {
+        if (event != null) {
+            JfrRecorder.endInstantiate(event, instance);
+        }
+    }
+
+    public static Object beginCompile() {
+        return AVAILABLE ? JfrRecorder.beginCompile() : null;
+    }
+
+    /**
+     * @param classes the generated classes, without the ones generated on demand
+     */
+    public static void endCompile(
+            Object event, WasmModule module, String className, Map<String, byte[]> classes) {
+        if (event != null) {
+            JfrRecorder.endCompile(event, module, className, classes);
+        }
+    }
+
+    public static Object beginMemoryGrow() {
+        return AVAILABLE ? JfrRecorder.beginMemoryGrow() : null;
+    }
+
+    /**
+     * @param previousPages the result of the grow, -1 when it failed
+     */
+    public static void endMemoryGrow(Object event, int previousPages, int deltaPages) {
+        if (event != null) {
+            JfrRecorder.endMemoryGrow(event, previousPages, deltaPages);
+        }
+    }
+
+    /**
+     * Returns whether the host calls are recorded, e.g. for the compiled code to take the path
+     * recording them.
+     */
+    public static boolean isHostCallEnabled() {
+        return AVAILABLE && JfrRecorder.isHostCallEnabled();
+    }
+
+    public static Object beginHostCall() {
+        return AVAILABLE ? JfrRecorder.beginHostCall() : null;
+    }
+
+    public static void endHostCall(Object event, Instance instance, int funcId) {
+        if (event != null) {
+            JfrRecorder.endHostCall(event, instance, funcId);
+        }
+    }
+}
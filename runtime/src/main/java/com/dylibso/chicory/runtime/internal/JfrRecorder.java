@@ -0,0 +1,186 @@
+package com.dylibso.chicory.runtime.internal;
+
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.wasm.WasmModule;
+import java.util.Map;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The JFR events of the runtime and the compiler, only used when JFR is available, see
+ * {@link JfrEvents}.
+ */
+final class JfrRecorder {
+
+    private static final long PAGE_SIZE = 65536;
+
+    private JfrRecorder() {}
+
+    private static <T extends Event> T begin(T event) {
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    static Object beginInstantiate() {
+        return begin(new InstantiateEvent());
+    }
+
+    static void endInstantiate(Object started, Instance instance) {
+        var event = (InstantiateEvent) started;
+        event.end();
+        if (event.shouldCommit()) {
+            event.moduleDigest = instance.module().digest();
+            event.functionCount = instance.functionCount();
+            var memory = instance.memory();
+            event.memorySize = memory == null ? 0 : memory.pages() * PAGE_SIZE;
+            event.machine = instance.getMachine().getClass().getName();
+            event.commit();
+        }
+    }
+
+    static Object beginCompile() {
+        return begin(new CompileEvent());
+    }
+
+    static void endCompile(
+            Object started, WasmModule module, String className, Map<String, byte[]> classes) {
+        var event = (CompileEvent) started;
+        event.end();
+        if (event.shouldCommit()) {
+            event.moduleDigest = module.digest();
+            event.functionCount = module.functionSection().functionCount();
+            event.className = className;
+            event.classCount = classes.size();
+            for (var bytes : classes.values()) {
+                event.size += bytes.length;
+            }
+            event.commit();
+        }
+    }
+
+    static Object beginMemoryGrow() {
+        return begin(new MemoryGrowEvent());
+    }
+
+    static void endMemoryGrow(Object started, int previousPages, int deltaPages) {
+        var event = (MemoryGrowEvent) started;
+        event.end();
+        if (event.shouldCommit()) {
+            event.succeeded = previousPages >= 0;
+            event.deltaSize = deltaPages * PAGE_SIZE;
+            if (previousPages >= 0) {
+                event.size = (previousPages + deltaPages) * PAGE_SIZE;
+            }
+            event.commit();
+        }
+    }
+
+    static boolean isHostCallEnabled() {
+        return new HostCallEvent().isEnabled();
+    }
+
+    static Object beginHostCall() {
+        return begin(new HostCallEvent());
+    }
+
+    static void endHostCall(Object started, Instance instance, int funcId) {
+        var event = (HostCallEvent) started;
+        event.end();
+        if (event.shouldCommit()) {
+            var function = instance.imports().function(funcId);
+            event.moduleDigest = instance.module().digest();
+            event.functionIndex = funcId;
+            event.functionName = function.module() + "." + function.name();
+            event.commit();
+        }
+    }
+
+    @Name("com.dylibso.chicory.Instantiate")
+    @Label("Wasm Module Instantiation")
+    @Description("Instantiation of a Wasm module, including its initialization and start function")
+    @Category("Chicory")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class InstantiateEvent extends Event {
+        @Label("Module Digest")
+        String moduleDigest;
+
+        @Label("Function Count")
+        int functionCount;
+
+        @Label("Memory Size")
+        @DataAmount
+        long memorySize;
+
+        @Label("Machine")
+        String machine;
+    }
+
+    @Name("com.dylibso.chicory.Compile")
+    @Label("Wasm Module Compilation")
+    @Description("Compilation of a Wasm module to JVM byte code")
+    @Category("Chicory")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class CompileEvent extends Event {
+        @Label("Module Digest")
+        String moduleDigest;
+
+        @Label("Function Count")
+        int functionCount;
+
+        @Label("Class Name")
+        String className;
+
+        @Label("Class Count")
+        @Description("The number of classes generated, without the ones generated on demand")
+        int classCount;
+
+        @Label("Byte Code Size")
+        @DataAmount
+        long size;
+    }
+
+    @Name("com.dylibso.chicory.MemoryGrow")
+    @Label("Wasm Memory Grow")
+    @Category("Chicory")
+    @Enabled(false)
+    static final class MemoryGrowEvent extends Event {
+        @Label("Delta Size")
+        @DataAmount
+        long deltaSize;
+
+        @Label("Size")
+        @Description("The size of the memory after the grow")
+        @DataAmount
+        long size;
+
+        @Label("Succeeded")
+        boolean succeeded;
+    }
+
+    @Name("com.dylibso.chicory.HostCall")
+    @Label("Wasm Host Function Call")
+    @Category("Chicory")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class HostCallEvent extends Event {
+        @Label("Module Digest")
+        String moduleDigest;
+
+        @Label("Function Index")
+        int functionIndex;
+
+        @Label("Function Name")
+        String functionName;
+    }
+}
@@ -0,0 +1,1685 @@
+package com.dylibso.chicory.runtime.internal;
+
+import com.dylibso.chicory.runtime.OpcodeImpl;
+
+/**
+ * Lane-wise implementations of the SIMD (v128) opcodes for the compiler.
+ * <p>
+ * The compiled code keeps a v128 value in two {@code long}s, the low half (lanes of the
+ * first eight bytes) and the high half. Lane {@code i} of width {@code w} occupies the bits
+ * {@code [i * w, (i + 1) * w)} of its half, as in the little endian memory layout.
+ * Most methods here take and return one half and are called once for each half of the
+ * operands; the lanes never cross the halves, except where noted.
+ */
+public final class V128Ops {
+
+    private V128Ops() {}
+
+    // ========= Bitwise =========
+
+    public static long v128Not(long a) {
+        return ~a;
+    }
+
+    public static long v128And(long a, long b) {
+        return a & b;
+    }
+
+    public static long v128AndNot(long a, long b) {
+        return a & ~b;
+    }
+
+    public static long v128Or(long a, long b) {
+        return a | b;
+    }
+
+    public static long v128Xor(long a, long b) {
+        return a ^ b;
+    }
+
+    public static long v128Bitselect(long a, long b, long c) {
+        return (a & c) | (b & ~c);
+    }
+
+    // the following take both halves
+
+    public static int v128AnyTrue(long lo, long hi) {
+        return (lo | hi) != 0 ? 1 : 0;
+    }
+
+    public static int i8x16AllTrue(long lo, long hi) {
+        for (int i = 0; i < 64; i += 8) {
+            if (((lo >>> i) & 0xFFL) == 0 || ((hi >>> i) & 0xFFL) == 0) {
+                return 0;
+            }
+        }
+        return 1;
+    }
+
+    public static int i8x16Bitmask(long lo, long hi) {
+        int r = 0;
+        for (int i = 0; i < 8; i++) {
+            r |= ((int) (lo >>> (8 * i + 7)) & 1) << i;
+            r |= ((int) (hi >>> (8 * i + 7)) & 1) << (8 + i);
+        }
+        return r;
+    }
+
+    public static int i16x8AllTrue(long lo, long hi) {
+        for (int i = 0; i < 64; i += 16) {
+            if (((lo >>> i) & 0xFFFFL) == 0 || ((hi >>> i) & 0xFFFFL) == 0) {
+                return 0;
+            }
+        }
+        return 1;
+    }
+
+    public static int i16x8Bitmask(long lo, long hi) {
+        int r = 0;
+        for (int i = 0; i < 4; i++) {
+            r |= ((int) (lo >>> (16 * i + 15)) & 1) << i;
+            r |= ((int) (hi >>> (16 * i + 15)) & 1) << (4 + i);
+        }
+        return r;
+    }
+
+    public static int i32x4AllTrue(long lo, long hi) {
+        for (int i = 0; i < 64; i += 32) {
+            if (((lo >>> i) & 0xFFFFFFFFL) == 0 || ((hi >>> i) & 0xFFFFFFFFL) == 0) {
+                return 0;
+            }
+        }
+        return 1;
+    }
+
+    public static int i32x4Bitmask(long lo, long hi) {
+        int r = 0;
+        for (int i = 0; i < 2; i++) {
+            r |= ((int) (lo >>> (32 * i + 31)) & 1) << i;
+            r |= ((int) (hi >>> (32 * i + 31)) & 1) << (2 + i);
+        }
+        return r;
+    }
+
+    public static int i64x2AllTrue(long lo, long hi) {
+        return lo != 0 && hi != 0 ? 1 : 0;
+    }
+
+    public static int i64x2Bitmask(long lo, long hi) {
+        return (int) (lo >>> 63) | ((int) (hi >>> 63) << 1);
+    }
+
+    // ========= I8x16 =========
+
+    public static long i8x16Splat(int x) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 8) {
+            r |= (x & 0xFFL) << i;
+        }
+        return r;
+    }
+
+    public static int i8x16ExtractLaneS(long half, int lane) {
+        return (byte) (half >>> (8 * lane));
+    }
+
+    public static int i8x16ExtractLaneU(long half, int lane) {
+        return (int) (half >>> (8 * lane)) & 0xFF;
+    }
+
+    public static long i8x16ReplaceLane(long half, int x, int lane) {
+        int shift = 8 * lane;
+        return (half & ~(0xFFL << shift)) | ((x & 0xFFL) << shift);
+    }
+
+    public static long i8x16Add(long a, long b) {
+        long low = (a & ~0x8080808080808080L) + (b & ~0x8080808080808080L);
+        return low ^ ((a ^ b) & 0x8080808080808080L);
+    }
+
+    public static long i8x16Sub(long a, long b) {
+        long low = (a | 0x8080808080808080L) - (b & ~0x8080808080808080L);
+        return low ^ ((a ^ ~b) & 0x8080808080808080L);
+    }
+
+    public static long i8x16AddSatS(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 8) {
+            int x = (byte) (a >>> i);
+            int y = (byte) (b >>> i);
+            r |= ((long) (Math.max(-128, Math.min(127, x + y))) & 0xFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i8x16AddSatU(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 8) {
+            int x = (int) (a >>> i) & 0xFF;
+            int y = (int) (b >>> i) & 0xFF;
+            r |= ((long) (Math.min(0xFF, x + y)) & 0xFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i8x16SubSatS(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 8) {
+            int x = (byte) (a >>> i);
+            int y = (byte) (b >>> i);
+            r |= ((long) (Math.max(-128, Math.min(127, x - y))) & 0xFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i8x16SubSatU(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 8) {
+            int x = (int) (a >>> i) & 0xFF;
+            int y = (int) (b >>> i) & 0xFF;
+            r |= ((long) (Math.max(0, x - y)) & 0xFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i8x16AvgrU(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 8) {
+            int x = (int) (a >>> i) & 0xFF;
+            int y = (int) (b >>> i) & 0xFF;
+            r |= ((long) ((x + y + 1) >>> 1) & 0xFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i8x16MinS(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 8) {
+            int x = (byte) (a >>> i);
+            int y = (byte) (b >>> i);
+            r |= ((long) (Math.min(x, y)) & 0xFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i8x16MaxS(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 8) {
+            int x = (byte) (a >>> i);
+            int y = (byte) (b >>> i);
+            r |= ((long) (Math.max(x, y)) & 0xFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i8x16MinU(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 8) {
+            int x = (int) (a >>> i) & 0xFF;
+            int y = (int) (b >>> i) & 0xFF;
+            r |= ((long) (Math.min(x, y)) & 0xFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i8x16MaxU(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 8) {
+            int x = (int) (a >>> i) & 0xFF;
+            int y = (int) (b >>> i) & 0xFF;
+            r |= ((long) (Math.max(x, y)) & 0xFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i8x16Eq(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 8) {
+            int x = (byte) (a >>> i);
+            int y = (byte) (b >>> i);
+            if (x == y) {
+                r |= 0xFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i8x16Ne(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 8) {
+            int x = (byte) (a >>> i);
+            int y = (byte) (b >>> i);
+            if (x != y) {
+                r |= 0xFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i8x16LtS(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 8) {
+            int x = (byte) (a >>> i);
+            int y = (byte) (b >>> i);
+            if (x < y) {
+                r |= 0xFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i8x16LtU(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 8) {
+            int x = (int) (a >>> i) & 0xFF;
+            int y = (int) (b >>> i) & 0xFF;
+            if (x < y) {
+                r |= 0xFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i8x16GtS(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 8) {
+            int x = (byte) (a >>> i);
+            int y = (byte) (b >>> i);
+            if (x > y) {
+                r |= 0xFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i8x16GtU(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 8) {
+            int x = (int) (a >>> i) & 0xFF;
+            int y = (int) (b >>> i) & 0xFF;
+            if (x > y) {
+                r |= 0xFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i8x16LeS(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 8) {
+            int x = (byte) (a >>> i);
+            int y = (byte) (b >>> i);
+            if (x <= y) {
+                r |= 0xFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i8x16LeU(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 8) {
+            int x = (int) (a >>> i) & 0xFF;
+            int y = (int) (b >>> i) & 0xFF;
+            if (x <= y) {
+                r |= 0xFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i8x16GeS(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 8) {
+            int x = (byte) (a >>> i);
+            int y = (byte) (b >>> i);
+            if (x >= y) {
+                r |= 0xFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i8x16GeU(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 8) {
+            int x = (int) (a >>> i) & 0xFF;
+            int y = (int) (b >>> i) & 0xFF;
+            if (x >= y) {
+                r |= 0xFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i8x16Neg(long a) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 8) {
+            int x = (byte) (a >>> i);
+            r |= ((long) (-x) & 0xFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i8x16Abs(long a) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 8) {
+            int x = (byte) (a >>> i);
+            r |= ((long) (Math.abs(x)) & 0xFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i8x16Shl(long a, int s) {
+        s &= 7;
+        long r = 0;
+        for (int i = 0; i < 64; i += 8) {
+            int x = (byte) (a >>> i);
+            r |= ((long) (x << s) & 0xFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i8x16ShrS(long a, int s) {
+        s &= 7;
+        long r = 0;
+        for (int i = 0; i < 64; i += 8) {
+            int x = (byte) (a >>> i);
+            r |= ((long) (x >> s) & 0xFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i8x16ShrU(long a, int s) {
+        s &= 7;
+        long r = 0;
+        for (int i = 0; i < 64; i += 8) {
+            int x = (int) (a >>> i) & 0xFF;
+            r |= ((long) (x >>> s) & 0xFFL) << i;
+        }
+        return r;
+    }
+
+    // ========= I16x8 =========
+
+    public static long i16x8Splat(int x) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            r |= (x & 0xFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static int i16x8ExtractLaneS(long half, int lane) {
+        return (short) (half >>> (16 * lane));
+    }
+
+    public static int i16x8ExtractLaneU(long half, int lane) {
+        return (int) (half >>> (16 * lane)) & 0xFFFF;
+    }
+
+    public static long i16x8ReplaceLane(long half, int x, int lane) {
+        int shift = 16 * lane;
+        return (half & ~(0xFFFFL << shift)) | ((x & 0xFFFFL) << shift);
+    }
+
+    public static long i16x8Add(long a, long b) {
+        long low = (a & ~0x8000800080008000L) + (b & ~0x8000800080008000L);
+        return low ^ ((a ^ b) & 0x8000800080008000L);
+    }
+
+    public static long i16x8Sub(long a, long b) {
+        long low = (a | 0x8000800080008000L) - (b & ~0x8000800080008000L);
+        return low ^ ((a ^ ~b) & 0x8000800080008000L);
+    }
+
+    public static long i16x8AddSatS(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            int x = (short) (a >>> i);
+            int y = (short) (b >>> i);
+            r |= ((long) (Math.max(-32768, Math.min(32767, x + y))) & 0xFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i16x8AddSatU(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            int x = (int) (a >>> i) & 0xFFFF;
+            int y = (int) (b >>> i) & 0xFFFF;
+            r |= ((long) (Math.min(0xFFFF, x + y)) & 0xFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i16x8SubSatS(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            int x = (short) (a >>> i);
+            int y = (short) (b >>> i);
+            r |= ((long) (Math.max(-32768, Math.min(32767, x - y))) & 0xFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i16x8SubSatU(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            int x = (int) (a >>> i) & 0xFFFF;
+            int y = (int) (b >>> i) & 0xFFFF;
+            r |= ((long) (Math.max(0, x - y)) & 0xFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i16x8AvgrU(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            int x = (int) (a >>> i) & 0xFFFF;
+            int y = (int) (b >>> i) & 0xFFFF;
+            r |= ((long) ((x + y + 1) >>> 1) & 0xFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i16x8Mul(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            int x = (short) (a >>> i);
+            int y = (short) (b >>> i);
+            r |= ((long) (x * y) & 0xFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i16x8MinS(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            int x = (short) (a >>> i);
+            int y = (short) (b >>> i);
+            r |= ((long) (Math.min(x, y)) & 0xFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i16x8MaxS(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            int x = (short) (a >>> i);
+            int y = (short) (b >>> i);
+            r |= ((long) (Math.max(x, y)) & 0xFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i16x8MinU(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            int x = (int) (a >>> i) & 0xFFFF;
+            int y = (int) (b >>> i) & 0xFFFF;
+            r |= ((long) (Math.min(x, y)) & 0xFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i16x8MaxU(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            int x = (int) (a >>> i) & 0xFFFF;
+            int y = (int) (b >>> i) & 0xFFFF;
+            r |= ((long) (Math.max(x, y)) & 0xFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i16x8Eq(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            int x = (short) (a >>> i);
+            int y = (short) (b >>> i);
+            if (x == y) {
+                r |= 0xFFFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i16x8Ne(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            int x = (short) (a >>> i);
+            int y = (short) (b >>> i);
+            if (x != y) {
+                r |= 0xFFFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i16x8LtS(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            int x = (short) (a >>> i);
+            int y = (short) (b >>> i);
+            if (x < y) {
+                r |= 0xFFFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i16x8LtU(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            int x = (int) (a >>> i) & 0xFFFF;
+            int y = (int) (b >>> i) & 0xFFFF;
+            if (x < y) {
+                r |= 0xFFFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i16x8GtS(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            int x = (short) (a >>> i);
+            int y = (short) (b >>> i);
+            if (x > y) {
+                r |= 0xFFFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i16x8GtU(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            int x = (int) (a >>> i) & 0xFFFF;
+            int y = (int) (b >>> i) & 0xFFFF;
+            if (x > y) {
+                r |= 0xFFFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i16x8LeS(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            int x = (short) (a >>> i);
+            int y = (short) (b >>> i);
+            if (x <= y) {
+                r |= 0xFFFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i16x8LeU(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            int x = (int) (a >>> i) & 0xFFFF;
+            int y = (int) (b >>> i) & 0xFFFF;
+            if (x <= y) {
+                r |= 0xFFFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i16x8GeS(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            int x = (short) (a >>> i);
+            int y = (short) (b >>> i);
+            if (x >= y) {
+                r |= 0xFFFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i16x8GeU(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            int x = (int) (a >>> i) & 0xFFFF;
+            int y = (int) (b >>> i) & 0xFFFF;
+            if (x >= y) {
+                r |= 0xFFFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i16x8Neg(long a) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            int x = (short) (a >>> i);
+            r |= ((long) (-x) & 0xFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i16x8Abs(long a) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            int x = (short) (a >>> i);
+            r |= ((long) (Math.abs(x)) & 0xFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i16x8Shl(long a, int s) {
+        s &= 15;
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            int x = (short) (a >>> i);
+            r |= ((long) (x << s) & 0xFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i16x8ShrS(long a, int s) {
+        s &= 15;
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            int x = (short) (a >>> i);
+            r |= ((long) (x >> s) & 0xFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i16x8ShrU(long a, int s) {
+        s &= 15;
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            int x = (int) (a >>> i) & 0xFFFF;
+            r |= ((long) (x >>> s) & 0xFFFFL) << i;
+        }
+        return r;
+    }
+
+    // ========= I32x4 =========
+
+    public static long i32x4Splat(int x) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            r |= (x & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static int i32x4ExtractLane(long half, int lane) {
+        return (int) (half >>> (32 * lane));
+    }
+
+    public static long i32x4ReplaceLane(long half, int x, int lane) {
+        int shift = 32 * lane;
+        return (half & ~(0xFFFFFFFFL << shift)) | ((x & 0xFFFFFFFFL) << shift);
+    }
+
+    public static long i32x4Add(long a, long b) {
+        return ((a + b) & 0xFFFFFFFFL) | (((a >>> 32) + (b >>> 32)) << 32);
+    }
+
+    public static long i32x4Sub(long a, long b) {
+        return ((a - b) & 0xFFFFFFFFL) | (((a >>> 32) - (b >>> 32)) << 32);
+    }
+
+    public static long i32x4Mul(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            int x = (int) (a >>> i);
+            int y = (int) (b >>> i);
+            r |= ((long) (x * y) & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i32x4MinS(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            int x = (int) (a >>> i);
+            int y = (int) (b >>> i);
+            r |= ((long) (Math.min(x, y)) & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i32x4MaxS(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            int x = (int) (a >>> i);
+            int y = (int) (b >>> i);
+            r |= ((long) (Math.max(x, y)) & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i32x4MinU(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            int x = (int) (a >>> i);
+            int y = (int) (b >>> i);
+            r |= ((long) (Integer.compareUnsigned(x, y) < 0 ? x : y) & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i32x4MaxU(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            int x = (int) (a >>> i);
+            int y = (int) (b >>> i);
+            r |= ((long) (Integer.compareUnsigned(x, y) > 0 ? x : y) & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i32x4Eq(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            int x = (int) (a >>> i);
+            int y = (int) (b >>> i);
+            if (x == y) {
+                r |= 0xFFFFFFFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i32x4Ne(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            int x = (int) (a >>> i);
+            int y = (int) (b >>> i);
+            if (x != y) {
+                r |= 0xFFFFFFFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i32x4LtS(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            int x = (int) (a >>> i);
+            int y = (int) (b >>> i);
+            if (x < y) {
+                r |= 0xFFFFFFFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i32x4LtU(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            int x = (int) (a >>> i);
+            int y = (int) (b >>> i);
+            if (Integer.compareUnsigned(x, y) < 0) {
+                r |= 0xFFFFFFFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i32x4GtS(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            int x = (int) (a >>> i);
+            int y = (int) (b >>> i);
+            if (x > y) {
+                r |= 0xFFFFFFFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i32x4GtU(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            int x = (int) (a >>> i);
+            int y = (int) (b >>> i);
+            if (Integer.compareUnsigned(x, y) > 0) {
+                r |= 0xFFFFFFFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i32x4LeS(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            int x = (int) (a >>> i);
+            int y = (int) (b >>> i);
+            if (x <= y) {
+                r |= 0xFFFFFFFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i32x4LeU(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            int x = (int) (a >>> i);
+            int y = (int) (b >>> i);
+            if (Integer.compareUnsigned(x, y) <= 0) {
+                r |= 0xFFFFFFFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i32x4GeS(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            int x = (int) (a >>> i);
+            int y = (int) (b >>> i);
+            if (x >= y) {
+                r |= 0xFFFFFFFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i32x4GeU(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            int x = (int) (a >>> i);
+            int y = (int) (b >>> i);
+            if (Integer.compareUnsigned(x, y) >= 0) {
+                r |= 0xFFFFFFFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long i32x4Neg(long a) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            int x = (int) (a >>> i);
+            r |= ((long) (-x) & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i32x4Abs(long a) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            int x = (int) (a >>> i);
+            r |= ((long) (Math.abs(x)) & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i32x4Shl(long a, int s) {
+        s &= 31;
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            int x = (int) (a >>> i);
+            r |= ((long) (x << s) & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i32x4ShrS(long a, int s) {
+        s &= 31;
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            int x = (int) (a >>> i);
+            r |= ((long) (x >> s) & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i32x4ShrU(long a, int s) {
+        s &= 31;
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            int x = (int) (a >>> i);
+            r |= ((long) (x >>> s) & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    // ========= I64x2 =========
+
+    public static long i64x2Splat(long x) {
+        return x;
+    }
+
+    public static long i64x2ExtractLane(long half, int lane) {
+        return half;
+    }
+
+    public static long i64x2ReplaceLane(long half, long x, int lane) {
+        return x;
+    }
+
+    public static long i64x2Add(long a, long b) {
+        return a + b;
+    }
+
+    public static long i64x2Sub(long a, long b) {
+        return a - b;
+    }
+
+    public static long i64x2Mul(long a, long b) {
+        return a * b;
+    }
+
+    public static long i64x2Neg(long a) {
+        return -a;
+    }
+
+    public static long i64x2Abs(long a) {
+        return Math.abs(a);
+    }
+
+    public static long i64x2Shl(long a, int s) {
+        return a << s;
+    }
+
+    public static long i64x2ShrS(long a, int s) {
+        return a >> s;
+    }
+
+    public static long i64x2ShrU(long a, int s) {
+        return a >>> s;
+    }
+
+    public static long i64x2Eq(long a, long b) {
+        long x = a;
+        long y = b;
+        return (x == y) ? -1L : 0L;
+    }
+
+    public static long i64x2Ne(long a, long b) {
+        long x = a;
+        long y = b;
+        return (x != y) ? -1L : 0L;
+    }
+
+    public static long i64x2LtS(long a, long b) {
+        long x = a;
+        long y = b;
+        return (x < y) ? -1L : 0L;
+    }
+
+    public static long i64x2GtS(long a, long b) {
+        long x = a;
+        long y = b;
+        return (x > y) ? -1L : 0L;
+    }
+
+    public static long i64x2LeS(long a, long b) {
+        long x = a;
+        long y = b;
+        return (x <= y) ? -1L : 0L;
+    }
+
+    public static long i64x2GeS(long a, long b) {
+        long x = a;
+        long y = b;
+        return (x >= y) ? -1L : 0L;
+    }
+
+    // ========= Mixed shapes =========
+
+    public static long i8x16Popcnt(long a) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 8) {
+            r |= (long) Integer.bitCount((int) (a >>> i) & 0xFF) << i;
+        }
+        return r;
+    }
+
+    public static long i16x8Q15mulrSatS(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            int x = (short) (a >>> i);
+            int y = (short) (b >>> i);
+            int v = Math.min(32767, (x * y + 0x4000) >> 15);
+            r |= (v & 0xFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i32x4DotI16x8S(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            int x0 = (short) (a >>> i);
+            int x1 = (short) (a >>> (i + 16));
+            int y0 = (short) (b >>> i);
+            int y1 = (short) (b >>> (i + 16));
+            r |= ((x0 * y0 + x1 * y1) & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i16x8ExtaddPairwiseI8x16S(long a) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            int v = (byte) (a >>> i) + (byte) (a >>> (i + 8));
+            r |= (v & 0xFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i16x8ExtaddPairwiseI8x16U(long a) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 16) {
+            int v = ((int) (a >>> i) & 0xFF) + ((int) (a >>> (i + 8)) & 0xFF);
+            r |= (v & 0xFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i32x4ExtaddPairwiseI16x8S(long a) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            int v = (short) (a >>> i) + (short) (a >>> (i + 16));
+            r |= (v & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i32x4ExtaddPairwiseI16x8U(long a) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            int v = ((int) (a >>> i) & 0xFFFF) + ((int) (a >>> (i + 16)) & 0xFFFF);
+            r |= (v & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    // the narrowing methods take both halves of one operand and return one half
+
+    public static long i8x16NarrowI16x8S(long lo, long hi) {
+        long r = 0;
+        for (int i = 0; i < 8; i++) {
+            long half = i < 4 ? lo : hi;
+            int v = (short) (half >>> (16 * (i % 4)));
+            r |= (Math.max(-128, Math.min(127, v)) & 0xFFL) << (8 * i);
+        }
+        return r;
+    }
+
+    public static long i8x16NarrowI16x8U(long lo, long hi) {
+        long r = 0;
+        for (int i = 0; i < 8; i++) {
+            long half = i < 4 ? lo : hi;
+            int v = (short) (half >>> (16 * (i % 4)));
+            r |= (Math.max(0, Math.min(255, v)) & 0xFFL) << (8 * i);
+        }
+        return r;
+    }
+
+    public static long i16x8NarrowI32x4S(long lo, long hi) {
+        long r = 0;
+        for (int i = 0; i < 4; i++) {
+            long half = i < 2 ? lo : hi;
+            int v = (int) (half >>> (32 * (i % 2)));
+            r |= (Math.max(-32768, Math.min(32767, v)) & 0xFFFFL) << (16 * i);
+        }
+        return r;
+    }
+
+    public static long i16x8NarrowI32x4U(long lo, long hi) {
+        long r = 0;
+        for (int i = 0; i < 4; i++) {
+            long half = i < 2 ? lo : hi;
+            int v = (int) (half >>> (32 * (i % 2)));
+            r |= (Math.max(0, Math.min(65535, v)) & 0xFFFFL) << (16 * i);
+        }
+        return r;
+    }
+
+    // the widening methods take one half of the operands and return the low (part 0) or the
+    // high (part 1) half of the result
+
+    public static long i16x8ExtendI8x16S(long half, int part) {
+        long r = 0;
+        for (int i = 0; i < 4; i++) {
+            int shift = 8 * (4 * part + i);
+            long v = (byte) (half >>> shift);
+            r |= (v & 0xFFFFL) << (16 * i);
+        }
+        return r;
+    }
+
+    public static long i16x8ExtendI8x16U(long half, int part) {
+        long r = 0;
+        for (int i = 0; i < 4; i++) {
+            int shift = 8 * (4 * part + i);
+            long v = (half >>> shift) & 0xFFL;
+            r |= (v & 0xFFFFL) << (16 * i);
+        }
+        return r;
+    }
+
+    public static long i32x4ExtendI16x8S(long half, int part) {
+        long r = 0;
+        for (int i = 0; i < 2; i++) {
+            int shift = 16 * (2 * part + i);
+            long v = (short) (half >>> shift);
+            r |= (v & 0xFFFFFFFFL) << (32 * i);
+        }
+        return r;
+    }
+
+    public static long i32x4ExtendI16x8U(long half, int part) {
+        long r = 0;
+        for (int i = 0; i < 2; i++) {
+            int shift = 16 * (2 * part + i);
+            long v = (half >>> shift) & 0xFFFFL;
+            r |= (v & 0xFFFFFFFFL) << (32 * i);
+        }
+        return r;
+    }
+
+    public static long i64x2ExtendI32x4S(long half, int part) {
+        int shift = 32 * part;
+        return (int) (half >>> shift);
+    }
+
+    public static long i64x2ExtendI32x4U(long half, int part) {
+        int shift = 32 * part;
+        return (half >>> shift) & 0xFFFFFFFFL;
+    }
+
+    public static long i16x8ExtmulI8x16S(long a, long b, int part) {
+        long r = 0;
+        for (int i = 0; i < 4; i++) {
+            int shift = 8 * (4 * part + i);
+            long v = (byte) (a >>> shift) * (byte) (b >>> shift);
+            r |= (v & 0xFFFFL) << (16 * i);
+        }
+        return r;
+    }
+
+    public static long i16x8ExtmulI8x16U(long a, long b, int part) {
+        long r = 0;
+        for (int i = 0; i < 4; i++) {
+            int shift = 8 * (4 * part + i);
+            long v = ((a >>> shift) & 0xFFL) * ((b >>> shift) & 0xFFL);
+            r |= (v & 0xFFFFL) << (16 * i);
+        }
+        return r;
+    }
+
+    public static long i32x4ExtmulI16x8S(long a, long b, int part) {
+        long r = 0;
+        for (int i = 0; i < 2; i++) {
+            int shift = 16 * (2 * part + i);
+            long v = (short) (a >>> shift) * (short) (b >>> shift);
+            r |= (v & 0xFFFFFFFFL) << (32 * i);
+        }
+        return r;
+    }
+
+    public static long i32x4ExtmulI16x8U(long a, long b, int part) {
+        long r = 0;
+        for (int i = 0; i < 2; i++) {
+            int shift = 16 * (2 * part + i);
+            long v = ((a >>> shift) & 0xFFFFL) * ((b >>> shift) & 0xFFFFL);
+            r |= (v & 0xFFFFFFFFL) << (32 * i);
+        }
+        return r;
+    }
+
+    public static long i64x2ExtmulI32x4S(long a, long b, int part) {
+        int shift = 32 * part;
+        return (long) (int) (a >>> shift) * (int) (b >>> shift);
+    }
+
+    public static long i64x2ExtmulI32x4U(long a, long b, int part) {
+        int shift = 32 * part;
+        return ((a >>> shift) & 0xFFFFFFFFL) * ((b >>> shift) & 0xFFFFFFFFL);
+    }
+
+    public static long f64x2PromoteLowF32x4(long half, int part) {
+        return Double.doubleToRawLongBits(Float.intBitsToFloat((int) (half >>> (32 * part))));
+    }
+
+    public static long f64x2ConvertLowI32x4S(long half, int part) {
+        return Double.doubleToRawLongBits((int) (half >>> (32 * part)));
+    }
+
+    public static long f64x2ConvertLowI32x4U(long half, int part) {
+        return Double.doubleToRawLongBits((half >>> (32 * part)) & 0xFFFFFFFFL);
+    }
+
+    // the following take both halves of the f64x2 operand and return the low half of the
+    // result, the high half is zero
+
+    public static long f32x4DemoteF64x2Zero(long lo, long hi) {
+        long x = Float.floatToRawIntBits((float) Double.longBitsToDouble(lo)) & 0xFFFFFFFFL;
+        long y = Float.floatToRawIntBits((float) Double.longBitsToDouble(hi)) & 0xFFFFFFFFL;
+        return x | (y << 32);
+    }
+
+    public static long i32x4TruncSatF64x2SZero(long lo, long hi) {
+        long x = OpcodeImpl.I32_TRUNC_SAT_F64_S(Double.longBitsToDouble(lo)) & 0xFFFFFFFFL;
+        long y = OpcodeImpl.I32_TRUNC_SAT_F64_S(Double.longBitsToDouble(hi)) & 0xFFFFFFFFL;
+        return x | (y << 32);
+    }
+
+    public static long i32x4TruncSatF64x2UZero(long lo, long hi) {
+        long x = OpcodeImpl.I32_TRUNC_SAT_F64_U(Double.longBitsToDouble(lo)) & 0xFFFFFFFFL;
+        long y = OpcodeImpl.I32_TRUNC_SAT_F64_U(Double.longBitsToDouble(hi)) & 0xFFFFFFFFL;
+        return x | (y << 32);
+    }
+
+    public static long i32x4TruncSatF32x4S(long a) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            float x = Float.intBitsToFloat((int) (a >>> i));
+            r |= (OpcodeImpl.I32_TRUNC_SAT_F32_S(x) & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long i32x4TruncSatF32x4U(long a) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            float x = Float.intBitsToFloat((int) (a >>> i));
+            r |= (OpcodeImpl.I32_TRUNC_SAT_F32_U(x) & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long f32x4ConvertI32x4S(long a) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            float x = (int) (a >>> i);
+            r |= (Float.floatToRawIntBits(x) & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long f32x4ConvertI32x4U(long a) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            float x = OpcodeImpl.F32_CONVERT_I32_U((int) (a >>> i));
+            r |= (Float.floatToRawIntBits(x) & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    // ========= F32x4 =========
+
+    public static long f32x4Splat(float x) {
+        long bits = Float.floatToRawIntBits(x) & 0xFFFFFFFFL;
+        return bits | (bits << 32);
+    }
+
+    public static float f32x4ExtractLane(long half, int lane) {
+        return Float.intBitsToFloat((int) (half >>> (32 * lane)));
+    }
+
+    public static long f32x4ReplaceLane(long half, float x, int lane) {
+        return i32x4ReplaceLane(half, Float.floatToRawIntBits(x), lane);
+    }
+
+    public static long f32x4Abs(long a) {
+        return a & 0x7FFFFFFF7FFFFFFFL;
+    }
+
+    public static long f32x4Neg(long a) {
+        return a ^ 0x8000000080000000L;
+    }
+
+    public static long f32x4Add(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            float x = Float.intBitsToFloat((int) (a >>> i));
+            float y = Float.intBitsToFloat((int) (b >>> i));
+            r |= (Float.floatToRawIntBits(x + y) & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long f32x4Sub(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            float x = Float.intBitsToFloat((int) (a >>> i));
+            float y = Float.intBitsToFloat((int) (b >>> i));
+            r |= (Float.floatToRawIntBits(x - y) & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long f32x4Mul(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            float x = Float.intBitsToFloat((int) (a >>> i));
+            float y = Float.intBitsToFloat((int) (b >>> i));
+            r |= (Float.floatToRawIntBits(x * y) & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long f32x4Div(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            float x = Float.intBitsToFloat((int) (a >>> i));
+            float y = Float.intBitsToFloat((int) (b >>> i));
+            r |= (Float.floatToRawIntBits(x / y) & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long f32x4Min(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            float x = Float.intBitsToFloat((int) (a >>> i));
+            float y = Float.intBitsToFloat((int) (b >>> i));
+            r |= (Float.floatToRawIntBits(OpcodeImpl.F32_MIN(x, y)) & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long f32x4Max(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            float x = Float.intBitsToFloat((int) (a >>> i));
+            float y = Float.intBitsToFloat((int) (b >>> i));
+            r |= (Float.floatToRawIntBits(OpcodeImpl.F32_MAX(x, y)) & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long f32x4Pmin(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            float x = Float.intBitsToFloat((int) (a >>> i));
+            float y = Float.intBitsToFloat((int) (b >>> i));
+            r |= (Float.floatToRawIntBits(y < x ? y : x) & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long f32x4Pmax(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            float x = Float.intBitsToFloat((int) (a >>> i));
+            float y = Float.intBitsToFloat((int) (b >>> i));
+            r |= (Float.floatToRawIntBits(x < y ? y : x) & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long f32x4Eq(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            float x = Float.intBitsToFloat((int) (a >>> i));
+            float y = Float.intBitsToFloat((int) (b >>> i));
+            if (x == y) {
+                r |= 0xFFFFFFFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long f32x4Ne(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            float x = Float.intBitsToFloat((int) (a >>> i));
+            float y = Float.intBitsToFloat((int) (b >>> i));
+            if (x != y) {
+                r |= 0xFFFFFFFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long f32x4Lt(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            float x = Float.intBitsToFloat((int) (a >>> i));
+            float y = Float.intBitsToFloat((int) (b >>> i));
+            if (x < y) {
+                r |= 0xFFFFFFFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long f32x4Gt(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            float x = Float.intBitsToFloat((int) (a >>> i));
+            float y = Float.intBitsToFloat((int) (b >>> i));
+            if (x > y) {
+                r |= 0xFFFFFFFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long f32x4Le(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            float x = Float.intBitsToFloat((int) (a >>> i));
+            float y = Float.intBitsToFloat((int) (b >>> i));
+            if (x <= y) {
+                r |= 0xFFFFFFFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long f32x4Ge(long a, long b) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            float x = Float.intBitsToFloat((int) (a >>> i));
+            float y = Float.intBitsToFloat((int) (b >>> i));
+            if (x >= y) {
+                r |= 0xFFFFFFFFL << i;
+            }
+        }
+        return r;
+    }
+
+    public static long f32x4Sqrt(long a) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            float x = Float.intBitsToFloat((int) (a >>> i));
+            r |= (Float.floatToRawIntBits(OpcodeImpl.F32_SQRT(x)) & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long f32x4Ceil(long a) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            float x = Float.intBitsToFloat((int) (a >>> i));
+            r |= (Float.floatToRawIntBits(OpcodeImpl.F32_CEIL(x)) & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long f32x4Floor(long a) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            float x = Float.intBitsToFloat((int) (a >>> i));
+            r |= (Float.floatToRawIntBits(OpcodeImpl.F32_FLOOR(x)) & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long f32x4Trunc(long a) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            float x = Float.intBitsToFloat((int) (a >>> i));
+            r |= (Float.floatToRawIntBits(OpcodeImpl.F32_TRUNC(x)) & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    public static long f32x4Nearest(long a) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 32) {
+            float x = Float.intBitsToFloat((int) (a >>> i));
+            r |= (Float.floatToRawIntBits(OpcodeImpl.F32_NEAREST(x)) & 0xFFFFFFFFL) << i;
+        }
+        return r;
+    }
+
+    // ========= F64x2 =========
+
+    public static long f64x2Splat(double x) {
+        return Double.doubleToRawLongBits(x);
+    }
+
+    public static double f64x2ExtractLane(long half, int lane) {
+        return Double.longBitsToDouble(half);
+    }
+
+    public static long f64x2ReplaceLane(long half, double x, int lane) {
+        return Double.doubleToRawLongBits(x);
+    }
+
+    public static long f64x2Abs(long a) {
+        return a & Long.MAX_VALUE;
+    }
+
+    public static long f64x2Neg(long a) {
+        return a ^ Long.MIN_VALUE;
+    }
+
+    public static long f64x2Add(long a, long b) {
+        double x = Double.longBitsToDouble(a);
+        double y = Double.longBitsToDouble(b);
+        return Double.doubleToRawLongBits(x + y);
+    }
+
+    public static long f64x2Sub(long a, long b) {
+        double x = Double.longBitsToDouble(a);
+        double y = Double.longBitsToDouble(b);
+        return Double.doubleToRawLongBits(x - y);
+    }
+
+    public static long f64x2Mul(long a, long b) {
+        double x = Double.longBitsToDouble(a);
+        double y = Double.longBitsToDouble(b);
+        return Double.doubleToRawLongBits(x * y);
+    }
+
+    public static long f64x2Div(long a, long b) {
+        double x = Double.longBitsToDouble(a);
+        double y = Double.longBitsToDouble(b);
+        return Double.doubleToRawLongBits(x / y);
+    }
+
+    public static long f64x2Min(long a, long b) {
+        double x = Double.longBitsToDouble(a);
+        double y = Double.longBitsToDouble(b);
+        return Double.doubleToRawLongBits(OpcodeImpl.F64_MIN(x, y));
+    }
+
+    public static long f64x2Max(long a, long b) {
+        double x = Double.longBitsToDouble(a);
+        double y = Double.longBitsToDouble(b);
+        return Double.doubleToRawLongBits(OpcodeImpl.F64_MAX(x, y));
+    }
+
+    public static long f64x2Pmin(long a, long b) {
+        double x = Double.longBitsToDouble(a);
+        double y = Double.longBitsToDouble(b);
+        return Double.doubleToRawLongBits(y < x ? y : x);
+    }
+
+    public static long f64x2Pmax(long a, long b) {
+        double x = Double.longBitsToDouble(a);
+        double y = Double.longBitsToDouble(b);
+        return Double.doubleToRawLongBits(x < y ? y : x);
+    }
+
+    public static long f64x2Eq(long a, long b) {
+        double x = Double.longBitsToDouble(a);
+        double y = Double.longBitsToDouble(b);
+        return (x == y) ? -1L : 0L;
+    }
+
+    public static long f64x2Ne(long a, long b) {
+        double x = Double.longBitsToDouble(a);
+        double y = Double.longBitsToDouble(b);
+        return (x != y) ? -1L : 0L;
+    }
+
+    public static long f64x2Lt(long a, long b) {
+        double x = Double.longBitsToDouble(a);
+        double y = Double.longBitsToDouble(b);
+        return (x < y) ? -1L : 0L;
+    }
+
+    public static long f64x2Gt(long a, long b) {
+        double x = Double.longBitsToDouble(a);
+        double y = Double.longBitsToDouble(b);
+        return (x > y) ? -1L : 0L;
+    }
+
+    public static long f64x2Le(long a, long b) {
+        double x = Double.longBitsToDouble(a);
+        double y = Double.longBitsToDouble(b);
+        return (x <= y) ? -1L : 0L;
+    }
+
+    public static long f64x2Ge(long a, long b) {
+        double x = Double.longBitsToDouble(a);
+        double y = Double.longBitsToDouble(b);
+        return (x >= y) ? -1L : 0L;
+    }
+
+    public static long f64x2Sqrt(long a) {
+        return Double.doubleToRawLongBits(OpcodeImpl.F64_SQRT(Double.longBitsToDouble(a)));
+    }
+
+    public static long f64x2Ceil(long a) {
+        return Double.doubleToRawLongBits(OpcodeImpl.F64_CEIL(Double.longBitsToDouble(a)));
+    }
+
+    public static long f64x2Floor(long a) {
+        return Double.doubleToRawLongBits(OpcodeImpl.F64_FLOOR(Double.longBitsToDouble(a)));
+    }
+
+    public static long f64x2Trunc(long a) {
+        return Double.doubleToRawLongBits(OpcodeImpl.F64_TRUNC(Double.longBitsToDouble(a)));
+    }
+
+    public static long f64x2Nearest(long a) {
+        return Double.doubleToRawLongBits(OpcodeImpl.F64_NEAREST(Double.longBitsToDouble(a)));
+    }
+
+    // ========= Shuffles =========
+
+    // returns one half of the result, sel holds the lane indices of that half
+    public static long i8x16Shuffle(long aLo, long aHi, long bLo, long bHi, long sel) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 8) {
+            int s = (int) (sel >>> i) & 0x1F;
+            long half = s < 8 ? aLo : s < 16 ? aHi : s < 24 ? bLo : bHi;
+            r |= ((half >>> (8 * (s & 7))) & 0xFFL) << i;
+        }
+        return r;
+    }
+
+    // returns one half of the result, s holds the lane indices of that half
+    public static long i8x16Swizzle(long lo, long hi, long s) {
+        long r = 0;
+        for (int i = 0; i < 64; i += 8) {
+            int index = (int) (s >>> i) & 0xFF;
+            if (index < 16) {
+                long half = index < 8 ? lo : hi;
+                r |= ((half >>> (8 * (index & 7))) & 0xFFL) << i;
+            }
+        }
+        return r;
+    }
+}
@@ -0,0 +1,187 @@
+package com.dylibso.chicory.runtime.internal;
+
+import com.dylibso.chicory.runtime.ChicoryInterruptedException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The threads waiting in {@code memory.atomic.wait32/64} on the addresses of a shared memory.
+ * <p>
+ * The addresses are striped over a fixed number of buckets, each a queue of waiters guarded by
+ * a {@link ReentrantLock}, and the waiters are parked with {@link LockSupport}, so that waiting
+ * virtual threads don't pin their carrier and the memory doesn't keep a state per address.
+ * The atomic operations that can't be lock-free synchronize on a plain monitor per stripe
+ * instead, see {@link #monitor(int)}.
+ */
+public final class WaitQueues {
+
+    private static final int BUCKET_BITS = 6;
+
+    private static final class Waiter {
+        final int address;
+        final Thread thread;
+        // set by the notifying thread, when it removes the waiter from the queue
+        volatile boolean woken;
+        Waiter prev;
+        Waiter next;
+
+        Waiter(int address, Thread thread) {
+            this.address = address;
+            this.thread = thread;
+        }
+    }
+
+    // the waiters of the addresses of a stripe, in the order they started waiting
+    private static final class Bucket extends ReentrantLock {
+        private static final long serialVersionUID = 1L;
+
+        transient Waiter head;
+        transient Waiter tail;
+
+        void add(Waiter waiter) {
+            waiter.prev = tail;
+            if (tail == null) {
+                head = waiter;
+            } else {
+                tail.next = waiter;
+            }
+            tail = waiter;
+        }
+
+        void remove(Waiter waiter) {
+            if (waiter.prev == null) {
+                head = waiter.next;
+            } else {
+                waiter.prev.next = waiter.next;
+            }
+            if (waiter.next == null) {
+                tail = waiter.prev;
+            } else {
+                waiter.next.prev = waiter.prev;
+            }
+            waiter.prev = null;
+            waiter.next = null;
+        }
+    }
+
+    private final Bucket[] buckets = new Bucket[1 << BUCKET_BITS];
+    // not the buckets: synchronizing on a ReentrantLock ignores its lock() and unlock()
+    private final Object[] monitors = new Object[1 << BUCKET_BITS];
+
+    public WaitQueues() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new Bucket();
+            monitors[i] = new Object();
+        }
+    }
+
+    private static int stripe(int address) {
+        return (address * 0x9E3779B9) >>> (Integer.SIZE - BUCKET_BITS);
+    }
+
+    private Bucket bucket(int address) {
+        return buckets[stripe(address)];
+    }
+
+    /**
+     * Returns the monitor guarding the given address in the atomic operations that can't be
+     * lock-free.
+     */
+    public Object monitor(int address) {
+        return monitors[stripe(address)];
+    }
+
+    /**
+     * Waits on the address if the condition holds, until notified or for the timeout in
+     * nanoseconds, forever if negative.
+     *
+     * @return 0 if woken, 1 if the condition doesn't hold, 2 on timeout
+     */
+    public int await(int address, BooleanSupplier condition, long timeout) {
+        long deadline = (timeout < 0) ? Long.MAX_VALUE : System.nanoTime() + timeout;
+        var bucket = bucket(address);
+        var waiter = new Waiter(address, Thread.currentThread());
+
+        bucket.lock();
+        try {
+            // checking the condition and queuing must be atomic w.r.t. notify()
+            if (!condition.getAsBoolean()) {
+                return 1; // not-equal
+            }
+            bucket.add(waiter);
+        } finally {
+            bucket.unlock();
+        }
+
+        while (!waiter.woken) {
+            if (Thread.interrupted()) {
+                // a wakeup received meanwhile is consumed, as the thread leaves the wait
+                dequeue(bucket, waiter);
+                Thread.currentThread().interrupt();
+                throw new ChicoryInterruptedException("Thread interrupted");
+            }
+            if (timeout < 0) {
+                LockSupport.park(this);
+            } else {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return dequeue(bucket, waiter) ? 2 : 0; // timeout
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+        }
+        return 0; // woken
+    }
+
+    // removes the waiter if not woken yet, returns whether it was removed
+    private static boolean dequeue(Bucket bucket, Waiter waiter) {
+        bucket.lock();
+        try {
+            if (waiter.woken) {
+                return false;
+            }
+            bucket.remove(waiter);
+            return true;
+        } finally {
+            bucket.unlock();
+        }
+    }
+
+    /**
+     * Wakes up to {@code maxThreads} threads waiting on the address, all of them if negative,
+     * in the order they started waiting.
+     *
+     * @return the number of threads woken
+     */
+    public int notify(int address, int maxThreads) {
+        var bucket = bucket(address);
+        int woken = 0;
+        Waiter first = null;
+
+        bucket.lock();
+        try {
+            var waiter = bucket.head;
+            while (waiter != null && (maxThreads < 0 || woken < maxThreads)) {
+                var next = waiter.next;
+                if (waiter.address == address) {
+                    bucket.remove(waiter);
+                    waiter.woken = true;
+                    // chain the woken waiters, to unpark them once the lock is released
+                    waiter.next = first;
+                    first = waiter;
+                    woken++;
+                }
+                waiter = next;
+            }
+        } finally {
+            bucket.unlock();
+        }
+
+        while (first != null) {
+            LockSupport.unpark(first.thread);
+            first = first.next;
+        }
+        return woken;
+    }
+}
@@ -1,5 +1,6 @@
 module com.dylibso.chicory.runtime {
     requires transitive com.dylibso.chicory.wasm;
+    requires static jdk.jfr;
 
     exports com.dylibso.chicory.runtime;
     exports com.dylibso.chicory.runtime.alloc;
@@ -0,0 +1,92 @@
+package com.dylibso.chicory.runtime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.dylibso.chicory.corpus.CorpusResources;
+import com.dylibso.chicory.wasm.Parser;
+import com.dylibso.chicory.wasm.UninstantiableException;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+public class BacktraceTest {
+
+    private static Instance.Builder builder(String name) {
+        return Instance.builder(Parser.parse(CorpusResources.getResource("compiled/" + name)));
+    }
+
+    private static List<String> names(WasmBacktrace backtrace) {
+        return backtrace.frames().stream()
+                .map(WasmBacktrace.Frame::name)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void shouldTrapWithoutStackTrace() {
+        var builder = builder("trap.wat.wasm");
+        var exception = assertThrows(UninstantiableException.class, builder::build);
+        var trap = assertInstanceOf(TrapException.class, exception.getCause());
+
+        assertEquals(0, trap.getStackTrace().length);
+        assertNull(trap.backtrace());
+    }
+
+    @Test
+    public void shouldRecordTheBacktraceOfTraps() {
+        var builder = builder("trap.wat.wasm").withBacktraces(true);
+        var exception = assertThrows(UninstantiableException.class, builder::build);
+        var trap = assertInstanceOf(TrapException.class, exception.getCause());
+
+        assertEquals(List.of("trap", "innerFunc", "start"), names(trap.backtrace()));
+        assertEquals(
+                "\tat trap (wasm-function[0])\n"
+                        + "\tat innerFunc (wasm-function[1])\n"
+                        + "\tat start (wasm-function[2])\n",
+                trap.backtrace().toString());
+    }
+
+    @Test
+    public void shouldRecordTheBacktraceOfDecodedTraps() {
+        var builder =
+                builder("trap.wat.wasm")
+                        .withMachineFactory(DecodedInterpreterMachine::new)
+                        .withBacktraces(true);
+        var exception = assertThrows(UninstantiableException.class, builder::build);
+        var trap = assertInstanceOf(TrapException.class, exception.getCause());
+
+        assertEquals(List.of("trap", "innerFunc", "start"), names(trap.backtrace()));
+    }
+
+    @Test
+    public void shouldRecordTheBacktraceOfWasmExceptions() {
+        var instance = builder("exceptions.wat.wasm").withBacktraces(true).build();
+        var exception =
+                assertThrows(
+                        WasmException.class, () -> instance.export("catch-complex-1").apply(2));
+
+        assertEquals(0, exception.getStackTrace().length);
+        var frames = exception.backtrace().frames();
+        assertEquals(1, frames.size());
+        assertEquals(0, frames.get(0).funcId());
+    }
+
+    @Test
+    public void shouldRecordTheBacktraceOfInterpretedWasmExceptions() {
+        // the functions using exceptions are run by the fallback interpreter
+        var instance =
+                builder("exceptions.wat.wasm")
+                        .withMachineFactory(DecodedInterpreterMachine::new)
+                        .withBacktraces(true)
+                        .build();
+        var exception =
+                assertThrows(
+                        WasmException.class, () -> instance.export("catch-complex-1").apply(2));
+
+        var frames = exception.backtrace().frames();
+        assertEquals(1, frames.size());
+        assertEquals(0, frames.get(0).funcId());
+    }
+}
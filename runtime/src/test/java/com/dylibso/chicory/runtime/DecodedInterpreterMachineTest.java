@@ -0,0 +1,248 @@
+package com.dylibso.chicory.runtime;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.dylibso.chicory.corpus.CorpusResources;
+import com.dylibso.chicory.wasm.ChicoryException;
+import com.dylibso.chicory.wasm.Parser;
+import com.dylibso.chicory.wasm.UninstantiableException;
+import com.dylibso.chicory.wasm.WasmModule;
+import com.dylibso.chicory.wasm.types.FunctionType;
+import com.dylibso.chicory.wasm.types.ValType;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class DecodedInterpreterMachineTest {
+
+    private static WasmModule loadModule(String fileName) {
+        return Parser.parse(CorpusResources.getResource(fileName));
+    }
+
+    private static Instance.Builder builder(String fileName) {
+        return Instance.builder(loadModule(fileName))
+                .withMachineFactory(DecodedInterpreterMachine::new);
+    }
+
+    @Test
+    public void shouldComputeFactorial() {
+        var iterFact = builder("compiled/iterfact.wat.wasm").build().export("iterFact");
+        long expected = 1;
+        for (var i = 0; i < 10; i++) {
+            if (i > 1) {
+                expected *= i;
+            }
+            assertEquals(expected, iterFact.apply(i)[0]);
+        }
+    }
+
+    @Test
+    public void shouldFuseSuperinstructions() {
+        var instance = builder("compiled/iterfact.wat.wasm").build();
+        var code = FunctionDecoder.decode(instance, 0).code;
+        assertTrue(contains(code, DecodedOpCode.BR_IF_I32_EQZ));
+        assertTrue(contains(code, DecodedOpCode.LOCAL_GET_2));
+        assertTrue(contains(code, DecodedOpCode.I32_ADD_LOCAL_CONST));
+        assertEquals(120L, instance.export("iterFact").apply(5)[0]);
+    }
+
+    private static boolean contains(int[] code, int opcode) {
+        for (var value : code) {
+            if (value == opcode) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void shouldCallWithoutRecursion() {
+        var facSsa = builder("compiled/fac.wat.wasm").build().export("fac-ssa");
+        assertEquals(3628800L, facSsa.apply(10)[0]);
+    }
+
+    @Test
+    public void shouldLimitCallDepth() {
+        var facSsa =
+                Instance.builder(loadModule("compiled/fac.wat.wasm"))
+                        .withMachineFactory(instance -> new DecodedInterpreterMachine(instance, 0))
+                        .build()
+                        .export("fac-ssa");
+        var exception = assertThrows(ChicoryException.class, () -> facSsa.apply(10));
+        assertEquals("call stack exhausted", exception.getMessage());
+    }
+
+    @Test
+    public void shouldSupportBrTable() {
+        var switchLike = builder("compiled/br_table.wat.wasm").build().export("switch_like");
+        assertEquals(102, switchLike.apply(0)[0]);
+        assertEquals(101, switchLike.apply(1)[0]);
+        assertEquals(100, switchLike.apply(2)[0]);
+        assertEquals(103, switchLike.apply(-1)[0]);
+        assertEquals(103, switchLike.apply(3)[0]);
+        assertEquals(103, switchLike.apply(100)[0]);
+    }
+
+    @Test
+    public void shouldSupportBranching() {
+        var foo = builder("compiled/branching.wat.wasm").build().export("foo");
+        assertEquals(42, foo.apply(0)[0]);
+        assertEquals(99, foo.apply(1)[0]);
+        for (var i = 2; i < 100; i++) {
+            assertEquals(7, foo.apply(i)[0]);
+        }
+    }
+
+    @Test
+    public void shouldSupportGlobals() {
+        var doit = builder("compiled/globals.wat.wasm").build().export("doit");
+        assertEquals(42L, doit.apply(32)[0]);
+    }
+
+    @Test
+    public void shouldCountVowels() {
+        var instance = builder("compiled/count_vowels.rs.wasm").build();
+        var alloc = instance.export("alloc");
+        var dealloc = instance.export("dealloc");
+        var countVowels = instance.export("count_vowels");
+        var message = "Hello, World!";
+        var len = message.getBytes(UTF_8).length;
+        int ptr = (int) alloc.apply(len)[0];
+        instance.memory().writeString(ptr, message);
+        assertEquals(3L, countVowels.apply(ptr, len)[0]);
+        dealloc.apply(ptr, len);
+    }
+
+    @Test
+    public void shouldRunCompiledC() {
+        assertEquals(-679L, builder("compiled/complex.c.wasm").build().export("run").apply()[0]);
+        assertEquals(11L, builder("compiled/memory.c.wasm").build().export("run").apply()[0]);
+    }
+
+    @Test
+    public void shouldRunKitchenSink() {
+        var run = builder("compiled/kitchensink.wat.wasm").build().export("run");
+        assertEquals(6L, run.apply(100)[0]);
+    }
+
+    @Test
+    public void shouldSupportMultipleMemories() {
+        var run = builder("compiled/memories.wat.wasm").build().export("run");
+        assertEquals(-25438L, run.apply(100)[0]);
+    }
+
+    @Test
+    public void shouldCallHostFunctions() {
+        var count = new AtomicInteger();
+        var func =
+                new HostFunction(
+                        "console",
+                        "log",
+                        FunctionType.of(List.of(ValType.I32, ValType.I32), List.of()),
+                        (Instance instance, long... args) -> {
+                            var message =
+                                    instance.memory().readString((int) args[1], (int) args[0]);
+                            if ("Hello, World!".equals(message)) {
+                                count.incrementAndGet();
+                            }
+                            return null;
+                        });
+        var instance =
+                builder("compiled/host-function.wat.wasm")
+                        .withImportValues(ImportValues.builder().addFunction(func).build())
+                        .build();
+        instance.export("logIt").apply();
+        assertEquals(10, count.get());
+    }
+
+    @Test
+    public void shouldCallTypedHostFunctions() {
+        var count = new AtomicInteger();
+        var func =
+                new HostFunction(
+                        "console",
+                        "log",
+                        FunctionType.of(List.of(ValType.I32, ValType.I32), List.of()),
+                        (TypedFunctionHandle.Arity2Void)
+                                (Instance instance, long len, long offset) -> {
+                                    var message =
+                                            instance.memory().readString((int) offset, (int) len);
+                                    if ("Hello, World!".equals(message)) {
+                                        count.incrementAndGet();
+                                    }
+                                });
+        var instance =
+                builder("compiled/host-function.wat.wasm")
+                        .withImportValues(ImportValues.builder().addFunction(func).build())
+                        .build();
+        instance.export("logIt").apply();
+        assertEquals(10, count.get());
+        // the typed handle is still usable as a plain WasmFunctionHandle
+        assertNull(func.handle().apply(instance, 13, 0));
+        assertEquals(11, count.get());
+    }
+
+    @Test
+    public void shouldTrapOnUnreachable() {
+        var instanceBuilder = builder("compiled/trap.wat.wasm");
+        var uninstantiable = assertThrows(UninstantiableException.class, instanceBuilder::build);
+        assertInstanceOf(TrapException.class, uninstantiable.getCause());
+    }
+
+    @Test
+    public void shouldFallBackForTailCalls() {
+        var function =
+                builder("compiled/tail_call_compatible_signatures.wat.wasm")
+                        .build()
+                        .exports()
+                        .function("f");
+        assertEquals(33, function.apply(2, 3, 4, 5)[0]);
+        assertEquals(24, function.apply(5, 2, 3, 4)[0]);
+    }
+
+    @Test
+    public void shouldInterruptLoop() throws InterruptedException {
+        var function = builder("compiled/infinite-loop.c.wasm").build().export("run");
+        var interrupted = new AtomicBoolean();
+        Runnable runnable =
+                () -> {
+                    var e = assertThrows(ChicoryException.class, function::apply);
+                    assertEquals("Thread interrupted", e.getMessage());
+                    interrupted.set(true);
+                };
+
+        Thread thread = new Thread(runnable);
+        thread.start();
+        waitForDecodedExecution(thread);
+
+        thread.interrupt();
+        SECONDS.timedJoin(thread, 10);
+        assertTrue(interrupted.get());
+    }
+
+    private static void waitForDecodedExecution(Thread thread) throws InterruptedException {
+        long start = System.nanoTime();
+        while (true) {
+            if ((System.nanoTime() - start) >= SECONDS.toNanos(10)) {
+                throw new AssertionError("Timed out waiting for execution to start");
+            }
+
+            for (StackTraceElement element : thread.getStackTrace()) {
+                if (element.getClassName().equals(DecodedInterpreterMachine.class.getName())
+                        && element.getMethodName().equals("execute")) {
+                    return;
+                }
+            }
+
+            MILLISECONDS.sleep(10);
+        }
+    }
+}
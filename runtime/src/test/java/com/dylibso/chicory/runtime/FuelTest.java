@@ -0,0 +1,75 @@
+package com.dylibso.chicory.runtime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.dylibso.chicory.corpus.CorpusResources;
+import com.dylibso.chicory.wasm.Parser;
+import com.dylibso.chicory.wasm.WasmModule;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class FuelTest {
+
+    private static WasmModule module(String name) {
+        return Parser.parse(CorpusResources.getResource("compiled/" + name));
+    }
+
+    @Test
+    public void shouldNotMeterByDefault() {
+        var instance = Instance.builder(module("iterfact.wat.wasm")).build();
+
+        assertFalse(instance.isFuelMetered());
+        assertEquals(120, instance.export("iterFact").apply(5)[0]);
+    }
+
+    @Test
+    public void shouldConsumeFuelPerBasicBlock() {
+        var instance = Instance.builder(module("iterfact.wat.wasm")).withFuel(1000).build();
+        var iterFact = instance.export("iterFact");
+
+        assertTrue(instance.isFuelMetered());
+        assertEquals(120, iterFact.apply(5)[0]);
+        long consumedBy5 = 1000 - instance.fuel();
+        assertEquals(720, iterFact.apply(6)[0]);
+        long consumedBy6 = 1000 - consumedBy5 - instance.fuel();
+
+        // one more iteration of the loop: 10 instructions and the branch back
+        assertEquals(consumedBy5 + 11, consumedBy6);
+    }
+
+    @Test
+    public void shouldTrapOutOfFuel() {
+        var instance = Instance.builder(module("infinite-loop.c.wasm")).withFuel(10_000).build();
+
+        var e = assertThrows(TrapException.class, () -> instance.export("run").apply());
+        assertEquals("out of fuel", e.getMessage());
+        assertTrue(instance.fuel() >= 0);
+    }
+
+    @Test
+    public void shouldRefuelFromHandler() {
+        var refuels = new AtomicInteger();
+        var instance =
+                Instance.builder(module("power.c.wasm"))
+                        .withFuel(100)
+                        .withFuelHandler(i -> refuels.incrementAndGet() < 1000 ? 100 : 0)
+                        .build();
+
+        assertEquals(32, instance.export("run").apply(5)[0]);
+        assertTrue(refuels.get() > 0);
+        assertTrue(refuels.get() < 1000);
+    }
+
+    @Test
+    public void shouldResumeAfterAddingFuel() {
+        var instance = Instance.builder(module("iterfact.wat.wasm")).withFuel(10).build();
+        var iterFact = instance.export("iterFact");
+
+        assertThrows(TrapException.class, () -> iterFact.apply(5));
+        instance.addFuel(1000);
+        assertEquals(120, iterFact.apply(5)[0]);
+    }
+}
@@ -0,0 +1,88 @@
+package com.dylibso.chicory.runtime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.dylibso.chicory.corpus.CorpusResources;
+import com.dylibso.chicory.wasm.Parser;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+public class GuestProfilerTest {
+
+    private static Instance profiledInstance(String name, GuestProfiler profiler) {
+        return Instance.builder(Parser.parse(CorpusResources.getResource("compiled/" + name)))
+                .withProfiler(profiler)
+                .build();
+    }
+
+    @Test
+    public void shouldSampleTheInterpretedFunctions() {
+        var profiler = new GuestProfiler();
+        var instance = profiledInstance("infinite-loop.c.wasm", profiler);
+
+        try (var timer = Epoch.startTimer(Duration.ofMillis(1))) {
+            instance.setEpochDeadline(50);
+            assertThrows(ChicoryInterruptedException.class, () -> instance.export("run").apply());
+        }
+
+        var samples = profiler.samples();
+        assertTrue(samples.get("run.command_export;run") > 0, samples.toString());
+    }
+
+    @Test
+    public void shouldSampleTheDecodedFunctions() {
+        var profiler = new GuestProfiler();
+        var instance =
+                Instance.builder(
+                                Parser.parse(
+                                        CorpusResources.getResource(
+                                                "compiled/infinite-loop.c.wasm")))
+                        .withProfiler(profiler)
+                        .withMachineFactory(DecodedInterpreterMachine::new)
+                        .build();
+
+        try (var timer = Epoch.startTimer(Duration.ofMillis(1))) {
+            instance.setEpochDeadline(50);
+            assertThrows(ChicoryInterruptedException.class, () -> instance.export("run").apply());
+        }
+
+        var samples = profiler.samples();
+        assertTrue(samples.get("run.command_export;run") > 0, samples.toString());
+    }
+
+    @Test
+    public void shouldNotSampleWithoutTicks() {
+        var profiler = new GuestProfiler();
+        var instance = profiledInstance("power.c.wasm", profiler);
+
+        assertEquals(64, instance.export("run").apply(6)[0]);
+        assertTrue(profiler.samples().isEmpty());
+    }
+
+    @Test
+    public void shouldWriteCollapsedStacks() throws IOException {
+        var profiler = new GuestProfiler();
+        var instance = profiledInstance("power.c.wasm", profiler);
+
+        try (var timer = Epoch.startTimer(Duration.ofMillis(1))) {
+            while (profiler.samples().isEmpty()) {
+                instance.export("run").apply(10);
+            }
+        }
+
+        var out = new StringWriter();
+        profiler.writeCollapsedStacks(out);
+        for (var line : out.toString().split("\n")) {
+            assertTrue(line.matches("run\\.command_export(;[\\w.]+)* \\d+"), line);
+        }
+
+        profiler.reset();
+        assertFalse(out.toString().isEmpty());
+        assertTrue(profiler.samples().isEmpty());
+    }
+}
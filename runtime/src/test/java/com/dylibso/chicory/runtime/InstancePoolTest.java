@@ -0,0 +1,150 @@
+package com.dylibso.chicory.runtime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.dylibso.chicory.corpus.CorpusResources;
+import com.dylibso.chicory.wasm.Parser;
+import com.dylibso.chicory.wasm.WasmModule;
+import com.dylibso.chicory.wasm.types.MemoryLimits;
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class InstancePoolTest {
+
+    private static WasmModule loadModule(String fileName) {
+        return Parser.parse(CorpusResources.getResource(fileName));
+    }
+
+    private static Stream<Function<MemoryLimits, Memory>> memoryFactories() {
+        return Stream.of(ByteBufferMemory::new, ByteArrayMemory::new);
+    }
+
+    @ParameterizedTest
+    @MethodSource("memoryFactories")
+    public void shouldRestoreMemory(Function<MemoryLimits, Memory> memoryFactory) {
+        var template =
+                Instance.builder(loadModule("compiled/memory.wat.wasm"))
+                        .withMemoryFactory(memoryFactory)
+                        .build();
+        template.memory().writeI32(0, 42);
+        var pool = InstancePool.builder(template).build();
+
+        var instance = pool.acquire();
+        assertEquals(7L, instance.export("run32").apply(7)[0]);
+        assertEquals(1, instance.memory().grow(2));
+        instance.memory().writeI32(2 * 65536, 3);
+        pool.release(instance);
+
+        var restored = pool.acquire();
+        assertSame(instance, restored);
+        assertEquals(1, restored.memory().pages());
+        assertEquals(42, restored.memory().readInt(0));
+        assertEquals(1, restored.memory().grow(2));
+        assertEquals(0, restored.memory().readInt(2 * 65536));
+        assertEquals(42, template.memory().readInt(0));
+    }
+
+    @ParameterizedTest
+    @MethodSource("memoryFactories")
+    public void shouldForkConcurrently(Function<MemoryLimits, Memory> memoryFactory)
+            throws Exception {
+        var template =
+                Instance.builder(loadModule("compiled/memory.wat.wasm"))
+                        .withMemoryFactory(memoryFactory)
+                        .build();
+        template.memory().writeI32(0, 42);
+        var pool = InstancePool.builder(template).build();
+
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var results = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < 64; i++) {
+                int value = i;
+                results.add(
+                        executor.submit(
+                                () -> {
+                                    var instance = pool.acquire();
+                                    int previous = instance.memory().readInt(0);
+                                    instance.memory().writeI32(0, value);
+                                    pool.release(instance);
+                                    return previous;
+                                }));
+            }
+            for (var result : results) {
+                assertEquals(42, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(42, template.memory().readInt(0));
+    }
+
+    @Test
+    public void shouldRestoreGlobals() {
+        var pool =
+                InstancePool.builder(
+                                Instance.builder(loadModule("compiled/exports.wat.wasm")).build())
+                        .build();
+
+        var instance = pool.acquire();
+        instance.exports().global("glob1").setValue(1);
+        pool.release(instance);
+
+        assertEquals(42L, pool.acquire().export("get-1").apply()[0]);
+    }
+
+    @Test
+    public void shouldClearTheEpochDeadline() {
+        var pool =
+                InstancePool.builder(
+                                Instance.builder(loadModule("compiled/exports.wat.wasm")).build())
+                        .build();
+
+        var instance = pool.acquire();
+        instance.setEpochDeadline(0);
+        assertThrows(ChicoryInterruptedException.class, () -> instance.export("get-1").apply());
+        pool.release(instance);
+
+        assertEquals(42L, pool.acquire().export("get-1").apply()[0]);
+    }
+
+    @Test
+    public void shouldKeepAtMostMaxIdleInstances() {
+        var template = Instance.builder(loadModule("compiled/memory.wat.wasm")).build();
+        var pool = InstancePool.builder(template).withMaxIdle(1).build();
+
+        var first = pool.acquire();
+        var second = pool.acquire();
+        pool.release(first);
+        pool.release(second);
+
+        assertSame(first, pool.acquire());
+        assertNotSame(second, pool.acquire());
+        assertThrows(IllegalArgumentException.class, () -> pool.release(template));
+    }
+
+    @Test
+    public void shouldRejectInstancesNotCheckedOut() {
+        var template = Instance.builder(loadModule("compiled/memory.wat.wasm")).build();
+        var pool = InstancePool.builder(template).build();
+        var other = InstancePool.builder(template).build();
+
+        var instance = pool.acquire();
+        assertThrows(IllegalArgumentException.class, () -> other.release(instance));
+        assertThrows(IllegalArgumentException.class, () -> pool.release(template.fork()));
+        pool.release(instance);
+        assertThrows(IllegalArgumentException.class, () -> pool.release(instance));
+        // the double release didn't hand the instance out twice
+        assertSame(instance, pool.acquire());
+        assertNotSame(instance, pool.acquire());
+    }
+}
@@ -0,0 +1,85 @@
+package com.dylibso.chicory.runtime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.dylibso.chicory.corpus.CorpusResources;
+import com.dylibso.chicory.wasm.Parser;
+import com.dylibso.chicory.wasm.WasmModule;
+import com.dylibso.chicory.wasm.types.DataSegment;
+import com.dylibso.chicory.wasm.types.MemoryLimits;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class InstanceTest {
+
+    private static WasmModule loadModule(String fileName) {
+        return Parser.parse(CorpusResources.getResource(fileName));
+    }
+
+    private static Stream<Function<MemoryLimits, Memory>> memoryFactories() {
+        return Stream.of(ByteBufferMemory::new, ByteArrayMemory::new);
+    }
+
+    @ParameterizedTest
+    @MethodSource("memoryFactories")
+    public void shouldForkMemoryCopyOnWrite(Function<MemoryLimits, Memory> memoryFactory) {
+        var template =
+                Instance.builder(loadModule("compiled/memory.wat.wasm"))
+                        .withMemoryFactory(memoryFactory)
+                        .build();
+        template.export("run32").apply(42);
+        template.memory().writeI32(65536 - 8, 1);
+
+        var fork = template.fork();
+        assertEquals(42, fork.memory().readInt(0));
+
+        assertEquals(7L, fork.export("run32").apply(7)[0]);
+        fork.memory().fill((byte) 2, 65536 - 8, 65536);
+        template.memory().writeI32(4, 9);
+
+        assertEquals(42, template.memory().readInt(0));
+        assertEquals(1, template.memory().readInt(65536 - 8));
+        assertEquals(7, fork.memory().readInt(0));
+        assertEquals(0, fork.memory().readInt(4));
+        assertEquals(0x02020202, fork.memory().readInt(65536 - 8));
+
+        // a fork of a fork keeps its own copy too
+        var second = fork.fork();
+        second.memory().writeI32(0, 3);
+        assertEquals(7, fork.memory().readInt(0));
+        assertEquals(3, second.memory().readInt(0));
+    }
+
+    @ParameterizedTest
+    @MethodSource("memoryFactories")
+    public void shouldForkWritableBuffersCopyOnWrite(Function<MemoryLimits, Memory> memoryFactory) {
+        var memory = memoryFactory.apply(new MemoryLimits(1));
+        var fork = memory.fork(new DataSegment[0]);
+
+        fork.buffers(0, 4)[0].putInt(0, 5);
+
+        assertEquals(0, memory.readInt(0));
+        assertEquals(5, fork.readInt(0));
+    }
+
+    @Test
+    public void shouldCopyGlobalsAndTables() {
+        var template = Instance.builder(loadModule("compiled/exports.wat.wasm")).build();
+        var fork = template.fork();
+
+        fork.exports().global("glob1").setValue(1);
+        assertEquals(42, template.exports().global("glob1").getValue());
+        assertEquals(1L, fork.export("get-1").apply()[0]);
+
+        var indirect =
+                Instance.builder(loadModule("compiled/call_indirect-export.wat.wasm")).build();
+        var indirectFork = indirect.fork();
+        assertSame(indirectFork, indirectFork.table(0).instance(0));
+        assertSame(indirect, indirect.table(0).instance(0));
+        assertEquals(42L, indirectFork.export("call-self").apply()[0]);
+    }
+}
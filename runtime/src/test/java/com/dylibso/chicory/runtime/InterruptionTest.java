@@ -9,6 +9,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import com.dylibso.chicory.corpus.CorpusResources;
 import com.dylibso.chicory.wasm.ChicoryException;
 import com.dylibso.chicory.wasm.Parser;
+import java.time.Duration;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.junit.jupiter.api.Test;
 
@@ -34,6 +35,62 @@ public class InterruptionTest {
         assertInterruption(() -> function.apply(100));
     }
 
+    @Test
+    public void shouldInterruptLoopAtEpochDeadline() {
+        var instance =
+                Instance.builder(
+                                Parser.parse(
+                                        CorpusResources.getResource(
+                                                "compiled/infinite-loop.c.wasm")))
+                        .build();
+        var function = instance.export("run");
+
+        try (var timer = Epoch.startTimer(Duration.ofMillis(1))) {
+            instance.setEpochDeadline(10);
+            var e = assertThrows(ChicoryInterruptedException.class, function::apply);
+            assertEquals("Epoch deadline reached", e.getMessage());
+        }
+    }
+
+    @Test
+    public void shouldCheckThreadAgainWithoutEpochDeadline() throws InterruptedException {
+        var instance =
+                Instance.builder(Parser.parse(CorpusResources.getResource("compiled/power.c.wasm")))
+                        .build();
+        var function = instance.export("run");
+
+        instance.setEpochDeadline(0);
+        assertThrows(ChicoryInterruptedException.class, () -> function.apply(100));
+        instance.clearEpochDeadline();
+        assertInterruption(() -> function.apply(100));
+    }
+
+    @Test
+    public void shouldCheckThreadWithEpochDeadline() throws InterruptedException {
+        var instance =
+                Instance.builder(Parser.parse(CorpusResources.getResource("compiled/power.c.wasm")))
+                        .build();
+        var function = instance.export("run");
+
+        instance.setEpochDeadline(Long.MAX_VALUE);
+        assertInterruption(() -> function.apply(100));
+    }
+
+    @Test
+    public void shouldCheckThreadOncePerTick() throws InterruptedException {
+        var instance =
+                Instance.builder(
+                                Parser.parse(
+                                        CorpusResources.getResource(
+                                                "compiled/infinite-loop.c.wasm")))
+                        .build();
+        var function = instance.export("run");
+
+        try (var timer = Epoch.startTimer(Duration.ofMillis(1))) {
+            assertInterruption(function::apply);
+        }
+    }
+
     private static void assertInterruption(Runnable function) throws InterruptedException {
         AtomicBoolean interrupted = new AtomicBoolean();
         Runnable runnable =
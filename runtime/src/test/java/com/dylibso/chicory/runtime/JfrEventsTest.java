@@ -0,0 +1,154 @@
+package com.dylibso.chicory.runtime;
+
+import static java.util.stream.Collectors.counting;
+import static java.util.stream.Collectors.groupingBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.dylibso.chicory.corpus.CorpusResources;
+import com.dylibso.chicory.wasm.Parser;
+import com.dylibso.chicory.wasm.types.FunctionType;
+import com.dylibso.chicory.wasm.types.ValType;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class JfrEventsTest {
+
+    private static final List<String> EVENTS =
+            List.of("Parse", "Validate", "Instantiate", "MemoryGrow", "HostCall");
+
+    @TempDir Path tempDir;
+
+    @BeforeEach
+    public void checkJfr() {
+        // e.g. not readable on the module path
+        var jfr = ModuleLayer.boot().findModule("jdk.jfr");
+        assumeTrue(jfr.isPresent() && getClass().getModule().canRead(jfr.get()));
+    }
+
+    private static void run() {
+        var module = Parser.parse(CorpusResources.getResource("compiled/host-function.wat.wasm"));
+        var log =
+                new HostFunction(
+                        "console",
+                        "log",
+                        FunctionType.of(List.of(ValType.I32, ValType.I32), List.of()),
+                        (instance, args) -> {
+                            instance.memory().grow(1);
+                            return null;
+                        });
+        Instance.builder(module)
+                .withImportValues(ImportValues.builder().addFunction(log).build())
+                .build()
+                .export("logIt")
+                .apply();
+    }
+
+    private List<RecordedEvent> record(Recording recording) throws IOException {
+        var file = tempDir.resolve("recording.jfr");
+        recording.start();
+        run();
+        recording.stop();
+        recording.dump(file);
+        return RecordingFile.readAllEvents(file);
+    }
+
+    @Test
+    public void shouldRecordTheEnabledEvents() throws IOException {
+        List<RecordedEvent> events;
+        try (var recording = new Recording()) {
+            for (var event : EVENTS) {
+                recording.enable("com.dylibso.chicory." + event);
+            }
+            events = record(recording);
+        }
+
+        Map<String, Long> counts =
+                events.stream().collect(groupingBy(e -> e.getEventType().getName(), counting()));
+        assertEquals(1, counts.get("com.dylibso.chicory.Parse"));
+        assertEquals(1, counts.get("com.dylibso.chicory.Validate"));
+        assertEquals(1, counts.get("com.dylibso.chicory.Instantiate"));
+        assertEquals(10, counts.get("com.dylibso.chicory.MemoryGrow"));
+        assertEquals(10, counts.get("com.dylibso.chicory.HostCall"));
+
+        for (var event : events) {
+            switch (event.getEventType().getName()) {
+                case "com.dylibso.chicory.Parse":
+                    assertTrue(event.getString("moduleDigest").startsWith("sha-256:"));
+                    assertEquals(
+                            Files.size(
+                                    Path.of(
+                                            "../wasm-corpus/src/main/resources/compiled/"
+                                                    + "host-function.wat.wasm")),
+                            event.getLong("size"));
+                    break;
+                case "com.dylibso.chicory.MemoryGrow":
+                    assertTrue(event.getBoolean("succeeded"));
+                    assertEquals(65536, event.getLong("deltaSize"));
+                    break;
+                case "com.dylibso.chicory.HostCall":
+                    assertEquals("console.log", event.getString("functionName"));
+                    assertEquals(0, event.getInt("functionIndex"));
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    @Test
+    public void shouldRecordTheHostCallsThatThrow() throws IOException {
+        var module = Parser.parse(CorpusResources.getResource("compiled/host-function.wat.wasm"));
+        var log =
+                new HostFunction(
+                        "console",
+                        "log",
+                        FunctionType.of(List.of(ValType.I32, ValType.I32), List.of()),
+                        (instance, args) -> {
+                            throw new IllegalStateException("failed");
+                        });
+        var logIt =
+                Instance.builder(module)
+                        .withImportValues(ImportValues.builder().addFunction(log).build())
+                        .build()
+                        .export("logIt");
+
+        var file = tempDir.resolve("recording.jfr");
+        try (var recording = new Recording()) {
+            recording.enable("com.dylibso.chicory.HostCall");
+            recording.start();
+            assertThrows(IllegalStateException.class, logIt::apply);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        var events = RecordingFile.readAllEvents(file);
+        assertEquals(1, events.size());
+        assertEquals("console.log", events.get(0).getString("functionName"));
+    }
+
+    @Test
+    public void shouldBeDisabledByDefault() throws Exception {
+        List<RecordedEvent> events;
+        try (var recording = new Recording(Configuration.getConfiguration("profile"))) {
+            events = record(recording);
+        }
+
+        assertTrue(
+                events.stream()
+                        .noneMatch(
+                                e -> e.getEventType().getName().startsWith("com.dylibso.chicory")));
+    }
+}
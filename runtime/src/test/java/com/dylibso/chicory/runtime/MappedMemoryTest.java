@@ -0,0 +1,68 @@
+package com.dylibso.chicory.runtime;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.dylibso.chicory.wasm.types.MemoryLimits;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MappedMemoryTest {
+
+    @TempDir Path tempDir;
+
+    private Path image(int pages) throws IOException {
+        var memory = new ByteArrayMemory(new MemoryLimits(pages, pages));
+        memory.writeI32(0, 42);
+        memory.writeLong(65536 - 4, 0x0102030405060708L);
+        var file = tempDir.resolve("memory.img");
+        MappedMemory.writeImage(memory, file);
+        return file;
+    }
+
+    @Test
+    public void shouldMapImagePrivately() throws IOException {
+        var file = image(2);
+        var mapped = MappedMemory.builder(file).build();
+
+        var memory = mapped.memory(new MemoryLimits(3, 4));
+        assertEquals(3, memory.pages());
+        assertEquals(42, memory.readInt(0));
+        assertEquals(0x0102030405060708L, memory.readLong(65536 - 4));
+
+        memory.writeI32(0, 7);
+        memory.copy(2 * 65536, 0, 8);
+        assertEquals(7, memory.readInt(2 * 65536));
+        memory.fill((byte) 1, 65536 - 8, 65536 + 8);
+        assertEquals(0x0101010101010101L, memory.readLong(65536 - 4));
+
+        // the other memories and the file are unchanged
+        assertEquals(42, mapped.memory(new MemoryLimits(2)).readInt(0));
+        assertEquals(42, Files.readAllBytes(file)[0]);
+    }
+
+    @Test
+    public void shouldWriteThroughSharedMapping() throws IOException {
+        var file = image(2);
+        var mapped = MappedMemory.builder(file).withMapMode(FileChannel.MapMode.READ_WRITE).build();
+
+        var memory = mapped.memory(new MemoryLimits(2));
+        memory.writeI32(0, 7);
+
+        assertEquals(7, mapped.memory(new MemoryLimits(2)).readInt(0));
+    }
+
+    @Test
+    public void shouldReadPartialLastPage() throws IOException {
+        var file = tempDir.resolve("partial.img");
+        Files.write(file, new byte[] {1, 2, 3});
+
+        var memory = MappedMemory.builder(file).build().memory(new MemoryLimits(1));
+
+        assertArrayEquals(new byte[] {1, 2, 3, 0}, memory.readBytes(0, 4));
+    }
+}
@@ -1,12 +1,24 @@
 package com.dylibso.chicory.runtime;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.dylibso.chicory.runtime.internal.WaitQueues;
 import com.dylibso.chicory.wasm.types.MemoryLimits;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -165,4 +177,146 @@ public class MemoryTest {
         // Source should be unchanged
         assertArrayEquals(data, memory.readBytes(100, data.length));
     }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("memoryImplementations")
+    public void buffersCrossPageBoundary(String name, Supplier<Memory> memorySupplier) {
+        var memory = memorySupplier.get();
+
+        int addr = 65536 - 3;
+        byte[] data = {1, 2, 3, 4, 5, 6, 7, 8};
+        memory.write(addr, data, 0, data.length);
+
+        var buffers = memory.buffers(addr, data.length);
+        assertEquals(2, buffers.length);
+        assertEquals(3, buffers[0].remaining());
+        assertEquals(5, buffers[1].remaining());
+        assertEquals(4, buffers[1].get(0));
+
+        // writes through the views land in the memory
+        buffers[0].put(0, (byte) 42);
+        buffers[1].putInt(1, 0x0A0B0C0D);
+        assertEquals(42, memory.read(addr));
+        assertEquals(0x0A0B0C0D, memory.readInt(65536 + 1));
+
+        var readOnly = memory.readOnlyBuffers(addr, data.length);
+        assertTrue(readOnly[0].isReadOnly());
+        assertEquals(42, readOnly[0].get(0));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("memoryImplementations")
+    public void transferToAndReadFromChannels(String name, Supplier<Memory> memorySupplier)
+            throws IOException {
+        var memory = memorySupplier.get();
+
+        byte[] data = new byte[70000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        int addr = 1000;
+        var in = Channels.newChannel(new ByteArrayInputStream(data));
+        assertEquals(data.length, memory.readFrom(in, addr, data.length));
+        assertEquals(-1, memory.readFrom(in, addr, 10));
+        assertArrayEquals(data, memory.readBytes(addr, data.length));
+
+        var out = new ByteArrayOutputStream();
+        assertEquals(data.length, memory.transferTo(addr, data.length, Channels.newChannel(out)));
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("memoryImplementations")
+    public void subwordAtomicsKeepNeighbouringBytes(String name, Supplier<Memory> memorySupplier) {
+        var memory = memorySupplier.get();
+        int addr = Memory.PAGE_SIZE - 8;
+        memory.writeLong(addr, 0x0807060504030201L);
+
+        assertEquals(0x02, memory.atomicAddByte(addr + 1, (byte) 0x10));
+        assertEquals(0x03, memory.atomicXchgByte(addr + 2, (byte) 0xFF));
+        assertEquals(0x04, memory.atomicCmpxchgByte(addr + 3, (byte) 0x04, (byte) 0x40));
+        assertEquals(0x40, memory.atomicCmpxchgByte(addr + 3, (byte) 0x04, (byte) 0x00));
+        assertEquals(0x0605, memory.atomicOrShort(addr + 4, (short) 0xF000));
+        assertEquals(0x0807, memory.atomicAndShort(addr + 6, (short) 0x00FF));
+        memory.atomicWriteByte(addr, (byte) 0x7F);
+
+        assertEquals(0x0007F605_40FF127FL, memory.atomicReadLong(addr));
+        assertEquals((byte) 0xFF, memory.atomicReadByte(addr + 2));
+        assertEquals((short) 0xF605, memory.atomicReadShort(addr + 4));
+        assertEquals(0, memory.readLong(addr + 8));
+    }
+
+    @Test
+    public void atomicFallbacksSynchronizeOnPlainMonitors() {
+        // synchronizing on a java.util.concurrent lock would bypass it
+        var waitQueues = new WaitQueues();
+        for (int address = 0; address < 1024; address += 4) {
+            assertFalse(waitQueues.monitor(address) instanceof Lock);
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("growableMemoryImplementations")
+    public void concurrentAtomicUpdates(String name, Supplier<Memory> memorySupplier) {
+        var memory = memorySupplier.get();
+        int threads = 4;
+        int iterations = 10_000;
+
+        // every thread adds to the same int, and to its own byte of the next int
+        var futures = new CompletableFuture<?>[threads];
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            futures[t] =
+                    CompletableFuture.runAsync(
+                            () -> {
+                                for (int i = 0; i < iterations; i++) {
+                                    memory.atomicAddInt(0, 1);
+                                    memory.atomicAddByte(4 + id, (byte) 1);
+                                }
+                            });
+        }
+        CompletableFuture.allOf(futures).join();
+
+        assertEquals(threads * iterations, memory.atomicReadInt(0));
+        for (int t = 0; t < threads; t++) {
+            assertEquals((byte) iterations, memory.atomicReadByte(4 + t));
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("growableMemoryImplementations")
+    public void waitAndNotify(String name, Supplier<Memory> memorySupplier) throws Exception {
+        var memory = memorySupplier.get();
+        memory.atomicWriteInt(4, 1);
+
+        assertEquals(1, memory.atomicWait(0, 1, -1)); // not-equal
+        assertEquals(2, memory.atomicWait(0, 0, TimeUnit.MILLISECONDS.toNanos(10))); // timeout
+        assertEquals(0, memory.atomicNotify(0, -1));
+
+        // 8 threads waiting on the first address, 2 on the second one
+        var waiters = new ArrayList<CompletableFuture<Integer>>();
+        var threads = new ArrayList<Thread>();
+        for (int i = 0; i < 10; i++) {
+            int addr = i < 8 ? 0 : 4;
+            var result = new CompletableFuture<Integer>();
+            var thread = new Thread(() -> result.complete(memory.atomicWait(addr, addr / 4, -1)));
+            thread.start();
+            waiters.add(result);
+            threads.add(thread);
+        }
+        // parked in the wait queues, not on one of their locks
+        for (var thread : threads) {
+            while (!(LockSupport.getBlocker(thread) instanceof WaitQueues)) {
+                Thread.sleep(1);
+            }
+        }
+
+        assertEquals(3, memory.atomicNotify(0, 3));
+        assertEquals(5, memory.atomicNotify(0, -1));
+        assertEquals(0, memory.atomicNotify(0, -1));
+        assertEquals(2, memory.atomicNotify(4, 10));
+        for (var waiter : waiters) {
+            assertEquals(0, waiter.get(5, TimeUnit.SECONDS));
+        }
+    }
 }
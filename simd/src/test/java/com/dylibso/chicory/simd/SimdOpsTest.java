@@ -0,0 +1,146 @@
+package com.dylibso.chicory.simd;
+
+import static com.dylibso.chicory.wasm.types.Value.doubleToLong;
+import static com.dylibso.chicory.wasm.types.Value.floatToLong;
+import static com.dylibso.chicory.wasm.types.Value.longToDouble;
+import static com.dylibso.chicory.wasm.types.Value.longToFloat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.dylibso.chicory.corpus.CorpusResources;
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.runtime.WasmRuntimeException;
+import com.dylibso.chicory.wasm.Parser;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class SimdOpsTest {
+
+    private static Instance ops;
+
+    @BeforeAll
+    public static void instantiateOps() {
+        var module = Parser.parse(CorpusResources.getResource("compiled/simd-ops.wat.wasm"));
+        ops = Instance.builder(module).withMachineFactory(SimdInterpreterMachine::new).build();
+    }
+
+    private static int i32(String name, long... args) {
+        return (int) ops.export(name).apply(args)[0];
+    }
+
+    private static long i64(String name, long... args) {
+        return ops.export(name).apply(args)[0];
+    }
+
+    private static float f32(String name, long... args) {
+        return longToFloat(ops.export(name).apply(args)[0]);
+    }
+
+    private static double f64(String name, long... args) {
+        return longToDouble(ops.export(name).apply(args)[0]);
+    }
+
+    @Test
+    public void integerArithmetic() {
+        assertEquals(44, i32("i8x16_add", 200, 100));
+        assertEquals(0, i32("i8x16_add", 255, 1));
+        assertEquals(255, i32("i8x16_add_sat_u", 200, 100));
+        assertEquals(3, i32("i8x16_add_sat_u", 1, 2));
+        assertEquals(127, i32("i8x16_add_sat_s", 100, 100));
+        assertEquals(-128, i32("i8x16_add_sat_s", -100, -100));
+        assertEquals(-32768, i32("i16x8_sub_sat_s", -30000, 10000));
+        assertEquals(32767, i32("i16x8_sub_sat_s", 30000, -10000));
+        assertEquals(21, i32("i32x4_mul"));
+        assertEquals(Long.MIN_VALUE, i64("i64x2_add", Long.MAX_VALUE, 1));
+        assertEquals(2, i32("i16x8_avgr_u", 1, 2));
+        assertEquals(32768, i32("i16x8_avgr_u", 0, 65535));
+        assertEquals(1, i32("i32x4_min_u", -1, 1));
+        assertEquals(-128, i32("i8x16_abs", -128));
+        assertEquals(5, i32("i8x16_abs", -5));
+        assertEquals(8, i32("i8x16_popcnt", 0xFF));
+        assertEquals(4, i32("i8x16_popcnt", 0x55));
+    }
+
+    @Test
+    public void shifts() {
+        assertEquals(2, i32("i32x4_shl", 1, 33));
+        assertEquals(-64, i32("i8x16_shr_s", -128, 9));
+        assertEquals(1L, i64("i64x2_shr_u", -1L, 63));
+    }
+
+    @Test
+    public void wideningAndNarrowing() {
+        assertEquals(0x7F80, i32("i8x16_narrow_i16x8_s", 300, -300));
+        assertEquals(-1, i32("i16x8_extend_low_i8x16_s", 0xFF));
+        assertEquals(255, i32("i16x8_extend_high_i8x16_u", 0xFF));
+        assertEquals(-60000, i32("i32x4_extmul_low_i16x8_s", -2, 30000));
+        assertEquals(24, i32("i32x4_dot_i16x8_s", 3, 4));
+        assertEquals(Integer.MIN_VALUE, i32("i32x4_dot_i16x8_s", -32768, -32768));
+        assertEquals(32767, i32("i16x8_q15mulr_sat_s", -32768, -32768));
+        assertEquals(8192, i32("i16x8_q15mulr_sat_s", 16384, 16384));
+        assertEquals(510, i32("i16x8_extadd_pairwise_i8x16_u", 255));
+    }
+
+    @Test
+    public void comparisonsAndReductions() {
+        assertEquals(0b1001, i32("i32x4_lt_s_bitmask"));
+        assertEquals(0b0100, i32("i32x4_lt_u_bitmask"));
+        assertEquals(0x8001, i32("i8x16_bitmask"));
+        assertEquals(10, i32("reductions"));
+        assertEquals(0L, i64("f64x2_eq", doubleToLong(Double.NaN), doubleToLong(Double.NaN)));
+        assertEquals(-1L, i64("f64x2_ne", doubleToLong(Double.NaN), doubleToLong(Double.NaN)));
+        assertEquals(-1L, i64("f64x2_eq", doubleToLong(0.0), doubleToLong(-0.0)));
+    }
+
+    @Test
+    public void lanesAndShuffles() {
+        assertEquals((31 << 8) | 1, i32("i8x16_shuffle"));
+        // out of range indices select zero
+        assertEquals(13 << 8, i32("i8x16_swizzle"));
+        assertEquals(0x2345, i32("i16x8_replace_lane", 0x12345));
+        assertEquals(0xFF0000FF, i32("v128_bitselect", 0xFF00FF00, 0x00FF00FF, 0xFFFF0000));
+        assertEquals(2L, i64("i64x2_swap", 1, 2));
+    }
+
+    @Test
+    public void floatingPoint() {
+        int nan = i32("f32x4_min", floatToLong(1.0f), floatToLong(Float.NaN));
+        assertEquals(0x7FC00000, nan & 0x7FFFFFFF);
+        assertEquals(0x80000000, i32("f32x4_min", floatToLong(-0.0f), floatToLong(0.0f)));
+        assertEquals(0x80000000, i32("f32x4_min", floatToLong(0.0f), floatToLong(-0.0f)));
+        assertEquals(1.0f, f32("f32x4_pmin", floatToLong(1.0f), floatToLong(Float.NaN)));
+        assertTrue(Float.isNaN(f32("f32x4_pmin", floatToLong(Float.NaN), floatToLong(1.0f))));
+        assertEquals(5.0, f64("f64x2_mul", doubleToLong(2.5), doubleToLong(2.0)));
+        assertEquals(2.0f, f32("f32x4_nearest", floatToLong(2.5f)));
+        assertEquals(4.0f, f32("f32x4_nearest", floatToLong(3.5f)));
+        assertEquals(0x80000000, i32("f32x4_ceil", floatToLong(-0.5f)));
+    }
+
+    @Test
+    public void conversions() {
+        assertEquals(0, i32("i32x4_trunc_sat_f32x4_s", floatToLong(Float.NaN)));
+        assertEquals(Integer.MAX_VALUE, i32("i32x4_trunc_sat_f32x4_s", floatToLong(3e9f)));
+        assertEquals(Integer.MIN_VALUE, i32("i32x4_trunc_sat_f32x4_s", floatToLong(-3e9f)));
+        assertEquals(-1, i32("i32x4_trunc_sat_f32x4_s", floatToLong(-1.7f)));
+        assertEquals(0L, i64("i32x4_trunc_sat_f64x2_u_zero", doubleToLong(-1.0)));
+        assertEquals(-1L, i64("i32x4_trunc_sat_f64x2_u_zero", doubleToLong(5e9)));
+        assertEquals((7L << 32) | 7L, i64("i32x4_trunc_sat_f64x2_u_zero", doubleToLong(7.9)));
+        assertEquals(4294967296.0f, f32("f32x4_convert_i32x4_u", -1));
+        assertEquals(Float.POSITIVE_INFINITY, f32("f32x4_demote_f64x2_zero", doubleToLong(1e300)));
+        assertEquals(1.5f, f32("f32x4_demote_f64x2_zero", doubleToLong(1.5)));
+    }
+
+    @Test
+    public void loadsAndStores() {
+        assertEquals(2L, i64("v128_store_load", 16, 1, 2));
+        assertEquals(0xAB, i32("v128_load8_lane", 0, 0xAB));
+        assertEquals(0x1234, i32("v128_store16_lane", 8));
+        assertEquals(0xFFFFFFFFL, i64("v128_load32_zero", 0, -1));
+        assertEquals(-128, i32("v128_load8x8_s", 0, 0x80));
+        assertEquals(0xBEEF, i32("v128_load16_splat", 0, 0xBEEF));
+        var exception =
+                assertThrows(WasmRuntimeException.class, () -> i64("v128_store_load", 65535, 1, 2));
+        assertTrue(exception.getMessage().startsWith("out of bounds memory access"));
+    }
+}
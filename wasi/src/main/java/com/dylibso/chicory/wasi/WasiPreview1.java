@@ -128,7 +128,7 @@ public final class WasiPreview1 implements Closeable {
             return this;
         }
 
-        private static boolean isAndroid() {
+        static boolean isAndroid() {
             try {
                 Class.forName("android.os.Build");
                 return true;
@@ -0,0 +1,279 @@
+package com.dylibso.chicory.wasi;
+
+import static java.util.Objects.requireNonNull;
+
+import com.dylibso.chicory.annotations.HostModule;
+import com.dylibso.chicory.annotations.WasmExport;
+import com.dylibso.chicory.log.BasicLogger;
+import com.dylibso.chicory.log.Logger;
+import com.dylibso.chicory.log.SystemLogger;
+import com.dylibso.chicory.runtime.HostFunction;
+import com.dylibso.chicory.runtime.Instance;
+import java.io.Closeable;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * <a href="https://github.com/WebAssembly/wasi-threads">wasi-threads</a> implementation
+ * <p>
+ * Each spawned thread runs a new instance of the module of the spawning instance, with the same
+ * imports and so the same shared memory, on the configured {@link Executor}.
+ * As in a process, a trap or an exit in a thread stops all the other threads, and is then returned
+ * by {@link #failure()}. The threads which spawned threads still running, e.g. the main thread
+ * joining them, are interrupted as well.
+ */
+@HostModule("wasi")
+public final class WasiThreads implements Closeable {
+    // the thread ids are positive and below 2^29, see the spec
+    private static final int MAX_TID = 0x1FFFFFFF;
+
+    private final Logger logger;
+    private final Executor executor;
+    private final Semaphore permits;
+    private final Function<Instance, Instance> instanceFactory;
+    private final AtomicInteger nextTid = new AtomicInteger(1);
+
+    // the instances of the spawned threads, and the threads running them
+    private final Map<Instance, Thread> running = new ConcurrentHashMap<>();
+    // the other instances which spawned threads, e.g. the one of the main thread, as long as
+    // the threads they spawned are running
+    private final Map<Instance, Spawner> spawners = new ConcurrentHashMap<>();
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private volatile boolean closed;
+
+    private WasiThreads(
+            Logger logger,
+            Executor executor,
+            int maxThreads,
+            Function<Instance, Instance> instanceFactory) {
+        this.logger = requireNonNull(logger);
+        this.executor = requireNonNull(executor);
+        this.permits = new Semaphore(maxThreads);
+        this.instanceFactory = requireNonNull(instanceFactory);
+    }
+
+    // guarded by the map, updated in its compute methods only
+    private static final class Spawner {
+        private Thread thread;
+        private int threads;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+        private Logger logger;
+        private Executor executor;
+        private int maxThreads = 1024;
+        private Function<Instance, Instance> instanceFactory;
+
+        private Builder() {}
+
+        public Builder withLogger(Logger logger) {
+            this.logger = logger;
+            return this;
+        }
+
+        /**
+         * The executor running the spawned threads, e.g. one of virtual threads, by default
+         * a new daemon platform thread per spawned thread.
+         * Every spawned thread blocks a thread of the executor until it returns.
+         */
+        public Builder withExecutor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * The maximum number of spawned threads running at once, 1024 by default; beyond it
+         * {@code thread-spawn} fails and e.g. {@code pthread_create} returns {@code EAGAIN}.
+         */
+        public Builder withMaxThreads(int maxThreads) {
+            if (maxThreads < 1) {
+                throw new IllegalArgumentException("maxThreads must be positive: " + maxThreads);
+            }
+            this.maxThreads = maxThreads;
+            return this;
+        }
+
+        /**
+         * Creates the instance of a spawned thread from the instance spawning it, e.g. to use
+         * the same machine factory. The new instance must share the memory of the spawning one
+         * and must not run {@code _start}.
+         * By default, it's built from the same module and imports, with the default machine.
+         */
+        public Builder withInstanceFactory(Function<Instance, Instance> instanceFactory) {
+            this.instanceFactory = instanceFactory;
+            return this;
+        }
+
+        public WasiThreads build() {
+            if (logger == null) {
+                logger = WasiPreview1.Builder.isAndroid() ? new BasicLogger() : new SystemLogger();
+            }
+            if (executor == null) {
+                executor =
+                        command -> {
+                            var thread = new Thread(command, "wasi-thread");
+                            thread.setDaemon(true);
+                            thread.start();
+                        };
+            }
+            if (instanceFactory == null) {
+                instanceFactory =
+                        parent ->
+                                Instance.builder(parent.module())
+                                        .withImportValues(parent.imports())
+                                        .withStart(false)
+                                        .build();
+            }
+            return new WasiThreads(logger, executor, maxThreads, instanceFactory);
+        }
+    }
+
+    @WasmExport("thread-spawn")
+    public int threadSpawn(Instance instance, int startArg) {
+        logger.tracef("thread-spawn: [%s]", startArg);
+        if (closed || failure.get() != null) {
+            return -WasiErrno.EAGAIN.value();
+        }
+        if (instance.imports().memoryCount() == 0) {
+            logger.error("thread-spawn: the module must import its shared memory");
+            return -WasiErrno.ENOTSUP.value();
+        }
+        if (!permits.tryAcquire()) {
+            return -WasiErrno.EAGAIN.value();
+        }
+        int tid = nextTid.getAndUpdate(id -> id == MAX_TID ? 1 : id + 1);
+
+        boolean spawner = !running.containsKey(instance);
+        if (spawner) {
+            // stopped too on failure, e.g. while it joins the spawned threads
+            register(instance);
+        }
+        try {
+            executor.execute(() -> run(instance, spawner, tid, startArg));
+        } catch (RejectedExecutionException e) {
+            if (spawner) {
+                unregister(instance);
+            }
+            permits.release();
+            return -WasiErrno.EAGAIN.value();
+        }
+        return tid;
+    }
+
+    private void register(Instance instance) {
+        spawners.compute(
+                instance,
+                (key, spawner) -> {
+                    var current = (spawner == null) ? new Spawner() : spawner;
+                    // the thread of the latest spawn, if the instance is run by several
+                    current.thread = Thread.currentThread();
+                    current.threads++;
+                    return current;
+                });
+    }
+
+    private void unregister(Instance instance) {
+        spawners.computeIfPresent(
+                instance, (key, spawner) -> --spawner.threads == 0 ? null : spawner);
+    }
+
+    private void run(Instance parent, boolean spawner, int tid, int startArg) {
+        Instance instance = null;
+        try {
+            if (closed || failure.get() != null) {
+                return;
+            }
+            instance = instanceFactory.apply(parent);
+            running.put(instance, Thread.currentThread());
+            if (closed || failure.get() != null) {
+                // stopped while instantiating
+                return;
+            }
+            instance.export("wasi_thread_start").apply(tid, startArg);
+        } catch (RuntimeException e) {
+            // a trap or an exit, including with code 0, ends all the threads
+            fail(e);
+        } finally {
+            if (instance != null) {
+                running.remove(instance);
+                if (closed || failure.get() != null) {
+                    // not to interrupt the next task of the executor
+                    Thread.interrupted();
+                }
+            }
+            if (spawner) {
+                unregister(parent);
+            }
+            permits.release();
+        }
+    }
+
+    private void fail(RuntimeException e) {
+        if (failure.compareAndSet(null, e)) {
+            logger.tracef("thread failed, stopping all the threads: %s", e);
+            stop(running);
+            for (var instance : spawners.keySet()) {
+                // the instances of the spawners are not ours, so they are only interrupted:
+                // stopped at the next call or loop iteration, or in memory.atomic.wait
+                spawners.computeIfPresent(
+                        instance,
+                        (key, spawner) -> {
+                            interrupt(spawner.thread);
+                            return spawner;
+                        });
+            }
+        }
+    }
+
+    private static void stop(Map<Instance, Thread> instances) {
+        for (var instance : instances.keySet()) {
+            // atomically with the removal, not to interrupt a thread which returned
+            instances.computeIfPresent(
+                    instance,
+                    (key, thread) -> {
+                        // stops the execution at the next call or loop iteration
+                        key.setEpochDeadline(0);
+                        // and the threads blocked in memory.atomic.wait
+                        interrupt(thread);
+                        return thread;
+                    });
+        }
+    }
+
+    private static void interrupt(Thread thread) {
+        if (thread != Thread.currentThread()) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Returns the trap or the exit which stopped the threads, if any.
+     */
+    public Optional<RuntimeException> failure() {
+        return Optional.ofNullable(failure.get());
+    }
+
+    /**
+     * Stops the spawned threads still running, e.g. once the main thread returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        stop(running);
+    }
+
+    public HostFunction[] toHostFunctions() {
+        return WasiThreads_ModuleFactory.toHostFunctions(this);
+    }
+}
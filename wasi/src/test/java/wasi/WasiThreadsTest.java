@@ -0,0 +1,150 @@
+package wasi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.dylibso.chicory.corpus.CorpusResources;
+import com.dylibso.chicory.runtime.ByteBufferMemory;
+import com.dylibso.chicory.runtime.ChicoryInterruptedException;
+import com.dylibso.chicory.runtime.ImportMemory;
+import com.dylibso.chicory.runtime.ImportValues;
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.runtime.Memory;
+import com.dylibso.chicory.runtime.TrapException;
+import com.dylibso.chicory.wasi.WasiExitException;
+import com.dylibso.chicory.wasi.WasiPreview1;
+import com.dylibso.chicory.wasi.WasiThreads;
+import com.dylibso.chicory.wasm.Parser;
+import com.dylibso.chicory.wasm.types.MemoryLimits;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+@Timeout(10)
+public class WasiThreadsTest {
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+        // the main thread is interrupted when a spawned thread fails
+        Thread.interrupted();
+    }
+
+    private static Instance instantiate(WasiThreads threads, Memory memory) {
+        var wasi = WasiPreview1.builder().build();
+        var imports =
+                ImportValues.builder()
+                        .addFunction(threads.toHostFunctions())
+                        .addFunction(wasi.toHostFunctions())
+                        .addMemory(new ImportMemory("env", "memory", memory))
+                        .build();
+        var module = Parser.parse(CorpusResources.getResource("compiled/wasi-threads.wat.wasm"));
+        return Instance.builder(module).withImportValues(imports).build();
+    }
+
+    private static Memory sharedMemory() {
+        return new ByteBufferMemory(new MemoryLimits(1, 1, true));
+    }
+
+    @Test
+    public void shouldRunThreadsOnSharedMemory() {
+        try (var threads = WasiThreads.builder().withExecutor(executor).build()) {
+            var instance = instantiate(threads, sharedMemory());
+
+            assertEquals(8 * 5, instance.export("run").apply(8, 5)[0]);
+            assertTrue(threads.failure().isEmpty());
+        }
+    }
+
+    @Test
+    public void shouldBoundTheNumberOfThreads() throws InterruptedException {
+        var memory = sharedMemory();
+        try (var threads = WasiThreads.builder().withExecutor(executor).withMaxThreads(2).build()) {
+            var spawn = instantiate(threads, memory).export("spawn");
+
+            // the threads started with -3 block until released
+            long first = spawn.apply(-3)[0];
+            long second = spawn.apply(-3)[0];
+            assertTrue(first > 0 && second > 0 && first != second);
+            assertTrue(spawn.apply(-3)[0] < 0);
+
+            memory.atomicWriteInt(8, 1);
+            memory.atomicNotify(8, -1);
+            while (memory.atomicReadInt(4) < 2) {
+                memory.atomicWait(4, memory.atomicReadInt(4), 1_000_000);
+            }
+            // the permits are released once the threads returned
+            while (spawn.apply(0)[0] < 0) {
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    @Test
+    public void shouldStopAllThreadsOnTrap() {
+        try (var threads = WasiThreads.builder().withExecutor(executor).build()) {
+            var instance = instantiate(threads, sharedMemory());
+
+            // the main thread is stopped while joining the thread
+            assertThrows(
+                    ChicoryInterruptedException.class, () -> instance.export("run").apply(1, -1));
+            assertInstanceOf(TrapException.class, threads.failure().orElseThrow());
+
+            // no more threads can be spawned, once the main thread is resumed
+            Thread.interrupted();
+            assertTrue(instance.export("spawn").apply(0)[0] < 0);
+        }
+    }
+
+    @Test
+    public void shouldNotStopTheSpawnersOfReturnedThreads() throws InterruptedException {
+        var memory = sharedMemory();
+        try (var threads = WasiThreads.builder().withExecutor(executor).withMaxThreads(1).build()) {
+            var instance = instantiate(threads, memory);
+            assertTrue(instance.export("spawn").apply(0)[0] > 0);
+
+            // another instance spawns a failing thread, once the permit of the first one is free
+            var spawn = instantiate(threads, memory).export("spawn");
+            var spawner =
+                    new Thread(
+                            () -> {
+                                while (spawn.apply(-1)[0] < 0) {
+                                    Thread.onSpinWait();
+                                }
+                            });
+            spawner.start();
+            spawner.join();
+            while (threads.failure().isEmpty()) {
+                Thread.sleep(1);
+            }
+
+            assertFalse(Thread.currentThread().isInterrupted());
+            assertTrue(instance.export("spawn").apply(0)[0] < 0);
+        }
+    }
+
+    @Test
+    public void shouldStopAllThreadsOnExit() {
+        try (var threads = WasiThreads.builder().withExecutor(executor).build()) {
+            var instance = instantiate(threads, sharedMemory());
+
+            assertThrows(
+                    ChicoryInterruptedException.class, () -> instance.export("run").apply(1, -2));
+            var exit = assertInstanceOf(WasiExitException.class, threads.failure().orElseThrow());
+            assertEquals(3, exit.exitCode());
+        }
+    }
+}
@@ -0,0 +1,163 @@
+(module
+  (memory 1)
+
+  ;; integer lane arithmetic
+  (func (export "i8x16_add") (param i32 i32) (result i32)
+    (i8x16.extract_lane_u 0
+      (i8x16.add (i8x16.splat (local.get 0)) (i8x16.splat (local.get 1)))))
+  (func (export "i8x16_add_sat_u") (param i32 i32) (result i32)
+    (i8x16.extract_lane_u 15
+      (i8x16.add_sat_u (i8x16.splat (local.get 0)) (i8x16.splat (local.get 1)))))
+  (func (export "i8x16_add_sat_s") (param i32 i32) (result i32)
+    (i8x16.extract_lane_s 7
+      (i8x16.add_sat_s (i8x16.splat (local.get 0)) (i8x16.splat (local.get 1)))))
+  (func (export "i16x8_sub_sat_s") (param i32 i32) (result i32)
+    (i16x8.extract_lane_s 3
+      (i16x8.sub_sat_s (i16x8.splat (local.get 0)) (i16x8.splat (local.get 1)))))
+  (func (export "i32x4_mul") (result i32)
+    (i32.add
+      (i32x4.extract_lane 2
+        (i32x4.mul (v128.const i32x4 1 2 3 0x10000) (v128.const i32x4 5 6 7 0x10000)))
+      (i32x4.extract_lane 3
+        (i32x4.mul (v128.const i32x4 1 2 3 0x10000) (v128.const i32x4 5 6 7 0x10000)))))
+  (func (export "i64x2_add") (param i64 i64) (result i64)
+    (i64x2.extract_lane 1
+      (i64x2.add (i64x2.splat (local.get 0)) (i64x2.splat (local.get 1)))))
+  (func (export "i16x8_avgr_u") (param i32 i32) (result i32)
+    (i16x8.extract_lane_u 0
+      (i16x8.avgr_u (i16x8.splat (local.get 0)) (i16x8.splat (local.get 1)))))
+  (func (export "i32x4_min_u") (param i32 i32) (result i32)
+    (i32x4.extract_lane 1
+      (i32x4.min_u (i32x4.splat (local.get 0)) (i32x4.splat (local.get 1)))))
+  (func (export "i8x16_abs") (param i32) (result i32)
+    (i8x16.extract_lane_s 0 (i8x16.abs (i8x16.splat (local.get 0)))))
+  (func (export "i8x16_popcnt") (param i32) (result i32)
+    (i8x16.extract_lane_u 0 (i8x16.popcnt (i8x16.splat (local.get 0)))))
+
+  ;; shifts, the count is taken modulo the lane width
+  (func (export "i32x4_shl") (param i32 i32) (result i32)
+    (i32x4.extract_lane 0 (i32x4.shl (i32x4.splat (local.get 0)) (local.get 1))))
+  (func (export "i8x16_shr_s") (param i32 i32) (result i32)
+    (i8x16.extract_lane_s 0 (i8x16.shr_s (i8x16.splat (local.get 0)) (local.get 1))))
+  (func (export "i64x2_shr_u") (param i64 i32) (result i64)
+    (i64x2.extract_lane 1 (i64x2.shr_u (i64x2.splat (local.get 0)) (local.get 1))))
+
+  ;; widening and narrowing
+  (func (export "i8x16_narrow_i16x8_s") (param i32 i32) (result i32)
+    (i32.or
+      (i32.shl
+        (i8x16.extract_lane_u 0
+          (i8x16.narrow_i16x8_s (i16x8.splat (local.get 0)) (i16x8.splat (local.get 1))))
+        (i32.const 8))
+      (i8x16.extract_lane_u 8
+        (i8x16.narrow_i16x8_s (i16x8.splat (local.get 0)) (i16x8.splat (local.get 1))))))
+  (func (export "i16x8_extend_low_i8x16_s") (param i32) (result i32)
+    (i16x8.extract_lane_s 0 (i16x8.extend_low_i8x16_s (i8x16.splat (local.get 0)))))
+  (func (export "i16x8_extend_high_i8x16_u") (param i32) (result i32)
+    (i16x8.extract_lane_s 7 (i16x8.extend_high_i8x16_u (i8x16.splat (local.get 0)))))
+  (func (export "i32x4_extmul_low_i16x8_s") (param i32 i32) (result i32)
+    (i32x4.extract_lane 0
+      (i32x4.extmul_low_i16x8_s (i16x8.splat (local.get 0)) (i16x8.splat (local.get 1)))))
+  (func (export "i32x4_dot_i16x8_s") (param i32 i32) (result i32)
+    (i32x4.extract_lane 3
+      (i32x4.dot_i16x8_s (i16x8.splat (local.get 0)) (i16x8.splat (local.get 1)))))
+  (func (export "i16x8_q15mulr_sat_s") (param i32 i32) (result i32)
+    (i16x8.extract_lane_s 0
+      (i16x8.q15mulr_sat_s (i16x8.splat (local.get 0)) (i16x8.splat (local.get 1)))))
+  (func (export "i16x8_extadd_pairwise_i8x16_u") (param i32) (result i32)
+    (i16x8.extract_lane_u 0 (i16x8.extadd_pairwise_i8x16_u (i8x16.splat (local.get 0)))))
+
+  ;; comparisons and boolean reductions
+  (func (export "i32x4_lt_s_bitmask") (result i32)
+    (i32x4.bitmask (i32x4.lt_s (v128.const i32x4 -1 0 1 -5) (v128.const i32x4 0 0 0 0))))
+  (func (export "i32x4_lt_u_bitmask") (result i32)
+    (i32x4.bitmask (i32x4.lt_u (v128.const i32x4 -1 0 1 -5) (v128.const i32x4 0 0 2 0))))
+  (func (export "i8x16_bitmask") (result i32)
+    (i8x16.bitmask (v128.const i8x16 -1 0 0 0 0 0 0 0 0 0 0 0 0 0 0 -128)))
+  (func (export "reductions") (result i32)
+    (i32.add
+      (i32.mul (v128.any_true (v128.const i64x2 0 0)) (i32.const 100))
+      (i32.add
+        (i32.mul (i32x4.all_true (v128.const i32x4 1 1 1 1)) (i32.const 10))
+        (i8x16.all_true (v128.const i8x16 1 1 1 1 1 1 1 1 1 1 1 1 1 1 1 0)))))
+
+  ;; lanes, shuffles and bitwise operations
+  (func (export "i8x16_shuffle") (result i32)
+    (i8x16.shuffle 31 1 2 3 4 5 6 7 8 9 10 11 12 13 14 15
+      (v128.const i8x16 0 1 2 3 4 5 6 7 8 9 10 11 12 13 14 15)
+      (v128.const i8x16 16 17 18 19 20 21 22 23 24 25 26 27 28 29 30 31))
+    (call $first_two_bytes))
+  (func (export "i8x16_swizzle") (result i32)
+    (i8x16.swizzle
+      (v128.const i8x16 10 11 12 13 14 15 16 17 18 19 20 21 22 23 24 25)
+      (v128.const i8x16 3 200 0 0 0 0 0 0 0 0 0 0 0 0 0 0))
+    (call $first_two_bytes))
+  (func $first_two_bytes (param v128) (result i32)
+    (i32.or
+      (i32.shl (i8x16.extract_lane_u 0 (local.get 0)) (i32.const 8))
+      (i8x16.extract_lane_u 1 (local.get 0))))
+  (func (export "i16x8_replace_lane") (param i32) (result i32)
+    (i16x8.extract_lane_u 5 (i16x8.replace_lane 5 (v128.const i64x2 0 0) (local.get 0))))
+  (func (export "v128_bitselect") (param i32 i32 i32) (result i32)
+    (i32x4.extract_lane 0
+      (v128.bitselect
+        (i32x4.splat (local.get 0)) (i32x4.splat (local.get 1)) (i32x4.splat (local.get 2)))))
+  (func (export "i64x2_swap") (param i64 i64) (result i64)
+    (local $v v128)
+    (local.set $v (i64x2.replace_lane 1 (i64x2.splat (local.get 0)) (local.get 1)))
+    (i64x2.extract_lane 0 (call $swap (local.get $v))))
+  (func $swap (param v128) (result v128)
+    (i8x16.shuffle 8 9 10 11 12 13 14 15 0 1 2 3 4 5 6 7 (local.get 0) (local.get 0)))
+
+  ;; floating point
+  (func (export "f32x4_min") (param f32 f32) (result i32)
+    (i32.reinterpret_f32
+      (f32x4.extract_lane 0 (f32x4.min (f32x4.splat (local.get 0)) (f32x4.splat (local.get 1))))))
+  (func (export "f32x4_pmin") (param f32 f32) (result f32)
+    (f32x4.extract_lane 0 (f32x4.pmin (f32x4.splat (local.get 0)) (f32x4.splat (local.get 1)))))
+  (func (export "f64x2_mul") (param f64 f64) (result f64)
+    (f64x2.extract_lane 1 (f64x2.mul (f64x2.splat (local.get 0)) (f64x2.splat (local.get 1)))))
+  (func (export "f32x4_nearest") (param f32) (result f32)
+    (f32x4.extract_lane 2 (f32x4.nearest (f32x4.splat (local.get 0)))))
+  (func (export "f32x4_ceil") (param f32) (result i32)
+    (i32.reinterpret_f32 (f32x4.extract_lane 0 (f32x4.ceil (f32x4.splat (local.get 0))))))
+  (func (export "f64x2_eq") (param f64 f64) (result i64)
+    (i64x2.extract_lane 0 (f64x2.eq (f64x2.splat (local.get 0)) (f64x2.splat (local.get 1)))))
+  (func (export "f64x2_ne") (param f64 f64) (result i64)
+    (i64x2.extract_lane 0 (f64x2.ne (f64x2.splat (local.get 0)) (f64x2.splat (local.get 1)))))
+
+  ;; conversions
+  (func (export "i32x4_trunc_sat_f32x4_s") (param f32) (result i32)
+    (i32x4.extract_lane 0 (i32x4.trunc_sat_f32x4_s (f32x4.splat (local.get 0)))))
+  (func (export "i32x4_trunc_sat_f64x2_u_zero") (param f64) (result i64)
+    (i64x2.extract_lane 0 (i32x4.trunc_sat_f64x2_u_zero (f64x2.splat (local.get 0)))))
+  (func (export "f32x4_convert_i32x4_u") (param i32) (result f32)
+    (f32x4.extract_lane 0 (f32x4.convert_i32x4_u (i32x4.splat (local.get 0)))))
+  (func (export "f32x4_demote_f64x2_zero") (param f64) (result f32)
+    (f32.add
+      (f32x4.extract_lane 0 (f32x4.demote_f64x2_zero (f64x2.splat (local.get 0))))
+      (f32x4.extract_lane 3 (f32x4.demote_f64x2_zero (f64x2.splat (local.get 0))))))
+
+  ;; loads and stores
+  (func (export "v128_store_load") (param i32 i64 i64) (result i64)
+    (v128.store (local.get 0)
+      (i64x2.replace_lane 1 (i64x2.splat (local.get 1)) (local.get 2)))
+    (i64x2.extract_lane 1 (v128.load (local.get 0))))
+  (func (export "v128_load8_lane") (param i32 i32) (result i32)
+    (i32.store8 (local.get 0) (local.get 1))
+    (i8x16.extract_lane_u 5 (v128.load8_lane 5 (local.get 0) (v128.const i64x2 0 0))))
+  (func (export "v128_store16_lane") (param i32) (result i32)
+    (v128.store16_lane 3 (local.get 0) (v128.const i16x8 0 1 2 0x1234 4 5 6 7))
+    (i32.load16_u (local.get 0)))
+  (func (export "v128_load32_zero") (param i32 i32) (result i64)
+    (i32.store (local.get 0) (local.get 1))
+    (i64.add
+      (i64x2.extract_lane 0 (v128.load32_zero (local.get 0)))
+      (i64x2.extract_lane 1 (v128.load32_zero (local.get 0)))))
+  (func (export "v128_load8x8_s") (param i32 i32) (result i32)
+    (i32.store8 (local.get 0) (local.get 1))
+    (i16x8.extract_lane_s 0 (v128.load8x8_s (local.get 0))))
+  (func (export "v128_load16_splat") (param i32 i32) (result i32)
+    (i32.store16 (local.get 0) (local.get 1))
+    (i16x8.extract_lane_u 7 (v128.load16_splat (local.get 0))))
+)
@@ -0,0 +1,12 @@
+(module
+  (import "env" "probe" (func $probe))
+  (func $callee (param i32) (result i32)
+    (call $probe)
+    (i32.add (local.get 0) (i32.const 1)))
+  (func (export "run") (param $n i32) (result i32)
+    (local $acc i32)
+    (loop $l
+      (local.set $acc (call $callee (local.get $acc)))
+      (br_if $l (i32.lt_u (local.get $acc) (local.get $n))))
+    (local.get $acc))
+)
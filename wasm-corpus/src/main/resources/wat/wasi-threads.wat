@@ -0,0 +1,46 @@
+;; A wasi-threads guest: the threads add their start argument to a shared counter
+(module
+  (import "wasi" "thread-spawn" (func $thread_spawn (param i32) (result i32)))
+  (import "wasi_snapshot_preview1" "proc_exit" (func $proc_exit (param i32)))
+  ;; 0: the counter, 4: the number of finished threads, 8: releases the blocked threads
+  (import "env" "memory" (memory 1 1 shared))
+
+  (func (export "wasi_thread_start") (param $tid i32) (param $arg i32)
+    ;; -1 traps, -2 exits with code 3, -3 blocks until released
+    (if (i32.eq (local.get $arg) (i32.const -1))
+      (then (unreachable)))
+    (if (i32.eq (local.get $arg) (i32.const -2))
+      (then (call $proc_exit (i32.const 3))))
+    (if (i32.eq (local.get $arg) (i32.const -3))
+      (then
+        (block $released
+          (loop $blocked
+            (br_if $released (i32.atomic.load (i32.const 8)))
+            (drop (memory.atomic.wait32 (i32.const 8) (i32.const 0) (i64.const -1)))
+            (br $blocked)))
+        (local.set $arg (i32.const 0))))
+    (drop (i32.atomic.rmw.add (i32.const 0) (local.get $arg)))
+    (drop (i32.atomic.rmw.add (i32.const 4) (i32.const 1)))
+    (drop (memory.atomic.notify (i32.const 4) (i32.const -1))))
+
+  ;; spawns a thread, returns its id or a negative error
+  (func (export "spawn") (param $arg i32) (result i32)
+    (call $thread_spawn (local.get $arg)))
+
+  ;; spawns $n threads adding $arg, joins them and returns the counter
+  (func (export "run") (param $n i32) (param $arg i32) (result i32)
+    (local $i i32)
+    (local $done i32)
+    (loop $spawn
+      (if (i32.lt_s (call $thread_spawn (local.get $arg)) (i32.const 1))
+        (then (return (i32.const -1))))
+      (local.set $i (i32.add (local.get $i) (i32.const 1)))
+      (br_if $spawn (i32.lt_u (local.get $i) (local.get $n))))
+    (block $joined
+      (loop $join
+        (local.set $done (i32.atomic.load (i32.const 4)))
+        (br_if $joined (i32.ge_u (local.get $done) (local.get $n)))
+        (drop (memory.atomic.wait32 (i32.const 4) (local.get $done) (i64.const -1)))
+        (br $join)))
+    (i32.atomic.load (i32.const 0)))
+)
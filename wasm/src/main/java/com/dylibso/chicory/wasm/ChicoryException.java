@@ -12,4 +12,9 @@ public class ChicoryException extends RuntimeException {
     public ChicoryException(String msg, Throwable cause) {
         super(msg, cause);
     }
+
+    protected ChicoryException(
+            String msg, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(msg, cause, enableSuppression, writableStackTrace);
+    }
 }
@@ -0,0 +1,46 @@
+package com.dylibso.chicory.wasm;
+
+/**
+ * Emits the JFR events of the parser, when the {@code jdk.jfr} module is available (e.g. not
+ * on Android), through {@link JfrRecorder} so that the event classes are only loaded then.
+ * <p>
+ * The events are disabled by default, and enabled in the JFR settings, e.g.
+ * {@code jfr configure +com.dylibso.chicory.Parse#enabled=true}.
+ */
+final class JfrEvents {
+    private static final boolean AVAILABLE = isAvailable();
+
+    private JfrEvents() {}
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, JfrEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the started event, or {@code null} when it's disabled.
+     */
+    static Object beginParse() {
+        return AVAILABLE ? JfrRecorder.beginParse() : null;
+    }
+
+    static void endParse(Object event, WasmModule module, int size) {
+        if (event != null) {
+            JfrRecorder.endParse(event, module, size);
+        }
+    }
+
+    static Object beginValidate() {
+        return AVAILABLE ? JfrRecorder.beginValidate() : null;
+    }
+
+    static void endValidate(Object event, WasmModule module) {
+        if (event != null) {
+            JfrRecorder.endValidate(event, module);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.dylibso.chicory.wasm;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The JFR events of the parser, only used when JFR is available, see {@link JfrEvents}.
+ */
+final class JfrRecorder {
+
+    private JfrRecorder() {}
+
+    static Object beginParse() {
+        var event = new ParseEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    static void endParse(Object started, WasmModule module, int size) {
+        var event = (ParseEvent) started;
+        event.end();
+        if (event.shouldCommit()) {
+            event.moduleDigest = module.digest();
+            event.size = size;
+            event.functionCount = module.functionSection().functionCount();
+            event.commit();
+        }
+    }
+
+    static Object beginValidate() {
+        var event = new ValidateEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    static void endValidate(Object started, WasmModule module) {
+        var event = (ValidateEvent) started;
+        event.end();
+        if (event.shouldCommit()) {
+            event.moduleDigest = module.digest();
+            event.functionCount = module.functionSection().functionCount();
+            event.commit();
+        }
+    }
+
+    @Name("com.dylibso.chicory.Parse")
+    @Label("Wasm Module Parse")
+    @Description("Parsing of a Wasm module, including its validation")
+    @Category("Chicory")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class ParseEvent extends Event {
+        @Label("Module Digest")
+        String moduleDigest;
+
+        @Label("Size")
+        @DataAmount
+        long size;
+
+        @Label("Function Count")
+        int functionCount;
+    }
+
+    @Name("com.dylibso.chicory.Validate")
+    @Label("Wasm Module Validation")
+    @Category("Chicory")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class ValidateEvent extends Event {
+        @Label("Module Digest")
+        String moduleDigest;
+
+        @Label("Function Count")
+        int functionCount;
+    }
+}
@@ -254,9 +254,11 @@ public final class Parser {
     }
 
     public WasmModule parse(Supplier<InputStream> inputStreamSupplier) {
+        var event = JfrEvents.beginParse();
         WasmModule.Builder moduleBuilder = WasmModule.builder();
         moduleBuilder.withValidation(validate);
         MessageDigest messageDigest = null;
+        int size;
         try (InputStream is = inputStreamSupplier.get()) {
             InputStream maybeDigestedInputStream = is;
             if (!"none".equals(DIGEST_ALGORITHM)) {
@@ -264,7 +266,7 @@ public final class Parser {
                 messageDigest = MessageDigest.getInstance(DIGEST_ALGORITHM);
                 maybeDigestedInputStream = new DigestInputStream(is, messageDigest);
             }
-            parse(maybeDigestedInputStream, (s) -> onSection(moduleBuilder, s));
+            size = parse(maybeDigestedInputStream, (s) -> onSection(moduleBuilder, s), true);
         } catch (IOException | NoSuchAlgorithmException e) {
             throw new ChicoryException(e);
         } catch (MalformedException e) {
@@ -278,14 +280,17 @@ public final class Parser {
             moduleBuilder.withDigest(
                     algo + ":" + Base64.getEncoder().encodeToString(messageDigest.digest()));
         }
-        return moduleBuilder.build();
+        var module = moduleBuilder.build();
+        JfrEvents.endParse(event, module, size);
+        return module;
     }
 
     public void parse(InputStream in, ParserListener listener) {
         parse(in, listener, true);
     }
 
-    private void parse(InputStream in, ParserListener listener, boolean decode) {
+    // returns the size of the module
+    private int parse(InputStream in, ParserListener listener, boolean decode) {
 
         requireNonNull(listener, "listener");
         var validator = new SectionsValidator();
@@ -442,6 +447,7 @@ public final class Parser {
                 }
             }
         }
+        return buffer.capacity();
     }
 
     public static void parseWithoutDecoding(byte[] bytes, ParserListener listener) {
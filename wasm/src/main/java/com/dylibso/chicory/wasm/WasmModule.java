@@ -282,6 +282,7 @@ public final class WasmModule {
                             ignoredSections,
                             digest);
 
+            var event = JfrEvents.beginValidate();
             var validator = new Validator(module);
             validator.validateModule();
             if (validate) {
@@ -293,6 +294,7 @@ public final class WasmModule {
                 validator.validateTags();
                 validator.validateTables();
             }
+            JfrEvents.endValidate(event, module);
 
             return module;
         }
@@ -0,0 +1,124 @@
+package com.dylibso.chicory.wasm.types;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The types of a {@link TypeSection} canonicalised into dense integer ids, the same for the
+ * types that are canonically equivalent (see {@link TypeSection#canonicallyEquivalent(int, int)}),
+ * with the display of their supertypes, so that checking the subtyping of two concrete types,
+ * e.g. in {@code call_indirect}, {@code ref.test} or {@code ref.cast}, takes a single
+ * comparison of ids.
+ * <p>
+ * As a type has at most one declared supertype, the display of a type is the list of the ids
+ * of its supertypes from the root of its hierarchy, followed by its own id: a type is a
+ * subtype of another one at depth {@code d} when the id at depth {@code d} of its display is
+ * the id of the other type.
+ */
+public final class CanonicalTypes {
+    private final int[] ids;
+    private final int[][] displays;
+
+    CanonicalTypes(TypeSection ts) {
+        int count = ts.subTypeCount();
+        this.ids = new int[count];
+        this.displays = new int[count][];
+
+        // the first type of each equivalence class, by a hash of their structure
+        Map<Integer, List<Integer>> canonicals = new HashMap<>();
+        int nextId = 0;
+        for (int idx = 0; idx < count; idx++) {
+            var candidates = canonicals.computeIfAbsent(shape(ts, idx), k -> new ArrayList<>());
+            int id = -1;
+            for (int canonical : candidates) {
+                if (ts.canonicallyEquivalent(canonical, idx)) {
+                    id = ids[canonical];
+                    break;
+                }
+            }
+            if (id < 0) {
+                id = nextId++;
+                candidates.add(idx);
+            }
+            ids[idx] = id;
+        }
+
+        for (int idx = 0; idx < count; idx++) {
+            display(ts, idx);
+        }
+    }
+
+    private int[] display(TypeSection ts, int idx) {
+        if (displays[idx] == null) {
+            var supers = ts.getSubType(idx).typeIdx();
+            // the supertypes are defined before their subtypes, see the validation
+            int[] parent =
+                    (supers.length == 0 || supers[0] >= idx) ? new int[0] : display(ts, supers[0]);
+            var display = Arrays.copyOf(parent, parent.length + 1);
+            display[parent.length] = ids[idx];
+            displays[idx] = display;
+        }
+        return displays[idx];
+    }
+
+    // equal for the canonically equivalent types
+    private static int shape(TypeSection ts, int idx) {
+        var subType = ts.getSubType(idx);
+        int hash = ts.recGroupSize(idx);
+        hash = 31 * hash + (idx - ts.recGroupBase(idx));
+        hash = 31 * hash + (subType.isFinal() ? 1 : 0);
+        hash = 31 * hash + subType.typeIdx().length;
+
+        var comp = subType.compType();
+        if (comp.funcType() != null) {
+            for (var param : comp.funcType().params()) {
+                hash = 31 * hash + shape(param);
+            }
+            hash = 31 * hash + 1;
+            for (var result : comp.funcType().returns()) {
+                hash = 31 * hash + shape(result);
+            }
+        } else if (comp.structType() != null) {
+            hash = 31 * hash + 2;
+            hash = 31 * hash + comp.structType().fieldTypes().length;
+        } else if (comp.arrayType() != null) {
+            hash = 31 * hash + 3;
+        }
+        return hash;
+    }
+
+    // the concrete types are compared relatively to their rec group, so they are left out
+    private static int shape(ValType type) {
+        if (type.isReference() && type.typeIdx() >= 0) {
+            return type.opcode();
+        }
+        return Long.hashCode(type.id());
+    }
+
+    /**
+     * Returns the canonical id of the type at the given index.
+     */
+    public int id(int typeIdx) {
+        return ids[typeIdx];
+    }
+
+    /**
+     * Returns whether the type at {@code typeIdx} is a subtype of, or canonically equivalent to,
+     * the type at {@code superTypeIdx}.
+     */
+    public boolean isSubtype(int typeIdx, int superTypeIdx) {
+        if (superTypeIdx < 0 || superTypeIdx >= ids.length) {
+            return false;
+        }
+        int id = ids[superTypeIdx];
+        if (ids[typeIdx] == id) {
+            return true;
+        }
+        var display = displays[typeIdx];
+        int depth = displays[superTypeIdx].length - 1;
+        return depth < display.length && display[depth] == id;
+    }
+}
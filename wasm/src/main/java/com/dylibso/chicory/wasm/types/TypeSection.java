@@ -12,6 +12,8 @@ public final class TypeSection extends Section {
     // For each flat index, the base index and size of its rec group
     private final int[] recGroupBase;
     private final int[] recGroupSize;
+    // computed on first use, e.g. when the module is instantiated
+    private volatile CanonicalTypes canonicalTypes;
 
     private TypeSection(List<RecType> types) {
         super(SectionId.TYPE);
@@ -316,6 +318,28 @@ public final class TypeSection extends Section {
         return flattenedSubTypes[idx];
     }
 
+    int recGroupBase(int idx) {
+        return recGroupBase[idx];
+    }
+
+    int recGroupSize(int idx) {
+        return recGroupSize[idx];
+    }
+
+    /**
+     * Returns the canonical ids and the subtype displays of the types, computed once per
+     * section.
+     */
+    public CanonicalTypes canonicalTypes() {
+        var result = canonicalTypes;
+        if (result == null) {
+            // computing it twice on a race is harmless
+            result = new CanonicalTypes(this);
+            canonicalTypes = result;
+        }
+        return result;
+    }
+
     public static Builder builder() {
         return new Builder();
     }
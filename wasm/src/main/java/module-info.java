@@ -1,4 +1,6 @@
 module com.dylibso.chicory.wasm {
+    requires static jdk.jfr;
+
     exports com.dylibso.chicory.wasm;
     exports com.dylibso.chicory.wasm.io;
     exports com.dylibso.chicory.wasm.types;
@@ -0,0 +1,61 @@
+package com.dylibso.chicory.wasm.types;
+
+import static com.dylibso.chicory.wasm.types.ValType.I32;
+import static com.dylibso.chicory.wasm.types.ValType.I64;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CanonicalTypesTest {
+
+    private static RecType func(FunctionType type, boolean isFinal, int... supers) {
+        var subType =
+                SubType.builder()
+                        .withTypeIdx(supers)
+                        .withFinal(isFinal)
+                        .withCompType(CompType.builder().withFuncType(type).build())
+                        .build();
+        return RecType.builder().withSubTypes(new SubType[] {subType}).build();
+    }
+
+    private static final CanonicalTypes TYPES =
+            TypeSection.builder()
+                    .addRecType(func(FunctionType.accepting(I32), true)) // 0
+                    .addRecType(func(FunctionType.accepting(I32), true)) // 1, same as 0
+                    .addRecType(func(FunctionType.empty(), false)) // 2
+                    .addRecType(func(FunctionType.empty(), false, 2)) // 3 <: 2
+                    .addRecType(func(FunctionType.empty(), true, 3)) // 4 <: 3 <: 2
+                    .addRecType(func(FunctionType.of(List.of(I64), List.of()), true)) // 5
+                    .build()
+                    .canonicalTypes();
+
+    @Test
+    public void shouldShareTheIdsOfEquivalentTypes() {
+        assertEquals(TYPES.id(0), TYPES.id(1));
+        assertNotEquals(TYPES.id(0), TYPES.id(5));
+        assertNotEquals(TYPES.id(2), TYPES.id(3));
+        assertTrue(TYPES.isSubtype(1, 0));
+        assertTrue(TYPES.isSubtype(0, 1));
+    }
+
+    @Test
+    public void shouldCheckTheSubtypes() {
+        assertTrue(TYPES.isSubtype(3, 2));
+        assertTrue(TYPES.isSubtype(4, 2));
+        assertTrue(TYPES.isSubtype(4, 3));
+        assertFalse(TYPES.isSubtype(2, 3));
+        assertFalse(TYPES.isSubtype(3, 4));
+        assertFalse(TYPES.isSubtype(0, 2));
+        assertFalse(TYPES.isSubtype(0, 5));
+    }
+
+    @Test
+    public void shouldNotMatchUnknownTypes() {
+        assertFalse(TYPES.isSubtype(0, 6));
+        assertFalse(TYPES.isSubtype(0, -1));
+    }
+}